@@ -0,0 +1,137 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.xml.sax.SAXException;
+
+
+/**
+ * The eventual response to a request sent by {@link WebClient#getResponseAsync}. The request is sent on a loader
+ * thread, but the response is only applied to the client - cookies accepted, frames updated and scripts run - by
+ * the thread which asks for it, and only after the responses to any earlier asynchronous requests from the same
+ * client have been applied.
+ *
+ * @since 1.7.4
+ **/
+class AsyncResponse implements Future {
+
+    private final WebWindow _window;
+    private final WebRequest _request;
+    private final SubresourceLoader.PendingResponse _pendingResponse;
+
+    private boolean _applied;
+    private boolean _cancelled;
+    private WebResponse _response;
+    private Exception _failure;
+
+
+    AsyncResponse( WebWindow window, WebRequest request, SubresourceLoader.PendingResponse pendingResponse ) {
+        _window = window;
+        _request = request;
+        _pendingResponse = pendingResponse;
+    }
+
+
+    public boolean cancel( boolean mayInterruptIfRunning ) {
+        if (_applied || _cancelled) return false;
+        _cancelled = true;
+        if (_pendingResponse != null) _pendingResponse.cancel();
+        _window.getClient().removeAsyncResponse( this );
+        return true;
+    }
+
+
+    public boolean isCancelled() {
+        return _cancelled;
+    }
+
+
+    public boolean isDone() {
+        return _cancelled || _window.getClient().isAsyncResponseReady( this );
+    }
+
+
+    public Object get() throws InterruptedException, ExecutionException {
+        try {
+            return get( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+        } catch (TimeoutException e) {
+            throw new IllegalStateException( "Timed out without a time limit" );
+        }
+    }
+
+
+    public Object get( long timeout, TimeUnit unit ) throws InterruptedException, ExecutionException, TimeoutException {
+        if (_cancelled) throw new CancellationException();
+        _window.getClient().applyAsyncResponses( this, unit.toNanos( timeout ) );
+        if (_failure != null) throw new ExecutionException( _failure );
+        return _response;
+    }
+
+
+//------------------------------------------ package members ------------------------------------------------
+
+
+    /**
+     * Returns true if the response has arrived and may be applied without waiting.
+     */
+    boolean isArrived() {
+        return _pendingResponse == null || _pendingResponse.isDone();
+    }
+
+
+    /**
+     * Waits up to the specified time for the response to arrive.
+     * @return the time remaining, in nanoseconds
+     */
+    long await( long timeoutNanos ) throws InterruptedException, TimeoutException {
+        if (_pendingResponse == null || timeoutNanos == Long.MAX_VALUE) {
+            if (_pendingResponse != null) _pendingResponse.await( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+            return timeoutNanos;
+        }
+        long start = System.nanoTime();
+        _pendingResponse.await( timeoutNanos, TimeUnit.NANOSECONDS );
+        return timeoutNanos - (System.nanoTime() - start);
+    }
+
+
+    /**
+     * Applies the response to the client, recording the result or failure to be returned by {@link #get}.
+     */
+    void apply() {
+        try {
+            _response = _window.getResponse( _request, _pendingResponse );
+        } catch (IOException e) {
+            _failure = e;
+        } catch (SAXException e) {
+            _failure = e;
+        } catch (RuntimeException e) {
+            _failure = e;
+        } finally {
+            _applied = true;
+        }
+    }
+}
@@ -21,21 +21,27 @@ package com.meterware.httpunit;
 *******************************************************************************************************************/
 import java.net.PasswordAuthentication;
 import java.net.MalformedURLException;
+import java.net.URL;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Dictionary;
-import java.util.Enumeration;
+import java.security.SecureRandom;
+import java.util.StringTokenizer;
 import java.io.UnsupportedEncodingException;
 
 
 /**
- * A challenge for authentication from the server to a client.
+ * A challenge for authentication from the server to a client. Once a challenge has been answered successfully,
+ * the client keeps it in order to send credentials with later requests in the same protection space without
+ * waiting to be challenged again.
  **/
 class AuthenticationChallenge extends HttpHeader {
 
     private WebClient _client;
     private WebRequest _request;
 
+    /** The number of requests which have been sent using the nonce supplied with this challenge. **/
+    private int _nonceCount;
+
     private static final AuthenticationStrategy BASIC_AUTHENTICATION  = new BasicAuthenticationStrategy();
     private static final AuthenticationStrategy DIGEST_AUTHENTICATION = new DigestAuthenticationStrategy();
 
@@ -73,8 +79,48 @@ class AuthenticationChallenge extends HttpHeader {
 
 
     String createAuthenticationHeader() {
+        return createAuthenticationHeader( _request );
+    }
+
+
+    /**
+     * Creates a header which answers this challenge for the specified request, or null if the client no longer
+     * has credentials for the realm.
+     */
+    String createAuthenticationHeader( WebRequest request ) {
         PasswordAuthentication credentials = getCredentialsForRealm();
-        return getAuthenticationStrategy().createAuthenticationHeader( this, credentials.getUserName(), new String( credentials.getPassword() ) );
+        if (credentials == null) return null;
+        return getAuthenticationStrategy().createAuthenticationHeader( this, request, credentials.getUserName(), new String( credentials.getPassword() ) );
+    }
+
+
+    /**
+     * Returns true if the server rejected a request only because the nonce it carried has expired.
+     */
+    boolean isStale() {
+        return "true".equalsIgnoreCase( getProperty( "stale" ) );
+    }
+
+
+    /**
+     * Returns the URL prefixes of the protection space to which this challenge applies. For digest authentication,
+     * these are the URIs listed by the server in its domain parameter, or the entire server if it lists none;
+     * for basic authentication, they are all paths at or below the directory of the challenged request.
+     */
+    String[] getProtectionSpace() {
+        try {
+            URL url = _request.getURL();
+            if (!getAuthenticationType().equalsIgnoreCase( "digest" )) return new String[] { new URL( url, "." ).toExternalForm() };
+
+            String domain = getProperty( "domain" );
+            if (domain == null) return new String[] { new URL( url, "/" ).toExternalForm() };
+            StringTokenizer st = new StringTokenizer( domain );
+            String[] prefixes = new String[ st.countTokens() ];
+            for (int i = 0; i < prefixes.length; i++) prefixes[i] = new URL( url, st.nextToken() ).toExternalForm();
+            return prefixes;
+        } catch (MalformedURLException e) {
+            return new String[0];
+        }
     }
 
 
@@ -102,14 +148,34 @@ class AuthenticationChallenge extends HttpHeader {
         return result;
     }
 
-    private String getMethod() {
-        return null == _request ? null : _request.getMethod();
+
+    /**
+     * Returns true if the server will accept a digest computed with the "auth" quality of protection.
+     */
+    private boolean isQopAuthOffered() {
+        String qop = getProperty( "qop" );
+        if (qop == null) return false;
+        StringTokenizer st = new StringTokenizer( qop, ", " );
+        while (st.hasMoreTokens()) {
+            if (st.nextToken().equalsIgnoreCase( "auth" )) return true;
+        }
+        return false;
+    }
+
+
+    private synchronized int nextNonceCount() {
+        return ++_nonceCount;
+    }
+
+
+    private static String getMethod( WebRequest request ) {
+        return null == request ? null : request.getMethod();
     }
 
 
-    private String getRequestUri() {
+    private static String getRequestUri( WebRequest request ) {
         try {
-            return null == _request ? null : _request.getURL().getFile();
+            return null == request ? null : request.getURL().getFile();
         } catch (MalformedURLException e) {
             return null;
         }
@@ -117,146 +183,116 @@ class AuthenticationChallenge extends HttpHeader {
 
 
     private interface AuthenticationStrategy {
-        String createAuthenticationHeader( AuthenticationChallenge challenge, String username, String password );
+        String createAuthenticationHeader( AuthenticationChallenge challenge, WebRequest request, String username, String password );
     }
 
 
     private static class BasicAuthenticationStrategy implements AuthenticationStrategy {
 
-        public String createAuthenticationHeader( AuthenticationChallenge challenge, String userName, String password ) {
+        public String createAuthenticationHeader( AuthenticationChallenge challenge, WebRequest request, String userName, String password ) {
             return "Basic " + Base64.encode( userName + ':' + password );
         }
 
     }
 
+    /**
+     * Answers a digest challenge. If the server offers the "auth" quality of protection, each answer carries
+     * a new client nonce and the next nonce count, so that the server nonce may be used for several requests.
+     */
     private static class DigestAuthenticationStrategy implements AuthenticationStrategy {
 
-        private class Algorithm {
+        private static final SecureRandom RANDOM = new SecureRandom();
 
-            public void appendParams( StringBuffer sb, AuthenticationChallenge challenge, String userName, String password ) {
-                appendDigestParams( sb, challenge.getProperty( "realm" ), challenge.getProperty( "nonce" ), challenge.getRequestUri(), userName, password, challenge.getMethod(), challenge.getProperty( "opaque" ) );
-            }
 
+        public String createAuthenticationHeader( AuthenticationChallenge challenge, WebRequest request, String userName, String password ) {
+            String realm = challenge.getProperty( "realm" );
+            String nonce = challenge.getProperty( "nonce" );
+            String uri = getRequestUri( request );
+            String opaque = challenge.getProperty( "opaque" );
 
-            protected void appendDigestParams( StringBuffer sb, String realm, String nonce, String uri, String userName, String password, String method, String opaque ) {
-                sb.append( "username=" ).append( quote( userName ) );
-                append( sb, "realm", realm );
-                append( sb, "nonce", nonce );
-                append( sb, "uri", uri );
-                append( sb, "response", getResponse( userName, realm, password, nonce, uri, method ) );
-                if (opaque!=null)
-                	append( sb, "opaque", opaque );
-            }
-
-
-            protected String getResponse( String userName, String realm, String password, String nonce, String uri, String method ) {
-                try {
-                    String a1 = A1( userName, password, realm, nonce );
-                    String a2 = A2( uri, method );
-                    String ha1 = H( a1 );
-                    String ha2 = H( a2 );
-                    return KD( ha1, nonce + ':' + ha2 );
-                } catch (NoSuchAlgorithmException e) {
-                    return "";
-                } catch (UnsupportedEncodingException e) {
-                    return "";
-                }
-            }
-
-
-            protected String A1( String userName, String password, String realm, String nonce ) throws NoSuchAlgorithmException, UnsupportedEncodingException {
-                return userName + ':' + realm + ':' + password;
-            }
-
-
-            protected String A2( String uri, String method ) {
-                return method + ':' + uri;
-            }
-
-
-            final protected String KD( String secret, String data ) throws NoSuchAlgorithmException, UnsupportedEncodingException {
-                return H( secret + ":" + data );
+            StringBuffer sb = new StringBuffer( "Digest ");
+            sb.append( "username=" ).append( quote( userName ) );
+            append( sb, "realm", realm );
+            append( sb, "nonce", nonce );
+            append( sb, "uri", uri );
+            if (!challenge.isQopAuthOffered()) {
+                append( sb, "response", getResponse( userName, realm, password, uri, getMethod( request ), nonce ) );
+            } else {
+                String nonceCount = toHex( challenge.nextNonceCount() );
+                String cnonce = createCNonce();
+                sb.append( ",qop=auth,nc=" ).append( nonceCount );
+                append( sb, "cnonce", cnonce );
+                append( sb, "response", getResponse( userName, realm, password, uri, getMethod( request ), nonce + ':' + nonceCount + ':' + cnonce + ":auth" ) );
             }
+            if (opaque!=null)
+            	append( sb, "opaque", opaque );
+            return sb.toString();
+        }
 
-            final protected String H( String data ) throws NoSuchAlgorithmException, UnsupportedEncodingException {
-                MessageDigest digest = MessageDigest.getInstance( "MD5" );
-                digest.update( data.getBytes( "UTF8" ) );
-                byte[] bytes = digest.digest();
-                StringBuffer sb = new StringBuffer();
-                for (int i = 0; i < bytes.length; i++) {
-                    int aByte = bytes[i];
-                    if (aByte < 0) aByte += 256;
-                    if (aByte < 16) sb.append( '0' );
-                    sb.append( Integer.toHexString( aByte ) );
-                }
-
-                return sb.toString();
-            }
 
-            private void append( StringBuffer sb, String name, String value ) {
-                sb.append( "," ).append( name ).append( "=" ).append( quote( value ) );
+        /**
+         * Returns the request digest.
+         * @param nonceValue the server nonce, followed by the nonce count, client nonce and qop if the qop is used
+         */
+        private String getResponse( String userName, String realm, String password, String uri, String method, String nonceValue ) {
+            try {
+                String ha1 = H( userName + ':' + realm + ':' + password );
+                String ha2 = H( method + ':' + uri );
+                return H( ha1 + ':' + nonceValue + ':' + ha2 );
+            } catch (NoSuchAlgorithmException e) {
+                return "";
+            } catch (UnsupportedEncodingException e) {
+                return "";
             }
+        }
 
 
-            private String quote( String value ) {
-                if (value.startsWith( "\"" )) {
-                    return value;
-                } else {
-                    return "\"" + value + "\"";
-                }
+        private String H( String data ) throws NoSuchAlgorithmException, UnsupportedEncodingException {
+            MessageDigest digest = MessageDigest.getInstance( "MD5" );
+            digest.update( data.getBytes( "UTF8" ) );
+            byte[] bytes = digest.digest();
+            StringBuffer sb = new StringBuffer();
+            for (int i = 0; i < bytes.length; i++) {
+                int aByte = bytes[i];
+                if (aByte < 0) aByte += 256;
+                if (aByte < 16) sb.append( '0' );
+                sb.append( Integer.toHexString( aByte ) );
             }
 
+            return sb.toString();
         }
 
 
-        private class QopAlgorithm extends Algorithm {
-
-
-            protected void appendDigestParams( StringBuffer sb, String realm, String nonce, String uri, String userName, String password, String method, String opaque ) {
-                super.appendDigestParams( sb, realm, nonce, uri, userName, password, method, opaque );
-//            append( sb, "qop", "auth" );
-//            append( sb, "nc", getNonceCount() );
-//            append( sb, "cnonce", getCNonce() );
-            }
-
-
-            protected String getResponse( String userName, String realm, String password, String nonce, String uri, String method ) {
-                try {
-                    String a1 = A1( userName, password, realm, nonce );
-                    String a2 = A2( uri, method );
-                    String ha1 = H( a1 );
-                    String ha2 = H( a2 );
-                    return KD( ha1, nonce + ':' + ha2 );
-                } catch (NoSuchAlgorithmException e) {
-                    return "";
-                } catch (UnsupportedEncodingException e) {
-                    return "";
-                }
-            }
+        private String toHex( int nonceCount ) {
+            String hex = Integer.toHexString( nonceCount );
+            return "00000000".substring( hex.length() ) + hex;
+        }
 
 
-            protected String A1( String userName, String password, String realm, String nonce ) throws NoSuchAlgorithmException, UnsupportedEncodingException {
-                return H( userName + ":" + realm + ":" + password ) + ":" + nonce + ":" + getCNonce();
+        private String createCNonce() {
+            byte[] bytes = new byte[8];
+            synchronized (RANDOM) {
+                RANDOM.nextBytes( bytes );
             }
+            StringBuffer sb = new StringBuffer();
+            for (int i = 0; i < bytes.length; i++) sb.append( Integer.toHexString( (bytes[i] & 0xff) | 0x100 ).substring( 1 ) );
+            return sb.toString();
+        }
 
 
-            private String getCNonce() {
-                return ":";
-            }
+        private void append( StringBuffer sb, String name, String value ) {
+            sb.append( "," ).append( name ).append( "=" ).append( quote( value ) );
+        }
 
 
-            protected String A2( String uri, String method ) {
-                return super.A2( uri, method );    //To change body of overridden methods use File | Settings | File Templates.
+        private String quote( String value ) {
+            if (value.startsWith( "\"" )) {
+                return value;
+            } else {
+                return "\"" + value + "\"";
             }
         }
 
-        public String createAuthenticationHeader( AuthenticationChallenge challenge, String userName, String password ) {
-            StringBuffer sb = new StringBuffer( "Digest ");
-            Algorithm algorithm = new Algorithm();
-            algorithm.appendParams( sb, challenge, userName, password );
-            return sb.toString();
-        }
-
     }
 
 }
@@ -0,0 +1,233 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.UnsupportedEncodingException;
+
+
+/**
+ * Scans the raw bytes of a page for tags without decoding them. Tag and attribute names are matched in place,
+ * and a string is created only when an attribute value is requested. The contents of script elements and
+ * comments are skipped.
+ **/
+class ByteTagScanner {
+
+    private final byte[] _buffer;
+    private final int    _limit;
+
+    /** The position from which to look for the next tag. **/
+    private int _position;
+
+    /** True if the last tag found was a script start tag. **/
+    private boolean _inScript;
+
+    /** The bounds of the current tag, excluding the angle brackets. **/
+    private int _tagStart;
+    private int _tagEnd;
+
+    /** The bounds of the current tag's name, and the position just after it. **/
+    private int _nameStart;
+    private int _nameEnd;
+    private int _attributesStart;
+
+    /** The bounds of the last token read, and the position from which to read the next one. **/
+    private int _tokenStart;
+    private int _tokenEnd;
+    private int _cursor;
+
+
+    ByteTagScanner( byte[] buffer ) {
+        _buffer = buffer;
+        _limit = buffer.length;
+    }
+
+
+    /**
+     * Advances to the next tag.
+     * @return false if there are no more complete tags.
+     */
+    boolean nextTag() {
+        while (true) {
+            int start = _inScript ? indexOfIgnoreCase( "</script", _position ) : indexOf( '<', _position );
+            _inScript = false;
+            if (start < 0) return false;
+
+            if (regionMatches( start + 1, "!--" )) {
+                int end = indexOfIgnoreCase( "-->", start + 4 );
+                if (end < 0) return false;
+                _position = end + 3;
+                continue;
+            }
+
+            int end = indexOf( '>', start + 1 );
+            if (end < 0) return false;
+            _tagStart = start + 1;
+            _tagEnd = end;
+            _position = end + 1;
+
+            _cursor = _tagStart;
+            nextToken();
+            _nameStart = _tokenStart;
+            _nameEnd = _tokenEnd;
+            _attributesStart = _cursor;
+            _inScript = isTag( "script" );
+            return true;
+        }
+    }
+
+
+    /**
+     * Returns true if the current tag has the specified name, which must be in lower case.
+     */
+    boolean isTag( String name ) {
+        return matchesIgnoreCase( _nameStart, _nameEnd, name );
+    }
+
+
+    /**
+     * Returns the name of the current tag.
+     */
+    String getName() throws UnsupportedEncodingException {
+        return decode( _nameStart, _nameEnd );
+    }
+
+
+    /**
+     * Returns the start of the current tag within the buffer, just after its opening angle bracket.
+     */
+    int getTagStart() {
+        return _tagStart;
+    }
+
+
+    /**
+     * Returns the length of the current tag, excluding its angle brackets.
+     */
+    int getTagLength() {
+        return _tagEnd - _tagStart;
+    }
+
+
+    /**
+     * Returns the value of the specified attribute of the current tag, "" if the attribute has no value,
+     * or null if it is not present. The name must be in lower case.
+     */
+    String getAttribute( String name ) throws UnsupportedEncodingException {
+        String result = null;
+        int attributeStart = -1;
+        int attributeEnd = -1;
+        _cursor = _attributesStart;
+        while (nextToken()) {
+            if (isEqualsToken() && attributeStart >= 0) {
+                boolean matches = matchesIgnoreCase( attributeStart, attributeEnd, name );
+                nextToken();
+                if (matches) result = decode( _tokenStart, _tokenEnd );
+                attributeStart = -1;
+            } else {
+                if (attributeStart >= 0 && matchesIgnoreCase( attributeStart, attributeEnd, name )) result = "";
+                attributeStart = _tokenStart;
+                attributeEnd = _tokenEnd;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Reads the next token within the current tag: a quoted string, an equals sign, or a run of characters
+     * ending with white space or an equals sign.
+     * @return false if there is no token or it is empty.
+     */
+    private boolean nextToken() {
+        int start = _cursor;
+        while (start < _tagEnd && isWhitespace( _buffer[ start ] )) start++;
+        if (start >= _tagEnd) {
+            _tokenStart = _tokenEnd = _cursor = _tagEnd;
+            return false;
+        }
+
+        byte first = _buffer[ start ];
+        int end;
+        if (first == '"' || first == '\'') {
+            for (end = start + 1; end < _tagEnd && _buffer[ end ] != first; end++);
+            _tokenStart = start + 1;
+            _tokenEnd = end;
+            _cursor = Math.min( end + 1, _tagEnd );
+            return _tokenEnd > _tokenStart;
+        } else if (first == '=') {
+            end = start + 1;
+        } else {
+            for (end = start + 1; end < _tagEnd && _buffer[ end ] != '=' && !isWhitespace( _buffer[ end ] ); end++);
+        }
+        _tokenStart = start;
+        _tokenEnd = end;
+        _cursor = end;
+        return true;
+    }
+
+
+    private boolean isEqualsToken() {
+        return _tokenEnd == _tokenStart + 1 && _buffer[ _tokenStart ] == '=';
+    }
+
+
+    private boolean isWhitespace( byte b ) {
+        return Character.isWhitespace( (char) (b & 0xff) );
+    }
+
+
+    private boolean matchesIgnoreCase( int start, int end, String name ) {
+        return end - start == name.length() && regionMatches( start, name );
+    }
+
+
+    /**
+     * Returns true if the bytes at the specified position match the string, which must be in lower case.
+     */
+    private boolean regionMatches( int start, String string ) {
+        if (start + string.length() > _limit) return false;
+        for (int i = 0; i < string.length(); i++) {
+            if (Character.toLowerCase( (char) (_buffer[ start + i ] & 0xff) ) != string.charAt( i )) return false;
+        }
+        return true;
+    }
+
+
+    private int indexOf( char c, int start ) {
+        for (int i = start; i < _limit; i++) {
+            if (_buffer[ i ] == c) return i;
+        }
+        return -1;
+    }
+
+
+    private int indexOfIgnoreCase( String string, int start ) {
+        char first = string.charAt( 0 );
+        for (int i = indexOf( first, start ); i >= 0; i = indexOf( first, i + 1 )) {
+            if (regionMatches( i, string )) return i;
+        }
+        return -1;
+    }
+
+
+    private String decode( int start, int end ) throws UnsupportedEncodingException {
+        return new String( _buffer, start, end - start, WebResponse.getDefaultEncoding() );
+    }
+}
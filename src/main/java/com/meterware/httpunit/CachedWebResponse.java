@@ -0,0 +1,87 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+
+/**
+ * A response supplied from an {@link HttpCache} rather than from the server.
+ **/
+class CachedWebResponse extends WebResponse {
+
+    private HttpCache.Entry _entry;
+
+    private String _referer;
+
+
+    CachedWebResponse( WebClient client, FrameSelector frame, WebRequest request, HttpCache.Entry entry ) throws IOException {
+        super( client, frame, request.getURL() );
+        _entry = entry;
+        _referer = request.getReferer();
+        defineRawInputStream( new ByteArrayInputStream( entry.getBody() ) );
+        if (getContentType().startsWith( "text" )) loadResponseText();
+    }
+
+
+    /**
+     * Returns the response code associated with this response.
+     **/
+    public int getResponseCode() {
+        return _entry.getResponseCode();
+    }
+
+
+    /**
+     * Returns the response message associated with this response.
+     **/
+    public String getResponseMessage() {
+        return _entry.getResponseMessage();
+    }
+
+
+    public String[] getHeaderFieldNames() {
+        return _entry.getHeaderFieldNames();
+    }
+
+
+    /**
+     * Returns the value for the specified header field. If no such field is defined, will return null.
+     **/
+    public String getHeaderField( String fieldName ) {
+        return _entry.getHeader( fieldName );
+    }
+
+
+    public String[] getHeaderFields( String fieldName ) {
+        return _entry.getHeaders( fieldName );
+    }
+
+
+    public String toString() {
+        return "CachedWebResponse [url=" + getURL() + "]";
+    }
+
+
+    String getReferer() {
+        return _referer;
+    }
+}
@@ -0,0 +1,216 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+
+/**
+ * A DNS listener which caches the addresses it looks up. Successful lookups are kept for the time to live; failed
+ * lookups are kept for the negative time to live, during which requests to the host fail without a further lookup.
+ * Host names may also be mapped to fixed addresses, as in a hosts file, so that requests may be directed to local
+ * stand-ins for remote servers. To use a resolver, specify it as the DNS listener for a client; a single resolver
+ * may be shared by any number of clients.
+ *
+ * @since 1.7.4
+ **/
+public class CachingDNSResolver implements DNSListener {
+
+    /** The default time in msec for which a successful lookup is cached. **/
+    public final static long DEFAULT_TIME_TO_LIVE = 60000;
+
+    /** The default time in msec for which a failed lookup is cached. **/
+    public final static long DEFAULT_NEGATIVE_TIME_TO_LIVE = 10000;
+
+    private long _timeToLive = DEFAULT_TIME_TO_LIVE;
+    private long _negativeTimeToLive = DEFAULT_NEGATIVE_TIME_TO_LIVE;
+
+    /** The fixed addresses, keyed by lower-case host name. **/
+    private final Map _staticHosts = new HashMap();
+
+    /** The results of earlier lookups, keyed by lower-case host name. **/
+    private final Map _cache = new HashMap();
+
+    private int _hitCount;
+    private int _missCount;
+
+
+    /**
+     * Returns the time in msec for which a successful lookup is cached.
+     */
+    public synchronized long getTimeToLive() {
+        return _timeToLive;
+    }
+
+
+    /**
+     * Specifies the time in msec for which a successful lookup is cached. Zero disables caching of successful lookups.
+     */
+    public synchronized void setTimeToLive( long timeToLive ) {
+        _timeToLive = timeToLive;
+    }
+
+
+    /**
+     * Returns the time in msec for which a failed lookup is cached.
+     */
+    public synchronized long getNegativeTimeToLive() {
+        return _negativeTimeToLive;
+    }
+
+
+    /**
+     * Specifies the time in msec for which a failed lookup is cached. Zero disables caching of failed lookups.
+     */
+    public synchronized void setNegativeTimeToLive( long negativeTimeToLive ) {
+        _negativeTimeToLive = negativeTimeToLive;
+    }
+
+
+    /**
+     * Maps a host name to a fixed address, which will be used without any lookup.
+     */
+    public synchronized void addHost( String hostName, String ipAddress ) {
+        _staticHosts.put( hostName.toLowerCase(), ipAddress );
+    }
+
+
+    /**
+     * Reads fixed addresses in the format of a hosts file: each line holds an address followed by one or more
+     * host names, and anything following a '#' is ignored.
+     */
+    public void addHosts( Reader reader ) throws IOException {
+        BufferedReader lines = new BufferedReader( reader );
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            if (line.indexOf( '#' ) >= 0) line = line.substring( 0, line.indexOf( '#' ) );
+            StringTokenizer st = new StringTokenizer( line );
+            if (!st.hasMoreTokens()) continue;
+            String ipAddress = st.nextToken();
+            while (st.hasMoreTokens()) addHost( st.nextToken(), ipAddress );
+        }
+    }
+
+
+    /**
+     * Discards all cached lookups. Fixed addresses are retained.
+     */
+    public synchronized void clear() {
+        _cache.clear();
+    }
+
+
+    /**
+     * Returns the number of requests answered without a lookup, either from a fixed address or from the cache.
+     */
+    public synchronized int getHitCount() {
+        return _hitCount;
+    }
+
+
+    /**
+     * Returns the number of lookups performed.
+     */
+    public synchronized int getMissCount() {
+        return _missCount;
+    }
+
+
+    /**
+     * Returns the IP address for the specified host name, or null if the host cannot be found.
+     */
+    public String getIpAddress( String hostName ) {
+        try {
+            return resolve( hostName );
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Returns the IP address for the specified host name, looking it up only if there is no fixed or cached address.
+     * @throws UnknownHostException if the host cannot be found, or could not be found the last time it was looked up
+     */
+    String resolve( String hostName ) throws UnknownHostException {
+        String key = hostName.toLowerCase();
+        synchronized (this) {
+            String ipAddress = (String) _staticHosts.get( key );
+            if (ipAddress == null) {
+                CacheEntry entry = (CacheEntry) _cache.get( key );
+                if (entry != null && entry.isExpired()) {
+                    _cache.remove( key );
+                    entry = null;
+                }
+                if (entry == null) {
+                    _missCount++;
+                } else if (entry._ipAddress == null) {
+                    _hitCount++;
+                    throw new UnknownHostException( hostName );
+                } else {
+                    ipAddress = entry._ipAddress;
+                }
+            }
+            if (ipAddress != null) {
+                _hitCount++;
+                return ipAddress;
+            }
+        }
+
+        try {
+            String ipAddress = InetAddress.getByName( hostName ).getHostAddress();
+            cache( key, ipAddress, getTimeToLive() );
+            return ipAddress;
+        } catch (UnknownHostException e) {
+            cache( key, null, getNegativeTimeToLive() );
+            throw e;
+        }
+    }
+
+
+    private synchronized void cache( String key, String ipAddress, long timeToLive ) {
+        if (timeToLive > 0) _cache.put( key, new CacheEntry( ipAddress, System.currentTimeMillis() + timeToLive ) );
+    }
+
+
+    /**
+     * The result of a lookup: an address, or null if the host could not be found.
+     */
+    private static class CacheEntry {
+
+        private final String _ipAddress;
+        private final long _expiration;
+
+        CacheEntry( String ipAddress, long expiration ) {
+            _ipAddress = ipAddress;
+            _expiration = expiration;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= _expiration;
+        }
+    }
+}
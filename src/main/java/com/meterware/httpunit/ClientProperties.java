@@ -19,6 +19,9 @@ package com.meterware.httpunit;
  * DEALINGS IN THE SOFTWARE.
  *
  *******************************************************************************************************************/
+import com.meterware.httpunit.parsing.HTMLParser;
+import com.meterware.httpunit.parsing.HTMLParserFactory;
+import com.meterware.httpunit.scripting.ScriptingEngineFactory;
 
 /**
  * A class which represents the properties of a web client.
@@ -263,7 +266,8 @@ public class ClientProperties {
 
 
     /**
-     * Specifies a listener for DNS requests from the client.
+     * Specifies a listener for DNS requests from the client. A {@link CachingDNSResolver} avoids repeated lookups
+     * of the same host and may be shared among clients.
      * @param dnsListener the new listener.
      */
     public void setDnsListener( DNSListener dnsListener ) {
@@ -278,6 +282,27 @@ public class ClientProperties {
     DNSListener getDnsListener() {
         return _dnsListener;
     }
+
+
+    /**
+     * Returns the configuration used for https connections made by this client, or null if the default
+     * configuration of the JVM is used.
+     * @since 1.7.4
+     */
+    public HttpsConfiguration getHttpsConfiguration() {
+        return _httpsConfiguration;
+    }
+
+
+    /**
+     * Specifies the configuration to be used for https connections made by this client. Clients which share a
+     * configuration may resume one another's TLS sessions. By default, this is null, and connections are made using
+     * the default configuration of the JVM.
+     * @since 1.7.4
+     */
+    public void setHttpsConfiguration( HttpsConfiguration httpsConfiguration ) {
+        _httpsConfiguration = httpsConfiguration;
+    }
     
 		/**
 		 * @return the whether Referer information should be stripped from the
@@ -297,6 +322,235 @@ public class ClientProperties {
 		}
 
 
+    /**
+     * Returns true if text responses received by the client are held as streams rather than being read into memory.
+     * @since 1.7.4
+     */
+    public boolean isStreamingResponses() {
+        return _streamingResponses;
+    }
+
+
+    /**
+     * Specifies whether text responses should be held as streams rather than being read into memory. If true, the body
+     * of each response is still read from the server when the response is received, but it is only decoded into text
+     * or parsed when it is first requested; a caller which only uses {@link WebResponse#getInputStream} will never
+     * cause it to be held in memory in full. Bodies larger than the streaming spill threshold are saved to
+     * temporary files. Closing the stream returned by getInputStream releases the body, deleting any such file,
+     * after which the body may not be read again. By default, this is false.
+     * @since 1.7.4
+     */
+    public void setStreamingResponses( boolean streamingResponses ) {
+        _streamingResponses = streamingResponses;
+    }
+
+
+    /**
+     * Returns the size in bytes above which a streamed response body will be saved to a temporary file.
+     * @since 1.7.4
+     */
+    public int getStreamingSpillThreshold() {
+        return _streamingSpillThreshold;
+    }
+
+
+    /**
+     * Specifies the size in bytes above which a streamed response body will be saved to a temporary file.
+     * @since 1.7.4
+     */
+    public void setStreamingSpillThreshold( int streamingSpillThreshold ) {
+        _streamingSpillThreshold = streamingSpillThreshold;
+    }
+
+
+    /**
+     * Returns the size in bytes at or above which a request body will be streamed to the server, or -1 if request
+     * bodies are never streamed.
+     * @since 1.7.4
+     */
+    public int getStreamingUploadThreshold() {
+        return _streamingUploadThreshold;
+    }
+
+
+    /**
+     * Specifies the size in bytes at or above which a request body will be streamed to the server rather than
+     * assembled in memory before it is sent. A body whose length can be computed in advance, such as a form which
+     * uploads files, is sent with a Content-Length header, and the contents of each file are read from disk as the
+     * body is written; a body of unknown length, such as one read from an input stream, is always streamed using
+     * chunked transfer-encoding. A streamed request cannot be resent in response to an authentication challenge,
+     * so a server which requires authentication should be sent credentials in advance. By default, this is -1,
+     * and request bodies are never streamed.
+     * @since 1.7.4
+     */
+    public void setStreamingUploadThreshold( int streamingUploadThreshold ) {
+        _streamingUploadThreshold = streamingUploadThreshold;
+    }
+
+
+    /**
+     * Returns true if this client will run scripts in the pages it receives. Unless set for this client,
+     * this is the value of {@link HttpUnitOptions#isScriptingEnabled}.
+     * @since 1.7.4
+     */
+    public boolean isScriptingEnabled() {
+        return _scriptingEnabled != null ? _scriptingEnabled.booleanValue() : HttpUnitOptions.isScriptingEnabled();
+    }
+
+
+    /**
+     * Specifies whether this client should run scripts in the pages it receives, independent of other clients.
+     * Whether script errors throw exceptions, and the messages recorded when they do not, are not set per client:
+     * they remain shared through {@link HttpUnitOptions#setExceptionsThrownOnScriptError}.
+     * @since 1.7.4
+     */
+    public void setScriptingEnabled( boolean scriptingEnabled ) {
+        _scriptingEnabled = Boolean.valueOf( scriptingEnabled );
+    }
+
+
+    /**
+     * Returns the character set used for pages which do not specify one. Unless set for this client,
+     * this is the value of {@link HttpUnitOptions#getDefaultCharacterSet}.
+     * @since 1.7.4
+     */
+    public String getDefaultCharacterSet() {
+        return _defaultCharacterSet != null ? _defaultCharacterSet : HttpUnitOptions.getDefaultCharacterSet();
+    }
+
+
+    /**
+     * Specifies the character set to be used by this client for pages which do not specify one.
+     * @since 1.7.4
+     */
+    public void setDefaultCharacterSet( String defaultCharacterSet ) {
+        _defaultCharacterSet = defaultCharacterSet;
+    }
+
+
+    /**
+     * Returns the content type used for pages which do not specify one. Unless set for this client,
+     * this is the value of {@link HttpUnitOptions#getDefaultContentType}.
+     * @since 1.7.4
+     */
+    public String getDefaultContentType() {
+        return _defaultContentType != null ? _defaultContentType : HttpUnitOptions.getDefaultContentType();
+    }
+
+
+    /**
+     * Specifies the content type to be used by this client for pages which do not specify one.
+     * @since 1.7.4
+     */
+    public void setDefaultContentType( String defaultContentType ) {
+        _defaultContentType = defaultContentType;
+    }
+
+
+    /**
+     * Returns true if this client throws an exception when a message is only partially received. Unless set for
+     * this client, this is the value of {@link HttpUnitOptions#isCheckContentLength}.
+     * @since 1.7.4
+     */
+    public boolean isCheckContentLength() {
+        return _checkContentLength != null ? _checkContentLength.booleanValue() : HttpUnitOptions.isCheckContentLength();
+    }
+
+
+    /**
+     * Specifies whether this client throws an exception when a message is only partially received.
+     * @since 1.7.4
+     */
+    public void setCheckContentLength( boolean checkContentLength ) {
+        _checkContentLength = Boolean.valueOf( checkContentLength );
+    }
+
+
+    /**
+     * Returns true if this client throws an exception when asked to parse as HTML a response whose content type
+     * is not HTML. Unless set for this client, this is the value of {@link HttpUnitOptions#isCheckHtmlContentType}.
+     * @since 1.7.4
+     */
+    public boolean isCheckHtmlContentType() {
+        return _checkHtmlContentType != null ? _checkHtmlContentType.booleanValue() : HttpUnitOptions.isCheckHtmlContentType();
+    }
+
+
+    /**
+     * Specifies whether this client throws an exception when asked to parse as HTML a response whose content type
+     * is not HTML.
+     * @since 1.7.4
+     */
+    public void setCheckHtmlContentType( boolean checkHtmlContentType ) {
+        _checkHtmlContentType = Boolean.valueOf( checkHtmlContentType );
+    }
+
+
+    /**
+     * Returns true if this client dumps the HTTP headers it sends and receives to system output. Unless set for
+     * this client, this is the value of {@link HttpUnitOptions#isLoggingHttpHeaders}.
+     * @since 1.7.4
+     */
+    public boolean isLoggingHttpHeaders() {
+        return _loggingHttpHeaders != null ? _loggingHttpHeaders.booleanValue() : HttpUnitOptions.isLoggingHttpHeaders();
+    }
+
+
+    /**
+     * Specifies whether this client dumps the HTTP headers it sends and receives to system output.
+     * @since 1.7.4
+     */
+    public void setLoggingHttpHeaders( boolean loggingHttpHeaders ) {
+        _loggingHttpHeaders = Boolean.valueOf( loggingHttpHeaders );
+    }
+
+
+    /**
+     * Returns the delay, in milliseconds, before this client issues a redirect request. Unless set for
+     * this client, this is the value of {@link HttpUnitOptions#getRedirectDelay}.
+     * @since 1.7.4
+     */
+    public int getRedirectDelay() {
+        return _redirectDelay != null ? _redirectDelay.intValue() : HttpUnitOptions.getRedirectDelay();
+    }
+
+
+    /**
+     * Specifies the delay, in milliseconds, before this client issues a redirect request.
+     * @since 1.7.4
+     */
+    public void setRedirectDelay( int delayInMilliseconds ) {
+        _redirectDelay = new Integer( delayInMilliseconds );
+    }
+
+
+    /**
+     * Returns the parser used by this client to parse HTML pages. Unless set for this client,
+     * this is the parser returned by {@link HTMLParserFactory#getHTMLParser}.
+     * @since 1.7.4
+     */
+    public HTMLParser getHTMLParser() {
+        return _htmlParser != null ? _htmlParser : HTMLParserFactory.getHTMLParser();
+    }
+
+
+    /**
+     * Specifies the parser to be used by this client to parse HTML pages.
+     * @since 1.7.4
+     */
+    public void setHTMLParser( HTMLParser htmlParser ) {
+        _htmlParser = htmlParser;
+    }
+
+
+    /**
+     * Returns the scripting engine factory to be used for pages received by this client.
+     */
+    ScriptingEngineFactory getScriptingEngine() {
+        return HttpUnitOptions.getScriptingEngine( isScriptingEnabled() );
+    }
+
+
     ClientProperties cloneProperties() {
         return new ClientProperties( this );
     }
@@ -317,10 +571,24 @@ public class ClientProperties {
     private boolean _acceptGzip    = true;
     private boolean _autoRedirect  = true;
     private boolean _autoRefresh   = false;
+    private boolean _streamingResponses = false;
+    private int     _streamingSpillThreshold = 1024 * 1024;
+    private int     _streamingUploadThreshold = -1;
 
     private DNSListener _dnsListener;
+    private HttpsConfiguration _httpsConfiguration;
     private boolean _sendReferer;
 
+    // settings which default to the static values in HttpUnitOptions unless set for this client
+    private Boolean    _scriptingEnabled;
+    private String     _defaultCharacterSet;
+    private String     _defaultContentType;
+    private Boolean    _checkContentLength;
+    private Boolean    _checkHtmlContentType;
+    private Boolean    _loggingHttpHeaders;
+    private Integer    _redirectDelay;
+    private HTMLParser _htmlParser;
+
     private static ClientProperties _defaultProperties = new ClientProperties();
 
 
@@ -351,6 +619,19 @@ public class ClientProperties {
         _autoRefresh         = source._autoRefresh;
         _sendReferer         = source._sendReferer;
         _maxRedirects		 = source._maxRedirects;
+        _streamingResponses  = source._streamingResponses;
+        _streamingSpillThreshold = source._streamingSpillThreshold;
+        _streamingUploadThreshold = source._streamingUploadThreshold;
+        _httpsConfiguration  = source._httpsConfiguration;
+        _dnsListener         = source._dnsListener;
+        _scriptingEnabled    = source._scriptingEnabled;
+        _defaultCharacterSet = source._defaultCharacterSet;
+        _defaultContentType  = source._defaultContentType;
+        _checkContentLength  = source._checkContentLength;
+        _checkHtmlContentType = source._checkHtmlContentType;
+        _loggingHttpHeaders  = source._loggingHttpHeaders;
+        _redirectDelay       = source._redirectDelay;
+        _htmlParser          = source._htmlParser;
     }
 
 
@@ -9,7 +9,8 @@ public interface DNSListener {
 
 
     /**
-     * Returns the IP address as a string for the specified host name.
+     * Returns the IP address as a string for the specified host name, or null if the host is known not to exist,
+     * in which case the request fails with an UnknownHostException without any further lookup.
      * Note: no validation is done to verify that the returned value is an actual IP address or
      * that the passed host name was not an IP address.
      **/
@@ -50,7 +50,7 @@ class FrameHolder {
         _topFrame = FrameSelector.newTopFrame( window );
         DefaultWebResponse blankResponse = new DefaultWebResponse( window.getClient(), null, WebResponse.BLANK_HTML );
         _contents.put( _topFrame, blankResponse );
-        HttpUnitOptions.getScriptingEngine().associate( blankResponse );
+        window.getClient().getClientProperties().getScriptingEngine().associate( blankResponse );
     }
 
 
@@ -174,21 +174,26 @@ class FrameHolder {
         _contents.put( frame, response );
 
         if (response.isHTML()) {
-            HttpUnitOptions.getScriptingEngine().associate( response );
+            response.getClientProperties().getScriptingEngine().associate( response );
             requestContext.addNewResponse( response );
             WebRequest[] requests = response.getFrameRequests();
             if (requests.length > 0) {
                 createSubFrames( frame, response.getFrameSelectors() );
-                for (int i = 0; i < requests.length; i++) {
-                    if (requests[i].getURLString().length() != 0) {
-                        response.getWindow().getSubframeResponse( requests[i], requestContext );
-                    }
-                }
+                response.getWindow().loadSubframes( nonEmptyRequests( requests ), requestContext );
             }
         }
     }
 
 
+    private WebRequest[] nonEmptyRequests( WebRequest[] requests ) {
+        ArrayList result = new ArrayList();
+        for (int i = 0; i < requests.length; i++) {
+            if (requests[i].getURLString().length() != 0) result.add( requests[i] );
+        }
+        return (WebRequest[]) result.toArray( new WebRequest[ result.size() ] );
+    }
+
+
     private void removeSubFrames( FrameSelector frame ) {
         FrameSelector[] subframes = (FrameSelector[]) _subframes.get( frame );
         if (subframes == null) return;
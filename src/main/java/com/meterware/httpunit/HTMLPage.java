@@ -22,8 +22,9 @@ package com.meterware.httpunit;
 import com.meterware.httpunit.scripting.NamedDelegate;
 import com.meterware.httpunit.scripting.ScriptableDelegate;
 import com.meterware.httpunit.scripting.ScriptingHandler;
-import com.meterware.httpunit.parsing.HTMLParserFactory;
 import com.meterware.httpunit.parsing.DocumentAdapter;
+import com.meterware.httpunit.parsing.HTMLParser;
+import com.meterware.httpunit.parsing.StreamingHTMLParser;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -31,6 +32,9 @@ import org.w3c.dom.html.HTMLDocument;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.util.Vector;
 
@@ -45,6 +49,9 @@ public class HTMLPage extends ParsedHTML {
 
     private Scriptable _scriptable;
 
+    /** True if the parser has asked for a script to be included or run. **/
+    private boolean _scriptsRequested;
+
 
     HTMLPage( WebResponse response, FrameSelector frame, URL baseURL, String baseTarget, String characterSet ) {
         super( response, frame, baseURL, baseTarget, null, characterSet );
@@ -268,11 +275,67 @@ public class HTMLPage extends ParsedHTML {
      * @throws IOException
      */
     public void parse( String text, URL pageURL ) throws SAXException, IOException {
-        HTMLParserFactory.getHTMLParser().parse( pageURL, text, new DocumentAdapter() {
+        try {
+            getResponse().getClientProperties().getHTMLParser().parse( pageURL, text, createDocumentAdapter() );
+        } finally {
+            clearPrefetchedScripts();
+        }
+    }
+
+
+    /**
+     * parse the page read from the given stream. If the current parser can read the stream directly, the page is
+     * decoded as it is parsed; otherwise it is first read into a string.
+     * @param pageStream the bytes of the page
+     * @param characterSet the character set in which the page is encoded
+     * @param pageURL
+     * @throws SAXException
+     * @throws IOException
+     * @since 1.7.4
+     */
+    public void parse( InputStream pageStream, String characterSet, URL pageURL ) throws SAXException, IOException {
+        HTMLParser parser = getResponse().getClientProperties().getHTMLParser();
+        if (!(parser instanceof StreamingHTMLParser)) {
+            parse( readText( pageStream, characterSet ), pageURL );
+        } else {
+            try {
+                ((StreamingHTMLParser) parser).parse( pageURL, pageStream, characterSet, createDocumentAdapter() );
+            } finally {
+                clearPrefetchedScripts();
+            }
+        }
+    }
+
+
+    /**
+     * Returns true if the document built for this page depends only on its text, and not on any scripts.
+     */
+    boolean isParsedWithoutScripts() {
+        return !_scriptsRequested;
+    }
+
+
+    private static String readText( InputStream pageStream, String characterSet ) throws IOException {
+        Reader reader = new InputStreamReader( pageStream, characterSet );
+        StringBuffer sb = new StringBuffer();
+        char[] buffer = new char[ 8192 ];
+        for (int count = reader.read( buffer ); count >= 0; count = reader.read( buffer )) sb.append( buffer, 0, count );
+        return sb.toString();
+    }
+
+
+    private DocumentAdapter createDocumentAdapter() {
+        return new DocumentAdapter() {
             public void setDocument(HTMLDocument document ) { HTMLPage.this.setRootNode( document ); }
-            public String getIncludedScript( String srcAttribute ) throws IOException { return HTMLPage.this.getIncludedScript( srcAttribute ); }
-            public ScriptingHandler getScriptingHandler() { return getResponse().getScriptingHandler(); }
-        });
+            public String getIncludedScript( String srcAttribute ) throws IOException {
+                _scriptsRequested = true;
+                return HTMLPage.this.getIncludedScript( srcAttribute );
+            }
+            public ScriptingHandler getScriptingHandler() {
+                _scriptsRequested = true;
+                return getResponse().getScriptingHandler();
+            }
+        };
     }
 
 
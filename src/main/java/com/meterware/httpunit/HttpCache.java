@@ -0,0 +1,705 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.*;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import java.util.*;
+
+
+/**
+ * An HTTP cache which may be placed in front of one or more web clients, so that resources used by many pages,
+ * such as style sheets and scripts, need not be downloaded again for each page. Responses are stored and reused
+ * as directed by their Cache-Control, Expires and Last-Modified headers. A stale response which carries an ETag
+ * or Last-Modified header is revalidated with a conditional request, and reused if the server answers
+ * 304 Not Modified.
+ * <p>
+ * Responses are held in memory, up to a specified total size. If a directory is supplied, responses displaced from
+ * memory are kept there until a second limit is reached. Because a single cache may be shared by many
+ * conversations, it behaves as a shared cache: it never stores responses marked private, responses which set cookies,
+ * or responses to requests which carry credentials, unless the response is explicitly marked as public.
+ *
+ * @since 1.7.4
+ **/
+public class HttpCache {
+
+    /** The default maximum size of the responses held in memory. **/
+    public final static long DEFAULT_MEMORY_SIZE = 16 * 1024 * 1024;
+
+    private final static String[] CACHEABLE_METHODS = { "GET" };
+
+    private final static String[] SAFE_METHODS = { "GET", "HEAD", "OPTIONS", "TRACE" };
+
+    private final static int[] CACHEABLE_STATUS_CODES = { HttpURLConnection.HTTP_OK, HttpURLConnection.HTTP_NOT_AUTHORITATIVE,
+                                                          HttpURLConnection.HTTP_MULT_CHOICE, HttpURLConnection.HTTP_MOVED_PERM,
+                                                          HttpURLConnection.HTTP_GONE };
+
+    /** Headers which describe the stored body, and so are not replaced by those of a 304 response. **/
+    private final static String[] BODY_HEADERS = { "CONTENT-LENGTH", "CONTENT-ENCODING", "TRANSFER-ENCODING" };
+
+    private final static String[] DATE_FORMATS = { "EEE, dd MMM yyyy HH:mm:ss zzz", "EEEE, dd-MMM-yy HH:mm:ss zzz",
+                                                   "EEE MMM d HH:mm:ss yyyy" };
+
+    private long _maxMemorySize;
+
+    private long _memorySize;
+
+    private File _diskDirectory;
+
+    private long _maxDiskSize;
+
+    private long _diskSize;
+
+    private int _numDiskFiles;
+
+    /** The entries held in memory, least recently used first. **/
+    private Map _memoryEntries = new LinkedHashMap( 16, 0.75f, true ); // Map<String,Entry>
+
+    /** The entries held on disk, least recently used first. **/
+    private Map _diskEntries = new LinkedHashMap( 16, 0.75f, true ); // Map<String,DiskEntry>
+
+    private long _hitCount;
+
+    private long _revalidationCount;
+
+    private long _missCount;
+
+
+    /**
+     * Creates a cache which holds up to {@link #DEFAULT_MEMORY_SIZE} bytes of responses in memory.
+     */
+    public HttpCache() {
+        this( DEFAULT_MEMORY_SIZE );
+    }
+
+
+    /**
+     * Creates a cache which holds responses in memory only.
+     * @param maxMemorySize the maximum total size, in bytes, of the responses held
+     */
+    public HttpCache( long maxMemorySize ) {
+        this( maxMemorySize, null, 0 );
+    }
+
+
+    /**
+     * Creates a cache which holds responses in memory and, once they are displaced from memory, on disk.
+     * @param maxMemorySize the maximum total size, in bytes, of the responses held in memory
+     * @param diskDirectory the directory in which to store responses displaced from memory
+     * @param maxDiskSize the maximum total size, in bytes, of the responses held on disk
+     */
+    public HttpCache( long maxMemorySize, File diskDirectory, long maxDiskSize ) {
+        _maxMemorySize = maxMemorySize;
+        _diskDirectory = diskDirectory;
+        _maxDiskSize = maxDiskSize;
+        if (_diskDirectory != null) _diskDirectory.mkdirs();
+    }
+
+
+    /**
+     * Returns the number of responses held, in memory and on disk.
+     */
+    public synchronized int getEntryCount() {
+        return _memoryEntries.size() + _diskEntries.size();
+    }
+
+
+    /**
+     * Returns the total size, in bytes, of the responses held in memory.
+     */
+    public synchronized long getMemorySize() {
+        return _memorySize;
+    }
+
+
+    /**
+     * Returns the total size, in bytes, of the responses held on disk.
+     */
+    public synchronized long getDiskSize() {
+        return _diskSize;
+    }
+
+
+    /**
+     * Returns the number of requests answered from the cache without contacting the server.
+     */
+    public synchronized long getHitCount() {
+        return _hitCount;
+    }
+
+
+    /**
+     * Returns the number of requests answered from the cache after the server confirmed that the stored response
+     * was still valid.
+     */
+    public synchronized long getRevalidationCount() {
+        return _revalidationCount;
+    }
+
+
+    /**
+     * Returns the number of cacheable requests which required a full response from the server.
+     */
+    public synchronized long getMissCount() {
+        return _missCount;
+    }
+
+
+    /**
+     * Discards all stored responses and resets the statistics.
+     */
+    public synchronized void clear() {
+        _memoryEntries.clear();
+        _memorySize = 0;
+        for (Iterator i = _diskEntries.values().iterator(); i.hasNext();) ((DiskEntry) i.next())._file.delete();
+        _diskEntries.clear();
+        _diskSize = 0;
+        _hitCount = _revalidationCount = _missCount = 0;
+    }
+
+
+    /**
+     * Returns the response to the specified request, from the cache if possible, and otherwise from the client.
+     */
+    WebResponse getResponse( WebClient client, WebRequest request, FrameSelector targetFrame ) throws IOException {
+        if (!isCacheableRequest( request )) {
+            WebResponse response = client.newResponse( request, targetFrame );
+            if (!contains( SAFE_METHODS, request.getMethod() ) && response.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST) {
+                invalidate( request.getURL(), response );
+            }
+            return response;
+        }
+
+        String key = getKey( request.getURL() );
+        Entry entry = getEntry( key );
+        if (entry != null && !entry.matchesVariant( client, request )) entry = null;
+
+        long requestTime = System.currentTimeMillis();
+        if (entry != null && !hasRequestDirective( request, "no-cache" ) && entry.isFresh( requestTime )) {
+            recordHit();
+            return new CachedWebResponse( client, targetFrame, request, entry );
+        }
+
+        WebResponse response;
+        if (entry != null && entry.hasValidators()) {
+            response = client.newResponse( request, targetFrame, entry.getConditionalHeaders() );
+        } else {
+            response = client.newResponse( request, targetFrame );
+        }
+        long responseTime = System.currentTimeMillis();
+
+        if (entry != null && response.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            Entry updated = entry.withHeadersFrom( response, requestTime, responseTime );
+            recordRevalidation( key, updated );
+            return new CachedWebResponse( client, targetFrame, request, updated );
+        }
+
+        recordMiss();
+        if (isStorable( client, request, response )) {
+            store( key, new Entry( client, request, response, requestTime, responseTime ) );
+        } else {
+            remove( key );
+        }
+        return response;
+    }
+
+
+//----------------------------------------------- cache policy -------------------------------------------------------
+
+
+    private boolean isCacheableRequest( WebRequest request ) {
+        return contains( CACHEABLE_METHODS, request.getMethod() )
+            && getRequestHeader( request, "If-None-Match" ) == null
+            && getRequestHeader( request, "If-Modified-Since" ) == null
+            && getRequestHeader( request, "Range" ) == null
+            && !hasRequestDirective( request, "no-store" );
+    }
+
+
+    private boolean isStorable( WebClient client, WebRequest request, WebResponse response ) throws IOException {
+        if (!contains( CACHEABLE_STATUS_CODES, response.getResponseCode() )) return false;
+        if (response.isSpooled()) return false;
+
+        Directives directives = new Directives( response.getHeaderFields( "Cache-Control" ) );
+        if (directives.contains( "no-store" ) || directives.contains( "private" )) return false;
+        if (response.getHeaderField( "Set-Cookie" ) != null || response.getHeaderField( "Set-Cookie2" ) != null) return false;
+        if ("*".equals( response.getHeaderField( "Vary" ) )) return false;
+        if (isAuthorized( client, request ) && !directives.contains( "public" ) && !directives.contains( "s-maxage" )
+                                            && !directives.contains( "must-revalidate" )) {
+            return false;
+        }
+        if (!directives.contains( "max-age" ) && !directives.contains( "s-maxage" ) && response.getHeaderField( "Expires" ) == null
+                && response.getHeaderField( "Last-Modified" ) == null && response.getHeaderField( "ETag" ) == null) {
+            return false;
+        }
+        if (response.getContentLength() > _maxMemorySize) return false;
+        return response.getBytes().length <= _maxMemorySize;
+    }
+
+
+    private boolean isAuthorized( WebClient client, WebRequest request ) {
+        return client.hasAuthorization() || getRequestHeader( request, "Authorization" ) != null;
+    }
+
+
+    private boolean hasRequestDirective( WebRequest request, String directive ) {
+        if (new Directives( getRequestHeader( request, "Cache-Control" ) ).contains( directive )) return true;
+        return directive.equals( "no-cache" ) && "no-cache".equalsIgnoreCase( getRequestHeader( request, "Pragma" ) );
+    }
+
+
+    /**
+     * Removes the entries which an unsafe request may have made obsolete: that for its own URL, and those named by
+     * the Location and Content-Location headers of its response.
+     */
+    private void invalidate( URL url, WebResponse response ) {
+        remove( getKey( url ) );
+        String[] names = { "Location", "Content-Location" };
+        for (int i = 0; i < names.length; i++) {
+            String location = response.getHeaderField( names[i] );
+            if (location == null) continue;
+            try {
+                URL target = new URL( url, location );
+                if (target.getHost().equalsIgnoreCase( url.getHost() )) remove( getKey( target ) );
+            } catch (IOException e) {
+                // an invalid location names no entry
+            }
+        }
+    }
+
+
+    private static String getKey( URL url ) {
+        String key = url.toExternalForm();
+        return key.indexOf( '#' ) < 0 ? key : key.substring( 0, key.indexOf( '#' ) );
+    }
+
+
+    /**
+     * Returns the value which the specified header will have when the request is sent.
+     */
+    static String getRequestHeader( WebClient client, WebRequest request, String name ) {
+        String value = getRequestHeader( request, name );
+        if (value != null) return value;
+        if (name.equalsIgnoreCase( "User-Agent" )) return client.getClientProperties().getUserAgent();
+        if (name.equalsIgnoreCase( "Accept-Encoding" ) && client.getClientProperties().isAcceptGzip()) return "gzip";
+        return client.getHeaderField( name );
+    }
+
+
+    private static String getRequestHeader( WebRequest request, String name ) {
+        for (Enumeration e = request.getHeaderDictionary().keys(); e.hasMoreElements();) {
+            String key = (String) e.nextElement();
+            if (key.equalsIgnoreCase( name )) return (String) request.getHeaderDictionary().get( key );
+        }
+        return null;
+    }
+
+
+    private static boolean contains( String[] values, String value ) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equalsIgnoreCase( value )) return true;
+        }
+        return false;
+    }
+
+
+    private static boolean contains( int[] values, int value ) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Parses an HTTP date, returning -1 if it cannot be parsed.
+     */
+    static long parseDate( String value ) {
+        if (value == null) return -1;
+        for (int i = 0; i < DATE_FORMATS.length; i++) {
+            SimpleDateFormat format = new SimpleDateFormat( DATE_FORMATS[i], Locale.US );
+            format.setTimeZone( TimeZone.getTimeZone( "GMT" ) );
+            try {
+                return format.parse( value.trim() ).getTime();
+            } catch (ParseException e) {
+                // try the next format
+            }
+        }
+        return -1;
+    }
+
+
+//----------------------------------------------- storage ------------------------------------------------------------
+
+
+    private synchronized void recordHit() {
+        _hitCount++;
+    }
+
+
+    private synchronized void recordMiss() {
+        _missCount++;
+    }
+
+
+    private synchronized void recordRevalidation( String key, Entry updated ) {
+        _revalidationCount++;
+        if (_memoryEntries.containsKey( key ) || _diskEntries.containsKey( key )) store( key, updated );
+    }
+
+
+    private synchronized Entry getEntry( String key ) {
+        Entry entry = (Entry) _memoryEntries.get( key );
+        if (entry != null) return entry;
+
+        DiskEntry diskEntry = (DiskEntry) _diskEntries.remove( key );
+        if (diskEntry == null) return null;
+        _diskSize -= diskEntry._size;
+        entry = diskEntry.read();
+        if (entry != null) store( key, entry );
+        return entry;
+    }
+
+
+    private synchronized void store( String key, Entry entry ) {
+        remove( key );
+        _memoryEntries.put( key, entry );
+        _memorySize += entry.getSize();
+        while (_memorySize > _maxMemorySize && !_memoryEntries.isEmpty()) {
+            Iterator eldest = _memoryEntries.entrySet().iterator();
+            Map.Entry displaced = (Map.Entry) eldest.next();
+            eldest.remove();
+            _memorySize -= ((Entry) displaced.getValue()).getSize();
+            storeOnDisk( (String) displaced.getKey(), (Entry) displaced.getValue() );
+        }
+    }
+
+
+    private void storeOnDisk( String key, Entry entry ) {
+        if (_diskDirectory == null || entry.getSize() > _maxDiskSize) return;
+
+        File file = new File( _diskDirectory, "entry" + (++_numDiskFiles) + ".cache" );
+        if (!DiskEntry.write( file, entry )) return;
+        _diskEntries.put( key, new DiskEntry( file, entry.getSize() ) );
+        _diskSize += entry.getSize();
+        while (_diskSize > _maxDiskSize) {
+            Iterator eldest = _diskEntries.values().iterator();
+            DiskEntry displaced = (DiskEntry) eldest.next();
+            eldest.remove();
+            _diskSize -= displaced._size;
+            displaced._file.delete();
+        }
+    }
+
+
+    private synchronized void remove( String key ) {
+        Entry entry = (Entry) _memoryEntries.remove( key );
+        if (entry != null) _memorySize -= entry.getSize();
+        DiskEntry diskEntry = (DiskEntry) _diskEntries.remove( key );
+        if (diskEntry != null) {
+            _diskSize -= diskEntry._size;
+            diskEntry._file.delete();
+        }
+    }
+
+
+    /**
+     * The parsed directives of a Cache-Control header.
+     */
+    static class Directives {
+
+        private Map _directives = new HashMap(); // Map<String,String>
+
+
+        Directives( String header ) {
+            this( header == null ? new String[0] : new String[] { header } );
+        }
+
+
+        Directives( String[] headers ) {
+            for (int i = 0; i < headers.length; i++) {
+                StringTokenizer st = new StringTokenizer( headers[i], "," );
+                while (st.hasMoreTokens()) {
+                    String directive = st.nextToken().trim();
+                    int equals = directive.indexOf( '=' );
+                    if (equals < 0) {
+                        _directives.put( directive.toLowerCase(), "" );
+                    } else {
+                        String value = directive.substring( equals+1 ).trim();
+                        if (value.startsWith( "\"" ) && value.endsWith( "\"" ) && value.length() > 1) value = value.substring( 1, value.length()-1 );
+                        _directives.put( directive.substring( 0, equals ).trim().toLowerCase(), value );
+                    }
+                }
+            }
+        }
+
+
+        boolean contains( String directive ) {
+            return _directives.containsKey( directive );
+        }
+
+
+        /**
+         * Returns the value of a directive in seconds, or -1 if it is missing or not a number.
+         */
+        long getSeconds( String directive ) {
+            try {
+                return _directives.containsKey( directive ) ? Long.parseLong( (String) _directives.get( directive ) ) : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+
+    /**
+     * A stored response.
+     */
+    static class Entry implements Serializable {
+
+        private int _responseCode;
+        private String _responseMessage;
+        private LinkedHashMap _headers = new LinkedHashMap(); // Map<String,String[]>, keyed by upper-case name
+        private byte[] _body;
+        private HashMap _variantHeaders = new HashMap();      // Map<String,String>, the request headers named by Vary
+        private long _requestTime;
+        private long _responseTime;
+
+
+        private Entry() {
+        }
+
+
+        Entry( WebClient client, WebRequest request, WebResponse response, long requestTime, long responseTime ) throws IOException {
+            _responseCode = response.getResponseCode();
+            _responseMessage = response.getResponseMessage();
+            _body = response.getBytes();
+            _requestTime = requestTime;
+            _responseTime = responseTime;
+            String encoding = response.getHeaderField( "Content-Encoding" );
+            boolean decoded = encoding != null && encoding.indexOf( "gzip" ) >= 0;
+            String[] names = response.getHeaderFieldNames();
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].toUpperCase();
+                if (decoded && (name.equals( "CONTENT-ENCODING" ) || name.equals( "CONTENT-LENGTH" ))) continue;
+                _headers.put( name, response.getHeaderFields( names[i] ) );
+            }
+
+            String[] vary = getHeaders( "Vary" );
+            for (int i = 0; i < vary.length; i++) {
+                StringTokenizer st = new StringTokenizer( vary[i], "," );
+                while (st.hasMoreTokens()) {
+                    String name = st.nextToken().trim().toUpperCase();
+                    _variantHeaders.put( name, getRequestHeader( client, request, name ) );
+                }
+            }
+        }
+
+
+        /**
+         * Returns a copy of this entry, updated with the headers of a 304 (Not Modified) response.
+         */
+        Entry withHeadersFrom( WebResponse response, long requestTime, long responseTime ) {
+            Entry updated = new Entry();
+            updated._responseCode = _responseCode;
+            updated._responseMessage = _responseMessage;
+            updated._body = _body;
+            updated._variantHeaders = _variantHeaders;
+            updated._headers.putAll( _headers );
+            updated._requestTime = requestTime;
+            updated._responseTime = responseTime;
+
+            String[] names = response.getHeaderFieldNames();
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].toUpperCase();
+                if (!contains( BODY_HEADERS, name )) updated._headers.put( name, response.getHeaderFields( names[i] ) );
+            }
+            return updated;
+        }
+
+
+        int getResponseCode() {
+            return _responseCode;
+        }
+
+
+        String getResponseMessage() {
+            return _responseMessage;
+        }
+
+
+        byte[] getBody() {
+            return _body;
+        }
+
+
+        String[] getHeaderFieldNames() {
+            return (String[]) _headers.keySet().toArray( new String[ _headers.size() ] );
+        }
+
+
+        String[] getHeaders( String name ) {
+            String[] values = (String[]) _headers.get( name.toUpperCase() );
+            return values == null ? new String[0] : values;
+        }
+
+
+        String getHeader( String name ) {
+            String[] values = getHeaders( name );
+            return values.length == 0 ? null : values[0];
+        }
+
+
+        long getSize() {
+            long size = _body.length;
+            for (Iterator i = _headers.entrySet().iterator(); i.hasNext();) {
+                Map.Entry header = (Map.Entry) i.next();
+                String[] values = (String[]) header.getValue();
+                size += ((String) header.getKey()).length();
+                for (int j = 0; j < values.length; j++) size += values[j].length();
+            }
+            return size;
+        }
+
+
+        boolean matchesVariant( WebClient client, WebRequest request ) {
+            for (Iterator i = _variantHeaders.entrySet().iterator(); i.hasNext();) {
+                Map.Entry header = (Map.Entry) i.next();
+                String value = getRequestHeader( client, request, (String) header.getKey() );
+                if (value == null ? header.getValue() != null : !value.equals( header.getValue() )) return false;
+            }
+            return true;
+        }
+
+
+        boolean hasValidators() {
+            return getHeader( "ETag" ) != null || getHeader( "Last-Modified" ) != null;
+        }
+
+
+        Map getConditionalHeaders() {
+            Map headers = new HashMap();
+            if (getHeader( "ETag" ) != null) headers.put( "If-None-Match", getHeader( "ETag" ) );
+            if (getHeader( "Last-Modified" ) != null) headers.put( "If-Modified-Since", getHeader( "Last-Modified" ) );
+            return headers;
+        }
+
+
+        boolean isFresh( long now ) {
+            Directives directives = new Directives( getHeaders( "Cache-Control" ) );
+            if (directives.contains( "no-cache" ) || "no-cache".equalsIgnoreCase( getHeader( "Pragma" ) )) return false;
+            return getFreshnessLifetime( directives ) > getCurrentAge( now );
+        }
+
+
+        private long getFreshnessLifetime( Directives directives ) {
+            long maxAge = directives.getSeconds( "s-maxage" );
+            if (maxAge < 0) maxAge = directives.getSeconds( "max-age" );
+            if (maxAge >= 0) return 1000 * maxAge;
+
+            long date = getDate();
+            if (getHeader( "Expires" ) != null) {
+                long expires = parseDate( getHeader( "Expires" ) );
+                return expires < 0 ? 0 : expires - date;
+            }
+
+            long lastModified = parseDate( getHeader( "Last-Modified" ) );
+            return lastModified < 0 || lastModified > date ? 0 : (date - lastModified) / 10;
+        }
+
+
+        private long getCurrentAge( long now ) {
+            long apparentAge = Math.max( 0, _responseTime - getDate() );
+            long ageValue = 0;
+            try {
+                if (getHeader( "Age" ) != null) ageValue = 1000 * Long.parseLong( getHeader( "Age" ).trim() );
+            } catch (NumberFormatException e) {
+                // ignore an invalid age
+            }
+            long correctedAge = ageValue + (_responseTime - _requestTime);
+            return Math.max( apparentAge, correctedAge ) + (now - _responseTime);
+        }
+
+
+        private long getDate() {
+            long date = parseDate( getHeader( "Date" ) );
+            return date < 0 ? _responseTime : date;
+        }
+    }
+
+
+    /**
+     * An entry which has been written to disk.
+     */
+    private static class DiskEntry {
+
+        private File _file;
+        private long _size;
+
+
+        DiskEntry( File file, long size ) {
+            _file = file;
+            _size = size;
+        }
+
+
+        static boolean write( File file, Entry entry ) {
+            try {
+                ObjectOutputStream out = new ObjectOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) );
+                try {
+                    out.writeObject( entry );
+                } finally {
+                    out.close();
+                }
+                return true;
+            } catch (IOException e) {
+                file.delete();
+                return false;
+            }
+        }
+
+
+        /**
+         * Reads the entry back into memory and deletes its file. Returns null if the file cannot be read.
+         */
+        Entry read() {
+            try {
+                ObjectInputStream in = new ObjectInputStream( new BufferedInputStream( new FileInputStream( _file ) ) );
+                try {
+                    return (Entry) in.readObject();
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                return null;
+            } catch (ClassNotFoundException e) {
+                return null;
+            } finally {
+                _file.delete();
+            }
+        }
+    }
+}
@@ -66,7 +66,7 @@ public abstract class HttpUnitOptions {
         _loggingHttpHeaders = false;
         _matchesIgnoreCase = true;
         _checkContentLength = false;
-        _redirectDelay = 0;                                          // TODO move this to ClientProperties
+        _redirectDelay = 0;
         _characterSet = HttpUnitUtils.DEFAULT_CHARACTER_SET;
         _contentType = DEFAULT_CONTENT_TYPE;
         _postIncludesCharset = false;
@@ -420,7 +420,7 @@ public abstract class HttpUnitOptions {
     }
 
 
-    public static void setScriptEngineClassName( String scriptEngineClassName ) {
+    public static synchronized void setScriptEngineClassName( String scriptEngineClassName ) {
         if (_scriptEngineClassName == null || !_scriptEngineClassName.equals( scriptEngineClassName )) {
             _scriptingEngine = null;
         }
@@ -429,6 +429,15 @@ public abstract class HttpUnitOptions {
 
 
     public static ScriptingEngineFactory getScriptingEngine() {
+        return getScriptingEngine( _scriptingEnabled );
+    }
+
+
+    /**
+     * Returns the configured scripting engine factory if scripting is enabled, or one which does nothing otherwise.
+     */
+    static synchronized ScriptingEngineFactory getScriptingEngine( boolean scriptingEnabled ) {
+        if (!scriptingEnabled) return NULL_SCRIPTING_ENGINE_FACTORY;
         if (_scriptingEngine == null) {
             try {
                 Class factoryClass = Class.forName( _scriptEngineClassName );
@@ -451,10 +460,8 @@ public abstract class HttpUnitOptions {
      * change the scriptingEnabled flag
      * @param scriptingEnabled
      */
-    public static void setScriptingEnabled( boolean scriptingEnabled ) {
-        if (scriptingEnabled != _scriptingEnabled) {
-            _scriptingEngine = scriptingEnabled ? null : NULL_SCRIPTING_ENGINE_FACTORY;
-        }
+    public static synchronized void setScriptingEnabled( boolean scriptingEnabled ) {
+        if (scriptingEnabled && !_scriptingEnabled) _scriptingEngine = null;
         _scriptingEnabled = scriptingEnabled;
     }
 
@@ -53,7 +53,7 @@ class HttpWebResponse extends WebResponse {
      **/
     HttpWebResponse( WebConversation client, FrameSelector frame, URL url, URLConnection connection, boolean throwExceptionOnError ) throws IOException {
         super( client, frame, url );
-        if (HttpUnitOptions.isLoggingHttpHeaders()) System.out.println( "\nReceived from " + url );
+        if (getClientProperties().isLoggingHttpHeaders()) System.out.println( "\nReceived from " + url );
         readHeaders( connection );
 
         /** make sure that any IO exception for HTML received page happens here, not later. **/
@@ -61,7 +61,9 @@ class HttpWebResponse extends WebResponse {
         	InputStream inputStream = getInputStream( connection );
             defineRawInputStream( new BufferedInputStream( inputStream ) );
             String contentType = getContentType();
-            if (contentType.startsWith( "text" ))	{
+            if (contentType.startsWith( "text" ) && client != null && client.getClientProperties().isStreamingResponses()) {
+                spoolResponseBody();
+            } else if (contentType.startsWith( "text" ))	{
             	loadResponseText();
             }
         }
@@ -262,14 +264,14 @@ class HttpWebResponse extends WebResponse {
 
 
     private void loadHeaders( URLConnection connection ) {
-        if (HttpUnitOptions.isLoggingHttpHeaders()) {
+        if (getClientProperties().isLoggingHttpHeaders()) {
             System.out.println( "Header:: " + connection.getHeaderField(0) );
         }
         for (int i = 1; true; i++) {
             String headerFieldKey = connection.getHeaderFieldKey( i );
             String headerField = connection.getHeaderField(i);
             if (headerFieldKey == null || headerField == null) break;
-            if (HttpUnitOptions.isLoggingHttpHeaders()) {
+            if (getClientProperties().isLoggingHttpHeaders()) {
                 System.out.println( "Header:: " + headerFieldKey + ": " + headerField );
             }
             addHeader( headerFieldKey.toUpperCase(), headerField );
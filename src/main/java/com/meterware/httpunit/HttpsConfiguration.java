@@ -0,0 +1,250 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+
+/**
+ * The configuration used by clients to make https connections. A configuration holds a single SSL context, whose
+ * session cache allows a connection to resume a TLS session negotiated by an earlier one rather than performing
+ * a full handshake. Sharing a configuration among several clients allows them to resume one another's sessions.
+ * <p>
+ * The configuration also records the handshakes performed by the connections it creates. Since the JSSE reports
+ * completed handshakes on a separate thread, these counts may briefly lag behind the connections which have been made.
+ * </p>
+ *
+ * @since 1.7.4
+ **/
+public class HttpsConfiguration {
+
+    private final SSLContext _context;
+
+    private final SSLSocketFactory _socketFactory;
+
+    /** The time at which each socket not yet reported as having completed its handshake was created. **/
+    private final Map _pendingHandshakes = new WeakHashMap();
+
+    private int _handshakeCount;
+    private int _resumedCount;
+    private long _totalHandshakeTime;
+
+
+    /**
+     * Creates a configuration whose connections will accept any server certificate.
+     */
+    public HttpsConfiguration() throws GeneralSecurityException {
+        this( HttpsProtocolSupport.createTrustingContext() );
+    }
+
+
+    /**
+     * Creates a configuration whose connections will use the specified, initialized, SSL context.
+     */
+    public HttpsConfiguration( SSLContext context ) {
+        _context = context;
+        _socketFactory = new RecordingSocketFactory( context.getSocketFactory() );
+    }
+
+
+    /**
+     * Returns the SSL context used by this configuration.
+     */
+    public SSLContext getContext() {
+        return _context;
+    }
+
+
+    /**
+     * Returns the socket factory to be used for https connections.
+     */
+    public SSLSocketFactory getSocketFactory() {
+        return _socketFactory;
+    }
+
+
+    /**
+     * Returns the maximum number of sessions which will be kept for resumption, or zero if there is no limit.
+     */
+    public int getSessionCacheSize() {
+        return getSessionContext().getSessionCacheSize();
+    }
+
+
+    /**
+     * Specifies the maximum number of sessions which will be kept for resumption. Zero means no limit.
+     */
+    public void setSessionCacheSize( int size ) {
+        getSessionContext().setSessionCacheSize( size );
+    }
+
+
+    /**
+     * Returns the time in seconds for which a session may be resumed, or zero if there is no limit.
+     */
+    public int getSessionTimeout() {
+        return getSessionContext().getSessionTimeout();
+    }
+
+
+    /**
+     * Specifies the time in seconds for which a session may be resumed. Zero means no limit.
+     */
+    public void setSessionTimeout( int seconds ) {
+        getSessionContext().setSessionTimeout( seconds );
+    }
+
+
+    /**
+     * Returns the number of handshakes completed by connections using this configuration.
+     */
+    public synchronized int getHandshakeCount() {
+        return _handshakeCount;
+    }
+
+
+    /**
+     * Returns the number of completed handshakes which resumed an existing session rather than negotiating a new one.
+     */
+    public synchronized int getResumedSessionCount() {
+        return _resumedCount;
+    }
+
+
+    /**
+     * Returns the total time in msec spent by connections between being created and completing their handshakes.
+     * For connections which create their sockets before connecting them, this includes the time taken to connect.
+     */
+    public synchronized long getTotalHandshakeTime() {
+        return _totalHandshakeTime;
+    }
+
+
+    /**
+     * Resets the handshake counts and times to zero.
+     */
+    public synchronized void resetStatistics() {
+        _handshakeCount = _resumedCount = 0;
+        _totalHandshakeTime = 0;
+    }
+
+
+    private SSLSessionContext getSessionContext() {
+        return _context.getClientSessionContext();
+    }
+
+
+    private synchronized Socket recordCreation( Socket socket ) {
+        if (socket instanceof SSLSocket) {
+            _pendingHandshakes.put( socket, new Long( System.currentTimeMillis() ) );
+            ((SSLSocket) socket).addHandshakeCompletedListener( _listener );
+        }
+        return socket;
+    }
+
+
+    /**
+     * Records a completed handshake. A session created before the socket which reports it must have been resumed.
+     */
+    synchronized void recordHandshake( SSLSocket socket, long sessionCreationTime ) {
+        long now = System.currentTimeMillis();
+        Long created = (Long) _pendingHandshakes.remove( socket );
+        _handshakeCount++;
+        if (created == null) return;
+        _totalHandshakeTime += now - created.longValue();
+        if (sessionCreationTime < created.longValue()) _resumedCount++;
+    }
+
+
+    private final HandshakeCompletedListener _listener = new HandshakeCompletedListener() {
+        public void handshakeCompleted( HandshakeCompletedEvent event ) {
+            recordHandshake( event.getSocket(), event.getSession().getCreationTime() );
+        }
+    };
+
+
+//==================================================================================================
+
+
+    /**
+     * A socket factory which records the creation of each socket so that its handshake may be timed.
+     */
+    private class RecordingSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory _factory;
+
+
+        RecordingSocketFactory( SSLSocketFactory factory ) {
+            _factory = factory;
+        }
+
+
+        public String[] getDefaultCipherSuites() {
+            return _factory.getDefaultCipherSuites();
+        }
+
+
+        public String[] getSupportedCipherSuites() {
+            return _factory.getSupportedCipherSuites();
+        }
+
+
+        public Socket createSocket() throws IOException {
+            return recordCreation( _factory.createSocket() );
+        }
+
+
+        public Socket createSocket( Socket socket, String host, int port, boolean autoClose ) throws IOException {
+            return recordCreation( _factory.createSocket( socket, host, port, autoClose ) );
+        }
+
+
+        public Socket createSocket( String host, int port ) throws IOException {
+            return recordCreation( _factory.createSocket( host, port ) );
+        }
+
+
+        public Socket createSocket( String host, int port, InetAddress localHost, int localPort ) throws IOException {
+            return recordCreation( _factory.createSocket( host, port, localHost, localPort ) );
+        }
+
+
+        public Socket createSocket( InetAddress host, int port ) throws IOException {
+            return recordCreation( _factory.createSocket( host, port ) );
+        }
+
+
+        public Socket createSocket( InetAddress address, int port, InetAddress localAddress, int localPort ) throws IOException {
+            return recordCreation( _factory.createSocket( address, port, localAddress, localPort ) );
+        }
+    }
+}
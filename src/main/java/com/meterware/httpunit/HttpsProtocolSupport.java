@@ -20,6 +20,7 @@ package com.meterware.httpunit;
 * DEALINGS IN THE SOFTWARE.
 *
 *******************************************************************************************************************/
+import java.security.GeneralSecurityException;
 import java.security.Provider;
 import java.security.Security;
 import java.security.cert.CertificateException;
@@ -167,6 +168,14 @@ public abstract class HttpsProtocolSupport {
      * proposed by Florian Weimar
      */
     public static SSLSocketFactory getSocketFactory() throws Exception {
+    	return createTrustingContext().getSocketFactory();
+    }
+
+
+    /**
+     * Creates an SSL context which uses an anything-goes trust manager.
+     */
+    static SSLContext createTrustingContext() throws GeneralSecurityException {
     	final SSLContext context = SSLContext.getInstance("TLS");
     	context.init(null, new X509TrustManager[] {
     		new X509TrustManager() {
@@ -186,8 +195,8 @@ public abstract class HttpsProtocolSupport {
     		    }
 
     		}}, null);
-    	return context.getSocketFactory();
-        }
+    	return context;
+    }
 
 
     /**
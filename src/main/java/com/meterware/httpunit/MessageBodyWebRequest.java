@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 
@@ -108,6 +109,26 @@ public class MessageBodyWebRequest extends WebRequest {
     }
 
 
+    long getMessageBodyLength() throws IOException {
+        return getMessageBody().getContentLength( getParameterHolder() );
+    }
+
+
+    /**
+     * Streams a body of known length with a Content-Length header if it is long enough to warrant it, and
+     * a body of unknown length using chunked transfer-encoding.
+     */
+    void selectStreamingMode( HttpURLConnection connection, int threshold ) throws IOException {
+        if (threshold < 0) return;
+        long length = getMessageBodyLength();
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            connection.setChunkedStreamingMode( 0 );
+        } else if (length >= threshold) {
+            connection.setFixedLengthStreamingMode( (int) length );
+        }
+    }
+
+
     /**
      * Performs any additional processing necessary to complete the request.
      **/
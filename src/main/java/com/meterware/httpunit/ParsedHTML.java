@@ -26,6 +26,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.html.*;
 
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
 import java.io.IOException;
@@ -84,6 +85,9 @@ public class ParsedHTML {
     private ArrayList    _frameList = new ArrayList();
     private WebFrame[]   _frames;
 
+    /** map of script URLs to responses already requested from the subresource loader. **/
+    private Hashtable    _prefetchedScripts = new Hashtable();
+
 
 
     ParsedHTML( WebResponse response, FrameSelector frame, URL baseURL, String baseTarget, Node rootNode, String characterSet ) {
@@ -377,7 +381,7 @@ public class ParsedHTML {
      * @param element
      */
     void interpretScriptElement( Element element ) {
-        if (!HttpUnitOptions.isScriptingEnabled()) {
+        if (!getClientProperties().isScriptingEnabled()) {
             _enableNoScriptNodes = true;
             return;
         }
@@ -416,6 +420,31 @@ public class ParsedHTML {
     }
 
 
+    /**
+     * Starts retrieving an included script, so that it will be available when the parser reaches it.
+     * @param srcAttribute the location of the script.
+     */
+    void prefetchIncludedScript( String srcAttribute ) {
+        try {
+            WebRequest req = new GetMethodWebRequest( getBaseURL(), srcAttribute );
+            String key = req.getURL().toExternalForm();
+            if (!WebWindow.isRemoteResource( req ) || _prefetchedScripts.containsKey( key )) return;
+            SubresourceLoader.PendingResponse pending = getResponse().getWindow().prefetchResource( req );
+            if (pending != null) _prefetchedScripts.put( key, pending );
+        } catch (MalformedURLException e) {
+            // leave it for the parser to report
+        }
+    }
+
+
+    /**
+     * Discards any included scripts which were retrieved but not used by the parser.
+     */
+    void clearPrefetchedScripts() {
+        _prefetchedScripts.clear();
+    }
+
+
     /**
      * Returns the contents of an included script, given its src attribute.
      * @param srcAttribute the location of the script.
@@ -427,7 +456,7 @@ public class ParsedHTML {
         WebWindow window = getResponse().getWindow();
         if (window == null) 
         	throw new IllegalStateException( "Unable to retrieve script included by this response, since it was loaded by getResource(). Use getResponse() instead.");
-        WebResponse response = window.getResource( req );
+        WebResponse response = window.getResource( req, (SubresourceLoader.PendingResponse) _prefetchedScripts.remove( req.getURL().toExternalForm() ) );
         // check whether the Source is available
         int code = response.getResponseCode();
         // if everything is o.k.
@@ -441,7 +470,7 @@ public class ParsedHTML {
         	ScriptException se=new ScriptException("reponseCode "+code+" on getIncludedScript for src='"+srcAttribute+"'");
         	String badScript=null;
         	// let scripting engine decide what to do with this exception (throw it or remember it ...)
-        	HttpUnitOptions.getScriptingEngine().handleScriptException(se, badScript);
+        	getClientProperties().getScriptingEngine().handleScriptException(se, badScript);
         	return "";
         }
     }
@@ -741,8 +770,9 @@ public class ParsedHTML {
     }
 
 
-    private static HashMap _htmlFactoryClasses = new HashMap();
-    private static HTMLElementFactory _defaultFactory = new DefaultElementFactory();
+    // populated only during class initialization, so may be read by any number of threads without locking
+    private final static HashMap _htmlFactoryClasses = new HashMap();
+    private final static HTMLElementFactory _defaultFactory = new DefaultElementFactory();
 
     static {
         _htmlFactoryClasses.put( "a",        new WebLinkFactory() );
@@ -809,8 +839,7 @@ public class ParsedHTML {
 
 
     private ClientProperties getClientProperties() {
-        WebWindow window = _response.getWindow();
-        return window == null ? ClientProperties.getDefaultProperties() : window.getClient().getClientProperties();
+        return _response.getClientProperties();
     }
 
 
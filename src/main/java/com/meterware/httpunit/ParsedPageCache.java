@@ -0,0 +1,256 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import com.meterware.httpunit.parsing.HTMLParser;
+import com.meterware.httpunit.parsing.HTMLParserFactory;
+import org.w3c.dom.html.HTMLDocument;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A bounded cache of parsed pages, keyed by a digest of their contents and the settings of the parser which read
+ * them. A client which receives a page identical to one already parsed, such as a static frame or a login page,
+ * is given a copy of the earlier document rather than parsing the page again. Each response receives its own
+ * copy, so that changes made to one page by scripts or form input do not affect any other.
+ * <p>
+ * Only pages which contain no scripts are cached, since the document built from a page with scripts depends on
+ * what those scripts do when they are run. A single cache may be shared by many clients. The least recently used
+ * pages are discarded once the cache is full.
+ *
+ * @since 1.7.4
+ **/
+public class ParsedPageCache {
+
+    /** The default number of parsed pages retained by a cache. **/
+    public final static int DEFAULT_MAX_ENTRIES = 100;
+
+    private int _maxEntries;
+    private Map _documents = new DocumentMap(); // Map<Key,HTMLDocument>
+
+    private long _hits;
+    private long _misses;
+    private long _evictions;
+
+
+    /**
+     * Creates a cache which will hold at most {@link #DEFAULT_MAX_ENTRIES} parsed pages.
+     */
+    public ParsedPageCache() {
+        this( DEFAULT_MAX_ENTRIES );
+    }
+
+
+    /**
+     * Creates a cache which will hold at most the specified number of parsed pages.
+     */
+    public ParsedPageCache( int maxEntries ) {
+        _maxEntries = maxEntries;
+    }
+
+
+    /**
+     * Returns the maximum number of parsed pages retained by this cache.
+     */
+    public synchronized int getMaxEntries() {
+        return _maxEntries;
+    }
+
+
+    /**
+     * Specifies the maximum number of parsed pages to retain. A value of zero disables caching.
+     */
+    public synchronized void setMaxEntries( int maxEntries ) {
+        _maxEntries = maxEntries;
+        while (_documents.size() > maxEntries) {
+            _documents.remove( _documents.keySet().iterator().next() );
+            _evictions++;
+        }
+    }
+
+
+    /**
+     * Returns the number of parsed pages currently held.
+     */
+    public synchronized int getSize() {
+        return _documents.size();
+    }
+
+
+    /**
+     * Returns the number of pages supplied from the cache rather than parsed.
+     */
+    public synchronized long getHitCount() {
+        return _hits;
+    }
+
+
+    /**
+     * Returns the number of pages which had to be parsed.
+     */
+    public synchronized long getMissCount() {
+        return _misses;
+    }
+
+
+    /**
+     * Returns the number of parsed pages discarded to keep the cache within its bounds.
+     */
+    public synchronized long getEvictionCount() {
+        return _evictions;
+    }
+
+
+    /**
+     * Discards all parsed pages and resets the statistics.
+     */
+    public synchronized void clear() {
+        _documents.clear();
+        _hits = _misses = _evictions = 0;
+    }
+
+
+    /**
+     * Returns a copy of the document parsed from the page with the specified key, or null if it is not cached.
+     */
+    HTMLDocument getDocument( Key key ) {
+        HTMLDocument document;
+        synchronized (this) {
+            document = (HTMLDocument) _documents.get( key );
+            if (document == null) {
+                _misses++;
+                return null;
+            }
+            _hits++;
+        }
+        return (HTMLDocument) document.cloneNode( /* deep */ true );
+    }
+
+
+    /**
+     * Records the document parsed from the page with the specified key. The document is copied before it is
+     * stored, so that it may be used by the page which was parsed.
+     */
+    void putDocument( Key key, HTMLDocument document ) {
+        if (getMaxEntries() == 0) return;
+        HTMLDocument template = (HTMLDocument) document.cloneNode( /* deep */ true );
+        synchronized (this) {
+            _documents.put( key, template );
+        }
+    }
+
+
+    /**
+     * Returns the key for a page with the specified contents, parsed by the specified parser, or null if no key
+     * can be computed.
+     * @param contents the bytes of the page
+     * @param characterSet the character set with which the contents are to be decoded
+     */
+    static Key createKey( byte[] contents, String characterSet, HTMLParser parser ) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            return new Key( digest.digest( contents ), contents.length, characterSet, getParserSettings( parser ) );
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Returns the key for a page with the specified text, parsed by the specified parser, or null if no key
+     * can be computed.
+     */
+    static Key createKey( String text, HTMLParser parser ) {
+        try {
+            return createKey( text.getBytes( "UTF-8" ), null, parser );
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+
+    private static String getParserSettings( HTMLParser parser ) {
+        StringBuffer sb = new StringBuffer( parser.getClass().getName() );
+        if (HTMLParserFactory.isPreserveTagCase()) sb.append( ",preserveCase" );
+        if (HTMLParserFactory.getForceUpperCase()) sb.append( ",upperCase" );
+        if (HTMLParserFactory.getForceLowerCase()) sb.append( ",lowerCase" );
+        if (HTMLParserFactory.isReturnHTMLDocument()) sb.append( ",htmlDocument" );
+        return sb.toString();
+    }
+
+
+    private class DocumentMap extends LinkedHashMap {
+
+        DocumentMap() {
+            super( 16, 0.75f, true );
+        }
+
+
+        protected boolean removeEldestEntry( Map.Entry eldest ) {
+            if (size() <= _maxEntries) return false;
+            _evictions++;
+            return true;
+        }
+    }
+
+
+    /**
+     * Identifies a parsed page by a digest of its contents and the settings with which it was parsed.
+     */
+    static class Key {
+
+        private byte[] _digest;
+        private int _length;
+        private String _characterSet;
+        private String _parserSettings;
+
+
+        Key( byte[] digest, int length, String characterSet, String parserSettings ) {
+            _digest = digest;
+            _length = length;
+            _characterSet = characterSet;
+            _parserSettings = parserSettings;
+        }
+
+
+        public int hashCode() {
+            return Arrays.hashCode( _digest ) ^ _length;
+        }
+
+
+        public boolean equals( Object obj ) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return _length == other._length && Arrays.equals( _digest, other._digest ) &&
+                   equals( _characterSet, other._characterSet ) && _parserSettings.equals( other._parserSettings );
+        }
+
+
+        private static boolean equals( String first, String second ) {
+            return first == null ? second == null : first.equals( second );
+        }
+    }
+}
@@ -0,0 +1,694 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+
+/**
+ * An HTTP/1.1 connection which sends its request over a socket borrowed from a {@link PooledWebTransport}
+ * and returns the socket to the pool once the response has been read.
+ *
+ * @since 1.7.4
+ **/
+class PooledHttpConnection extends HttpURLConnection {
+
+    /** Response bodies no longer than this are read as soon as the headers arrive, freeing the socket at once. **/
+    private final static int BUFFERED_BODY_LIMIT = 64 * 1024;
+
+    private final static String CRLF = "\r\n";
+
+    private final static byte[] NO_BYTES = new byte[0];
+
+    private final PooledWebTransport _transport;
+
+    private PooledWebTransport.PooledSocket _socket;
+
+    /** Identifies this request's place in the order of responses on its socket. **/
+    private long _ticket;
+
+    private ByteArrayOutputStream _requestBody;
+
+    private RequestBodyStream _requestBodyStream;
+
+    private boolean _requestSent;
+
+    private IOException _failure;
+
+    private boolean _keepAliveRequested = true;
+
+    private String _statusLine;
+
+    private boolean _http11;
+
+    private Vector _headerKeys = new Vector();
+
+    private Vector _headerValues = new Vector();
+
+    private InputStream _body;
+
+
+    PooledHttpConnection( PooledWebTransport transport, URL url ) {
+        super( url );
+        _transport = transport;
+    }
+
+
+    public void connect() throws IOException {
+        // the request is sent once the response is first needed, so that the message body may be written first
+    }
+
+
+    public void disconnect() {
+        if (_socket != null) releaseSocket( false );
+    }
+
+
+    public boolean usingProxy() {
+        return false;
+    }
+
+
+    public OutputStream getOutputStream() throws IOException {
+        if (!getDoOutput()) throw new ProtocolException( "cannot write to a URLConnection if doOutput=false - call setDoOutput(true)" );
+        if (_requestSent) throw new ProtocolException( "Cannot write output after reading input." );
+        if (method.equals( "GET" )) method = "POST";
+        if (isStreaming()) {
+            if (_requestBodyStream == null) _requestBodyStream = openRequestBodyStream();
+            return _requestBodyStream;
+        }
+        if (_requestBody == null) _requestBody = new ByteArrayOutputStream();
+        return _requestBody;
+    }
+
+
+    public InputStream getInputStream() throws IOException {
+        if (!getDoInput()) throw new ProtocolException( "cannot read from a URLConnection if doInput=false - call setDoInput(true)" );
+        sendRequest();
+        if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE) {
+            throw new FileNotFoundException( url.toString() );
+        } else if (responseCode >= HTTP_BAD_REQUEST) {
+            throw new IOException( "Server returned HTTP response code: " + responseCode + " for URL: " + url );
+        }
+        return _body;
+    }
+
+
+    public InputStream getErrorStream() {
+        return (_body != null && responseCode >= HTTP_BAD_REQUEST) ? _body : null;
+    }
+
+
+    public int getResponseCode() throws IOException {
+        sendRequest();
+        return responseCode;
+    }
+
+
+    public String getResponseMessage() throws IOException {
+        sendRequest();
+        return responseMessage;
+    }
+
+
+    public String getHeaderFieldKey( int n ) {
+        if (!hasResponse() || n <= 0 || n > _headerKeys.size()) return null;
+        return (String) _headerKeys.elementAt( n-1 );
+    }
+
+
+    public String getHeaderField( int n ) {
+        if (!hasResponse() || n < 0 || n > _headerValues.size()) return null;
+        return n == 0 ? _statusLine : (String) _headerValues.elementAt( n-1 );
+    }
+
+
+    public String getHeaderField( String name ) {
+        if (!hasResponse()) return null;
+        if (name == null) return _statusLine;
+        for (int i = _headerKeys.size()-1; i >= 0; i--) {
+            if (name.equalsIgnoreCase( (String) _headerKeys.elementAt( i ) )) return (String) _headerValues.elementAt( i );
+        }
+        return null;
+    }
+
+
+    public Map getHeaderFields() {
+        if (!hasResponse()) return Collections.EMPTY_MAP;
+        Map fields = new HashMap();
+        fields.put( null, Collections.singletonList( _statusLine ) );
+        for (int i = 0; i < _headerKeys.size(); i++) {
+            List values = (List) fields.get( _headerKeys.elementAt( i ) );
+            if (values == null) fields.put( _headerKeys.elementAt( i ), values = new ArrayList() );
+            values.add( _headerValues.elementAt( i ) );
+        }
+        return Collections.unmodifiableMap( fields );
+    }
+
+
+//------------------------------------------ private members ------------------------------------------------
+
+
+    private boolean hasResponse() {
+        try {
+            sendRequest();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    private boolean isStreaming() {
+        return fixedContentLength != -1 || chunkLength != -1;
+    }
+
+
+    /**
+     * Sends the request head and returns a stream which writes the body directly to the socket. Since the body
+     * cannot be sent again, it is always sent on a new connection, which cannot have been closed while idle.
+     */
+    private RequestBodyStream openRequestBodyStream() throws IOException {
+        _transport.recordRequest();
+        try {
+            _socket = _transport.acquireNew( url, getConnectTimeout() );
+            _ticket = -1;
+            _ticket = _socket.send( getRequestHead(), null );
+            return new RequestBodyStream( _socket.getOutputStream(), fixedContentLength, chunkLength != -1 );
+        } catch (IOException e) {
+            releaseSocket( false );
+            _failure = e;
+            throw e;
+        }
+    }
+
+
+    /**
+     * Sends the request and reads the response headers. If a reused connection turns out to have been closed
+     * by the server before any part of the response was read, an idempotent request is retried once on another connection.
+     */
+    private void sendRequest() throws IOException {
+        if (_failure != null) throw _failure;
+        if (_requestSent) return;
+        if (_requestBodyStream != null) {
+            sendStreamedRequest();
+            return;
+        }
+
+        byte[] requestHead = getRequestHead();
+        byte[] requestBody = _requestBody == null ? null : _requestBody.toByteArray();
+        _requestSent = connected = true;
+        _transport.recordRequest();
+        try {
+            if (!trySendRequest( requestHead, requestBody, isIdempotent() )) trySendRequest( requestHead, requestBody, false );
+            readBody();
+        } catch (IOException e) {
+            releaseSocket( false );
+            _failure = e;
+            throw e;
+        }
+    }
+
+
+    /**
+     * Attempts to send the request on a pooled connection. If the request is pipelined, waits for the responses
+     * to earlier requests on the same connection to be read before reading its own.
+     * @param mayRetry true if the request may be sent again should the connection prove to be stale
+     * @return false if the connection proved to be stale and the request should be retried.
+     */
+    private boolean trySendRequest( byte[] requestHead, byte[] requestBody, boolean mayRetry ) throws IOException {
+        _socket = _transport.acquire( url, getConnectTimeout(), isPipelinable( requestBody ) );
+        _ticket = -1;
+        boolean unanswered = false;
+        try {
+            _ticket = _socket.send( requestHead, requestBody );
+            if (!_socket.awaitTurn( _ticket, getReadTimeout() > 0 ? getReadTimeout() : _transport.getMaxWaitTime() )) {
+                unanswered = true;
+                throw new IOException( "Connection failed before the response was read" );
+            }
+            _socket.setReadTimeout( getReadTimeout() );
+
+            InputStream inputStream = _socket.getInputStream();
+            if (isClosedByServer( inputStream )) {
+                unanswered = true;
+                throw new IOException( "Connection closed by server" );
+            }
+            readStatusLine( inputStream );
+            readResponseHead( inputStream );
+            return true;
+        } catch (IOException e) {
+            boolean stale = mayRetry && unanswered && _socket.isReused();
+            releaseSocket( false );
+            if (!stale) throw e;
+            return false;
+        }
+    }
+
+
+    /**
+     * Returns true if the server closed the connection without sending any part of a response.
+     */
+    private boolean isClosedByServer( InputStream inputStream ) throws IOException {
+        inputStream.mark( 1 );
+        if (inputStream.read() == -1) return true;
+        inputStream.reset();
+        return false;
+    }
+
+
+    /**
+     * Completes a request whose body has been written directly to the socket and reads the response headers.
+     */
+    private void sendStreamedRequest() throws IOException {
+        _requestSent = connected = true;
+        try {
+            _requestBodyStream.close();
+            _socket.setReadTimeout( getReadTimeout() );
+            InputStream inputStream = _socket.getInputStream();
+            readStatusLine( inputStream );
+            readResponseHead( inputStream );
+            readBody();
+        } catch (IOException e) {
+            releaseSocket( false );
+            _failure = e;
+            throw e;
+        }
+    }
+
+
+    /**
+     * Reads the headers which follow a status line, skipping any interim (1xx) responses.
+     */
+    private void readResponseHead( InputStream inputStream ) throws IOException {
+        readHeaders( inputStream );
+        while (responseCode >= 100 && responseCode < 200) {
+            readStatusLine( inputStream );
+            readHeaders( inputStream );
+        }
+    }
+
+
+    /**
+     * Only requests which may be repeated without further effect are sent again after a connection fails.
+     */
+    private boolean isIdempotent() {
+        return method.equals( "GET" ) || method.equals( "HEAD" ) || method.equals( "PUT" ) || method.equals( "DELETE" )
+            || method.equals( "OPTIONS" ) || method.equals( "TRACE" );
+    }
+
+
+    /**
+     * Only requests which have no body and no side effects may be sent before the responses to earlier ones.
+     */
+    private boolean isPipelinable( byte[] requestBody ) {
+        return requestBody == null && (method.equals( "GET" ) || method.equals( "HEAD" ));
+    }
+
+
+    private byte[] getRequestHead() throws IOException {
+        StringBuffer sb = new StringBuffer( method ).append( ' ' ).append( getRequestURI() ).append( " HTTP/1.1" ).append( CRLF );
+        if (getRequestProperty( "Host" ) == null) appendHeader( sb, "Host", getHostHeader() );
+
+        Map properties = getRequestProperties();
+        for (Iterator i = properties.keySet().iterator(); i.hasNext();) {
+            String key = (String) i.next();
+            if (key == null || key.equalsIgnoreCase( "Content-Length" )) continue;
+            for (Iterator j = ((List) properties.get( key )).iterator(); j.hasNext();) {
+                String value = (String) j.next();
+                appendHeader( sb, key, value );
+                if (key.equalsIgnoreCase( "Connection" ) && value.equalsIgnoreCase( "close" )) _keepAliveRequested = false;
+            }
+        }
+        if (chunkLength != -1) {
+            appendHeader( sb, "Transfer-Encoding", "chunked" );
+        } else if (fixedContentLength != -1) {
+            appendHeader( sb, "Content-Length", Integer.toString( fixedContentLength ) );
+        } else if (_requestBody != null) {
+            appendHeader( sb, "Content-Length", Integer.toString( _requestBody.size() ) );
+        } else if (method.equals( "POST" ) || method.equals( "PUT" )) {
+            appendHeader( sb, "Content-Length", "0" );
+        }
+        sb.append( CRLF );
+        return sb.toString().getBytes( "ISO-8859-1" );
+    }
+
+
+    private void appendHeader( StringBuffer sb, String key, String value ) {
+        sb.append( key ).append( ": " ).append( value ).append( CRLF );
+    }
+
+
+    private String getRequestURI() {
+        String file = url.getFile();
+        return file.length() == 0 ? "/" : file;
+    }
+
+
+    private String getHostHeader() {
+        int port = url.getPort();
+        return (port == -1 || port == url.getDefaultPort()) ? url.getHost() : url.getHost() + ':' + port;
+    }
+
+
+    private void readStatusLine( InputStream inputStream ) throws IOException {
+        String line = readLine( inputStream );
+        if (line == null) throw new IOException( "Connection closed by server" );
+        if (!line.startsWith( "HTTP/" )) throw new ProtocolException( "Invalid HTTP response: " + line );
+
+        _statusLine = line;
+        _http11 = !line.startsWith( "HTTP/1.0" );
+        int codeStart = line.indexOf( ' ' );
+        int codeEnd = line.indexOf( ' ', codeStart+1 );
+        if (codeEnd < 0) codeEnd = line.length();
+        try {
+            responseCode = Integer.parseInt( line.substring( codeStart+1, codeEnd ).trim() );
+        } catch (RuntimeException e) {
+            throw new ProtocolException( "Invalid HTTP response: " + line );
+        }
+        responseMessage = codeEnd < line.length() ? line.substring( codeEnd+1 ) : "";
+    }
+
+
+    private void readHeaders( InputStream inputStream ) throws IOException {
+        _headerKeys.clear();
+        _headerValues.clear();
+        for (String line = readLine( inputStream ); line != null && line.length() > 0; line = readLine( inputStream )) {
+            if (Character.isWhitespace( line.charAt( 0 ) ) && !_headerValues.isEmpty()) {
+                int last = _headerValues.size()-1;
+                _headerValues.setElementAt( _headerValues.elementAt( last ) + " " + line.trim(), last );
+            } else if (line.indexOf( ':' ) > 0) {
+                _headerKeys.addElement( line.substring( 0, line.indexOf( ':' ) ).trim() );
+                _headerValues.addElement( line.substring( line.indexOf( ':' )+1 ).trim() );
+            }
+        }
+    }
+
+
+    /**
+     * Reads a single line terminated by LF, stripping any trailing CR.
+     * @return the line read, or null if the stream ended before any characters were read
+     */
+    static String readLine( InputStream inputStream ) throws IOException {
+        StringBuffer sb = new StringBuffer();
+        int b = inputStream.read();
+        if (b == -1) return null;
+        while (b != -1 && b != '\n') {
+            sb.append( (char) b );
+            b = inputStream.read();
+        }
+        if (sb.length() > 0 && sb.charAt( sb.length()-1 ) == '\r') sb.setLength( sb.length()-1 );
+        return sb.toString();
+    }
+
+
+    private void readBody() throws IOException {
+        boolean keepAlive = isKeepAlive();
+        InputStream inputStream = _socket.getInputStream();
+        String contentLength = getHeaderField( "Content-Length" );
+        String transferEncoding = getHeaderField( "Transfer-Encoding" );
+
+        if (!hasBody()) {
+            _body = new ByteArrayInputStream( NO_BYTES );
+            releaseSocket( keepAlive );
+        } else if (transferEncoding != null && transferEncoding.toLowerCase().indexOf( "chunked" ) >= 0) {
+            _body = new ResponseBodyStream( inputStream, -1, true, keepAlive );
+        } else if (contentLength != null) {
+            long length = parseLength( contentLength );
+            if (length > BUFFERED_BODY_LIMIT) {
+                _body = new ResponseBodyStream( inputStream, length, false, keepAlive );
+            } else {
+                byte[] bytes = new byte[ (int) length ];
+                readFully( inputStream, bytes );
+                _body = new ByteArrayInputStream( bytes );
+                releaseSocket( keepAlive );
+            }
+        } else {
+            _body = new ResponseBodyStream( inputStream, -1, false, false );
+        }
+    }
+
+
+    private boolean hasBody() {
+        return !method.equals( "HEAD" ) && responseCode >= HTTP_OK && responseCode != HTTP_NO_CONTENT && responseCode != HTTP_NOT_MODIFIED;
+    }
+
+
+    private boolean isKeepAlive() {
+        if (!_keepAliveRequested) return false;
+        String connection = getHeaderField( "Connection" );
+        if (_http11) {
+            return connection == null || connection.toLowerCase().indexOf( "close" ) < 0;
+        } else {
+            return connection != null && connection.toLowerCase().indexOf( "keep-alive" ) >= 0;
+        }
+    }
+
+
+    private long parseLength( String contentLength ) throws ProtocolException {
+        try {
+            long length = Long.parseLong( contentLength.trim() );
+            if (length >= 0) return length;
+        } catch (NumberFormatException e) {
+        }
+        throw new ProtocolException( "Invalid Content-Length: " + contentLength );
+    }
+
+
+    private void readFully( InputStream inputStream, byte[] bytes ) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int count = inputStream.read( bytes, offset, bytes.length - offset );
+            if (count < 0) throw new IOException( "Connection closed by server. Expected length: " + bytes.length + ", Actual length: " + offset );
+            offset += count;
+        }
+    }
+
+
+    private void releaseSocket( boolean reusable ) {
+        PooledWebTransport.PooledSocket socket = _socket;
+        _socket = null;
+        if (socket != null) _transport.release( socket, _ticket, reusable );
+    }
+
+
+//==================================================================================================
+
+
+    /**
+     * A stream which writes a request body directly to the socket, either as a fixed number of bytes or as a
+     * sequence of chunks.
+     */
+    private class RequestBodyStream extends OutputStream {
+
+        private final OutputStream _outputStream;
+
+        /** The number of bytes still to be written for a fixed-length body. **/
+        private long _remaining;
+
+        /** Holds the current chunk for a chunked body; null if the body has a fixed length. **/
+        private byte[] _chunk;
+
+        private int _chunkSize;
+
+        private boolean _closed;
+
+
+        RequestBodyStream( OutputStream outputStream, long length, boolean chunked ) {
+            _outputStream = outputStream;
+            _remaining = length;
+            if (chunked) _chunk = new byte[ chunkLength > 0 ? chunkLength : 4096 ];
+        }
+
+
+        public void write( int b ) throws IOException {
+            write( new byte[] { (byte) b }, 0, 1 );
+        }
+
+
+        public void write( byte[] buffer, int offset, int length ) throws IOException {
+            if (_closed) throw new IOException( "Stream is closed" );
+            if (_chunk == null) {
+                if (length > _remaining) throw new IOException( "Attempted to write more than the " + fixedContentLength + " bytes specified" );
+                _outputStream.write( buffer, offset, length );
+                _remaining -= length;
+                return;
+            }
+            while (length > 0) {
+                int count = Math.min( length, _chunk.length - _chunkSize );
+                System.arraycopy( buffer, offset, _chunk, _chunkSize, count );
+                _chunkSize += count;
+                offset += count;
+                length -= count;
+                if (_chunkSize == _chunk.length) writeChunk();
+            }
+        }
+
+
+        public void flush() throws IOException {
+            if (_closed) return;
+            if (_chunk != null) writeChunk();
+            _outputStream.flush();
+        }
+
+
+        /**
+         * Completes the body. Called by the connection when the response is requested, if not before.
+         */
+        public void close() throws IOException {
+            if (_closed) return;
+            _closed = true;
+            if (_chunk == null) {
+                if (_remaining > 0) throw new IOException( "Insufficient data written: " + _remaining + " of " + fixedContentLength + " bytes missing" );
+            } else {
+                writeChunk();
+                _outputStream.write( ("0" + CRLF + CRLF).getBytes( "ISO-8859-1" ) );
+            }
+            _outputStream.flush();
+        }
+
+
+        private void writeChunk() throws IOException {
+            if (_chunkSize == 0) return;
+            _outputStream.write( (Integer.toHexString( _chunkSize ) + CRLF).getBytes( "ISO-8859-1" ) );
+            _outputStream.write( _chunk, 0, _chunkSize );
+            _outputStream.write( CRLF.getBytes( "ISO-8859-1" ) );
+            _chunkSize = 0;
+        }
+    }
+
+
+//==================================================================================================
+
+
+    /**
+     * A stream which reads a response body directly from the socket, and returns the socket to the pool once
+     * the entire body has been read.
+     */
+    private class ResponseBodyStream extends InputStream {
+
+        private final InputStream _inputStream;
+
+        private final boolean _chunked;
+
+        private final boolean _keepAlive;
+
+        /** The number of bytes left in the body or current chunk, or -1 if not known. **/
+        private long _remaining;
+
+        private boolean _firstChunk = true;
+
+        private boolean _done;
+
+
+        ResponseBodyStream( InputStream inputStream, long length, boolean chunked, boolean keepAlive ) {
+            _inputStream = inputStream;
+            _remaining = chunked ? 0 : length;
+            _chunked = chunked;
+            _keepAlive = keepAlive;
+        }
+
+
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            int count = read( buffer, 0, 1 );
+            return count < 0 ? -1 : (buffer[0] & 0xff);
+        }
+
+
+        public int read( byte[] buffer, int offset, int length ) throws IOException {
+            if (_done) return -1;
+            if (_chunked && _remaining == 0 && !readChunkHeader()) return endOfBody( true );
+            if (_remaining == 0) return endOfBody( true );
+
+            int count = _inputStream.read( buffer, offset, _remaining < 0 ? length : (int) Math.min( length, _remaining ) );
+            if (count < 0) {
+                if (_remaining > 0) throw new IOException( "Connection closed by server before end of response" );
+                return endOfBody( false );
+            }
+            if (_remaining > 0) _remaining -= count;
+            return count;
+        }
+
+
+        public int available() throws IOException {
+            if (_done) return 0;
+            int available = _inputStream.available();
+            return _remaining < 0 ? available : (int) Math.min( available, _remaining );
+        }
+
+
+        public void close() throws IOException {
+            if (_done) return;
+            _done = true;
+            releaseSocket( false );
+        }
+
+
+        /**
+         * Reads the size of the next chunk.
+         * @return false if this was the last chunk
+         */
+        private boolean readChunkHeader() throws IOException {
+            if (!_firstChunk) readLine( _inputStream );
+            _firstChunk = false;
+
+            String line = readLine( _inputStream );
+            if (line == null) throw new IOException( "Connection closed by server before end of response" );
+            int extension = line.indexOf( ';' );
+            try {
+                _remaining = Long.parseLong( (extension < 0 ? line : line.substring( 0, extension )).trim(), 16 );
+            } catch (NumberFormatException e) {
+                throw new ProtocolException( "Invalid chunk header: " + line );
+            }
+            if (_remaining > 0) return true;
+
+            for (String trailer = readLine( _inputStream ); trailer != null && trailer.length() > 0; trailer = readLine( _inputStream ));
+            return false;
+        }
+
+
+        /**
+         * Marks the end of the body and releases the socket.
+         * @param complete true if the body was delimited by its length rather than by the server closing the connection
+         */
+        private int endOfBody( boolean complete ) {
+            _done = true;
+            releaseSocket( complete && _keepAlive );
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,724 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+
+/**
+ * A transport which keeps HTTP connections open between requests and reuses them, keeping a separate pool of
+ * persistent connections for each host. The number of connections which may be open to a single host at one time is
+ * bounded; a request which needs a connection when none is available will wait for one to be returned to the pool.
+ * Connections which have been idle for longer than the idle timeout are closed.
+ * <p>
+ * A transport may also be allowed to pipeline requests: once the maximum number of connections to a host are in
+ * use, further GET and HEAD requests are written to a connection which is still waiting for earlier responses,
+ * rather than waiting for a connection to become free. The responses are read in the order in which the requests
+ * were sent, so a page's subresources may be requested over a single shared connection without waiting a full
+ * round trip for each.
+ * </p>
+ * <p>
+ * A single transport may be shared by any number of conversations, including ones running on different threads.
+ * Only plain <code>http</code> requests which are not sent through a proxy are pooled; all others are handled
+ * by the standard <code>java.net</code> connection classes.
+ * </p>
+ *
+ * @since 1.7.4
+ **/
+public class PooledWebTransport implements WebTransport {
+
+    /** The default maximum number of connections which may be open to a single host. **/
+    public final static int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+
+    /** The default time in msec that a connection may remain idle before it is closed. **/
+    public final static int DEFAULT_IDLE_TIMEOUT = 15000;
+
+    /** The default time in msec to wait for a connection to become available. **/
+    public final static int DEFAULT_MAX_WAIT_TIME = 30000;
+
+    /** The default maximum number of requests which may be outstanding on a single connection: no pipelining. **/
+    public final static int DEFAULT_MAX_PIPELINED_REQUESTS = 1;
+
+    private int _maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private int _idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private int _maxWaitTime = DEFAULT_MAX_WAIT_TIME;
+    private int _maxPipelinedRequests = DEFAULT_MAX_PIPELINED_REQUESTS;
+
+    /** The connections for each host, keyed by protocol, host and port. **/
+    private final Hashtable _hosts = new Hashtable();
+
+    private int _requestCount;
+    private int _openedCount;
+    private int _reusedCount;
+    private int _evictedCount;
+    private int _pipelinedCount;
+
+
+    /**
+     * Creates a transport with the default limits.
+     **/
+    public PooledWebTransport() {
+    }
+
+
+    /**
+     * Creates a transport which will open no more than the specified number of connections to any one host.
+     **/
+    public PooledWebTransport( int maxConnectionsPerHost ) {
+        setMaxConnectionsPerHost( maxConnectionsPerHost );
+    }
+
+
+    public URLConnection openConnection( URL url ) throws IOException {
+        if (!isPooled( url )) return url.openConnection();
+        return new PooledHttpConnection( this, url );
+    }
+
+
+    /**
+     * Returns the maximum number of connections which may be open to a single host at one time.
+     **/
+    public int getMaxConnectionsPerHost() {
+        return _maxConnectionsPerHost;
+    }
+
+
+    /**
+     * Specifies the maximum number of connections which may be open to a single host at one time.
+     **/
+    public synchronized void setMaxConnectionsPerHost( int maxConnectionsPerHost ) {
+        if (maxConnectionsPerHost < 1) throw new IllegalArgumentException( "Must allow at least one connection per host" );
+        _maxConnectionsPerHost = maxConnectionsPerHost;
+        notifyAll();
+    }
+
+
+    /**
+     * Returns the time in msec that a connection may remain unused before it is closed.
+     **/
+    public int getIdleTimeout() {
+        return _idleTimeout;
+    }
+
+
+    /**
+     * Specifies the time in msec that a connection may remain unused before it is closed.
+     **/
+    public void setIdleTimeout( int idleTimeout ) {
+        _idleTimeout = idleTimeout;
+    }
+
+
+    /**
+     * Returns the time in msec that a request will wait for a connection when the maximum number are already in use.
+     **/
+    public int getMaxWaitTime() {
+        return _maxWaitTime;
+    }
+
+
+    /**
+     * Specifies the time in msec that a request will wait for a connection when the maximum number are already in use.
+     * If the request specifies a connect timeout, that will be used instead. A value of zero means to wait indefinitely.
+     **/
+    public void setMaxWaitTime( int maxWaitTime ) {
+        _maxWaitTime = maxWaitTime;
+    }
+
+
+    /**
+     * Returns the maximum number of requests which may be outstanding on a single connection at one time.
+     * @since 1.7.4
+     **/
+    public int getMaxPipelinedRequests() {
+        return _maxPipelinedRequests;
+    }
+
+
+    /**
+     * Specifies the maximum number of requests which may be outstanding on a single connection at one time. A value
+     * greater than one allows GET and HEAD requests to be pipelined once the maximum number of connections to a host
+     * are in use; combined with a limit of one connection per host, this sends all requests to a host over a single
+     * connection. The default is one, which disables pipelining.
+     * <p>
+     * A pipelined request cannot read its response until the responses to the requests ahead of it have been read
+     * in full, so pipelining should not be combined with streamed responses whose bodies may be left unread.
+     * </p>
+     * @since 1.7.4
+     **/
+    public synchronized void setMaxPipelinedRequests( int maxPipelinedRequests ) {
+        if (maxPipelinedRequests < 1) throw new IllegalArgumentException( "Must allow at least one request per connection" );
+        _maxPipelinedRequests = maxPipelinedRequests;
+        notifyAll();
+    }
+
+
+    /**
+     * Returns the number of requests sent over this transport.
+     **/
+    public synchronized int getRequestCount() {
+        return _requestCount;
+    }
+
+
+    /**
+     * Returns the number of new connections which have been opened by this transport.
+     **/
+    public synchronized int getOpenedConnectionCount() {
+        return _openedCount;
+    }
+
+
+    /**
+     * Returns the number of times that an idle connection has been reused for a request.
+     **/
+    public synchronized int getReusedConnectionCount() {
+        return _reusedCount;
+    }
+
+
+    /**
+     * Returns the number of requests which were written to a connection still waiting for earlier responses.
+     * @since 1.7.4
+     **/
+    public synchronized int getPipelinedRequestCount() {
+        return _pipelinedCount;
+    }
+
+
+    /**
+     * Returns the number of idle connections which have been closed because they exceeded the idle timeout.
+     **/
+    public synchronized int getEvictedConnectionCount() {
+        return _evictedCount;
+    }
+
+
+    /**
+     * Returns the number of connections currently in use by requests.
+     **/
+    public synchronized int getActiveConnectionCount() {
+        int count = 0;
+        for (Enumeration e = _hosts.elements(); e.hasMoreElements();) {
+            count += ((HostConnections) e.nextElement()).getActiveCount();
+        }
+        return count;
+    }
+
+
+    /**
+     * Returns the number of open connections currently waiting to be reused.
+     **/
+    public synchronized int getIdleConnectionCount() {
+        int count = 0;
+        for (Enumeration e = _hosts.elements(); e.hasMoreElements();) {
+            count += ((HostConnections) e.nextElement()).getIdleCount();
+        }
+        return count;
+    }
+
+
+    /**
+     * Closes any connections which have been idle for longer than the idle timeout.
+     **/
+    public synchronized void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (Enumeration e = _hosts.elements(); e.hasMoreElements();) {
+            _evictedCount += ((HostConnections) e.nextElement()).closeIdleConnections( now - _idleTimeout );
+        }
+    }
+
+
+    /**
+     * Closes all idle connections. Connections currently in use will be closed when their requests complete.
+     **/
+    public synchronized void closeIdleConnections() {
+        for (Enumeration e = _hosts.elements(); e.hasMoreElements();) {
+            ((HostConnections) e.nextElement()).closeIdleConnections( Long.MAX_VALUE );
+        }
+    }
+
+
+//------------------------------------------ package members ------------------------------------------------
+
+
+    /**
+     * Returns a connection to the host and port specified in the URL, either by reusing an idle connection,
+     * by opening a new one or, if the request may be pipelined, by sharing one already in use.
+     */
+    PooledSocket acquire( URL url, int connectTimeout, boolean pipelinable ) throws IOException {
+        String key = getKey( url );
+        PooledSocket socket = reserve( key, connectTimeout > 0 ? connectTimeout : _maxWaitTime, pipelinable, false );
+        if (socket != null) return socket;
+        return open( url, key, connectTimeout, pipelinable );
+    }
+
+
+    /**
+     * Returns a newly opened connection to the host and port specified in the URL, closing an idle connection
+     * if necessary to make room for it. Such a connection cannot have been closed by the server while idle.
+     */
+    PooledSocket acquireNew( URL url, int connectTimeout ) throws IOException {
+        String key = getKey( url );
+        reserve( key, connectTimeout > 0 ? connectTimeout : _maxWaitTime, false, true );
+        return open( url, key, connectTimeout, false );
+    }
+
+
+    /**
+     * Reports that the request with the specified ticket has finished with a connection. Once no requests remain
+     * outstanding on it, the connection is returned to the pool, or closed if it may not be reused.
+     */
+    void release( PooledSocket socket, long ticket, boolean reusable ) {
+        release( socket.getKey(), socket, ticket, reusable );
+    }
+
+
+    synchronized void recordRequest() {
+        _requestCount++;
+    }
+
+
+//------------------------------------------ private members ------------------------------------------------
+
+
+    private boolean isPooled( URL url ) {
+        return url.getProtocol().equalsIgnoreCase( "http" ) && !isProxyDefined();
+    }
+
+
+    private boolean isProxyDefined() {
+        return System.getProperty( "proxyHost" ) != null || System.getProperty( "http.proxyHost" ) != null;
+    }
+
+
+    private static String getKey( URL url ) {
+        return url.getProtocol().toLowerCase() + "://" + url.getHost().toLowerCase() + ':' + getPort( url );
+    }
+
+
+    private static int getPort( URL url ) {
+        return url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+    }
+
+
+    /**
+     * Opens a new connection in a slot already claimed for the specified host.
+     */
+    private PooledSocket open( URL url, String key, int connectTimeout, boolean pipelinable ) throws IOException {
+        try {
+            PooledSocket socket = new PooledSocket( key, connect( url, connectTimeout ) );
+            recordOpenedConnection( key, socket, pipelinable );
+            return socket;
+        } catch (IOException e) {
+            release( key, null, 0, false );
+            throw e;
+        }
+    }
+
+
+    private Socket connect( URL url, int connectTimeout ) throws IOException {
+        Socket socket = new Socket();
+        socket.connect( new InetSocketAddress( url.getHost(), getPort( url ) ), Math.max( 0, connectTimeout ) );
+        socket.setTcpNoDelay( true );
+        return socket;
+    }
+
+
+    private synchronized void recordOpenedConnection( String key, PooledSocket socket, boolean pipelinable ) {
+        _openedCount++;
+        getHostConnections( key ).addNewConnection( socket, pipelinable );
+    }
+
+
+    /**
+     * Claims a connection slot for the specified host. Returns an idle connection if one is available and a new one
+     * is not required, or null if the caller should open a new one.
+     */
+    private synchronized PooledSocket reserve( String key, int maxWait, boolean pipelinable, boolean newRequired ) throws IOException {
+        HostConnections host = getHostConnections( key );
+        long deadline = maxWait <= 0 ? Long.MAX_VALUE : System.currentTimeMillis() + maxWait;
+        while (true) {
+            evictIdleConnections();
+            PooledSocket socket = newRequired ? null : host.claimIdleConnection( pipelinable );
+            if (socket != null) {
+                _reusedCount++;
+                return socket;
+            }
+            if (newRequired && host.getIdleCount() > 0 && host.getActiveCount() + host.getIdleCount() >= _maxConnectionsPerHost) {
+                host.closeOldestIdleConnection();
+            }
+            if (host.getActiveCount() + host.getIdleCount() < _maxConnectionsPerHost) {
+                host.claimNewConnection();
+                return null;
+            }
+            socket = pipelinable ? host.claimPipelinedConnection( _maxPipelinedRequests ) : null;
+            if (socket != null) {
+                _pipelinedCount++;
+                return socket;
+            }
+
+            long timeLeft = deadline - System.currentTimeMillis();
+            if (timeLeft <= 0) throw new SocketException( "Timed out waiting for a connection to " + key );
+            try {
+                wait( deadline == Long.MAX_VALUE ? 0 : timeLeft );
+            } catch (InterruptedException e) {
+                throw new SocketException( "Interrupted while waiting for a connection to " + key );
+            }
+        }
+    }
+
+
+    private synchronized void release( String key, PooledSocket socket, long ticket, boolean reusable ) {
+        getHostConnections( key ).release( socket, ticket, reusable );
+        notifyAll();
+    }
+
+
+    private HostConnections getHostConnections( String key ) {
+        HostConnections host = (HostConnections) _hosts.get( key );
+        if (host == null) {
+            host = new HostConnections();
+            _hosts.put( key, host );
+        }
+        return host;
+    }
+
+
+//==================================================================================================
+
+
+    /**
+     * The connections open to a single host.
+     */
+    static class HostConnections {
+
+        /** The idle connections, most recently used last. **/
+        private LinkedList _idle = new LinkedList();
+
+        /** The connections with requests outstanding. **/
+        private LinkedList _busy = new LinkedList();
+
+        private int _active;
+
+
+        int getActiveCount() {
+            return _active;
+        }
+
+
+        int getIdleCount() {
+            return _idle.size();
+        }
+
+
+        /**
+         * Returns the most recently used idle connection, discarding any which have received data while idle.
+         */
+        PooledSocket claimIdleConnection( boolean pipelinable ) {
+            PooledSocket socket = null;
+            while (socket == null && !_idle.isEmpty()) {
+                socket = (PooledSocket) _idle.removeLast();
+                if (socket.hasUnreadData()) {
+                    socket.close();
+                    socket = null;
+                }
+            }
+            if (socket == null) return null;
+            _active++;
+            socket.markReused();
+            socket.claim( pipelinable );
+            _busy.add( socket );
+            return socket;
+        }
+
+
+        void claimNewConnection() {
+            _active++;
+        }
+
+
+        void addNewConnection( PooledSocket socket, boolean pipelinable ) {
+            socket.claim( pipelinable );
+            _busy.add( socket );
+        }
+
+
+        /**
+         * Returns the connection in use with the fewest outstanding requests, provided that it will accept another.
+         */
+        PooledSocket claimPipelinedConnection( int maxPipelinedRequests ) {
+            PooledSocket best = null;
+            for (Iterator i = _busy.iterator(); i.hasNext();) {
+                PooledSocket socket = (PooledSocket) i.next();
+                if (!socket.acceptsPipelinedRequest( maxPipelinedRequests )) continue;
+                if (best == null || socket.getOutstandingCount() < best.getOutstandingCount()) best = socket;
+            }
+            if (best != null) {
+                best.markReused();
+                best.claim( true );
+            }
+            return best;
+        }
+
+
+        void release( PooledSocket socket, long ticket, boolean reusable ) {
+            if (socket == null) {
+                _active--;
+            } else if (socket.complete( ticket, reusable )) {
+                _active--;
+                _busy.remove( socket );
+                if (socket.isBroken()) {
+                    socket.close();
+                } else {
+                    socket.markIdle();
+                    _idle.addLast( socket );
+                }
+            }
+        }
+
+
+        /**
+         * Closes the connection which has been idle the longest, to make room for a new one. There must be at least
+         * one idle connection.
+         */
+        void closeOldestIdleConnection() {
+            ((PooledSocket) _idle.removeFirst()).close();
+        }
+
+
+        /**
+         * Closes all connections which have been idle since before the specified time.
+         * @return the number of connections closed
+         */
+        int closeIdleConnections( long idleSince ) {
+            int count = 0;
+            for (Iterator i = _idle.iterator(); i.hasNext();) {
+                PooledSocket socket = (PooledSocket) i.next();
+                if (socket.getIdleSince() < idleSince) {
+                    socket.close();
+                    i.remove();
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+
+//==================================================================================================
+
+
+    /**
+     * A socket which may be reused for multiple requests.
+     */
+    static class PooledSocket {
+
+        private final String _key;
+        private final Socket _socket;
+        private final InputStream _inputStream;
+        private final OutputStream _outputStream;
+        private long _idleSince;
+        private boolean _reused;
+
+        /** The number of requests which have claimed this socket and not yet finished with it. **/
+        private int _outstanding;
+
+        /** True if all of the outstanding requests may be pipelined. **/
+        private boolean _pipelinable;
+
+        /** The ticket to be assigned to the next request written. **/
+        private long _nextTicket;
+
+        /** The ticket of the request whose response is to be read next. **/
+        private long _currentTicket;
+
+        /** True if the socket may not be used for further requests. **/
+        private boolean _broken;
+
+
+        PooledSocket( String key, Socket socket ) throws IOException {
+            _key = key;
+            _socket = socket;
+            _inputStream = new BufferedInputStream( socket.getInputStream() );
+            _outputStream = new BufferedOutputStream( socket.getOutputStream() );
+        }
+
+
+        String getKey() {
+            return _key;
+        }
+
+
+        InputStream getInputStream() {
+            return _inputStream;
+        }
+
+
+        OutputStream getOutputStream() {
+            return _outputStream;
+        }
+
+
+        void setReadTimeout( int readTimeout ) throws SocketException {
+            _socket.setSoTimeout( Math.max( 0, readTimeout ) );
+        }
+
+
+        /**
+         * Returns true if this socket has been used for an earlier request. Such a socket may have been closed
+         * by the server while idle.
+         */
+        boolean isReused() {
+            return _reused;
+        }
+
+
+        void markReused() {
+            _reused = true;
+        }
+
+
+        /**
+         * Returns true if data which no request asked for has arrived on this socket.
+         */
+        boolean hasUnreadData() {
+            try {
+                return _inputStream.available() > 0;
+            } catch (IOException e) {
+                return true;
+            }
+        }
+
+
+        void markIdle() {
+            _idleSince = System.currentTimeMillis();
+        }
+
+
+        long getIdleSince() {
+            return _idleSince;
+        }
+
+
+        synchronized void claim( boolean pipelinable ) {
+            _pipelinable = _outstanding == 0 ? pipelinable : _pipelinable && pipelinable;
+            _outstanding++;
+        }
+
+
+        synchronized int getOutstandingCount() {
+            return _outstanding;
+        }
+
+
+        synchronized boolean acceptsPipelinedRequest( int maxPipelinedRequests ) {
+            return _pipelinable && !_broken && _outstanding < maxPipelinedRequests;
+        }
+
+
+        synchronized boolean isBroken() {
+            return _broken;
+        }
+
+
+        /**
+         * Writes a request to the socket.
+         * @return the ticket which identifies the request's place in the order of responses
+         */
+        synchronized long send( byte[] requestHead, byte[] requestBody ) throws IOException {
+            long ticket = _nextTicket++;
+            try {
+                _outputStream.write( requestHead );
+                if (requestBody != null) _outputStream.write( requestBody );
+                _outputStream.flush();
+                return ticket;
+            } catch (IOException e) {
+                _broken = true;
+                throw e;
+            }
+        }
+
+
+        /**
+         * Waits until the responses to all requests sent ahead of the one with the specified ticket have been read.
+         * @return false if the socket failed before the response could be read, so that the request should be retried
+         * @throws SocketTimeoutException if the wait times out; since the request may have reached the server, it is not retried
+         */
+        synchronized boolean awaitTurn( long ticket, int maxWait ) throws IOException {
+            long deadline = maxWait <= 0 ? Long.MAX_VALUE : System.currentTimeMillis() + maxWait;
+            while (!_broken && ticket != _currentTicket) {
+                long timeLeft = deadline - System.currentTimeMillis();
+                if (timeLeft <= 0) {
+                    _broken = true;
+                    throw new SocketTimeoutException( "Timed out waiting for earlier responses on pipelined connection to " + _key );
+                }
+                try {
+                    wait( deadline == Long.MAX_VALUE ? 0 : timeLeft );
+                } catch (InterruptedException e) {
+                    _broken = true;
+                    throw new SocketException( "Interrupted while waiting for earlier responses on connection to " + _key );
+                }
+            }
+            return !_broken;
+        }
+
+
+        /**
+         * Records that the request with the specified ticket has finished with this socket. A request which fails
+         * before reaching its turn leaves its response unread, so the socket may not be used again.
+         * @return true if no requests remain outstanding
+         */
+        synchronized boolean complete( long ticket, boolean reusable ) {
+            _outstanding--;
+            boolean current = ticket == _currentTicket;
+            if (current) _currentTicket++;
+            if (!current || !reusable) _broken = true;
+            if (_broken && current && _outstanding > 0) close();
+            notifyAll();
+            return _outstanding == 0;
+        }
+
+
+        void close() {
+            try {
+                _socket.close();
+            } catch (IOException e) {
+                // the socket is being discarded anyway
+            }
+        }
+    }
+}
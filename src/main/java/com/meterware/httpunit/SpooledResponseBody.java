@@ -0,0 +1,170 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.*;
+
+
+/**
+ * Holds the body of a response which is being streamed rather than read into memory. Bodies up to a threshold
+ * size are kept in memory; larger ones are saved to a temporary file, which is deleted when the body is released.
+ **/
+class SpooledResponseBody {
+
+    private byte[] _buffer;
+
+    private int _length;
+
+    private File _file;
+
+    private int _threshold;
+
+    private boolean _released;
+
+
+    /**
+     * Reads the contents of the specified stream, which is then closed.
+     * @param inputStream the stream to read
+     * @param threshold the size above which the contents are saved to a temporary file
+     */
+    SpooledResponseBody( InputStream inputStream, int threshold ) throws IOException {
+        _threshold = threshold;
+        _buffer = new byte[ Math.max( 0, Math.min( threshold, 8 * 1024 ) ) ];
+        OutputStream fileStream = null;
+        boolean complete = false;
+        try {
+            byte[] chunk = new byte[ 8 * 1024 ];
+            int count;
+            while ((count = inputStream.read( chunk )) != -1) {
+                if (fileStream == null && _length + count > _threshold) fileStream = spillToFile();
+                if (fileStream != null) {
+                    fileStream.write( chunk, 0, count );
+                } else {
+                    ensureCapacity( _length + count );
+                    System.arraycopy( chunk, 0, _buffer, _length, count );
+                }
+                _length += count;
+            }
+            complete = true;
+        } finally {
+            inputStream.close();
+            if (fileStream != null) fileStream.close();
+            if (!complete) release();
+        }
+    }
+
+
+    /**
+     * Returns the number of bytes in the body.
+     */
+    int getLength() {
+        return _length;
+    }
+
+
+    /**
+     * Returns true if the body has been saved to a temporary file.
+     */
+    boolean isSpilled() {
+        return _file != null;
+    }
+
+
+    /**
+     * Returns a new stream from which the body may be read.
+     */
+    InputStream getInputStream() throws IOException {
+        if (_released) throw new IOException( "The response body has already been released" );
+        if (_file == null) return new ByteArrayInputStream( _buffer, 0, _length );
+        return new BufferedInputStream( new FileInputStream( _file ) );
+    }
+
+
+    /**
+     * Returns the body as an array of bytes.
+     */
+    byte[] toByteArray() throws IOException {
+        return getLeadingBytes( _length );
+    }
+
+
+    /**
+     * Returns up to the specified number of bytes from the start of the body.
+     */
+    byte[] getLeadingBytes( int maxBytes ) throws IOException {
+        if (_released) throw new IOException( "The response body has already been released" );
+        byte[] result = new byte[ Math.min( maxBytes, _length ) ];
+        if (_file == null) {
+            System.arraycopy( _buffer, 0, result, 0, result.length );
+        } else {
+            DataInputStream stream = new DataInputStream( getInputStream() );
+            try {
+                stream.readFully( result );
+            } finally {
+                stream.close();
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns a new stream from which the body may be read, and which releases the body when it is closed.
+     */
+    InputStream getReleasingInputStream() throws IOException {
+        return new FilterInputStream( getInputStream() ) {
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    release();
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Releases the storage used by the body, deleting its temporary file, if any. The body may not be read again.
+     */
+    void release() {
+        _released = true;
+        _buffer = new byte[0];
+        if (_file != null) _file.delete();
+        _file = null;
+    }
+
+
+    private OutputStream spillToFile() throws IOException {
+        _file = File.createTempFile( "httpunit", ".body" );
+        OutputStream stream = new BufferedOutputStream( new FileOutputStream( _file ) );
+        stream.write( _buffer, 0, _length );
+        _buffer = null;
+        return stream;
+    }
+
+
+    private void ensureCapacity( int size ) {
+        if (size <= _buffer.length) return;
+        byte[] newBuffer = new byte[ Math.min( _threshold, Math.max( size, 2 * _buffer.length ) ) ];
+        System.arraycopy( _buffer, 0, newBuffer, 0, _length );
+        _buffer = newBuffer;
+    }
+}
@@ -0,0 +1,217 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.IOException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * Retrieves the subresources of a page - the contents of its frames and iframes and its included scripts -
+ * concurrently rather than one after another. The requests are issued on a bounded pool of threads, but the
+ * responses are always processed on the thread which requested the page, and in the order in which they appear in
+ * it: frames are updated, cookies are accepted and scripts are run exactly as they would be if the requests had
+ * been sent one at a time. Note that this means that a subresource request includes the cookies known when a loader
+ * thread sends it, and need not include those set by the responses to the other subresources of its page.
+ * <p>
+ * A loader is enabled by assigning it to a client with {@link WebClient#setSubresourceLoader}, and may be shared
+ * by several clients.
+ * </p>
+ *
+ * @since 1.7.4
+ **/
+public class SubresourceLoader {
+
+    /** The default number of subresource requests which may be in progress at one time. **/
+    public final static int DEFAULT_MAX_THREADS = 8;
+
+    private static int _numLoaders;
+
+    private final ExecutorService _executor;
+
+    private final int _maxThreads;
+
+
+    /**
+     * Creates a loader which will issue up to the default number of requests at one time.
+     **/
+    public SubresourceLoader() {
+        this( DEFAULT_MAX_THREADS );
+    }
+
+
+    /**
+     * Creates a loader which will issue up to the specified number of requests at one time.
+     **/
+    public SubresourceLoader( int maxThreads ) {
+        if (maxThreads < 1) throw new IllegalArgumentException( "Must allow at least one thread" );
+        _maxThreads = maxThreads;
+        _executor = Executors.newFixedThreadPool( maxThreads, new LoaderThreadFactory( nextLoaderNumber() ) );
+    }
+
+
+    /**
+     * Returns the maximum number of requests which this loader will issue at one time.
+     **/
+    public int getMaxThreads() {
+        return _maxThreads;
+    }
+
+
+    /**
+     * Stops the threads used by this loader. Requests already in progress will be completed.
+     **/
+    public void shutDown() {
+        _executor.shutdown();
+    }
+
+
+//------------------------------------------ package members ------------------------------------------------
+
+
+    /**
+     * Starts retrieving the response to the specified request.
+     * @return an object from which the response may later be obtained.
+     */
+    PendingResponse submit( WebClient client, WebRequest request, FrameSelector targetFrame ) {
+        return new PendingResponse( _executor.submit( newRetrieval( client, request, targetFrame ) ) );
+    }
+
+
+    /**
+     * Retrieves the response to the specified request on the calling thread, for a client which has no loader.
+     * @return an object from which the response may be obtained.
+     */
+    static PendingResponse retrieve( WebClient client, WebRequest request, FrameSelector targetFrame ) {
+        FutureTask task = new FutureTask( newRetrieval( client, request, targetFrame ) );
+        task.run();
+        return new PendingResponse( task );
+    }
+
+
+//------------------------------------------ private members ------------------------------------------------
+
+
+    private static Callable newRetrieval( final WebClient client, final WebRequest request, final FrameSelector targetFrame ) {
+        return new Callable() {
+            public Object call() throws Exception {
+                return client.createResponse( request, targetFrame );
+            }
+        };
+    }
+
+
+    private static synchronized int nextLoaderNumber() {
+        return ++_numLoaders;
+    }
+
+
+//==================================================================================================
+
+
+    /**
+     * A response which is being retrieved by a loader thread.
+     */
+    static class PendingResponse {
+
+        private Future _future;
+
+
+        PendingResponse( Future future ) {
+            _future = future;
+        }
+
+
+        /**
+         * Returns true if the response has arrived, or its retrieval has failed.
+         */
+        boolean isDone() {
+            return _future.isDone();
+        }
+
+
+        /**
+         * Stops waiting for the response, interrupting its retrieval if it has already started.
+         */
+        void cancel() {
+            _future.cancel( true );
+        }
+
+
+        /**
+         * Waits up to the specified time for the response to arrive, without reporting any failure to retrieve it.
+         */
+        void await( long timeout, TimeUnit unit ) throws InterruptedException, TimeoutException {
+            try {
+                _future.get( timeout, unit );
+            } catch (ExecutionException e) {
+                // reported by getResponse
+            }
+        }
+
+
+        /**
+         * Waits for the response to arrive and returns it. Any exception thrown while retrieving the response
+         * will be thrown here instead.
+         */
+        WebResponse getResponse() throws IOException {
+            try {
+                return (WebResponse) _future.get();
+            } catch (InterruptedException e) {
+                _future.cancel( true );
+                throw new IOException( "Interrupted while waiting for subresource: " + e );
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new RuntimeException( cause.toString() );
+            }
+        }
+    }
+
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+
+        private final int _loaderNum;
+        private int _threadNum;
+
+
+        LoaderThreadFactory( int loaderNum ) {
+            _loaderNum = loaderNum;
+        }
+
+
+        public synchronized Thread newThread( Runnable runnable ) {
+            Thread thread = new Thread( runnable, "SubresourceLoader " + _loaderNum + " thread " + (++_threadNum) );
+            thread.setDaemon( true );
+            return thread;
+        }
+    }
+}
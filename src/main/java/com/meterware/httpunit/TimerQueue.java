@@ -0,0 +1,187 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * The timers scheduled by scripts in a single window. Time is measured by a virtual clock which advances only when
+ * a test asks it to, so that pages which defer work with timers may be exercised without waiting.
+ **/
+class TimerQueue {
+
+    /** The window whose timers these are. **/
+    private WebWindow _window;
+
+    /** The current virtual time, in milliseconds. **/
+    private long _clockTime;
+
+    /** The number of timers created so far, used to assign identifiers and to order timers due at the same time. **/
+    private int _numTimers;
+
+    /** The pending timers, in the order in which they are due. **/
+    private List _timers = new ArrayList(); // List<Timer>
+
+
+    TimerQueue( WebWindow window ) {
+        _window = window;
+    }
+
+
+    /**
+     * Returns the current virtual time in milliseconds.
+     */
+    long getClockTime() {
+        return _clockTime;
+    }
+
+
+    /**
+     * Returns the number of timers waiting to run.
+     */
+    int getPendingTimerCount() {
+        return _timers.size();
+    }
+
+
+    /**
+     * Schedules an action on behalf of the specified page.
+     * @param owner    the page whose script scheduled the action. The action is discarded if the page is replaced.
+     * @param action   the action to run
+     * @param delay    the number of milliseconds to wait before running the action
+     * @param repeat   if true, the action is run again every <code>delay</code> milliseconds until cancelled
+     * @return the identifier of the new timer
+     */
+    int schedule( WebResponse owner, Runnable action, int delay, boolean repeat ) {
+        Timer timer = new Timer( ++_numTimers, owner, action, Math.max( 0, delay ), repeat );
+        timer._dueTime = _clockTime + timer._delay;
+        enqueue( timer );
+        return timer._id;
+    }
+
+
+    /**
+     * Cancels the specified timer. Does nothing if no such timer is pending.
+     */
+    void cancel( int id ) {
+        for (Iterator i = _timers.iterator(); i.hasNext();) {
+            if (((Timer) i.next())._id == id) i.remove();
+        }
+    }
+
+
+    /**
+     * Discards all pending timers.
+     */
+    void clear() {
+        _timers.clear();
+    }
+
+
+    /**
+     * Advances the clock by the specified number of milliseconds, running each timer which falls due on the way.
+     * While a timer runs, the clock shows the time at which it was due.
+     * @return the number of timers run
+     */
+    int advanceClock( long milliseconds ) {
+        long targetTime = _clockTime + Math.max( 0, milliseconds );
+        int numRun = 0;
+        while (!_timers.isEmpty() && ((Timer) _timers.get( 0 ))._dueTime <= targetTime) {
+            if (runNext()) numRun++;
+        }
+        _clockTime = targetTime;
+        return numRun;
+    }
+
+
+    /**
+     * Runs each timer pending at the time of the call, advancing the clock as needed. Timers scheduled by those
+     * timers, including the next run of a repeating timer, are left pending.
+     * @return the number of timers run
+     */
+    int runPendingTimers() {
+        int lastPending = _numTimers;
+        int numRun = 0;
+        for (Timer timer = firstTimerThrough( lastPending ); timer != null; timer = firstTimerThrough( lastPending )) {
+            if (runNext( timer )) numRun++;
+        }
+        return numRun;
+    }
+
+
+    private Timer firstTimerThrough( int lastPending ) {
+        for (Iterator i = _timers.iterator(); i.hasNext();) {
+            Timer timer = (Timer) i.next();
+            if (timer._sequence <= lastPending) return timer;
+        }
+        return null;
+    }
+
+
+    private boolean runNext() {
+        return runNext( (Timer) _timers.get( 0 ) );
+    }
+
+
+    private boolean runNext( Timer timer ) {
+        _timers.remove( timer );
+        _clockTime = Math.max( _clockTime, timer._dueTime );
+        if (!_window.isCurrentContents( timer._owner )) return false;
+
+        if (timer._repeat) {
+            timer._dueTime = _clockTime + Math.max( 1, timer._delay );
+            timer._sequence = ++_numTimers;
+            enqueue( timer );
+        }
+        timer._action.run();
+        return true;
+    }
+
+
+    private void enqueue( Timer timer ) {
+        int index = _timers.size();
+        while (index > 0 && ((Timer) _timers.get( index-1 ))._dueTime > timer._dueTime) index--;
+        _timers.add( index, timer );
+    }
+
+
+    private static class Timer {
+
+        private int _id;
+        private int _sequence;
+        private WebResponse _owner;
+        private Runnable _action;
+        private int _delay;
+        private boolean _repeat;
+        private long _dueTime;
+
+
+        Timer( int id, WebResponse owner, Runnable action, int delay, boolean repeat ) {
+            _id = _sequence = id;
+            _owner = owner;
+            _action = action;
+            _delay = delay;
+            _repeat = repeat;
+        }
+    }
+}
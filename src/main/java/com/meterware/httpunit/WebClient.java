@@ -27,6 +27,8 @@ import java.net.URL;
 import java.net.PasswordAuthentication;
 
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 import org.xml.sax.SAXException;
 
@@ -38,6 +40,12 @@ import com.meterware.httpunit.cookies.CookieJar;
  * The context for a series of web requests. This class manages cookies used to maintain
  * session context, computes relative URLs, and generally emulates the browser behavior
  * needed to build an automated test of a web site.
+ * <p>
+ * A client, together with its windows and the responses it receives, is meant to be used by one thread at a time;
+ * it may be handed from one thread to another, but must not be driven by two at once. Separate clients share no
+ * mutable state other than the static defaults in {@link HttpUnitOptions} and {@link ClientProperties#getDefaultProperties},
+ * and so may be run concurrently from as many threads as desired, provided those defaults are not changed while
+ * they run. Each thread that runs scripts has its own Rhino context.
  *
  * @author <a href="mailto:russgold@httpunit.org">Russell Gold</a>
  * @author Jan Ohrstrom
@@ -61,6 +69,9 @@ public class WebClient {
     private String _proxyAuthorizationString;
     private Hashtable _credentials = new Hashtable();
 
+    /** Authentication challenges which have been answered successfully, keyed by the URL prefixes to which they apply. **/
+    private Hashtable _acceptedChallenges = new Hashtable();
+
 
     public WebWindow getMainWindow() {
         return _mainWindow;
@@ -123,6 +134,34 @@ public class WebClient {
     }
 
 
+    /**
+     * Starts sending a web request and returns without waiting for the response. The request is sent on a thread
+     * belonging to this client's {@link SubresourceLoader}, so any number of requests may be waiting on the network
+     * at once; if this client has no loader, the request is sent on the calling thread before this method returns.
+     * The response is not applied to this client until the get method of the returned {@link Future} is called;
+     * at that point, on the calling thread, cookies are accepted, redirects followed, frames updated and scripts run
+     * exactly as if the request had been sent by {@link #getResponse(WebRequest)}, and the resulting response is
+     * returned. Responses are always applied in
+     * the order in which their requests were made: getting one first applies any earlier ones not yet applied.
+     * A failure to send or apply the request is reported as an ExecutionException by the future.
+     * <p>
+     * Note that the headers and cookies of a request are those known when the loader sends it, which does not
+     * wait for the responses to earlier requests to be applied; a request therefore need not include cookies
+     * set by those responses.
+     * </p>
+     * @since 1.7.4
+     **/
+    public Future getResponseAsync( WebRequest request ) {
+        SubresourceLoader.PendingResponse pendingResponse = null;
+        if (WebWindow.isRemoteResource( request )) {
+            pendingResponse = _mainWindow.prefetchResource( request, _subresourceLoader );
+        }
+        AsyncResponse response = new AsyncResponse( _mainWindow, request, pendingResponse );
+        _asyncResponses.add( response );
+        return response;
+    }
+
+
     /**
      * Returns the name of the currently active frames in the main window.
      **/
@@ -251,7 +290,10 @@ public class WebClient {
 
     /**
      * Specifies a username and password for on-demand authentication. Will only send
-     * the authorization header when challenged for the specified realm.
+     * the authorization header when challenged for the specified realm. Once a challenge has been answered
+     * successfully, later requests in the same protection space will carry the authorization header without waiting
+     * to be challenged, as a browser does; for digest authentication, these reuse the nonce supplied by the server
+     * until it is reported to be stale.
      * @param realm the realm for which the credentials apply.
      * @param username the user to authenticate
      * @param password the credentials for the user
@@ -422,6 +464,67 @@ public class WebClient {
     }
 
 
+    /**
+     * Returns the object used to retrieve frame contents and included scripts concurrently. If null, they will be
+     * retrieved one at a time.
+     * @since 1.7.4
+     **/
+    public SubresourceLoader getSubresourceLoader() {
+        return _subresourceLoader;
+    }
+
+
+    /**
+     * Specifies an object to be used to retrieve frame contents and included scripts concurrently, and to send the
+     * requests made by {@link #getResponseAsync}. Setting this to null (the default) causes frame contents and
+     * scripts to be retrieved one at a time. Concurrent retrieval is intended for use with
+     * {@link WebConversation}; a client which cannot handle requests from multiple threads should leave this unset.
+     * @since 1.7.4
+     **/
+    public void setSubresourceLoader( SubresourceLoader subresourceLoader ) {
+        _subresourceLoader = subresourceLoader;
+    }
+
+
+    /**
+     * Returns the HTTP cache through which this client sends its requests, or null if it does not use one.
+     * @since 1.7.4
+     **/
+    public HttpCache getCache() {
+        return _cache;
+    }
+
+
+    /**
+     * Specifies an HTTP cache through which this client will send its requests. A single cache may be shared by
+     * many clients. Setting this to null (the default) causes every request to be sent to the server.
+     * @since 1.7.4
+     **/
+    public void setCache( HttpCache cache ) {
+        _cache = cache;
+    }
+
+
+    /**
+     * Returns the cache of parsed pages used by this client, or null if it does not use one.
+     * @since 1.7.4
+     **/
+    public ParsedPageCache getPageCache() {
+        return _pageCache;
+    }
+
+
+    /**
+     * Specifies a cache of parsed pages, so that a page identical to one already parsed is copied rather than
+     * parsed again. A single cache may be shared by many clients. Setting this to null (the default) causes
+     * every page to be parsed.
+     * @since 1.7.4
+     **/
+    public void setPageCache( ParsedPageCache pageCache ) {
+        _pageCache = pageCache;
+    }
+
+
 //------------------------------------------ protected members -----------------------------------
 
 
@@ -447,10 +550,19 @@ public class WebClient {
     }
 
 
+    /**
+     * Returns the number of bytes in the message body for the request, or -1 if it cannot be determined in advance.
+     * @since 1.7.4
+     **/
+    final protected long getMessageBodyLength( WebRequest request ) throws IOException {
+        return request.getMessageBodyLength();
+    }
+
+
     /**
      * Returns the value of all current header fields.
      **/
-    protected Dictionary getHeaderFields( URL targetURL ) {
+    protected synchronized Dictionary getHeaderFields( URL targetURL ) {
         Hashtable result = (Hashtable) _headers.clone();
         result.put( "User-Agent", getClientProperties().getUserAgent() );
         if (getClientProperties().isAcceptGzip()) result.put( "Accept-Encoding", "gzip" );
@@ -459,6 +571,7 @@ public class WebClient {
         AddHeaderIfNotNull( result, "Authorization", _authorizationString );
         AddHeaderIfNotNull( result, "Proxy-Authorization", _proxyAuthorizationString );
         _authorizationString = null;
+        if (_additionalHeaders.get() != null) result.putAll( (Map) _additionalHeaders.get() );
         return result;
     }
 
@@ -507,7 +620,7 @@ public class WebClient {
     }
 
 
-    void updateClient( WebResponse response ) throws IOException {
+    synchronized void updateClient( WebResponse response ) throws IOException {
         if (getClientProperties().isAcceptCookies()) _cookieJar.updateCookies( response.getCookieJar() );
         validateHeaders( response );
     }
@@ -540,6 +653,41 @@ public class WebClient {
     }
 
 
+    /**
+     * Applies, in order, the responses to asynchronous requests up to and including the specified one, waiting
+     * up to the specified time for them to arrive.
+     */
+    void applyAsyncResponses( AsyncResponse target, long timeoutNanos ) throws InterruptedException, TimeoutException {
+        if (!_asyncResponses.contains( target )) return;
+
+        AsyncResponse next;
+        do {
+            next = (AsyncResponse) _asyncResponses.getFirst();
+            timeoutNanos = next.await( timeoutNanos );
+            _asyncResponses.removeFirst();
+            next.apply();
+        } while (next != target);
+    }
+
+
+    /**
+     * Returns true if the specified asynchronous response, and all those which must be applied before it, have arrived.
+     */
+    boolean isAsyncResponseReady( AsyncResponse target ) {
+        for (Iterator i = _asyncResponses.iterator(); i.hasNext();) {
+            AsyncResponse response = (AsyncResponse) i.next();
+            if (!response.isArrived()) return false;
+            if (response == target) break;
+        }
+        return true;
+    }
+
+
+    void removeAsyncResponse( AsyncResponse response ) {
+        _asyncResponses.remove( response );
+    }
+
+
     void close( WebWindow window ) {
         if (!_openWindows.contains( window )) throw new IllegalStateException( "Window is already closed" );
         _openWindows.remove( window );
@@ -617,6 +765,18 @@ public class WebClient {
 
     private ClientProperties _clientProperties;
 
+    private SubresourceLoader _subresourceLoader;
+
+    /** The responses to asynchronous requests which have not yet been applied, in the order of the requests. **/
+    private LinkedList _asyncResponses = new LinkedList();
+
+    private HttpCache _cache;
+
+    private ParsedPageCache _pageCache;
+
+    /** Headers to be sent with the request currently being made on each thread, in addition to the usual ones. **/
+    private ThreadLocal _additionalHeaders = new ThreadLocal(); // ThreadLocal<Map<String,String>>
+
 
     /**
      * Examines the headers in the response and throws an exception if appropriate.
@@ -664,25 +824,115 @@ public class WebClient {
      * @throws IOException if an exception (including authorization failure) occurs
      */
     WebResponse createResponse( WebRequest request, FrameSelector targetFrame ) throws IOException {
-        WebResponse response = newResponse( request, targetFrame );
+        AuthenticationChallenge accepted = getAcceptedChallenge( request );
+        String preemptiveAuthorization = accepted == null ? null : accepted.createAuthenticationHeader( request );
+        WebResponse response = getResponse( request, targetFrame, preemptiveAuthorization );
         AuthenticationChallenge challenge = new AuthenticationChallenge( this, request, response.getHeaderField( "WWW-Authenticate" ) );
+        if (preemptiveAuthorization != null && response.getHeaderField( "WWW-Authenticate" ) != null && !challenge.isStale()) {
+            forgetChallenge( accepted );
+        }
         if (!challenge.needToAuthenticate()) {
             return response;
         } else {
-            setOnetimeAuthenticationHeader( challenge.createAuthenticationHeader() );
-            WebResponse response2 = newResponse( request, targetFrame );
-            if (response2.getHeaderField( "WWW-Authenticate" ) != null && getExceptionsThrownOnErrorStatus()) {
-                throw AuthenticationChallenge.createException( response2.getHeaderField( "WWW-Authenticate" ) );
+            WebResponse response2;
+            synchronized (this) {
+                setOnetimeAuthenticationHeader( challenge.createAuthenticationHeader() );
+                response2 = newResponse( request, targetFrame );
+            }
+            if (response2.getHeaderField( "WWW-Authenticate" ) != null) {
+                if (getExceptionsThrownOnErrorStatus()) throw AuthenticationChallenge.createException( response2.getHeaderField( "WWW-Authenticate" ) );
+            } else {
+                rememberChallenge( challenge );
             }
             return response2;
         }
     }
 
 
+    /**
+     * Sends a request, adding the specified authorization header, if any, to the headers normally sent.
+     */
+    private WebResponse getResponse( WebRequest request, FrameSelector targetFrame, String authorization ) throws IOException {
+        Map savedHeaders = (Map) _additionalHeaders.get();
+        if (authorization != null) {
+            Map headers = savedHeaders == null ? new HashMap() : new HashMap( savedHeaders );
+            headers.put( "Authorization", authorization );
+            _additionalHeaders.set( headers );
+        }
+        try {
+            return _cache == null ? newResponse( request, targetFrame ) : _cache.getResponse( this, request, targetFrame );
+        } finally {
+            _additionalHeaders.set( savedHeaders );
+        }
+    }
+
+
+    /**
+     * Returns the accepted challenge whose protection space most closely matches the request, or null if there is none.
+     */
+    private AuthenticationChallenge getAcceptedChallenge( WebRequest request ) throws IOException {
+        if (_acceptedChallenges.isEmpty()) return null;
+        String url = request.getURL().toExternalForm();
+        AuthenticationChallenge result = null;
+        int matchLength = 0;
+        synchronized (_acceptedChallenges) {
+            for (Iterator i = _acceptedChallenges.entrySet().iterator(); i.hasNext();) {
+                Map.Entry entry = (Map.Entry) i.next();
+                String prefix = (String) entry.getKey();
+                if (prefix.length() > matchLength && url.startsWith( prefix )) {
+                    result = (AuthenticationChallenge) entry.getValue();
+                    matchLength = prefix.length();
+                }
+            }
+        }
+        return result;
+    }
+
+
+    private void rememberChallenge( AuthenticationChallenge challenge ) {
+        String[] prefixes = challenge.getProtectionSpace();
+        for (int i = 0; i < prefixes.length; i++) _acceptedChallenges.put( prefixes[i], challenge );
+    }
+
+
+    private void forgetChallenge( AuthenticationChallenge challenge ) {
+        synchronized (_acceptedChallenges) {
+            _acceptedChallenges.values().removeAll( Collections.singleton( challenge ) );
+        }
+    }
+
+
     private void setOnetimeAuthenticationHeader( String authorizationHeader ) {
         _authorizationString = authorizationHeader;
     }
 
+
+    /**
+     * Creates a web response for the specified request, sending the specified headers in addition to the usual ones
+     * and to any already added for this request, such as a preemptive Authorization header.
+     */
+    WebResponse newResponse( WebRequest request, FrameSelector targetFrame, Map additionalHeaders ) throws IOException {
+        Map savedHeaders = (Map) _additionalHeaders.get();
+        Map headers = savedHeaders == null ? new HashMap() : new HashMap( savedHeaders );
+        headers.putAll( additionalHeaders );
+        _additionalHeaders.set( headers );
+        try {
+            return newResponse( request, targetFrame );
+        } finally {
+            _additionalHeaders.set( savedHeaders );
+        }
+    }
+
+
+    /**
+     * Returns true if requests from this client will carry an Authorization header.
+     */
+    synchronized boolean hasAuthorization() {
+        Map additionalHeaders = (Map) _additionalHeaders.get();
+        return _authorizationString != null || _fixedAuthorizationString != null
+            || (additionalHeaders != null && additionalHeaders.containsKey( "Authorization" ));
+    }
+
 //==================================================================================================
 
 
@@ -22,13 +22,18 @@ package com.meterware.httpunit;
 import java.io.IOException;
 
 import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
+import java.net.Proxy;
 import java.net.URL;
 import java.net.URLConnection;
+import java.net.UnknownHostException;
 
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.Properties;
+import java.util.Hashtable;
+
+import javax.net.ssl.HttpsURLConnection;
 
 
 /**
@@ -44,6 +49,7 @@ public class WebConversation extends WebClient {
     private int _proxyPort;
     private int _connectTimeout = -1;
     private int _readTimeout = -1;    
+    private WebTransport _transport;
 
 
     /**
@@ -60,29 +66,25 @@ public class WebConversation extends WebClient {
      * Creates a web response object which represents the response to the specified web request.
      **/
     protected WebResponse newResponse( WebRequest request, FrameSelector targetFrame ) throws MalformedURLException, IOException {
-        Properties savedProperties = (Properties) System.getProperties().clone();
-        try {
-            if (_proxyHost != null) {
-                System.setProperty( "proxyHost", _proxyHost );
-                System.setProperty( "proxyPort", Integer.toString( _proxyPort ) );
-            }
-            URLConnection connection = openConnection( getRequestURL( request ) );
-            // [ 1518901 ] enable http connect and read timeouts (needs JDK 1.5)
-            // comment the next two line if you do not need this and have JDK <1.5
-            if (_connectTimeout>=0) connection.setConnectTimeout( _connectTimeout );
-            if (_readTimeout>=0)    connection.setReadTimeout( _readTimeout );            
-            if (HttpUnitOptions.isLoggingHttpHeaders()) {
-                String urlString = request.getURLString();
-                System.out.println( "\nConnecting to " + request.getURL().getHost() );
-                System.out.println( "Sending:: " + request.getMethod() + " " + urlString );
-            }
-            sendHeaders( connection, getHeaderFields( request.getURL() ) );
-            sendHeaders( connection, request.getHeaderDictionary() );
-            request.completeRequest( connection );
-            return new HttpWebResponse( this, targetFrame, request, connection, getExceptionsThrownOnErrorStatus() );
-        } finally {
-            System.setProperties( savedProperties );
+        URL url = getRequestURL( request );
+        URLConnection connection = openConnection( url );
+        // [ 1518901 ] enable http connect and read timeouts (needs JDK 1.5)
+        // comment the next two line if you do not need this and have JDK <1.5
+        if (_connectTimeout>=0) connection.setConnectTimeout( _connectTimeout );
+        if (_readTimeout>=0)    connection.setReadTimeout( _readTimeout );            
+        if (getClientProperties().isLoggingHttpHeaders()) {
+            String urlString = request.getURLString();
+            System.out.println( "\nConnecting to " + request.getURL().getHost() );
+            System.out.println( "Sending:: " + request.getMethod() + " " + urlString );
+        }
+        sendHeaders( connection, getHeaderFields( request.getURL() ) );
+        if (url != request.getURL()) sendHeaders( connection, getHostHeader( request.getURL() ) );
+        sendHeaders( connection, request.getHeaderDictionary() );
+        if (connection instanceof HttpURLConnection) {
+            request.selectStreamingMode( (HttpURLConnection) connection, getClientProperties().getStreamingUploadThreshold() );
         }
+        request.completeRequest( connection );
+        return new HttpWebResponse( this, targetFrame, request, connection, getExceptionsThrownOnErrorStatus() );
     }
 
 
@@ -92,7 +94,8 @@ public class WebConversation extends WebClient {
 
 
     /**
-     * set the proxy server to the given proxyHost with the given proxy Port
+     * set the proxy server to the given proxyHost with the given proxy Port. Only this conversation uses the proxy;
+     * its requests are sent through a connection opened directly from the URL, rather than through any transport.
      * @param proxyHost - the hostname of the proxy e.g. proxy.somedomain.org
      * @param proxyPort - the number of the port to use e.g. 8080
      */
@@ -102,6 +105,44 @@ public class WebConversation extends WebClient {
     }
 
 
+    /**
+     * Returns the name of the proxy server used by this conversation, if any; otherwise, the one named by the
+     * proxyHost system property.
+     */
+    public String getProxyHost() {
+        return _proxyHost != null ? _proxyHost : super.getProxyHost();
+    }
+
+
+    /**
+     * Returns the number of the proxy port used by this conversation, if any; otherwise, the one named by the
+     * proxyPort system property, or 0 if none is specified.
+     */
+    public int getProxyPort() {
+        return _proxyHost != null ? _proxyPort : super.getProxyPort();
+    }
+
+
+    /**
+     * Returns the transport used to obtain connections, or null if connections are obtained directly from the URL.
+     * @since 1.7.4
+     */
+    public WebTransport getTransport() {
+        return _transport;
+    }
+
+
+    /**
+     * Specifies the transport to be used to obtain connections. If null (the default), connections will be obtained
+     * directly from the request URL. A single transport may be shared by many conversations.
+     * @param transport the transport to use, or null for the default
+     * @since 1.7.4
+     */
+    public void setTransport( WebTransport transport ) {
+        _transport = transport;
+    }
+
+
     /**
 		 * @return the _connectTimeout -1 means it is not set (the default)
 		 */
@@ -139,17 +180,16 @@ public class WebConversation extends WebClient {
 		 * get the Uniform Resource Locator for this request
 		 * @param request
 		 * @return the URL
-		 * @throws MalformedURLException
+		 * @throws IOException if the host cannot be found
 		 */
-		private URL getRequestURL( WebRequest request ) throws MalformedURLException {
+		private URL getRequestURL( WebRequest request ) throws IOException {
         DNSListener dnsListener = getClientProperties().getDnsListener();
         if (dnsListener == null) return request.getURL();
 
         String hostName = request.getURL().getHost();
-        String portPortion = request.getURL().getPort() == -1 ? "" : (":" + request.getURL().getPort());
-        setHeaderField( "Host", hostName + portPortion );
         String actualHost = dnsListener.getIpAddress( hostName );
-        if (HttpUnitOptions.isLoggingHttpHeaders()) System.out.println( "Rerouting request to :: " + actualHost );
+        if (actualHost == null) throw new UnknownHostException( hostName );
+        if (getClientProperties().isLoggingHttpHeaders()) System.out.println( "Rerouting request to :: " + actualHost );
         return new URL( request.getURL().getProtocol(), actualHost, request.getURL().getPort(), request.getURL().getFile() );
     }
 
@@ -157,13 +197,32 @@ public class WebConversation extends WebClient {
 //---------------------------------- private members --------------------------------
 
 
+    /**
+     * Returns the Host header for a request which has been rerouted to the address supplied by the DNS listener.
+     */
+    private Dictionary getHostHeader( URL url ) {
+        Hashtable result = new Hashtable();
+        result.put( "Host", url.getPort() == -1 ? url.getHost() : url.getHost() + ':' + url.getPort() );
+        return result;
+    }
+
+
     /**
      * open a connection for the given uniform resource locator
      * @param url - the url to use
      */
     private URLConnection openConnection( URL url ) throws MalformedURLException, IOException {
-        URLConnection connection = url.openConnection();
+        URLConnection connection;
+        if (_proxyHost != null) {
+            connection = url.openConnection( new Proxy( Proxy.Type.HTTP, new InetSocketAddress( _proxyHost, _proxyPort ) ) );
+        } else {
+            connection = _transport == null ? url.openConnection() : _transport.openConnection( url );
+        }
         if (connection instanceof HttpURLConnection) ((HttpURLConnection) connection).setInstanceFollowRedirects( false );
+        HttpsConfiguration httpsConfiguration = getClientProperties().getHttpsConfiguration();
+        if (httpsConfiguration != null && connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory( httpsConfiguration.getSocketFactory() );
+        }
         connection.setUseCaches( false );
         return connection;
     }
@@ -180,14 +239,14 @@ public class WebConversation extends WebClient {
             String key = (String) e.nextElement();
             if ( sendReferer || !"referer".equalsIgnoreCase( key ) ) {
 	            connection.setRequestProperty( key, (String) headers.get( key ) );
-	            if (HttpUnitOptions.isLoggingHttpHeaders()) {
+	            if (getClientProperties().isLoggingHttpHeaders()) {
 	                if (key.equalsIgnoreCase( "authorization" ) || key.equalsIgnoreCase( "proxy-authorization") ) {
 	                    System.out.println( "Sending:: " + key + ": " + headers.get( key ) );
 	                } else {
 	                    System.out.println( "Sending:: " + key + ": " + connection.getRequestProperty( key ) );
 	                }
 	            }
-        		} else if (HttpUnitOptions.isLoggingHttpHeaders()) {
+        		} else if (getClientProperties().isLoggingHttpHeaders()) {
         				System.out.println( "Blocked sending referer:: "+ connection.getRequestProperty( key ) );
         		}		
         } // for
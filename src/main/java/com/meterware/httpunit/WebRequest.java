@@ -509,6 +509,22 @@ public class WebRequest {
     }
 
 
+    /**
+     * Returns the number of bytes in the message body, or -1 if this cannot be determined without writing it.
+     */
+    long getMessageBodyLength() throws IOException {
+        return 0;
+    }
+
+
+    /**
+     * Selects the streaming mode in which the message body should be sent over the specified connection.
+     * @param threshold the length at or above which the body should be streamed, or -1 if it should never be streamed
+     */
+    void selectStreamingMode( HttpURLConnection connection, int threshold ) throws IOException {
+    }
+
+
     final
     protected URL getURLBase() {
         return _urlBase;
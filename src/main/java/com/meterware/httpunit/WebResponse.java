@@ -25,21 +25,30 @@ import com.meterware.httpunit.dom.DomWindow;
 import com.meterware.httpunit.dom.DomWindowProxy;
 import com.meterware.httpunit.dom.HTMLDocumentImpl;
 import com.meterware.httpunit.dom.HTMLElementImpl;
+import com.meterware.httpunit.parsing.HTMLParser;
+import com.meterware.httpunit.parsing.HTMLParserFactory;
+import com.meterware.httpunit.parsing.PageScanListener;
+import com.meterware.httpunit.parsing.PageScanner;
+import com.meterware.httpunit.parsing.StreamingHTMLParser;
 import com.meterware.httpunit.protocol.MessageBody;
 import com.meterware.httpunit.scripting.NamedDelegate;
 import com.meterware.httpunit.scripting.ScriptableDelegate;
 import com.meterware.httpunit.scripting.ScriptingHandler;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
+import org.w3c.dom.html.HTMLDocument;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.Vector;
 import java.util.zip.GZIPInputStream;
 
@@ -68,8 +77,14 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
     
     
     private static final int UNINITIALIZED_INT = -2;
-    private static final int UNKNOWN_LENGTH_TIMEOUT = 500;
-    private static final int UNKNOWN_LENGTH_RETRY_INTERVAL = 10;
+    private static int _lengthHeuristicCount;
+    // the number of bytes of a spooled body examined for meta and base tags when it is received
+    private static final int SPOOLED_TAG_SCAN_LIMIT = 64 * 1024;
+    // the smallest buffer allocated to read a body of known length
+    private static final int MIN_READ_BUFFER = 8 * 1024;
+
+    // the body recorded while a body is being loaded, and if loading it fails
+    private static final byte[] NO_BYTES = new byte[0];
 
     private FrameSelector _frame;
     // allow to switch off parsing e.g. for method="HEAD"
@@ -78,6 +93,8 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
     private String  _refreshHeader;
     private URL     _baseURL;
     private boolean _parsingPage;
+    // the src and language attributes of the script tags found when scanning the page; List<String[]>
+    private ArrayList _includedScriptTags = new ArrayList();
 
     /**
      * is parsing on?
@@ -254,7 +271,7 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
         if (_characterSet == null) {
             readContentTypeHeader();
             if (_characterSet == null) setCharacterSet( getHeaderField( "Charset" ) );
-            if (_characterSet == null) setCharacterSet( HttpUnitOptions.getDefaultCharacterSet() );
+            if (_characterSet == null) setCharacterSet( getClientProperties().getDefaultCharacterSet() );
         }
         return _characterSet;
     }
@@ -290,13 +307,23 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
     abstract
     public String getHeaderField( String fieldName );
 
+
+    /**
+     * Returns the values for the specified header field. If no such field is defined, will return an empty array.
+     * @since 1.7.4
+     **/
+    public String[] getHeaderFields( String fieldName ) {
+        String value = getHeaderField( fieldName );
+        return value == null ? new String[0] : new String[]{ value };
+    }
+
     /**
      * Returns the actual byte stream of the response e.g. for download results
      * @return the byte array read for this response
      * @throws IOException
      */
     public byte[] getBytes() throws IOException {
-        if (_responseText == null) 
+        if (!isBodyLoaded()) 
         	loadResponseText();
         return _bytes;
     } 
@@ -307,8 +334,10 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
      * @return the response text
      **/
     public String getText() throws IOException {
-        if (_responseText == null) 
-        	loadResponseText();
+        if (_responseText == null) {
+            if (!isBodyLoaded()) loadResponseText();
+            _responseText = (_bytes == null) ? "" : new String( _bytes, getCharacterSet() );
+        }
         return _responseText;
     }
 
@@ -316,7 +345,9 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
      * Returns a buffered input stream for reading the contents of this reply.
      **/
     public InputStream getInputStream() throws IOException {
-        if (_inputStream == null) 
+        if (_inputStream == null && _spooledBody != null)
+            _inputStream = _spooledBody.getReleasingInputStream();
+        else if (_inputStream == null)
         	_inputStream = new ByteArrayInputStream( getText().getBytes() );
         return _inputStream;
     }
@@ -462,6 +493,26 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
     }
 
 
+    /**
+     * Reads the title, links and forms of the page, reporting each to the specified listener as it is found.
+     * Unlike the other methods which examine the page, this does not parse it into a document or run its scripts,
+     * and it needs little memory even for very large pages. If the client spools response bodies,
+     * the page is read from the spooled copy.
+     * @since 1.7.4
+     **/
+    public void scanPage( PageScanListener listener ) throws IOException {
+        if (getClientProperties().isCheckHtmlContentType() && !isHTML()) throw new NotHTMLException( getContentType() );
+
+        Reader reader = (_responseText != null) ? (Reader) new StringReader( _responseText )
+                                                : new InputStreamReader( getBodyStream(), getCharacterSet() );
+        try {
+            new PageScanner( reader ).scan( listener );
+        } finally {
+            reader.close();
+        }
+    }
+
+
     /**
      * Returns the links found in the page in the order in which they appear.
      * @exception SAXException thrown if there is an error parsing the response.
@@ -709,7 +760,7 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
 
 
     public ScriptingHandler getScriptingHandler() {
-        if (_scriptingHandler == null) _scriptingHandler = HttpUnitOptions.getScriptingEngine().createHandler( this );
+        if (_scriptingHandler == null) _scriptingHandler = getClientProperties().getScriptingEngine().createHandler( this );
         return _scriptingHandler;
     }
 
@@ -865,6 +916,23 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
         }
 
 
+        /**
+         * Schedules an action to run after the specified delay, as measured by the window's virtual clock.
+         * @return the identifier of the timer, which may be passed to {@link #clearTimer}
+         */
+        public int setTimer( Runnable action, int delay, boolean repeat ) {
+            return _window == null ? 0 : _window.getTimers().schedule( WebResponse.this, action, delay, repeat );
+        }
+
+
+        /**
+         * Cancels a timer set by {@link #setTimer}.
+         */
+        public void clearTimer( int id ) {
+            if (_window != null) _window.getTimers().cancel( id );
+        }
+
+
         /**
          * Returns the value of the named property. Will return null if the property does not exist.
          **/
@@ -969,7 +1037,7 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
 
     final
     protected void defineRawInputStream( InputStream inputStream ) throws IOException {
-        if (_inputStream != null || _responseText != null) {
+        if (_inputStream != null || isBodyLoaded()) {
             throw new IllegalStateException( "Must be called before response text is defined." );
         }
 
@@ -1037,6 +1105,7 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
         if (_parsingPage) return false;
         _responseText = text;
         _inputStream = null;
+        discardSpooledBody();
         _page = null;
         _contentType = contentType;
         _baseURL = null;
@@ -1092,7 +1161,7 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
     private int _refreshDelay = -1;  // initialized to invalid value
 
     /**
-     * the response as a String
+     * the response as a String, decoded from the bytes only when first requested
      */
     private String _responseText;
     
@@ -1103,6 +1172,11 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
 
 	private InputStream _inputStream;
 
+    /**
+     * the response body, if it is being streamed rather than read into memory
+     */
+    private SpooledResponseBody _spooledBody;
+
     private final URL    _pageURL;
 
     private final WebClient _client;
@@ -1118,91 +1192,227 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
     private ScriptingHandler _scriptingHandler;
 
 
+    /**
+     * Reads the body of the response into memory. The bytes are decoded into text only when the text is requested.
+     */
     protected void loadResponseText() throws IOException {
-        if (_responseText != null) throw new IllegalStateException( "May only invoke loadResponseText once" );
-        _responseText = "";
+        if (isBodyLoaded()) throw new IllegalStateException( "May only invoke loadResponseText once" );
+        _bytes = NO_BYTES;
+
+        if (_spooledBody != null) {
+            _bytes = _spooledBody.toByteArray();
+            discardSpooledBody();
+            readTags( _bytes );
+            _inputStream  = new ByteArrayInputStream( _bytes );
+            return;
+        }
 
         InputStream inputStream = getInputStream();
         try {
             final int contentLength = this.encodedUsingGZIP() ? -1 : getContentLength();
-            int bytesRemaining = contentLength < 0 ? Integer.MAX_VALUE : contentLength;
-            _bytes = readFromStream( inputStream, bytesRemaining );
+            countLengthHeuristic( contentLength );
+            _bytes = contentLength < 0 ? readToEnd( inputStream ) : readFully( inputStream, contentLength );
 
             readTags( _bytes );
-            _responseText = new String( _bytes, getCharacterSet() );
             _inputStream  = new ByteArrayInputStream( _bytes );
 
-            if (HttpUnitOptions.isCheckContentLength() && contentLength >= 0 && _bytes.length != contentLength) {
-                throw new IOException("Truncated message. Expected length: " + contentLength +
-                                                       ", Actual length: " + _bytes.length);
-            }
+            checkContentLength( contentLength, _bytes.length );
         } finally {
             inputStream.close();
         }
     }
 
 
-    private byte[] readFromStream( InputStream inputStream, int maxBytes ) throws IOException {
+    /**
+     * Reads the body of the response without decoding it, keeping it as a stream until its text is requested.
+     * Large bodies are saved to a temporary file.
+     */
+    void spoolResponseBody() throws IOException {
+        if (isBodyLoaded()) throw new IllegalStateException( "Response text has already been read" );
+
+        final int contentLength = this.encodedUsingGZIP() ? -1 : getContentLength();
+        countLengthHeuristic( contentLength );
+        InputStream inputStream = getInputStream();
+        try {
+            _spooledBody = new SpooledResponseBody( inputStream, getClientProperties().getStreamingSpillThreshold() );
+        } catch (SocketTimeoutException e) {
+            throw bodyReadTimeout( e );
+        }
+        _inputStream = null;
+        try {
+            checkContentLength( contentLength, _spooledBody.getLength() );
+            readTags( _spooledBody.getLeadingBytes( SPOOLED_TAG_SCAN_LIMIT ) );
+        } catch (IOException e) {
+            discardSpooledBody();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Returns true if the body of this response has been read into memory, either as bytes or as text.
+     */
+    private boolean isBodyLoaded() {
+        return _bytes != null || _responseText != null;
+    }
+
+
+    /**
+     * Returns true if the body of this response is being held as a stream, and has not yet been read into memory.
+     */
+    boolean isSpooled() {
+        return _spooledBody != null;
+    }
+
+
+    /**
+     * Returns true if the body of this response has been decoded into text.
+     */
+    boolean isTextDecoded() {
+        return _responseText != null;
+    }
+
+
+    private void discardSpooledBody() {
+        if (_spooledBody != null) _spooledBody.release();
+        _spooledBody = null;
+    }
+
+
+    private void checkContentLength( int contentLength, int actualLength ) throws IOException {
+        if (getClientProperties().isCheckContentLength() && contentLength >= 0 && actualLength != contentLength) {
+            throw new IOException("Truncated message. Expected length: " + contentLength +
+                                                   ", Actual length: " + actualLength);
+        }
+    }
+
+
+    ClientProperties getClientProperties() {
+        return _client == null ? ClientProperties.getDefaultProperties() : _client.getClientProperties();
+    }
+
+
+    /**
+     * Reads a body of known length. Since the length is only a claim made by the server, the buffer is allocated
+     * no larger than the streaming spill threshold and grows as data arrives, up to the stated length.
+     * The result will be shorter only if the stream ends early.
+     */
+    private byte[] readFully( InputStream inputStream, int length ) throws IOException {
+        byte[] result = new byte[ Math.min( length, Math.max( MIN_READ_BUFFER, getClientProperties().getStreamingSpillThreshold() ) ) ];
+        int offset = 0;
+        try {
+            while (offset < length) {
+                if (offset == result.length) result = copyOf( result, offset, (int) Math.min( length, 2L * result.length ) );
+                int count = inputStream.read( result, offset, result.length - offset );
+                if (count == -1) break;
+                offset += count;
+            }
+        } catch (SocketTimeoutException e) {
+            throw bodyReadTimeout( e );
+        }
+        return offset == result.length ? result : copyOf( result, offset, offset );
+    }
+
+
+    private static byte[] copyOf( byte[] bytes, int length, int newSize ) {
+        byte[] result = new byte[ newSize ];
+        System.arraycopy( bytes, 0, result, 0, length );
+        return result;
+    }
+
+
+    /**
+     * Reads a body of unknown length until the end of the stream. A stalled server is detected by the read timeout
+     * of the connection, as set by {@link WebConversation#set_readTimeout}, rather than by polling the stream.
+     */
+    private byte[] readToEnd( InputStream inputStream ) throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         byte[] buffer = new byte[8 * 1024];
-        int count = 0;
-        if (maxBytes > 0) {
-            do {
-                outputStream.write( buffer, 0, count );
-                maxBytes -= count;
-                if (maxBytes <= 0) break;
-                count = inputStream.read( buffer, 0, Math.min( maxBytes, buffer.length ) );
-            } while (count != -1);
-        } else {
-            do {
+        int count;
+        try {
+            while ((count = inputStream.read( buffer, 0, buffer.length )) != -1) {
                 outputStream.write( buffer, 0, count );
-                int available = getAvailableBytes( inputStream );
-                count = (available == 0) ? -1 : inputStream.read( buffer, 0, buffer.length );
-            } while (count != -1);
+            }
+        } catch (SocketTimeoutException e) {
+            throw bodyReadTimeout( e );
         }
-
         return outputStream.toByteArray();
     }
 
 
-    private int getAvailableBytes( InputStream inputStream ) throws IOException {
-        int timeLeft = UNKNOWN_LENGTH_TIMEOUT;
-        int available;
-        do {
-            timeLeft -= UNKNOWN_LENGTH_RETRY_INTERVAL;
-            try { Thread.sleep( UNKNOWN_LENGTH_RETRY_INTERVAL ); } catch (InterruptedException e) { /* do nothing */ }
-            available = inputStream.available();
-        } while (available == 0 && timeLeft > 0);
-        return available;
+    private SocketTimeoutException bodyReadTimeout( SocketTimeoutException cause ) {
+        SocketTimeoutException e = new SocketTimeoutException( "Timed out reading response body from " + getURL() );
+        e.initCause( cause );
+        return e;
     }
 
+
     /**
-     * read the tags from the given message
+     * Returns the number of responses received with a content length of zero. Before version 1.7.4, the body of such
+     * a response was found by polling the connection for up to half a second, in case the server sent one anyway;
+     * this count shows how often that delay would have been incurred.
+     * @since 1.7.4
+     */
+    public static int getLengthHeuristicCount() {
+        synchronized (WebResponse.class) {
+            return _lengthHeuristicCount;
+        }
+    }
+
+
+    /**
+     * Resets the count returned by {@link #getLengthHeuristicCount}.
+     * @since 1.7.4
+     */
+    public static void resetLengthHeuristicCount() {
+        synchronized (WebResponse.class) {
+            _lengthHeuristicCount = 0;
+        }
+    }
+
+
+    private static void countLengthHeuristic( int contentLength ) {
+        if (contentLength != 0) return;
+        synchronized (WebResponse.class) {
+            _lengthHeuristicCount++;
+        }
+    }
+
+    /**
+     * read the meta and base tags from the given message, stopping at the end of the head unless the
+     * included scripts are wanted for concurrent retrieval
      * @param rawMessage
      * @throws UnsupportedEncodingException
      * @throws MalformedURLException
      */
     private void readTags( byte[] rawMessage ) throws UnsupportedEncodingException, MalformedURLException {
-        ByteTagParser parser = new ByteTagParser( rawMessage );
-        ByteTag tag = parser.getNextTag();
-        while (tag != null ) {
-            if (tag.getName().equalsIgnoreCase( "meta" )) processMetaTag( tag );
-            if (tag.getName().equalsIgnoreCase( "base" )) processBaseTag( tag );
+        _includedScriptTags.clear();
+        boolean findScripts = _client != null && _client.getSubresourceLoader() != null && getClientProperties().isScriptingEnabled();
+        ByteTagScanner scanner = new ByteTagScanner( rawMessage );
+        while (scanner.nextTag()) {
+            if (scanner.isTag( "meta" )) processMetaTag( scanner );
+            if (scanner.isTag( "base" )) processBaseTag( scanner );
+            if (scanner.isTag( "/head" ) && !findScripts) break;
+            if (scanner.isTag( "script" ) && findScripts) rememberIncludedScript( scanner );
             // loop over a noscript region
-            if (tag.getName().equalsIgnoreCase( "noscript") && HttpUnitOptions.isScriptingEnabled()) {
-                do { 
-                	tag = parser.getNextTag(); 
-                } 
-                while (!tag.getName().equalsIgnoreCase( "/noscript") );
+            if (scanner.isTag( "noscript" ) && getClientProperties().isScriptingEnabled()) {
+                while (scanner.nextTag() && !scanner.isTag( "/noscript" ));
             }
-            tag = parser.getNextTag();
         }
     }
 
 
-    private void processBaseTag( ByteTag tag ) throws MalformedURLException {
-        if (tag.getAttribute( "href" ) != null) _baseURL = new URL( getURL(), tag.getAttribute( "href" ) );
-        if (tag.getAttribute( "target" ) != null) _baseTarget = tag.getAttribute( "target" );
+    private void rememberIncludedScript( ByteTagScanner scanner ) throws UnsupportedEncodingException {
+        String src = scanner.getAttribute( "src" );
+        if (src != null) _includedScriptTags.add( new String[] { src, scanner.getAttribute( "language" ) } );
+    }
+
+
+    private void processBaseTag( ByteTagScanner tag ) throws UnsupportedEncodingException, MalformedURLException {
+        String href = tag.getAttribute( "href" );
+        String target = tag.getAttribute( "target" );
+        if (href != null) _baseURL = new URL( getURL(), href );
+        if (target != null) _baseTarget = target;
     }
 
 
@@ -1210,7 +1420,7 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
      * process MetaTags based on the tag
      * @param tag
      */
-    private void processMetaTag( ByteTag tag ) {
+    private void processMetaTag( ByteTagScanner tag ) throws UnsupportedEncodingException {
         if (isHttpEquivMetaTag( tag, "content-type" )) {
             inferContentType( tag.getAttribute( "content" ) );
         } else if (isHttpEquivMetaTag( tag, "refresh" )) {
@@ -1225,7 +1435,7 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
      * @param headerName
      * @return
      */
-    private boolean isHttpEquivMetaTag( ByteTag tag, String headerName )
+    private boolean isHttpEquivMetaTag( ByteTagScanner tag, String headerName ) throws UnsupportedEncodingException
     {
     	String equiv1=tag.getAttribute( "http_equiv" );
     	String equiv2=tag.getAttribute( "http-equiv" );
@@ -1317,8 +1527,8 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
         String contentHeader = (_contentHeader != null) ? _contentHeader
                                                         : getHeaderField( "Content-type" );
         if (contentHeader == null) {
-            _contentType = HttpUnitOptions.getDefaultContentType();
-            setCharacterSet( HttpUnitOptions.getDefaultCharacterSet() );
+            _contentType = getClientProperties().getDefaultContentType();
+            setCharacterSet( getClientProperties().getDefaultCharacterSet() );
             _contentHeader = _contentType + ";charset=" + _characterSet;
         } else {
             String[] parts = HttpUnitUtils.parseContentTypeHeader( contentHeader );
@@ -1349,10 +1559,11 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
         if (_page == null) {
             try {
                 _parsingPage = true;
-                if (HttpUnitOptions.isCheckHtmlContentType() && !isHTML()) throw new NotHTMLException( getContentType() );
+                if (getClientProperties().isCheckHtmlContentType() && !isHTML()) throw new NotHTMLException( getContentType() );
                 _page = new HTMLPage( this, _frame, _baseURL, _baseTarget, getCharacterSet() );
                 if (_withParse) {
-                	_page.parse( getText(), _pageURL );
+                	prefetchIncludedScripts();
+                	parsePage();
                 	if (_page == null) throw new IllegalStateException( "replaceText called in the middle of getReceivedPage()" );
                 	((HTMLDocumentImpl) _page.getRootNode()).getWindow().setProxy( this );
                 }	
@@ -1367,19 +1578,100 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
     }
 
 
+    /**
+     * Parses the page, or copies the document parsed from an identical page if the client has a page cache.
+     */
+    private void parsePage() throws SAXException, IOException {
+        ParsedPageCache.Key key = getPageCacheKey();
+        if (key != null) {
+            HTMLDocument document = _client.getPageCache().getDocument( key );
+            if (document != null) {
+                _page.setRootNode( document );
+                return;
+            }
+        }
+
+        parsePageContents();
+        if (key != null && _page.isParsedWithoutScripts()) {
+            _client.getPageCache().putDocument( key, (HTMLDocument) _page.getRootNode() );
+        }
+    }
+
+
+    /**
+     * Returns the key under which the parsed page is cached, or null if the client has no page cache, the page
+     * is spooled rather than held in memory, or the parser is reporting problems to warnings or listeners.
+     */
+    private ParsedPageCache.Key getPageCacheKey() throws IOException {
+        if (_client == null || _client.getPageCache() == null) return null;
+        if (HTMLParserFactory.isParserWarningsEnabled() || HTMLParserFactory.hasHTMLParserListeners()) return null;
+
+        HTMLParser parser = getClientProperties().getHTMLParser();
+        if (_responseText != null) return ParsedPageCache.createKey( _responseText, parser );
+        if (_spooledBody == null && _bytes == null) loadResponseText();
+        return (_spooledBody != null) ? null : ParsedPageCache.createKey( _bytes, getCharacterSet(), parser );
+    }
+
+
+    /**
+     * Parses the contents of the page. Unless its text has already been requested, or supplied in place of the body,
+     * the parser reads the bytes of the body directly, so that the page is never held as a string.
+     */
+    private void parsePageContents() throws SAXException, IOException {
+        if (_responseText != null || !(getClientProperties().getHTMLParser() instanceof StreamingHTMLParser)) {
+            _page.parse( getText(), _pageURL );
+            return;
+        }
+
+        InputStream pageStream = getBodyStream();
+        try {
+            _page.parse( pageStream, getCharacterSet(), _pageURL );
+        } finally {
+            pageStream.close();
+        }
+    }
+
+
+    /**
+     * Returns a stream from which to read the body, reading the body first if necessary.
+     */
+    private InputStream getBodyStream() throws IOException {
+        if (_spooledBody == null && _bytes == null) loadResponseText();
+        return (_spooledBody != null) ? _spooledBody.getInputStream() : new ByteArrayInputStream( _bytes );
+    }
+
+
+    /**
+     * If the client retrieves subresources concurrently, starts retrieving the scripts included by this page,
+     * so that they are available when the parser asks for them.
+     */
+    private void prefetchIncludedScripts() {
+        if (_client == null || _client.getSubresourceLoader() == null) return;
+        if (!getClientProperties().isScriptingEnabled() || getWindow() == null || _includedScriptTags.isEmpty()) return;
+
+        ScriptingHandler handler = getScriptingHandler();
+        for (Iterator i = _includedScriptTags.iterator(); i.hasNext(); ) {
+            String[] tag = (String[]) i.next();
+            if (handler.supportsScriptLanguage( tag[1] )) _page.prefetchIncludedScript( tag[0] );
+        }
+    }
+
+
     private static String _defaultEncoding;
 
     private final static String[] DEFAULT_ENCODING_CANDIDATES = { HttpUnitUtils.DEFAULT_CHARACTER_SET, "us-ascii", "utf-8", "utf8" };
 
     static String getDefaultEncoding() {
-        if (_defaultEncoding == null) {
-            for (int i = 0; i < DEFAULT_ENCODING_CANDIDATES.length; i++) {
-                if (isSupportedCharacterSet( DEFAULT_ENCODING_CANDIDATES[i] )) {
-                    return _defaultEncoding = DEFAULT_ENCODING_CANDIDATES[i];
-                }
-            }
+        if (_defaultEncoding == null) _defaultEncoding = selectDefaultEncoding();
+        return _defaultEncoding;
+    }
+
+
+    private static String selectDefaultEncoding() {
+        for (int i = 0; i < DEFAULT_ENCODING_CANDIDATES.length; i++) {
+            if (isSupportedCharacterSet( DEFAULT_ENCODING_CANDIDATES[i] )) return DEFAULT_ENCODING_CANDIDATES[i];
         }
-        return (_defaultEncoding = System.getProperty( "file.encoding" ));
+        return System.getProperty( "file.encoding" );
     }
 
 
@@ -1490,41 +1782,23 @@ public class WebResponse implements HTMLSegment, CookieSource, DomWindowProxy {
 //=======================================================================================
 
 
+    /**
+     * Returns the tags of a page as objects. The contents of scripts are skipped.
+     */
     static class ByteTagParser {
         ByteTagParser( byte[] buffer ) {
             _buffer = buffer;
+            _scanner = new ByteTagScanner( buffer );
         }
 
 
         ByteTag getNextTag() throws UnsupportedEncodingException {
-            ByteTag byteTag=null;
-            do {
-                int _start = _end + 1;
-                while (_start < _buffer.length && _buffer[ _start ] != '<') _start++;
-                // proposed patch for bug report 
-                // [ 1376739 ] iframe tag not recognized if Javascript code contains '<'
-                // by Nathan Jakubiak
-                // uncommented since it doesn't seem to fix the test in WebFrameTest.java
-                // if (_scriptDepth > 0 && _start+1 < _buffer.length &&
-                //		_buffer[ _start+1 ] != '/') {
-                //		_end = _start+1;
-                //		continue;
-                //}
-                for (_end =_start +1; _end < _buffer.length && _buffer[ _end ] != '>'; _end++);
-                if (_end >= _buffer.length || _end < _start) return null;
-                byteTag = new ByteTag( _buffer, _start +1, _end-_start -1 );
-                if (byteTag.getName().equalsIgnoreCase("script")) {
-                    _scriptDepth++;
-                    return byteTag;
-                }
-                if (byteTag.getName().equalsIgnoreCase("/script")) _scriptDepth--;
-            } while (_scriptDepth > 0);
-            return byteTag;
+            if (!_scanner.nextTag()) return null;
+            return new ByteTag( _buffer, _scanner.getTagStart(), _scanner.getTagLength() );
         }
 
 
-        private int _scriptDepth = 0;
-        private int _end   = -1;
+        private ByteTagScanner _scanner;
 
         private byte[] _buffer;
     }
@@ -0,0 +1,46 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.IOException;
+
+import java.net.URL;
+import java.net.URLConnection;
+
+
+/**
+ * The means by which a {@link WebConversation} obtains connections to a server. By default, a conversation simply
+ * asks the URL for a new connection; users may supply an alternate transport in order to control how connections
+ * are created and reused.
+ *
+ * @see PooledWebTransport
+ * @since 1.7.4
+ **/
+public interface WebTransport {
+
+
+    /**
+     * Returns an unconnected URL connection for the specified URL. The conversation will configure it, send its
+     * headers and message body, and then read the response from it exactly as it would from the connection returned
+     * by {@link URL#openConnection()}.
+     **/
+    URLConnection openConnection( URL url ) throws IOException;
+
+}
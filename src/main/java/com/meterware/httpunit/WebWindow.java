@@ -53,6 +53,9 @@ public class WebWindow {
 	/** True if this window has been closed. **/
 	private boolean _closed;
 
+	/** The timers set by scripts in this window. **/
+	private TimerQueue _timers = new TimerQueue(this);
+
 	static final String NO_NAME = "$$HttpUnit_Window$$_";
 
 	/**
@@ -102,6 +105,55 @@ public class WebWindow {
 		if (!_closed)
 			_client.close(this);
 		_closed = true;
+		_timers.clear();
+	}
+
+	/**
+	 * Returns the current time, in milliseconds, of the virtual clock which
+	 * drives the timers set by scripts in this window. The clock starts at zero
+	 * and moves only when {@link #advanceClock} or {@link #runPendingTimers} is
+	 * called.
+	 */
+	public long getClockTime() {
+		return _timers.getClockTime();
+	}
+
+	/**
+	 * Advances the virtual clock by the specified number of milliseconds,
+	 * running, in order, every timer which falls due. Returns the number of
+	 * timers run.
+	 */
+	public int advanceClock(long milliseconds) {
+		return _timers.advanceClock(milliseconds);
+	}
+
+	/**
+	 * Runs every timer currently pending in this window, regardless of its
+	 * delay, advancing the virtual clock as needed. Timers set while these run,
+	 * including the next run of an interval timer, remain pending. Returns the
+	 * number of timers run.
+	 */
+	public int runPendingTimers() {
+		return _timers.runPendingTimers();
+	}
+
+	/**
+	 * Returns the number of timers waiting to run in this window.
+	 */
+	public int getPendingTimerCount() {
+		return _timers.getPendingTimerCount();
+	}
+
+	TimerQueue getTimers() {
+		return _timers;
+	}
+
+	/**
+	 * Returns true if the specified response is still displayed in this
+	 * window.
+	 */
+	boolean isCurrentContents(WebResponse response) {
+		return !_closed && _frameContents.get(response.getFrame()) == response;
 	}
 
 	/**
@@ -154,6 +206,16 @@ public class WebWindow {
 	 **/
 	public WebResponse getResponse(WebRequest request) throws IOException,
 			SAXException {
+		return getResponse(request, null);
+	}
+
+	/**
+	 * Submits a web request and returns a response, using the pending
+	 * response if the request has already been sent.
+	 */
+	WebResponse getResponse(WebRequest request,
+			SubresourceLoader.PendingResponse pendingResponse)
+			throws IOException, SAXException {
 		// Need to have some sort of ExecuteAroundMethod to ensure that the
 		// redirects data structure gets cleared down upon exit - not
 		// straightforward, since this could be a recursive call
@@ -167,7 +229,7 @@ public class WebWindow {
 		try {
 			final RequestContext requestContext = new RequestContext();
 			final WebResponse response = getSubframeResponse(request,
-					requestContext);
+					requestContext, pendingResponse);
 			requestContext.runScripts();
 			result = response == null ? null : response.getWindow()
 					.getFrameContents(response.getFrame()); // javascript might
@@ -189,18 +251,68 @@ public class WebWindow {
 	 * 
 	 * @param request
 	 * @param requestContext
+	 * @param pendingResponse
+	 *            the response if the request has already been sent, or null
 	 * @return the WebResponse or null
 	 * @throws IOException
 	 * @throws SAXException
 	 */
 	WebResponse getSubframeResponse(WebRequest request,
-			RequestContext requestContext) throws IOException, SAXException {
-		WebResponse response = getResource(request);
+			RequestContext requestContext,
+			SubresourceLoader.PendingResponse pendingResponse)
+			throws IOException, SAXException {
+		WebResponse response = getResource(request, pendingResponse);
 
 		return response == null ? null : updateWindow(request.getTarget(),
 				response, requestContext);
 	}
 
+	/**
+	 * Loads the contents of the subframes specified by the requests. If the
+	 * client has a subresource loader, the requests will be sent concurrently;
+	 * in any case, the responses are processed in order.
+	 * 
+	 * @param requests
+	 *            the requests for the subframe contents
+	 * @param requestContext
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	void loadSubframes(WebRequest[] requests, RequestContext requestContext)
+			throws IOException, SAXException {
+		SubresourceLoader.PendingResponse[] pending = new SubresourceLoader.PendingResponse[requests.length];
+		for (int i = 0; i < requests.length; i++) {
+			if (isRemoteResource(requests[i]))
+				pending[i] = prefetchResource(requests[i]);
+		}
+
+		for (int i = 0; i < requests.length; i++) {
+			WebResponse response = getResource(requests[i], pending[i]);
+			if (response != null)
+				updateWindow(requests[i].getTarget(), response, requestContext);
+		}
+	}
+
+	/**
+	 * Starts retrieving the specified resource using the client's subresource
+	 * loader. Returns null if the client does not have one.
+	 */
+	SubresourceLoader.PendingResponse prefetchResource(WebRequest request) {
+		SubresourceLoader loader = _client.getSubresourceLoader();
+		return loader == null ? null : prefetchResource(request, loader);
+	}
+
+	/**
+	 * Starts retrieving the specified resource using the specified loader, or
+	 * retrieves it on the calling thread if the loader is null.
+	 */
+	SubresourceLoader.PendingResponse prefetchResource(WebRequest request,
+			SubresourceLoader loader) {
+		FrameSelector targetFrame = _frameContents.getTargetFrame(request);
+		return loader == null ? SubresourceLoader.retrieve(_client, request, targetFrame)
+				: loader.submit(_client, request, targetFrame);
+	}
+
 	/**
 	 * Updates this web client based on a received response. This includes
 	 * updating cookies and frames.
@@ -214,7 +326,7 @@ public class WebWindow {
 			WebResponse result = getResponse(request);
 			return result;
 		} else if (shouldFollowRedirect(response)) {
-			delay(HttpUnitOptions.getRedirectDelay());
+			delay(_client.getClientProperties().getRedirectDelay());
 			return getResponse(new RedirectWebRequest(response));
 		} else {
 			_client.updateFrameContents(this, requestTarget, response,
@@ -229,12 +341,24 @@ public class WebWindow {
 	 * JavaScript URL which would normally leave the client unchanged.
 	 */
 	public WebResponse getResource(WebRequest request) throws IOException {
+		return getResource(request, null);
+	}
+
+	/**
+	 * Returns the resource specified by the request, using the pending
+	 * response if one has already been requested.
+	 */
+	WebResponse getResource(WebRequest request,
+			SubresourceLoader.PendingResponse pendingResponse)
+			throws IOException {
 		_client.tellListeners(request);
 
 		WebResponse response = null;
 		String urlString = request.getURLString().trim();
 		FrameSelector targetFrame = _frameContents.getTargetFrame(request);
-		if (urlString.startsWith("about:")) {
+		if (pendingResponse != null) {
+			response = pendingResponse.getResponse();
+		} else if (urlString.startsWith("about:")) {
 			response = new DefaultWebResponse(_client, targetFrame, null, "");
 		} else if (!HttpUnitUtils.isJavaScriptURL(urlString)) {
 			response = _client.createResponse(request, targetFrame);
@@ -254,6 +378,16 @@ public class WebWindow {
 		return response;
 	}
 
+	/**
+	 * Returns true if the request must be sent to a server, rather than being
+	 * answered locally.
+	 */
+	static boolean isRemoteResource(WebRequest request) {
+		String urlString = request.getURLString().trim();
+		return urlString.length() != 0 && !urlString.startsWith("about:")
+				&& !HttpUnitUtils.isJavaScriptURL(urlString);
+	}
+
 	/**
 	 * Returns the name of the currently active frames.
 	 **/
@@ -84,7 +84,7 @@ public class CookieJar {
 	/**
 	 * Empties this cookie jar of all contents.
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		_cookies.clear();
 		_globalCookies.clear();
 	}
@@ -96,7 +96,7 @@ public class CookieJar {
 	 * 
 	 * @deprecated as of 1.6, use #putCookie
 	 **/
-	public void addCookie(String name, String value) {
+	public synchronized void addCookie(String name, String value) {
 		_globalCookies.add(new Cookie(name, value));
 	}
 
@@ -110,7 +110,7 @@ public class CookieJar {
 	 * 
 	 * @since 1.6
 	 **/
-	public void putCookie(String name, String value) {
+	public synchronized void putCookie(String name, String value) {
 		boolean foundCookie = false;
 		for (Iterator iterator = _globalCookies.iterator(); iterator.hasNext();) {
 			Cookie cookie = (Cookie) iterator.next();
@@ -148,7 +148,7 @@ public class CookieJar {
 	 * domain and path. If a global cookie is defined with the same name, this
 	 * cookie is not added.
 	 */
-	public void putSingleUseCookie(String name, String value, String domain,
+	public synchronized void putSingleUseCookie(String name, String value, String domain,
 			String path) {
 		for (Iterator iterator = _globalCookies.iterator(); iterator.hasNext();) {
 			Cookie cookie = (Cookie) iterator.next();
@@ -168,7 +168,7 @@ public class CookieJar {
 	/**
 	 * Returns the name of all the active cookies in this cookie jar.
 	 **/
-	public String[] getCookieNames() {
+	public synchronized String[] getCookieNames() {
 		final int numGlobalCookies = _globalCookies.size();
 		String[] names = new String[_cookies.size() + numGlobalCookies];
 		for (int i = 0; i < numGlobalCookies; i++) {
@@ -183,7 +183,7 @@ public class CookieJar {
 	/**
 	 * Returns a collection containing all of the cookies in this jar.
 	 */
-	public Collection getCookies() {
+	public synchronized Collection getCookies() {
 		final Collection collection = (Collection) _cookies.clone();
 		collection.addAll(_globalCookies);
 		return collection;
@@ -204,7 +204,7 @@ public class CookieJar {
 	/**
 	 * Returns the value of the specified cookie.
 	 **/
-	public Cookie getCookie(String name) {
+	public synchronized Cookie getCookie(String name) {
 		if (name == null)
 			throw new IllegalArgumentException(
 					"getCookieValue: no name specified");
@@ -225,7 +225,7 @@ public class CookieJar {
 	 * Returns the value of the cookie header to be sent to the specified URL.
 	 * Will return null if no compatible cookie is defined.
 	 **/
-	public String getCookieHeaderField(URL targetURL) {
+	public synchronized String getCookieHeaderField(URL targetURL) {
 		if (_cookies.isEmpty() && _globalCookies.isEmpty())
 			return null;
 		StringBuffer sb = new StringBuffer(DEFAULT_HEADER_SIZE);
@@ -255,7 +255,7 @@ public class CookieJar {
 	 * cookie jar. Any duplicate cookies in the new jar will replace those in
 	 * this jar.
 	 **/
-	public void updateCookies(CookieJar newJar) {
+	public synchronized void updateCookies(CookieJar newJar) {
 		for (Iterator i = newJar._cookies.iterator(); i.hasNext();) {
 			addUniqueCookie((Cookie) i.next());
 		}
@@ -264,7 +264,7 @@ public class CookieJar {
 	/**
 	 * Add the cookie to this jar, replacing any previous matching cookie.
 	 */
-	void addUniqueCookie(Cookie cookie) {
+	synchronized void addUniqueCookie(Cookie cookie) {
 		_cookies.remove(cookie);
 		for (Iterator i = _cookies.iterator(); i.hasNext();) {
 			Cookie c = (Cookie) i.next();
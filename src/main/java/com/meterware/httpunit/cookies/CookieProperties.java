@@ -39,7 +39,7 @@ public class CookieProperties {
     private static ArrayList _listeners;
 
 
-    public static void reset() {
+    public static synchronized void reset() {
         _domainMatchingStrict = true;
         _pathMatchingStrict = true;
         _listeners = null;
@@ -84,19 +84,16 @@ public class CookieProperties {
     /**
      * Adds a listener for cookie events.
      */
-    public static void addCookieListener( CookieListener listener ) {
+    public static synchronized void addCookieListener( CookieListener listener ) {
         if (_listeners == null) _listeners = new ArrayList();
-        synchronized( _listeners ) {
-            _listeners.add( listener );
-        }
+        _listeners.add( listener );
     }
 
 
     public static void reportCookieRejected( int reason, String attribute, String source ) {
-        if (_listeners == null) return;
-
         List listeners;
-        synchronized( _listeners ) {
+        synchronized( CookieProperties.class ) {
+            if (_listeners == null) return;
             listeners = (List) _listeners.clone();
         }
 
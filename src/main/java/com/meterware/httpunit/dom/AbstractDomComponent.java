@@ -30,8 +30,6 @@ import org.mozilla.javascript.Scriptable;
  */
 public abstract class AbstractDomComponent extends ScriptingEngineImpl implements Scriptable {
 
-    private static int _anonymousFunctionNum;
-
     public String getClassName() {
         return getClass().getName();
     }
@@ -68,8 +66,4 @@ public abstract class AbstractDomComponent extends ScriptingEngineImpl implement
         ScriptingSupport.setNamedProperty( this, getJavaPropertyName( propertyName ), value );
     }
 
-
-    protected static String createAnonymousFunctionName() {
-        return "anon_" + (++_anonymousFunctionNum);
-    }
 }
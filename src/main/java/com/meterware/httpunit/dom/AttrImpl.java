@@ -89,8 +89,10 @@ public class AttrImpl extends NodeImpl implements Attr {
 
 
     public void setValue( String value ) throws DOMException {
+        String oldId = (_ownerElement instanceof ElementImpl) ? ((ElementImpl) _ownerElement).getIndexedId() : null;
         _value = value;
         _specified = true;
+        if (_ownerElement instanceof ElementImpl) ((ElementImpl) _ownerElement).idMayHaveChanged( oldId );
     }
 
 
@@ -20,9 +20,7 @@ package com.meterware.httpunit.dom;
  *
  *******************************************************************************************************************/
 import org.w3c.dom.*;
-import org.w3c.dom.html.HTMLElement;
 
-import java.util.Iterator;
 
 /**
  *
@@ -32,6 +30,12 @@ public class DocumentImpl extends NodeImpl implements Document {
 
     protected Element _documentElement;
 
+    /** The HTML elements in this document, indexed by ID. **/
+    private ElementIndex _elementsById = new ElementIndex();
+
+    /** The elements in this document, indexed by lower-case tag name. **/
+    private ElementIndex _elementsByTagName = new ElementIndex();
+
 
     static DocumentImpl createDocument() {
         DocumentImpl document = new DocumentImpl();
@@ -150,13 +154,13 @@ public class DocumentImpl extends NodeImpl implements Document {
 
 
     public Element getElementById( String elementId ) {
-        for (Iterator each = preOrderIterator(); each.hasNext();) {
-            Node node = (Node) each.next();
-            if (!(node instanceof HTMLElement)) continue;
-            HTMLElement element = (HTMLElement) node;
-            if (elementId.equals( element.getId() )) return element;
-        }
-        return null;
+        return _elementsById.getFirst( elementId );
+    }
+
+
+    public NodeList getElementsByTagName( String name ) {
+        if (name.equals( "*" )) return super.getElementsByTagName( name );
+        return new NodeListImpl( _elementsByTagName.getAll( name.toLowerCase() ) );
     }
 
 
@@ -176,15 +180,57 @@ public class DocumentImpl extends NodeImpl implements Document {
     }
 
 
+    /**
+     * Adds the elements in a subtree which has just been added to this document to its indexes.
+     */
+    void addToIndexes( NodeImpl subtreeRoot ) {
+        if (subtreeRoot instanceof ElementImpl) {
+            ElementImpl element = (ElementImpl) subtreeRoot;
+            _elementsByTagName.add( element.getTagName().toLowerCase(), element );
+            String id = element.getIndexedId();
+            if (id != null) _elementsById.add( id, element );
+        }
+        for (Node child = subtreeRoot.getFirstChild(); child != null; child = child.getNextSibling()) {
+            addToIndexes( (NodeImpl) child );
+        }
+    }
+
+
+    /**
+     * Removes the elements in a subtree which is about to be removed from this document from its indexes.
+     */
+    void removeFromIndexes( NodeImpl subtreeRoot ) {
+        if (subtreeRoot instanceof ElementImpl) {
+            ElementImpl element = (ElementImpl) subtreeRoot;
+            _elementsByTagName.remove( element.getTagName().toLowerCase(), element );
+            String id = element.getIndexedId();
+            if (id != null) _elementsById.remove( id, element );
+        }
+        for (Node child = subtreeRoot.getFirstChild(); child != null; child = child.getNextSibling()) {
+            removeFromIndexes( (NodeImpl) child );
+        }
+    }
+
+
+    /**
+     * Updates the ID index after the ID of an element has changed.
+     */
+    void idChanged( ElementImpl element, String oldId ) {
+        if (!element.isInDocument()) return;
+        if (oldId != null) _elementsById.remove( oldId, element );
+        String newId = element.getIndexedId();
+        if (newId != null) _elementsById.add( newId, element );
+    }
+
+
     /**
      * import the children
      * @param original
      * @param copy
      */
     void importChildren( Node original, Node copy ) {
-        NodeList children = original.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node childCopy = importNode( children.item(i), /* deep */ true );
+        for (Node child = original.getFirstChild(); child != null; child = child.getNextSibling()) {
+            Node childCopy = importNode( child, /* deep */ true );
             copy.appendChild( childCopy );
         }
     }
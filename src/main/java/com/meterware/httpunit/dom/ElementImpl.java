@@ -20,6 +20,7 @@ package com.meterware.httpunit.dom;
  *
  *******************************************************************************************************************/
 import org.w3c.dom.*;
+import org.w3c.dom.html.HTMLElement;
 
 import java.util.Hashtable;
 import java.util.ArrayList;
@@ -140,7 +141,9 @@ public class ElementImpl extends NamespaceAwareNodeImpl implements Element {
 
 
     public void removeAttribute( String name ) throws DOMException {
+        String oldId = getIndexedId();
         _attributes.remove( name );
+        idMayHaveChanged( oldId );
     }
 
 
@@ -152,9 +155,11 @@ public class ElementImpl extends NamespaceAwareNodeImpl implements Element {
     public Attr setAttributeNode( Attr newAttr ) throws DOMException {
         if (newAttr.getOwnerDocument() != getOwnerDocument()) throw new DOMException( DOMException.WRONG_DOCUMENT_ERR, "attribute must be from the same document as the element" );
 
+        String oldId = getIndexedId();
         ((AttrImpl) newAttr).setOwnerElement( this );
         AttrImpl oldAttr = (AttrImpl) _attributes.put( newAttr.getName(), newAttr );
         if (oldAttr != null) oldAttr.setOwnerElement( null );
+        idMayHaveChanged( oldId );
         return oldAttr;
     }
 
@@ -162,9 +167,11 @@ public class ElementImpl extends NamespaceAwareNodeImpl implements Element {
     public Attr setAttributeNodeNS( Attr newAttr ) throws DOMException {
         if (newAttr.getOwnerDocument() != getOwnerDocument()) throw new DOMException( DOMException.WRONG_DOCUMENT_ERR, "attribute must be from the same document as the element" );
 
+        String oldId = getIndexedId();
         ((AttrImpl) newAttr).setOwnerElement( this );
         AttrImpl oldAttr = (AttrImpl) _attributes.put( newAttr.getName(), newAttr );
         if (oldAttr != null) oldAttr.setOwnerElement( null );
+        idMayHaveChanged( oldId );
         return oldAttr;
     }
 
@@ -172,12 +179,31 @@ public class ElementImpl extends NamespaceAwareNodeImpl implements Element {
     public Attr removeAttributeNode( Attr oldAttr ) throws DOMException {
         if (!_attributes.containsValue( oldAttr)) throw new DOMException( DOMException.NOT_FOUND_ERR, "Specified attribute is not defined for this element" );
 
+        String oldId = getIndexedId();
         AttrImpl removedAttr = (AttrImpl) _attributes.remove( oldAttr.getName() );
         if (removedAttr != null) removedAttr.setOwnerElement( null );
+        idMayHaveChanged( oldId );
         return removedAttr;
     }
 
 
+    /**
+     * Returns the ID by which the document should index this element, or null if it has none.
+     */
+    String getIndexedId() {
+        return (this instanceof HTMLElement) ? ((HTMLElement) this).getId() : null;
+    }
+
+
+    /**
+     * Tells the document to update its index if the ID of this element has changed.
+     */
+    void idMayHaveChanged( String oldId ) {
+        String newId = getIndexedId();
+        if (oldId == null ? newId != null : !oldId.equals( newId )) ((DocumentImpl) getOwnerDocument()).idChanged( this, oldId );
+    }
+
+
     public boolean hasAttribute( String name ) {
         return _attributes.containsKey( name );
     }
@@ -212,9 +238,15 @@ public class ElementImpl extends NamespaceAwareNodeImpl implements Element {
 
     public static Element importNode( DocumentImpl document, Element original, boolean deep ) {
         Element copy = document.createElementNS( original.getNamespaceURI(), original.getTagName() );
-        NamedNodeMap attributes = original.getAttributes();
-        for (int i = 0; i < attributes.getLength(); i++) {
-            copy.setAttributeNode( (Attr) document.importNode( attributes.item(i), false ) );
+        if (original instanceof ElementImpl) {
+            for (Iterator each = ((ElementImpl) original)._attributes.values().iterator(); each.hasNext();) {
+                copy.setAttributeNode( (Attr) document.importNode( (Attr) each.next(), false ) );
+            }
+        } else {
+            NamedNodeMap attributes = original.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                copy.setAttributeNode( (Attr) document.importNode( attributes.item(i), false ) );
+            }
         }
         if (deep) document.importChildren( original, copy );
         return copy;
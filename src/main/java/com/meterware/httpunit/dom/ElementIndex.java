@@ -0,0 +1,91 @@
+package com.meterware.httpunit.dom;
+/********************************************************************************************************************
+ * $Id$
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * An index of the elements in a document, grouped by a key such as their ID or tag name. The elements for each key
+ * are kept in document order.
+ **/
+class ElementIndex {
+
+    /** Map of keys to lists of elements in document order. Map<String,List<ElementImpl>> **/
+    private HashMap _elements = new HashMap();
+
+
+    /**
+     * Returns the first element in document order with the specified key, or null if there is none.
+     */
+    ElementImpl getFirst( String key ) {
+        List elements = (List) _elements.get( key );
+        return elements == null ? null : (ElementImpl) elements.get( 0 );
+    }
+
+
+    /**
+     * Returns a new list of the elements with the specified key, in document order.
+     */
+    List getAll( String key ) {
+        List elements = (List) _elements.get( key );
+        return elements == null ? new ArrayList() : new ArrayList( elements );
+    }
+
+
+    void add( String key, ElementImpl element ) {
+        ArrayList elements = (ArrayList) _elements.get( key );
+        if (elements == null) {
+            elements = new ArrayList();
+            _elements.put( key, elements );
+        }
+        elements.add( findInsertionPoint( elements, element ), element );
+    }
+
+
+    void remove( String key, ElementImpl element ) {
+        List elements = (List) _elements.get( key );
+        if (elements == null) return;
+        elements.remove( element );
+        if (elements.isEmpty()) _elements.remove( key );
+    }
+
+
+    /**
+     * Returns the index at which the element should be inserted to keep the list in document order.
+     * Elements are usually added in document order, so the end of the list is checked first.
+     */
+    private int findInsertionPoint( ArrayList elements, ElementImpl element ) {
+        int high = elements.size();
+        if (high == 0 || NodeImpl.compareDocumentOrder( (NodeImpl) elements.get( high - 1 ), element ) < 0) return high;
+
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) / 2;
+            if (NodeImpl.compareDocumentOrder( (NodeImpl) elements.get( mid ), element ) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
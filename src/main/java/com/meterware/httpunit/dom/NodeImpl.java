@@ -120,23 +120,81 @@ abstract public class NodeImpl extends AbstractDomComponent implements Node {
             refChildNode._previousSibling.setNextSibling( newChildNode );
         }
         newChildNode.setNextSibling( refChildNode );
+        addedToTree( newChildNode );
         return newChildNode;
     }
 
 
     private void removeFromTree( NodeImpl childNode ) {
         if (childNode._parentNode != null) {
+            if (childNode.isInDocument()) childNode.getDocumentImpl().removeFromIndexes( childNode );
             if (childNode._previousSibling != null) {
                 childNode._previousSibling.setNextSibling( childNode._nextSibling );
             } else {
                 childNode._parentNode._firstChild = childNode._nextSibling;
-                childNode._nextSibling._previousSibling = null;
+                if (childNode._nextSibling != null) childNode._nextSibling._previousSibling = null;
             }
             childNode._parentNode = null;
+            childNode._previousSibling = null;
+            childNode._nextSibling = null;
         }
     }
 
 
+    private void addedToTree( NodeImpl childNode ) {
+        if (isInDocument()) getDocumentImpl().addToIndexes( childNode );
+    }
+
+
+    /**
+     * Returns true if this node is part of the tree of its owner document.
+     */
+    boolean isInDocument() {
+        NodeImpl node = this;
+        while (node._parentNode != null) node = node._parentNode;
+        return node instanceof DocumentImpl;
+    }
+
+
+    private DocumentImpl getDocumentImpl() {
+        return (DocumentImpl) getOwnerDocument();
+    }
+
+
+    /**
+     * Compares the positions of two nodes in the same tree.
+     * @return a negative number if the first node precedes the second, zero if they are the same node,
+     *         or a positive number if the first node follows the second.
+     */
+    static int compareDocumentOrder( NodeImpl first, NodeImpl second ) {
+        if (first == second) return 0;
+
+        int firstDepth = first.getDepth();
+        int secondDepth = second.getDepth();
+        NodeImpl firstAncestor = first;
+        NodeImpl secondAncestor = second;
+        for (; firstDepth > secondDepth; firstDepth--) firstAncestor = firstAncestor._parentNode;
+        for (; secondDepth > firstDepth; secondDepth--) secondAncestor = secondAncestor._parentNode;
+        if (firstAncestor == secondAncestor) return first == firstAncestor ? -1 : 1;
+
+        while (firstAncestor._parentNode != secondAncestor._parentNode) {
+            firstAncestor = firstAncestor._parentNode;
+            secondAncestor = secondAncestor._parentNode;
+        }
+        for (NodeImpl sibling = firstAncestor._nextSibling; sibling != null; sibling = sibling._nextSibling) {
+            if (sibling == secondAncestor) return -1;
+        }
+        return 1;
+    }
+
+
+    private int getDepth() {
+        int depth = 0;
+        for (NodeImpl node = _parentNode; node != null; node = node._parentNode) depth++;
+        return depth;
+    }
+
+
     public Node replaceChild( Node newChild, Node oldChild ) throws DOMException {
         insertBefore( newChild, oldChild );
         return removeChild( oldChild );
@@ -161,6 +219,7 @@ abstract public class NodeImpl extends AbstractDomComponent implements Node {
         } else {
             ((NodeImpl) getLastChild()).setNextSibling( childNode );
         }
+        addedToTree( childNode );
         return newChild;
     }
 
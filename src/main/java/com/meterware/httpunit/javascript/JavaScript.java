@@ -63,18 +63,56 @@ public class JavaScript {
     public static void run( WebResponse response ) throws IllegalAccessException, InstantiationException,
             InvocationTargetException, ClassDefinitionException, NotAFunctionException,
             PropertyException, SAXException, JavaScriptException {
+        Context context = enterContext();
+        try {
+            Scriptable scope = newPageScope( context );
+
+            Window w = (Window) context.newObject( scope, "Window" );
+            w.setParentScope( scope );
+            w.initialize( null, response.getScriptableObject() );
+        } finally {
+            Context.exit();
+        }
+    }
+
+
+    /**
+     * Creates a new scriptable object of the named class, entering a context for the current thread if necessary.
+     */
+    static Scriptable newObject( Scriptable scope, String className ) {
+        Context context = enterContext();
+        try {
+            return context.newObject( scope, className );
+        } finally {
+            Context.exit();
+        }
+    }
+
+
+    /**
+     * Creates a new array containing the specified objects, entering a context for the current thread if necessary.
+     */
+    static Scriptable newArray( Scriptable scope, Object[] elements ) {
+        Context context = enterContext();
+        try {
+            return context.newArray( scope, elements );
+        } finally {
+            Context.exit();
+        }
+    }
+
+
+    /**
+     * Associates a Rhino context with the current thread. Contexts are never shared between threads, so each thread
+     * running scripts has its own; every call must be balanced by a call to Context.exit() on the same thread.
+     */
+    static Context enterContext() {
         Context context = Context.enter();
         // suggest bug fix for large java scripts see
         // bug report [ 1216567 ] Exception for large javascripts
         // by Grzegorz Lukasik
-        // and
-        
-        context.setOptimizationLevel(HttpUnitOptions.getJavaScriptOptimizationLevel());
-        Scriptable scope = context.initStandardObjects( null );
-        initHTMLObjects( scope );
-
-        Window w = (Window) context.newObject( scope, "Window" );
-        w.initialize( null, response.getScriptableObject() );
+        context.setOptimizationLevel( HttpUnitOptions.getJavaScriptOptimizationLevel() );
+        return context;
     }
 
 
@@ -87,6 +125,19 @@ public class JavaScript {
     }
 
 
+    /**
+     * Creates the top-level scope for a single page, holding its own standard objects and HTML host classes. Nothing
+     * is shared between pages, so a page's scripts may extend any of the built-in prototypes without affecting
+     * another page.
+     */
+    private static Scriptable newPageScope( Context context ) throws IllegalAccessException, InstantiationException,
+            InvocationTargetException, ClassDefinitionException, PropertyException {
+        Scriptable scope = context.initStandardObjects( null );
+        initHTMLObjects( scope );
+        return scope;
+    }
+
+
     private static void initHTMLObjects( Scriptable scope ) throws IllegalAccessException, InstantiationException,
             InvocationTargetException, ClassDefinitionException, PropertyException {
         ScriptableObject.defineClass( scope, Window.class );
@@ -98,7 +149,6 @@ public class JavaScript {
         ScriptableObject.defineClass( scope, Link.class );
         ScriptableObject.defineClass( scope, Form.class );
         ScriptableObject.defineClass( scope, Control.class );
-        ScriptableObject.defineClass( scope, Link.class );
         ScriptableObject.defineClass( scope, Image.class );
         ScriptableObject.defineClass( scope, Options.class );
         ScriptableObject.defineClass( scope, Option.class );
@@ -189,7 +239,7 @@ public class JavaScript {
             for (int i = 0; i < delegates.length; i++) {
                 delegates[i] = toScriptable( list[i] );
             }
-            return Context.getCurrentContext().newArray( this, delegates );
+            return newArray( this, delegates );
         }
 
 
@@ -236,7 +286,7 @@ public class JavaScript {
                 return (Scriptable) delegate.getScriptEngine();
             } else {
                 try {
-                    JavaScriptEngine element = (JavaScriptEngine) Context.getCurrentContext().newObject( this, getScriptableClassName( delegate ) );
+                    JavaScriptEngine element = (JavaScriptEngine) newObject( this, getScriptableClassName( delegate ) );
                     element.initialize( this, delegate );
                     return element;
                 } catch (RuntimeException e) {
@@ -375,7 +425,7 @@ public class JavaScript {
                 for (int i = 0; i < frames.length; i++) {
                     frames[ i ] = (Window) toScriptable( scriptables[ i ] );
                 }
-                _frames = (ElementArray) Context.getCurrentContext().newObject( this, "ElementArray" );
+                _frames = (ElementArray) newObject( this, "ElementArray" );
                 _frames.initialize( frames );
             }
             return _frames;
@@ -416,13 +466,13 @@ public class JavaScript {
                 throws JavaScriptException, NotAFunctionException, PropertyException, SAXException {
             super.initialize( parent, scriptable );
 
-            _location = (Location) Context.getCurrentContext().newObject( this, "Location" );
+            _location = (Location) newObject( this, "Location" );
             _location.initialize(this, ((WebResponse.Scriptable) scriptable).getURL() );
 
-            _navigator = (Navigator) Context.getCurrentContext().newObject( this, "Navigator" );
+            _navigator = (Navigator) newObject( this, "Navigator" );
             _navigator.setClientProperties( getDelegate().getClientProperties() );
 
-            _screen = (Screen) Context.getCurrentContext().newObject( this, "Screen" );
+            _screen = (Screen) newObject( this, "Screen" );
             _screen.setClientProperties( getDelegate().getClientProperties() );
         }
 
@@ -465,7 +515,29 @@ public class JavaScript {
         }
 
 
-        public void jsFunction_setTimeout() {
+        /**
+         * Schedules the specified function or script to run once after the specified delay.
+         */
+        public int jsFunction_setTimeout( Object code, int delay ) {
+            return getDelegate().setTimer( new TimerAction( code ), delay, false );
+        }
+
+
+        /**
+         * Schedules the specified function or script to run repeatedly, at the specified interval.
+         */
+        public int jsFunction_setInterval( Object code, int interval ) {
+            return getDelegate().setTimer( new TimerAction( code ), interval, true );
+        }
+
+
+        public void jsFunction_clearTimeout( int id ) {
+            getDelegate().clearTimer( id );
+        }
+
+
+        public void jsFunction_clearInterval( int id ) {
+            getDelegate().clearTimer( id );
         }
 
 
@@ -504,6 +576,42 @@ public class JavaScript {
         private WebResponse.Scriptable getDelegate() {
             return (WebResponse.Scriptable) _scriptable;
         }
+
+
+        /**
+         * The action run when a timer set by a script falls due: either a function, called with the window as its
+         * <code>this</code>, or the text of a script.
+         */
+        private class TimerAction implements Runnable {
+
+            private Object _code;
+
+
+            TimerAction( Object code ) {
+                _code = code;
+            }
+
+
+            public void run() {
+                if (_code instanceof Function) {
+                    callFunction( (Function) _code );
+                } else if (toStringIfNotUndefined( _code ) != null) {
+                    evaluateExpression( _code.toString() );
+                }
+            }
+
+
+            private void callFunction( Function function ) {
+                try {
+                    Context context = enterContext();
+                    function.call( context, Window.this, Window.this, new Object[0] );
+                } catch (Exception e) {
+                    handleScriptException( e, "Timer function" );
+                } finally {
+                    Context.exit();
+                }
+            }
+        }
     }
 
 
@@ -870,7 +978,7 @@ public class JavaScript {
 
         static ElementArray newElementArray( Scriptable parent ) {
             try {
-                return (ElementArray) Context.getCurrentContext().newObject( parent, "ElementArray" );
+                return (ElementArray) newObject( parent, "ElementArray" );
             } catch (PropertyException e) {
                 throw new RhinoException( e );
             } catch (NotAFunctionException e) {
@@ -963,7 +1071,7 @@ public class JavaScript {
                 throws JavaScriptException, NotAFunctionException, PropertyException, SAXException {
             super.initialize( parent, scriptable );
             _document = (Document) parent;
-            _style = (Style) Context.getCurrentContext().newObject( this, "Style" );
+            _style = (Style) newObject( this, "Style" );
         }
 
     }
@@ -1054,7 +1162,7 @@ public class JavaScript {
             for (int i = 0; i < controls.length; i++) {
                 controls[ i ] = (Control) toScriptable( scriptables[ i ] );
             }
-            _controls = (ElementArray) Context.getCurrentContext().newObject( this, "ElementArray" );
+            _controls = (ElementArray) newObject( this, "ElementArray" );
             _controls.initialize( controls );
         }
 
@@ -0,0 +1,199 @@
+package com.meterware.httpunit.javascript;
+/********************************************************************************************************************
+ * $Id$
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A bounded cache of compiled scripts, keyed by their source. Scripts are compiled without a scope, so a single
+ * compiled script may be run against the scope of any page; a library included by many pages is therefore parsed
+ * and compiled only once. The least recently used scripts are discarded once the cache is full.
+ **/
+public class ScriptCache {
+
+    /** The default number of compiled scripts retained by the shared cache. **/
+    public final static int DEFAULT_MAX_ENTRIES = 500;
+
+    private final static String SOURCE_NAME = "httpunit";
+
+    private static ScriptCache _sharedCache = new ScriptCache( DEFAULT_MAX_ENTRIES );
+
+    private int _maxEntries;
+    private Map _scripts = new ScriptMap(); // Map<Key,Script>
+
+    private long _hits;
+    private long _misses;
+    private long _evictions;
+
+
+    /**
+     * Returns the cache used by all web conversations.
+     */
+    public static ScriptCache getSharedCache() {
+        return _sharedCache;
+    }
+
+
+    /**
+     * Creates a cache which will hold at most the specified number of compiled scripts.
+     */
+    public ScriptCache( int maxEntries ) {
+        _maxEntries = maxEntries;
+    }
+
+
+    /**
+     * Returns the maximum number of compiled scripts retained by this cache.
+     */
+    public synchronized int getMaxEntries() {
+        return _maxEntries;
+    }
+
+
+    /**
+     * Specifies the maximum number of compiled scripts to retain. A value of zero disables caching.
+     */
+    public synchronized void setMaxEntries( int maxEntries ) {
+        _maxEntries = maxEntries;
+        while (_scripts.size() > maxEntries) {
+            _scripts.remove( _scripts.keySet().iterator().next() );
+            _evictions++;
+        }
+    }
+
+
+    /**
+     * Returns the number of compiled scripts currently held.
+     */
+    public synchronized int getSize() {
+        return _scripts.size();
+    }
+
+
+    /**
+     * Returns the number of requests satisfied from the cache.
+     */
+    public synchronized long getHitCount() {
+        return _hits;
+    }
+
+
+    /**
+     * Returns the number of requests which required a script to be compiled.
+     */
+    public synchronized long getMissCount() {
+        return _misses;
+    }
+
+
+    /**
+     * Returns the number of compiled scripts discarded to keep the cache within its bounds.
+     */
+    public synchronized long getEvictionCount() {
+        return _evictions;
+    }
+
+
+    /**
+     * Discards all compiled scripts and resets the statistics.
+     */
+    public synchronized void clear() {
+        _scripts.clear();
+        _hits = _misses = _evictions = 0;
+    }
+
+
+    /**
+     * Returns the compiled form of the specified script, compiling it at the current optimization level if necessary.
+     */
+    public Script getScript( Context context, String source ) {
+        Key key = new Key( context.getOptimizationLevel(), source );
+        synchronized (this) {
+            Script script = (Script) _scripts.get( key );
+            if (script != null) {
+                _hits++;
+                return script;
+            }
+            _misses++;
+        }
+
+        Script script = context.compileString( source, SOURCE_NAME, 0, null );
+        synchronized (this) {
+            if (_maxEntries > 0) _scripts.put( key, script );
+        }
+        return script;
+    }
+
+
+    /**
+     * Returns a function with the specified body, whose scope is the specified scope. Only the function object
+     * itself is created per call; its compiled code is shared.
+     */
+    public Function getFunction( Context context, Scriptable scope, String body ) {
+        return (Function) getScript( context, "(function() { " + body + "\n})" ).exec( context, scope );
+    }
+
+
+    private class ScriptMap extends LinkedHashMap {
+
+        ScriptMap() {
+            super( 16, 0.75f, true );
+        }
+
+
+        protected boolean removeEldestEntry( Map.Entry eldest ) {
+            if (size() <= _maxEntries) return false;
+            _evictions++;
+            return true;
+        }
+    }
+
+
+    private static class Key {
+
+        private int _optimizationLevel;
+        private String _source;
+
+
+        Key( int optimizationLevel, String source ) {
+            _optimizationLevel = optimizationLevel;
+            _source = source;
+        }
+
+
+        public int hashCode() {
+            return _source.hashCode() ^ _optimizationLevel;
+        }
+
+
+        public boolean equals( Object obj ) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return _optimizationLevel == other._optimizationLevel && _source.equals( other._source );
+        }
+    }
+}
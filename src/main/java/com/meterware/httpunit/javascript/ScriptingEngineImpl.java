@@ -36,14 +36,16 @@ public abstract class ScriptingEngineImpl extends ScriptableObject implements Sc
 
     private final static Object[] NO_ARGS = new Object[0];
 
-    private static ArrayList _errorMessages = new ArrayList();
+    private final static ArrayList _errorMessages = new ArrayList();
 
 
     /**
      * clear the list of error Messages
      */
     static public void clearErrorMessages() {
-        _errorMessages.clear();
+        synchronized (_errorMessages) {
+            _errorMessages.clear();
+        }
     }
 
 
@@ -52,7 +54,9 @@ public abstract class ScriptingEngineImpl extends ScriptableObject implements Sc
      * @return the array with error Messages
      */
     static public String[] getErrorMessages() {
-        return (String[]) _errorMessages.toArray( new String[ _errorMessages.size() ] );
+        synchronized (_errorMessages) {
+            return (String[]) _errorMessages.toArray( new String[ _errorMessages.size() ] );
+        }
     }
 
 
@@ -74,7 +78,9 @@ public abstract class ScriptingEngineImpl extends ScriptableObject implements Sc
    				else
    					throw new ScriptException( errorMessage );
    			} else	{
-    				_errorMessages.add( errorMessage );
+    				synchronized (_errorMessages) {
+    					_errorMessages.add( errorMessage );
+    				}
     		}
    		} else	{
     		HttpUnitUtils.handleException(e);
@@ -102,9 +108,8 @@ public abstract class ScriptingEngineImpl extends ScriptableObject implements Sc
                 script = withoutFirstLine( script );
                 if (script.endsWith( "-->" )) script = script.substring( 0, script.lastIndexOf( "-->" ));
             }
-            Context context = Context.enter();
-            context.initStandardObjects( null );
-            context.evaluateString( this, script, "httpunit", 0, null );
+            Context context = JavaScript.enterContext();
+            ScriptCache.getSharedCache().getScript( context, script ).exec( context, this );
             return getDocumentWriteBuffer();
         } catch (Exception e) {
             handleScriptException( e, "Script '" + script + "'" );
@@ -138,10 +143,9 @@ public abstract class ScriptingEngineImpl extends ScriptableObject implements Sc
       }	else { 	
         try {
             Context context = Context.enter();
-            context.initStandardObjects( null );
             context.setOptimizationLevel( -1 );
             // wrap the eventScript into a function
-            Function f = context.compileFunction( this, "function x() { " + eventScript + "}", "httpunit", 0, null );
+            Function f = ScriptCache.getSharedCache().getFunction( context, this, eventScript );
             // call the function with no arguments
             Object result = f.call( context, this, this, NO_ARGS );
             // return the result of the function or false if it is not boolean
@@ -171,9 +175,8 @@ public abstract class ScriptingEngineImpl extends ScriptableObject implements Sc
      */
     public Object evaluateExpression( String expression ) {
         try {
-            Context context = Context.enter();
-            context.initStandardObjects( null );
-            Object result = context.evaluateString( this, expression, "httpunit", 0, null );
+            Context context = JavaScript.enterContext();
+            Object result = ScriptCache.getSharedCache().getScript( context, expression ).exec( context, this );
             return (result == null || result instanceof Undefined) ? null : result;
         } catch (Exception e) {
             handleScriptException( e, "URL '" + expression + "'" );
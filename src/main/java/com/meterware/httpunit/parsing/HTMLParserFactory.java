@@ -35,6 +35,7 @@ abstract public class HTMLParserFactory {
     private static Vector     _listeners = new Vector();
     private static HTMLParser _jtidyParser;
     private static HTMLParser _nekoParser;
+    private static HTMLParser _nativeParser = new NativeHTMLParser();
 
     private static HTMLParser _htmlParser;
     private static boolean    _preserveTagCase;
@@ -77,6 +78,15 @@ abstract public class HTMLParserFactory {
     }
 
 
+    /**
+     * Selects the built-in parser, which needs no other libraries.
+     * @since 1.7.4
+     */
+    public static void useNativeHTMLParser() {
+        _htmlParser = _nativeParser;
+    }
+
+
     /**
      * Specifies the parser to use.
      */
@@ -95,7 +105,7 @@ abstract public class HTMLParserFactory {
             } else if (_jtidyParser != null) {
                 _htmlParser = _jtidyParser;
             } else {
-                throw new RuntimeException( "No HTML parser found. Make sure that either nekoHTML.jar or Tidy.jar is in the in classpath" );
+                _htmlParser = _nativeParser;
             }
         }
         return _htmlParser;
@@ -242,6 +252,15 @@ abstract public class HTMLParserFactory {
     }
 
 
+    /**
+     * Returns true if any HTML Parser listeners have been added.
+     * @since 1.7.4
+     **/
+    public static boolean hasHTMLParserListeners() {
+        return !_listeners.isEmpty();
+    }
+
+
 //------------------------------------- package protected members ------------------------------------------------------
 
 
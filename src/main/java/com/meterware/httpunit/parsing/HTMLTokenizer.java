@@ -0,0 +1,659 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+
+/**
+ * A scanner which breaks HTML into tags, text and comments. Character entities are replaced in text and attribute
+ * values. The contents of elements such as script and style, which are not markup, are returned as a single text
+ * token followed by the end tag. Text may be inserted at the current position, as is done with the output of scripts.
+ **/
+class HTMLTokenizer {
+
+    final static int EOF       = 0;
+    final static int TEXT      = 1;
+    final static int START_TAG = 2;
+    final static int END_TAG   = 3;
+    final static int COMMENT   = 4;
+
+    private final static int BUFFER_SIZE = 8192;
+
+    /** The character which replaces a numeric reference beyond the range of Unicode. **/
+    private final static int REPLACEMENT_CHARACTER = 0xFFFD;
+
+    /** The elements whose contents are returned as text; those marked true have their entities replaced. **/
+    private final static Map RAW_TEXT_ELEMENTS = new HashMap();
+
+    /** The characters represented by each entity name. **/
+    private final static Map ENTITIES = new HashMap();
+
+    private Reader _reader;
+    private char[] _buffer;
+    private int _position;
+    private int _limit;
+
+    /** Characters read ahead of the current position, to be read again in reverse order. **/
+    private char[] _pushback = new char[32];
+    private int _pushbackCount;
+
+    /** True if a carriage return was just read, so that a following line feed must be skipped. **/
+    private boolean _skipLineFeed;
+
+    /** The inputs interrupted by inserted text, to be resumed when it has been read. **/
+    private ArrayList _suspendedInputs = new ArrayList();
+
+    private String _name;
+    private StringBuffer _text = new StringBuffer();
+    private String[] _attributeNames = new String[8];
+    private String[] _attributeValues = new String[8];
+    private int _attributeCount;
+    private boolean _emptyElementTag;
+
+    /** The element whose contents are to be read as text, or null if markup is expected. **/
+    private String _rawTextElement;
+
+    /** The end tag to be returned as the next token, or null if none. **/
+    private String _pendingEndTag;
+
+    /** The maximum length of the text returned for a token; any more is read but discarded. **/
+    private int _textLimit = Integer.MAX_VALUE;
+
+
+    HTMLTokenizer( Reader reader ) {
+        _reader = reader;
+        _buffer = new char[ BUFFER_SIZE ];
+    }
+
+
+    /**
+     * Limits the length of the text returned for text and comment tokens, and for attribute values.
+     * Any text beyond the limit is read but discarded, so that long contents need not be held in memory.
+     */
+    void setTextLimit( int textLimit ) {
+        _textLimit = textLimit;
+    }
+
+
+    /**
+     * Inserts text at the current position. The text will be read before the rest of the current input.
+     */
+    void insertText( String text ) {
+        if (text.length() == 0) return;
+        _suspendedInputs.add( new Input( this ) );
+        _reader = null;
+        _buffer = text.toCharArray();
+        _position = 0;
+        _limit = _buffer.length;
+        _pushbackCount = 0;
+        _skipLineFeed = false;
+    }
+
+
+    /**
+     * Reads the next token, returning its type.
+     */
+    int nextToken() throws IOException {
+        if (_pendingEndTag != null) {
+            _name = _pendingEndTag;
+            _pendingEndTag = null;
+            return END_TAG;
+        } else if (_rawTextElement != null) {
+            String element = _rawTextElement;
+            _rawTextElement = null;
+            _pendingEndTag = element;
+            if (scanRawText( element, ((Boolean) RAW_TEXT_ELEMENTS.get( element )).booleanValue() )) return TEXT;
+            return nextToken();
+        }
+
+        while (true) {
+            int c = read();
+            if (c == -1) return EOF;
+            if (c != '<') return scanText( c );
+
+            int next = read();
+            if (isLetter( next )) {
+                return scanStartTag( next ) ? START_TAG : EOF;
+            } else if (next == '/') {
+                int first = read();
+                if (isLetter( first )) {
+                    scanEndTag( first );
+                    return END_TAG;
+                }
+                if (first != '>') skipPast( '>' );
+            } else if (next == '!') {
+                if (scanComment()) return COMMENT;
+            } else if (next == '?') {
+                skipPast( '>' );
+            } else {
+                unread( next );
+                return scanText( '<' );
+            }
+        }
+    }
+
+
+    /**
+     * Returns the name of the current tag, in lower case.
+     */
+    String getName() {
+        return _name;
+    }
+
+
+    /**
+     * Returns the contents of the current text or comment token.
+     */
+    String getText() {
+        return _text.toString();
+    }
+
+
+    /**
+     * Returns true if the current start tag is closed with "/>".
+     */
+    boolean isEmptyElementTag() {
+        return _emptyElementTag;
+    }
+
+
+    int getAttributeCount() {
+        return _attributeCount;
+    }
+
+
+    /**
+     * Returns the name of the specified attribute of the current start tag, in lower case.
+     */
+    String getAttributeName( int i ) {
+        return _attributeNames[i];
+    }
+
+
+    String getAttributeValue( int i ) {
+        return _attributeValues[i];
+    }
+
+
+    /**
+     * Returns the value of the named attribute of the current start tag, or null if it has no such attribute.
+     */
+    String getAttribute( String name ) {
+        String value = null;
+        for (int i = 0; i < _attributeCount; i++) {
+            if (_attributeNames[i].equals( name )) value = _attributeValues[i];
+        }
+        return value;
+    }
+
+
+//---------------------------------------------- scanning ------------------------------------------------------------
+
+
+    private int scanText( int c ) throws IOException {
+        _text.setLength( 0 );
+        do {
+            if (c == '&') {
+                appendReference( _text );
+            } else {
+                _text.append( (char) c );
+            }
+            limitText();
+            c = read();
+        } while (c != -1 && c != '<');
+        if (c != -1) unread( c );
+        return TEXT;
+    }
+
+
+    /**
+     * Reads a start tag, starting with the first character of its name. Returns false if the input ends before
+     * the tag does, in which case the tag is discarded.
+     */
+    private boolean scanStartTag( int first ) throws IOException {
+        _name = scanName( first );
+        _attributeCount = 0;
+        _emptyElementTag = false;
+
+        int c = read();
+        while (true) {
+            while (isWhitespace( c )) c = read();
+            if (c == -1) return false;
+            if (c == '>') break;
+            if (c == '/') {
+                c = read();
+                if (c == '>') {
+                    _emptyElementTag = true;
+                    break;
+                }
+                continue;
+            }
+            c = scanAttribute( c );
+        }
+        if (!_emptyElementTag && RAW_TEXT_ELEMENTS.containsKey( _name )) _rawTextElement = _name;
+        return true;
+    }
+
+
+    private void scanEndTag( int first ) throws IOException {
+        _name = scanName( first );
+        skipPast( '>' );
+    }
+
+
+    /**
+     * Reads an attribute, starting with the first character of its name, and returns the character which follows it.
+     */
+    private int scanAttribute( int first ) throws IOException {
+        _text.setLength( 0 );
+        int c = first;
+        do {
+            _text.append( Character.toLowerCase( (char) c ) );
+            c = read();
+        } while (c != -1 && c != '=' && c != '>' && !isWhitespace( c ) && !(c == '/' && peek() == '>'));
+        String name = _text.toString();
+
+        while (isWhitespace( c )) c = read();
+        if (c != '=') {
+            addAttribute( name, "" );
+            return c;
+        }
+
+        c = read();
+        while (isWhitespace( c )) c = read();
+        _text.setLength( 0 );
+        if (c == '"' || c == '\'') {
+            int quote = c;
+            for (c = read(); c != -1 && c != quote; c = read()) appendAttributeChar( c );
+            c = read();
+        } else {
+            for (; c != -1 && c != '>' && !isWhitespace( c ); c = read()) appendAttributeChar( c );
+        }
+        addAttribute( name, _text.toString() );
+        return c;
+    }
+
+
+    private void appendAttributeChar( int c ) throws IOException {
+        if (c == '&') {
+            appendReference( _text );
+        } else {
+            _text.append( isWhitespace( c ) ? ' ' : (char) c );
+        }
+        limitText();
+    }
+
+
+    private void addAttribute( String name, String value ) {
+        if (_attributeCount == _attributeNames.length) {
+            String[] names = new String[ 2 * _attributeCount ];
+            String[] values = new String[ 2 * _attributeCount ];
+            System.arraycopy( _attributeNames, 0, names, 0, _attributeCount );
+            System.arraycopy( _attributeValues, 0, values, 0, _attributeCount );
+            _attributeNames = names;
+            _attributeValues = values;
+        }
+        _attributeNames[ _attributeCount ] = name;
+        _attributeValues[ _attributeCount++ ] = value;
+    }
+
+
+    private String scanName( int first ) throws IOException {
+        _text.setLength( 0 );
+        int c = first;
+        do {
+            _text.append( Character.toLowerCase( (char) c ) );
+            c = read();
+        } while (c != -1 && c != '>' && c != '/' && !isWhitespace( c ));
+        if (c != -1) unread( c );
+        return _text.toString();
+    }
+
+
+    /**
+     * Reads a comment or declaration following "<!". Returns true if it is to be reported as a comment.
+     */
+    private boolean scanComment() throws IOException {
+        _text.setLength( 0 );
+        int c = read();
+        if (c == '-') {
+            int next = read();
+            if (next == '-') {
+                scanUntil( "-->" );
+                return true;
+            }
+            unread( next );
+        } else if (c == '[') {
+            _text.append( '[' );
+            scanUntil( ">" );
+            return true;
+        }
+        if (c != '>') skipPast( '>' );
+        return false;
+    }
+
+
+    /**
+     * Reads text into the text buffer up to the specified terminator, which is read but not included.
+     */
+    private void scanUntil( String terminator ) throws IOException {
+        int last = terminator.length() - 1;
+        for (int c = read(); c != -1; c = read()) {
+            _text.append( (char) c );
+            if (c == terminator.charAt( last ) && endsWith( _text, terminator )) {
+                _text.setLength( _text.length() - terminator.length() );
+                limitText();
+                return;
+            }
+            if (_text.length() - terminator.length() > _textLimit) _text.deleteCharAt( _textLimit );
+        }
+        limitText();
+    }
+
+
+    private void limitText() {
+        if (_text.length() > _textLimit) _text.setLength( _textLimit );
+    }
+
+
+    private static boolean endsWith( StringBuffer sb, String suffix ) {
+        int start = sb.length() - suffix.length();
+        if (start < 0) return false;
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sb.charAt( start + i ) != suffix.charAt( i )) return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Reads the contents of the specified element up to its end tag, which is read but not returned.
+     * Returns true if there were any contents.
+     */
+    private boolean scanRawText( String element, boolean replaceEntities ) throws IOException {
+        _text.setLength( 0 );
+        for (int c = read(); c != -1; c = read()) {
+            if (c == '<' && isEndTag( element )) {
+                skipPast( '>' );
+                break;
+            } else if (c == '&' && replaceEntities) {
+                appendReference( _text );
+            } else {
+                _text.append( (char) c );
+            }
+            limitText();
+        }
+        return _text.length() > 0;
+    }
+
+
+    /**
+     * Returns true if the characters following a '<' are the end tag for the specified element. If not, they are
+     * left to be read again.
+     */
+    private boolean isEndTag( String element ) throws IOException {
+        int c = read();
+        if (c != '/') {
+            unread( c );
+            return false;
+        }
+        char[] chars = new char[ element.length() + 1 ];
+        chars[0] = '/';
+        int count = 1;
+        for (; count < chars.length; count++) {
+            c = read();
+            if (c == -1 || Character.toLowerCase( (char) c ) != element.charAt( count - 1 )) break;
+            chars[ count ] = (char) c;
+        }
+        if (count == chars.length) {
+            c = read();
+            if (c == -1 || c == '>' || c == '/' || isWhitespace( c )) {
+                unread( c );
+                return true;
+            }
+        }
+        unread( c );
+        while (count > 0) unread( chars[ --count ] );
+        return false;
+    }
+
+
+    /**
+     * Appends the character represented by a reference, whose leading '&' has been read. If the characters do not
+     * form a known reference, they are appended as they are.
+     */
+    private void appendReference( StringBuffer sb ) throws IOException {
+        int start = sb.length();
+        sb.append( '&' );
+        int c = read();
+        if (c == '#') {
+            sb.append( '#' );
+            c = read();
+            boolean hex = (c == 'x' || c == 'X');
+            if (hex) {
+                sb.append( (char) c );
+                c = read();
+            }
+            int radix = hex ? 16 : 10;
+            int digitsStart = sb.length();
+            int code = 0;
+            while (c != -1 && Character.digit( (char) c, radix ) >= 0 && sb.length() - digitsStart < 8) {
+                sb.append( (char) c );
+                if (code <= Character.MAX_CODE_POINT) code = code * radix + Character.digit( (char) c, radix );
+                c = read();
+            }
+            if (c == ';' && sb.length() > digitsStart) {
+                sb.setLength( start );
+                sb.appendCodePoint( code <= Character.MAX_CODE_POINT ? code : REPLACEMENT_CHARACTER );
+                return;
+            }
+        } else {
+            while (c != -1 && isLetterOrDigit( c ) && sb.length() - start < 10) {
+                sb.append( (char) c );
+                c = read();
+            }
+            if (c == ';') {
+                String value = (String) ENTITIES.get( sb.substring( start + 1 ) );
+                if (value != null) {
+                    sb.setLength( start );
+                    sb.append( value );
+                    return;
+                }
+            }
+        }
+        if (c != -1) unread( c );
+    }
+
+
+    private void skipPast( char terminator ) throws IOException {
+        for (int c = read(); c != -1 && c != terminator; c = read());
+    }
+
+
+    private static boolean isLetter( int c ) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+
+    private static boolean isLetterOrDigit( int c ) {
+        return isLetter( c ) || (c >= '0' && c <= '9');
+    }
+
+
+    private static boolean isWhitespace( int c ) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\f' || c == '\r';
+    }
+
+
+//---------------------------------------------- reading -------------------------------------------------------------
+
+
+    /**
+     * Returns the next character of the input, or -1 at the end. Line breaks are reported as single line feeds.
+     */
+    private int read() throws IOException {
+        while (true) {
+            if (_pushbackCount > 0) return _pushback[ --_pushbackCount ];
+            if (_position == _limit) {
+                if (!fill()) return -1;
+                continue;
+            }
+            char c = _buffer[ _position++ ];
+            if (_skipLineFeed) {
+                _skipLineFeed = false;
+                if (c == '\n') continue;
+            }
+            if (c != '\r') return c;
+            _skipLineFeed = true;
+            return '\n';
+        }
+    }
+
+
+    private int peek() throws IOException {
+        int c = read();
+        if (c != -1) unread( c );
+        return c;
+    }
+
+
+    private void unread( int c ) {
+        if (c == -1) return;
+        if (_pushbackCount == _pushback.length) {
+            char[] pushback = new char[ 2 * _pushbackCount ];
+            System.arraycopy( _pushback, 0, pushback, 0, _pushbackCount );
+            _pushback = pushback;
+        }
+        _pushback[ _pushbackCount++ ] = (char) c;
+    }
+
+
+    /**
+     * Makes more input available, returning false if there is none.
+     */
+    private boolean fill() throws IOException {
+        while (true) {
+            if (_reader != null) {
+                int count = _reader.read( _buffer, 0, _buffer.length );
+                if (count > 0) {
+                    _position = 0;
+                    _limit = count;
+                    return true;
+                }
+                _reader = null;
+            }
+            if (_suspendedInputs.isEmpty()) return false;
+            ((Input) _suspendedInputs.remove( _suspendedInputs.size() - 1 )).resume( this );
+            if (_pushbackCount > 0 || _position < _limit) return true;
+        }
+    }
+
+
+    /**
+     * The state of an input interrupted by inserted text.
+     */
+    private static class Input {
+
+        private Reader _reader;
+        private char[] _buffer;
+        private int _position;
+        private int _limit;
+        private char[] _pushback;
+        private int _pushbackCount;
+        private boolean _skipLineFeed;
+
+        Input( HTMLTokenizer tokenizer ) {
+            _reader = tokenizer._reader;
+            _buffer = tokenizer._buffer;
+            _position = tokenizer._position;
+            _limit = tokenizer._limit;
+            _pushback = tokenizer._pushback;
+            _pushbackCount = tokenizer._pushbackCount;
+            _skipLineFeed = tokenizer._skipLineFeed;
+            tokenizer._pushback = new char[ _pushback.length ];
+        }
+
+        void resume( HTMLTokenizer tokenizer ) {
+            tokenizer._reader = _reader;
+            tokenizer._buffer = _buffer;
+            tokenizer._position = _position;
+            tokenizer._limit = _limit;
+            tokenizer._pushback = _pushback;
+            tokenizer._pushbackCount = _pushbackCount;
+            tokenizer._skipLineFeed = _skipLineFeed;
+        }
+    }
+
+
+    /** The names of the entities for the characters 160 to 255, in order. **/
+    private final static String LATIN_1_ENTITIES =
+            "nbsp iexcl cent pound curren yen brvbar sect uml copy ordf laquo not shy reg macr deg plusmn sup2 " +
+            "sup3 acute micro para middot cedil sup1 ordm raquo frac14 frac12 frac34 iquest Agrave Aacute Acirc " +
+            "Atilde Auml Aring AElig Ccedil Egrave Eacute Ecirc Euml Igrave Iacute Icirc Iuml ETH Ntilde Ograve " +
+            "Oacute Ocirc Otilde Ouml times Oslash Ugrave Uacute Ucirc Uuml Yacute THORN szlig agrave aacute " +
+            "acirc atilde auml aring aelig ccedil egrave eacute ecirc euml igrave iacute icirc iuml eth ntilde " +
+            "ograve oacute ocirc otilde ouml divide oslash ugrave uacute ucirc uuml yacute thorn yuml";
+
+    /** The other entities, with their character codes. **/
+    private final static String OTHER_ENTITIES =
+            "quot=34 amp=38 lt=60 gt=62 OElig=338 oelig=339 Scaron=352 scaron=353 Yuml=376 circ=710 tilde=732 " +
+            "ensp=8194 emsp=8195 thinsp=8201 zwnj=8204 zwj=8205 lrm=8206 rlm=8207 ndash=8211 mdash=8212 " +
+            "lsquo=8216 rsquo=8217 sbquo=8218 ldquo=8220 rdquo=8221 bdquo=8222 dagger=8224 Dagger=8225 " +
+            "permil=8240 lsaquo=8249 rsaquo=8250 euro=8364 fnof=402 Alpha=913 Beta=914 Gamma=915 Delta=916 " +
+            "Epsilon=917 Zeta=918 Eta=919 Theta=920 Iota=921 Kappa=922 Lambda=923 Mu=924 Nu=925 Xi=926 " +
+            "Omicron=927 Pi=928 Rho=929 Sigma=931 Tau=932 Upsilon=933 Phi=934 Chi=935 Psi=936 Omega=937 alpha=945 " +
+            "beta=946 gamma=947 delta=948 epsilon=949 zeta=950 eta=951 theta=952 iota=953 kappa=954 lambda=955 " +
+            "mu=956 nu=957 xi=958 omicron=959 pi=960 rho=961 sigmaf=962 sigma=963 tau=964 upsilon=965 phi=966 " +
+            "chi=967 psi=968 omega=969 thetasym=977 upsih=978 piv=982 bull=8226 hellip=8230 prime=8242 Prime=8243 " +
+            "oline=8254 frasl=8260 weierp=8472 image=8465 real=8476 trade=8482 alefsym=8501 larr=8592 uarr=8593 " +
+            "rarr=8594 darr=8595 harr=8596 crarr=8629 lArr=8656 uArr=8657 rArr=8658 dArr=8659 hArr=8660 " +
+            "forall=8704 part=8706 exist=8707 empty=8709 nabla=8711 isin=8712 notin=8713 ni=8715 prod=8719 " +
+            "sum=8721 minus=8722 lowast=8727 radic=8730 prop=8733 infin=8734 ang=8736 and=8743 or=8744 cap=8745 " +
+            "cup=8746 int=8747 there4=8756 sim=8764 cong=8773 asymp=8776 ne=8800 equiv=8801 le=8804 ge=8805 " +
+            "sub=8834 sup=8835 nsub=8836 sube=8838 supe=8839 oplus=8853 otimes=8855 perp=8869 sdot=8901 " +
+            "lceil=8968 rceil=8969 lfloor=8970 rfloor=8971 lang=9001 rang=9002 loz=9674 spades=9824 clubs=9827 " +
+            "hearts=9829 diams=9830 apos=39";
+
+
+    static {
+        RAW_TEXT_ELEMENTS.put( "script",    Boolean.FALSE );
+        RAW_TEXT_ELEMENTS.put( "style",     Boolean.FALSE );
+        RAW_TEXT_ELEMENTS.put( "xmp",       Boolean.FALSE );
+        RAW_TEXT_ELEMENTS.put( "plaintext", Boolean.FALSE );
+        RAW_TEXT_ELEMENTS.put( "comment",   Boolean.FALSE );
+        RAW_TEXT_ELEMENTS.put( "textarea",  Boolean.TRUE );
+
+        StringTokenizer names = new StringTokenizer( LATIN_1_ENTITIES );
+        for (char c = 160; names.hasMoreTokens(); c++) ENTITIES.put( names.nextToken(), String.valueOf( c ) );
+
+        StringTokenizer entities = new StringTokenizer( OTHER_ENTITIES );
+        while (entities.hasMoreTokens()) {
+            String entity = entities.nextToken();
+            int index = entity.indexOf( '=' );
+            ENTITIES.put( entity.substring( 0, index ), String.valueOf( (char) Integer.parseInt( entity.substring( index + 1 ) ) ) );
+        }
+    }
+}
@@ -0,0 +1,642 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import com.meterware.httpunit.dom.HTMLDocumentImpl;
+import com.meterware.httpunit.scripting.ScriptingHandler;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.html.HTMLDocument;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+
+/**
+ * Builds an HTML document directly from the tokens of a page. Missing elements are supplied and unclosed ones closed
+ * following the same rules as the NekoHTML tag balancer, so that the documents built match those of the NekoHTML
+ * parser. Scripts are run as they are read, and any text they write is parsed in their place.
+ **/
+class HTMLTreeBuilder {
+
+    private final static int INLINE    = 1;
+    private final static int BLOCK     = 2;
+    private final static int EMPTY     = 4;
+    private final static int CONTAINER = 8;
+    private final static int SPECIAL   = 16;
+
+    /** The rules for each known element, keyed by name. **/
+    private final static Map ELEMENTS = new HashMap();
+
+    private final HTMLTokenizer _tokenizer;
+    private final DocumentAdapter _adapter;
+    private final HTMLDocumentImpl _document = new HTMLDocumentImpl();
+
+    /** The elements which have been started but not yet ended, innermost last. **/
+    private final ArrayList _openElements = new ArrayList();
+
+    /** Text read but not yet added to the document. **/
+    private final StringBuffer _pendingText = new StringBuffer();
+
+    private boolean _seenRootElement;
+    private boolean _seenHeadElement;
+    private boolean _seenBodyElement;
+
+    /** The text of the script being read, or null if none is being read. **/
+    private StringBuffer _script;
+    private String _scriptLanguage;
+
+
+    HTMLTreeBuilder( Reader reader, DocumentAdapter adapter ) {
+        _tokenizer = new HTMLTokenizer( reader );
+        _adapter = adapter;
+    }
+
+
+    /**
+     * Reads the page and returns the document built from it.
+     */
+    HTMLDocument build() throws IOException {
+        for (int token = _tokenizer.nextToken(); token != HTMLTokenizer.EOF; token = _tokenizer.nextToken()) {
+            switch (token) {
+                case HTMLTokenizer.TEXT:
+                    characters( _tokenizer.getText() );
+                    break;
+                case HTMLTokenizer.START_TAG:
+                    String name = _tokenizer.getName();
+                    startElement( name, getAttributes() );
+                    if (_tokenizer.isEmptyElementTag() && !getElementRules( name ).isEmpty()) endElement( name );
+                    break;
+                case HTMLTokenizer.END_TAG:
+                    endElement( _tokenizer.getName() );
+                    break;
+                case HTMLTokenizer.COMMENT:
+                    appendNode( _document.createComment( _tokenizer.getText() ) );
+                    break;
+            }
+        }
+        if (!_seenRootElement) startElement( "html", null );
+        flushText();
+        return _document;
+    }
+
+
+    /**
+     * Returns the attributes of the current start tag as alternating names and values, or null if there are none.
+     */
+    private String[] getAttributes() {
+        int count = _tokenizer.getAttributeCount();
+        if (count == 0) return null;
+
+        String[] attributes = new String[ 2 * count ];
+        for (int i = 0; i < count; i++) {
+            attributes[ 2 * i ] = _tokenizer.getAttributeName( i );
+            attributes[ 2 * i + 1 ] = _tokenizer.getAttributeValue( i );
+        }
+        return attributes;
+    }
+
+
+    private void characters( String text ) throws IOException {
+        if (_script != null) {
+            _script.append( text );
+            return;
+        }
+
+        boolean whitespace = isWhitespace( text );
+        if (!_seenRootElement) {
+            if (whitespace) return;
+            startElement( "body", null );
+        } else if (!whitespace) {
+            String current = getCurrentElement()._rules._name;
+            if (current.equals( "head" ) || current.equals( "html" )) startElement( "body", null );
+        }
+        _pendingText.append( text );
+    }
+
+
+    private void startElement( String name, String[] attributes ) throws IOException {
+        ElementRules rules = getElementRules( name );
+        if (name.equals( "html" )) {
+            if (_seenRootElement) return;
+        } else if (name.equals( "head" )) {
+            if (_seenHeadElement) return;
+            _seenHeadElement = true;
+        } else if (name.equals( "body" )) {
+            if (_seenBodyElement) return;
+            _seenBodyElement = true;
+        }
+
+        supplyParent( rules );
+        ArrayList inlineElements = (rules._flags == 0) ? closeInlineElements() : null;
+        closeElements( rules );
+        _seenRootElement = true;
+
+        if (name.equals( "script" ) && isSupportedScript( attributes )) {
+            _openElements.add( new OpenElement( rules, null, null, null ) );
+            startScript( attributes );
+        } else {
+            String namespaceURI = getNamespaceURI( attributes );
+            Element element = createElement( namespaceURI, name, attributes );
+            appendNode( element );
+            if (!rules.isEmpty()) {
+                _openElements.add( new OpenElement( rules, element, namespaceURI, rules.isInline() ? attributes : null ) );
+            }
+        }
+        reopenInlineElements( inlineElements );
+    }
+
+
+    /**
+     * Starts the preferred parent of an element if none of its permitted parents is open.
+     */
+    private void supplyParent( ElementRules rules ) throws IOException {
+        if (rules._parents == null) return;
+
+        ElementRules preferredParent = getElementRules( rules._parents[0] );
+        if (!_seenRootElement) {
+            startElement( preferredParent._name, null );
+        } else if (!preferredParent._name.equals( "head" ) || !_seenBodyElement) {
+            if (getParentDepth( rules._parents, rules._bounds ) == -1 &&
+                getParentDepth( preferredParent._parents, preferredParent._bounds ) != -1) {
+                startElement( preferredParent._name, null );
+            }
+        }
+    }
+
+
+    /**
+     * Closes the inline elements which immediately enclose the current position, returning them so that they may
+     * be reopened.
+     */
+    private ArrayList closeInlineElements() {
+        flushText();
+        ArrayList closed = new ArrayList();
+        while (!_openElements.isEmpty() && getCurrentElement()._rules.isInline()) {
+            closed.add( _openElements.remove( _openElements.size() - 1 ) );
+        }
+        return closed;
+    }
+
+
+    /**
+     * Closes any open elements which are implicitly closed by the start of an element with the specified rules.
+     */
+    private void closeElements( ElementRules rules ) {
+        if (rules._closes == null) return;
+
+        for (int i = _openElements.size() - 1; i >= 0; i--) {
+            ElementRules open = ((OpenElement) _openElements.get( i ))._rules;
+            if (rules.closes( open._name )) {
+                closeElementsFrom( i );
+            } else if (open.isBlock() || rules.isParent( open._name )) {
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Reopens elements closed earlier, outermost first.
+     */
+    private void reopenInlineElements( ArrayList closedElements ) throws IOException {
+        if (closedElements == null) return;
+        for (int i = closedElements.size() - 1; i >= 0; i--) {
+            OpenElement element = (OpenElement) closedElements.get( i );
+            startElement( element._rules._name, element._attributes );
+        }
+    }
+
+
+    /**
+     * Ends the named element and any open within it. An end tag which does not match an open element is ignored,
+     * except that a paragraph end tag always produces a paragraph.
+     */
+    private void endElement( String name ) throws IOException {
+        if (_script != null && name.equals( "script" )) {
+            _openElements.remove( _openElements.size() - 1 );
+            runScript();
+            return;
+        }
+        if (name.equals( "html" ) || name.equals( "body" )) return;
+
+        ElementRules rules = getElementRules( name );
+        int depth = getElementDepth( rules );
+        if (depth == -1) {
+            if (name.equals( "p" )) {
+                startElement( name, null );
+                endElement( name );
+            }
+            return;
+        }
+
+        ArrayList inlineElements = null;
+        int size = _openElements.size();
+        if (depth > 1 && rules.isInline()) {
+            inlineElements = new ArrayList();
+            for (int i = 0; i < depth - 1; i++) {
+                OpenElement element = (OpenElement) _openElements.get( size - i - 1 );
+                if (element._rules.isInline() || element._rules._name.equals( "font" )) inlineElements.add( element );
+            }
+        }
+        closeElementsFrom( size - depth );
+        reopenInlineElements( inlineElements );
+    }
+
+
+    private void closeElementsFrom( int index ) {
+        flushText();
+        while (_openElements.size() > index) _openElements.remove( _openElements.size() - 1 );
+    }
+
+
+    /**
+     * Returns the number of open elements which must be closed to close the specified element, or -1 if it cannot
+     * be closed.
+     */
+    private int getElementDepth( ElementRules rules ) {
+        for (int i = _openElements.size() - 1; i >= 0; i--) {
+            ElementRules open = ((OpenElement) _openElements.get( i ))._rules;
+            if (open._name.equals( rules._name )) return _openElements.size() - i;
+            if (!rules.isContainer() && open.isBlock()) break;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Returns the number of open elements enclosed by the innermost of the specified parents, or -1 if none is
+     * open within the bounding element.
+     */
+    private int getParentDepth( String[] parents, String bounds ) {
+        if (parents == null) return -1;
+        for (int i = _openElements.size() - 1; i >= 0; i--) {
+            String open = ((OpenElement) _openElements.get( i ))._rules._name;
+            if (open.equals( bounds )) break;
+            for (int j = 0; j < parents.length; j++) {
+                if (open.equals( parents[j] )) return _openElements.size() - i;
+            }
+        }
+        return -1;
+    }
+
+
+    private OpenElement getCurrentElement() {
+        return (OpenElement) _openElements.get( _openElements.size() - 1 );
+    }
+
+
+    /**
+     * Returns the default namespace for an element with the specified attributes: the one it declares, if any,
+     * or else the one which applies to its parent.
+     */
+    private String getNamespaceURI( String[] attributes ) {
+        String declared = getAttribute( attributes, "xmlns" );
+        if (declared != null) return declared.length() == 0 ? null : declared;
+
+        for (int i = _openElements.size() - 1; i >= 0; i--) {
+            OpenElement element = (OpenElement) _openElements.get( i );
+            if (element._node != null) return element._namespaceURI;
+        }
+        return null;
+    }
+
+
+    private Element createElement( String namespaceURI, String name, String[] attributes ) {
+        Element element = _document.createElementNS( namespaceURI, name );
+        if (attributes != null) {
+            for (int i = 0; i < attributes.length; i += 2) {
+                Attr attribute = _document.createAttributeNS( null, attributes[i] );
+                attribute.setValue( attributes[ i + 1 ] );
+                element.setAttributeNodeNS( attribute );
+            }
+        }
+        return element;
+    }
+
+
+    /**
+     * Adds a node at the current position in the document.
+     */
+    private void appendNode( Node node ) {
+        flushText();
+        getCurrentNode().appendChild( node );
+    }
+
+
+    private void flushText() {
+        if (_pendingText.length() == 0) return;
+        if (!_openElements.isEmpty()) getCurrentNode().appendChild( _document.createTextNode( _pendingText.toString() ) );
+        _pendingText.setLength( 0 );
+    }
+
+
+    private Node getCurrentNode() {
+        return _openElements.isEmpty() ? (Node) _document : getCurrentElement()._node;
+    }
+
+
+    private static boolean isWhitespace( String text ) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace( text.charAt( i ) )) return false;
+        }
+        return true;
+    }
+
+
+//---------------------------------------------- scripts -------------------------------------------------------------
+
+
+    private boolean isSupportedScript( String[] attributes ) {
+        return getScriptingHandler().supportsScriptLanguage( getAttribute( attributes, "language" ) );
+    }
+
+
+    private void startScript( String[] attributes ) throws IOException {
+        _script = new StringBuffer();
+        _scriptLanguage = getAttribute( attributes, "language" );
+        String source = getAttribute( attributes, "src" );
+        if (source != null) _script.append( _adapter.getIncludedScript( source ) );
+    }
+
+
+    /**
+     * Runs the script just read and inserts any text it writes at the current position.
+     */
+    private void runScript() {
+        String script = _script.toString();
+        _script = null;
+        ScriptingHandler handler = getScriptingHandler();
+        handler.clearCaches();
+        String writtenText = handler.runScript( _scriptLanguage, script );
+        if (writtenText != null) _tokenizer.insertText( writtenText );
+    }
+
+
+    private ScriptingHandler getScriptingHandler() {
+        flushText();
+        _adapter.setDocument( _document );
+        return _adapter.getScriptingHandler();
+    }
+
+
+    private static String getAttribute( String[] attributes, String name ) {
+        String value = null;
+        for (int i = 0; attributes != null && i < attributes.length; i += 2) {
+            if (attributes[i].equals( name )) value = attributes[ i + 1 ];
+        }
+        return value;
+    }
+
+
+//---------------------------------------------- element rules -------------------------------------------------------
+
+
+    private static ElementRules getElementRules( String name ) {
+        ElementRules rules = (ElementRules) ELEMENTS.get( name );
+        return rules != null ? rules : new ElementRules( name, 0, "head body", null, null );
+    }
+
+
+    private static void defineElement( String name, int flags, String parents ) {
+        defineElement( name, flags, parents, null, null );
+    }
+
+
+    private static void defineElement( String name, int flags, String parents, String closes ) {
+        defineElement( name, flags, parents, closes, null );
+    }
+
+
+    private static void defineElement( String name, int flags, String parents, String closes, String bounds ) {
+        ELEMENTS.put( name, new ElementRules( name, flags, parents, closes, bounds ) );
+    }
+
+
+    /**
+     * The rules for placing an element: where it may appear, and which open elements it closes.
+     */
+    private static class ElementRules {
+
+        private final String _name;
+        private final int _flags;
+        private final String[] _parents;
+        private final String[] _closes;
+        private final String _bounds;
+
+        ElementRules( String name, int flags, String parents, String closes, String bounds ) {
+            _name = name;
+            _flags = flags;
+            _parents = toArray( parents );
+            _closes = toArray( closes );
+            _bounds = bounds;
+        }
+
+        boolean isInline() {
+            return (_flags & INLINE) != 0;
+        }
+
+        boolean isBlock() {
+            return (_flags & BLOCK) != 0;
+        }
+
+        boolean isEmpty() {
+            return (_flags & EMPTY) != 0;
+        }
+
+        boolean isContainer() {
+            return (_flags & CONTAINER) != 0;
+        }
+
+        boolean closes( String name ) {
+            return contains( _closes, name );
+        }
+
+        boolean isParent( String name ) {
+            return contains( _parents, name );
+        }
+
+        private static boolean contains( String[] names, String name ) {
+            for (int i = 0; names != null && i < names.length; i++) {
+                if (names[i].equals( name )) return true;
+            }
+            return false;
+        }
+
+        private static String[] toArray( String names ) {
+            if (names == null || names.length() == 0) return null;
+            StringTokenizer st = new StringTokenizer( names );
+            String[] result = new String[ st.countTokens() ];
+            for (int i = 0; i < result.length; i++) result[i] = st.nextToken();
+            return result;
+        }
+    }
+
+
+    /**
+     * An element which has been started but not ended.
+     */
+    private static class OpenElement {
+
+        private final ElementRules _rules;
+
+        /** The node for the element, or null if it is a script being run rather than added to the document. **/
+        private final Node _node;
+
+        /** The default namespace within the element. **/
+        private final String _namespaceURI;
+
+        /** The attributes of an inline element, with which it is reopened if closed early. **/
+        private final String[] _attributes;
+
+        OpenElement( ElementRules rules, Node node, String namespaceURI, String[] attributes ) {
+            _rules = rules;
+            _node = node;
+            _namespaceURI = namespaceURI;
+            _attributes = attributes;
+        }
+    }
+
+
+    static {
+        defineElement( "a", INLINE, "body" );
+        defineElement( "abbr", INLINE, "body" );
+        defineElement( "acronym", INLINE, "body" );
+        defineElement( "address", BLOCK, "body" );
+        defineElement( "applet", 0, "body" );
+        defineElement( "area", EMPTY, "map" );
+        defineElement( "b", INLINE, "body" );
+        defineElement( "base", EMPTY, "head" );
+        defineElement( "basefont", 0, "head" );
+        defineElement( "bdo", INLINE, "body" );
+        defineElement( "bgsound", EMPTY, "head" );
+        defineElement( "big", INLINE, "body" );
+        defineElement( "blink", INLINE, "body" );
+        defineElement( "blockquote", BLOCK, "body", "p" );
+        defineElement( "body", 0, "html", "head" );
+        defineElement( "br", EMPTY, "body" );
+        defineElement( "button", 0, "body" );
+        defineElement( "caption", INLINE, "table" );
+        defineElement( "center", 0, "body" );
+        defineElement( "cite", INLINE, "body" );
+        defineElement( "code", INLINE, "body" );
+        defineElement( "col", EMPTY, "table" );
+        defineElement( "colgroup", 0, "table", "col colgroup" );
+        defineElement( "comment", SPECIAL, "html" );
+        defineElement( "del", 0, "body" );
+        defineElement( "dfn", INLINE, "body" );
+        defineElement( "dir", 0, "body" );
+        defineElement( "div", BLOCK, "body" );
+        defineElement( "dd", 0, "dl", "dt dd" );
+        defineElement( "dl", BLOCK, "body" );
+        defineElement( "dt", 0, "dl", "dt dd" );
+        defineElement( "em", INLINE, "body" );
+        defineElement( "embed", 0, "body" );
+        defineElement( "fieldset", 0, "body" );
+        defineElement( "font", CONTAINER, "body" );
+        defineElement( "form", CONTAINER, "body td p div", "form button" );
+        defineElement( "frame", EMPTY, "frameset" );
+        defineElement( "frameset", 0, "html" );
+        defineElement( "h1", BLOCK, "body a", "h1 h2 h3 h4 h5 h6 p" );
+        defineElement( "h2", BLOCK, "body a", "h1 h2 h3 h4 h5 h6 p" );
+        defineElement( "h3", BLOCK, "body a", "h1 h2 h3 h4 h5 h6 p" );
+        defineElement( "h4", BLOCK, "body a", "h1 h2 h3 h4 h5 h6 p" );
+        defineElement( "h5", BLOCK, "body a", "h1 h2 h3 h4 h5 h6 p" );
+        defineElement( "h6", BLOCK, "body a", "h1 h2 h3 h4 h5 h6 p" );
+        defineElement( "head", 0, "html" );
+        defineElement( "hr", EMPTY, "body", "p" );
+        defineElement( "html", 0, null );
+        defineElement( "i", INLINE, "body" );
+        defineElement( "iframe", BLOCK, "body" );
+        defineElement( "ilayer", BLOCK, "body" );
+        defineElement( "img", EMPTY, "body" );
+        defineElement( "input", EMPTY, "body" );
+        defineElement( "ins", 0, "body" );
+        defineElement( "isindex", 0, "head" );
+        defineElement( "kbd", INLINE, "body" );
+        defineElement( "keygen", 0, "body" );
+        defineElement( "label", 0, "body" );
+        defineElement( "layer", BLOCK, "body" );
+        defineElement( "legend", INLINE, "fieldset" );
+        defineElement( "li", 0, "body ul ol", "li" );
+        defineElement( "link", EMPTY, "head" );
+        defineElement( "listing", 0, "body" );
+        defineElement( "map", INLINE, "body" );
+        defineElement( "marquee", 0, "body" );
+        defineElement( "menu", 0, "body" );
+        defineElement( "meta", EMPTY, "head", "style title" );
+        defineElement( "multicol", 0, "body" );
+        defineElement( "nextid", EMPTY, "body" );
+        defineElement( "nobr", INLINE, "body" );
+        defineElement( "noembed", 0, "body" );
+        defineElement( "noframes", 0, "frameset" );
+        defineElement( "nolayer", 0, "body" );
+        defineElement( "noscript", 0, "head body" );
+        defineElement( "object", 0, "body" );
+        defineElement( "ol", BLOCK, "body" );
+        defineElement( "optgroup", 0, "select", "option" );
+        defineElement( "option", 0, "select", "option" );
+        defineElement( "p", 0, "body", "p" );
+        defineElement( "param", EMPTY, "object applet" );
+        defineElement( "plaintext", SPECIAL, "body" );
+        defineElement( "pre", 0, "body" );
+        defineElement( "q", INLINE, "body" );
+        defineElement( "rb", INLINE, "ruby", "rb" );
+        defineElement( "rbc", 0, "ruby" );
+        defineElement( "rp", INLINE, "ruby", "rb" );
+        defineElement( "rt", INLINE, "ruby", "rb rp" );
+        defineElement( "rtc", 0, "ruby", "rbc" );
+        defineElement( "ruby", 0, "body", "ruby" );
+        defineElement( "s", 0, "body" );
+        defineElement( "samp", INLINE, "body" );
+        defineElement( "script", SPECIAL, "head body" );
+        defineElement( "select", 0, "body", "select" );
+        defineElement( "small", INLINE, "body" );
+        defineElement( "sound", EMPTY, "head" );
+        defineElement( "spacer", EMPTY, "body" );
+        defineElement( "span", CONTAINER, "body" );
+        defineElement( "strike", INLINE, "body" );
+        defineElement( "strong", INLINE, "body" );
+        defineElement( "style", SPECIAL, "head body", "style title meta" );
+        defineElement( "sub", INLINE, "body" );
+        defineElement( "sup", INLINE, "body" );
+        defineElement( "table", BLOCK | CONTAINER, "body" );
+        defineElement( "tbody", 0, "table", "thead td th tr colgroup" );
+        defineElement( "td", 0, "tr", "td th", "table" );
+        defineElement( "textarea", SPECIAL, "body" );
+        defineElement( "tfoot", 0, "table", "thead tbody td th tr" );
+        defineElement( "th", 0, "tr", "td th", "table" );
+        defineElement( "thead", 0, "table", "colgroup" );
+        defineElement( "title", 0, "head body" );
+        defineElement( "tr", BLOCK, "table", "td th tr colgroup" );
+        defineElement( "tt", INLINE, "body" );
+        defineElement( "u", INLINE, "body" );
+        defineElement( "ul", BLOCK, "body" );
+        defineElement( "var", INLINE, "body" );
+        defineElement( "wbr", EMPTY, "body" );
+        defineElement( "xml", 0, "body" );
+        defineElement( "xmp", SPECIAL, "body" );
+    }
+}
@@ -0,0 +1,80 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import org.xml.sax.SAXException;
+
+import java.net.URL;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * An HTML parser which needs no other libraries. It builds the same documents as the NekoHTML parser,
+ * but does not report parser warnings.
+ *
+ * @since 1.7.4
+ **/
+class NativeHTMLParser implements StreamingHTMLParser {
+
+    public void parse( URL pageURL, String pageText, DocumentAdapter adapter ) throws IOException, SAXException {
+        parse( new StringReader( pageText ), adapter );
+    }
+
+
+    public void parse( URL pageURL, InputStream pageStream, String characterSet, DocumentAdapter adapter ) throws IOException, SAXException {
+        parse( new InputStreamReader( pageStream, characterSet ), adapter );
+    }
+
+
+    private void parse( Reader reader, DocumentAdapter adapter ) throws IOException {
+        adapter.setDocument( new HTMLTreeBuilder( reader, adapter ).build() );
+    }
+
+
+    public String getCleanedText( String string ) {
+        return (string == null) ? "" : string.replace( NBSP, ' ' );
+    }
+
+
+    public boolean supportsPreserveTagCase() {
+        return false;
+    }
+
+
+    public boolean supportsForceTagCase() {
+        return false;
+    }
+
+
+    public boolean supportsReturnHTMLDocument() {
+        return true;
+    }
+
+
+    public boolean supportsParserWarnings() {
+        return false;
+    }
+
+
+    final private static char NBSP = (char) 160;   // non-breaking space, produced by the &nbsp; entity
+}
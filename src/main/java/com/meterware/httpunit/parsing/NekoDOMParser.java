@@ -25,6 +25,8 @@ import com.meterware.httpunit.dom.HTMLDocumentImpl;
 import java.net.URL;
 import java.io.IOException;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.cyberneko.html.HTMLConfiguration;
 import org.apache.xerces.xni.parser.XMLDocumentFilter;
@@ -61,8 +63,74 @@ class NekoDOMParser extends org.apache.xerces.parsers.DOMParser implements Scrip
     /** Attribute case settings. possible values: "upper", "lower", "no-change" */
     private static final String ATTRIBUTE_NAME_CASE = "http://cyberneko.org/html/properties/names/attrs";
 
+    /** The idle parsers of the current thread, keyed by the configuration with which they were built. **/
+    private static final ThreadLocal _idleParsers = new ThreadLocal() {
+        protected Object initialValue() {
+            return new HashMap();
+        }
+    };
+
     private DocumentAdapter _documentAdapter;
 
+    /** The error handler of the configuration, or null if errors are not reported. **/
+    private ErrorHandler _errorHandler;
+
+    /** The parser factory settings with which this parser was built. **/
+    private String _configurationKey;
+
+
+    /**
+     * Returns a parser for the current parser factory settings, reusing one idle in the current thread if possible.
+     * The parser must be returned by calling {@link #releaseParser} once the document has been retrieved.
+     * A parser which is not released, because parsing failed or a script parsed another page, is simply discarded.
+     * @param adapter the adapter for the document to be parsed
+     * @param url the URL of the document to be parsed
+     * @return a parser ready for use
+     */
+    static NekoDOMParser getParser( DocumentAdapter adapter, URL url ) {
+        String key = getConfigurationKey();
+        NekoDOMParser parser = (NekoDOMParser) ((Map) _idleParsers.get()).remove( key );
+        if (parser == null) {
+            parser = newParser( adapter, url );
+            parser._configurationKey = key;
+        } else {
+            parser._documentAdapter = adapter;
+            if (parser._errorHandler != null) parser._errorHandler.setURL( url );
+        }
+        return parser;
+    }
+
+
+    /**
+     * Returns a parser obtained from {@link #getParser} to the idle parsers of the current thread, releasing its
+     * references to the parsed document.
+     */
+    static void releaseParser( NekoDOMParser parser ) {
+        parser.reset();
+        parser._documentAdapter = null;
+        if (parser._errorHandler != null) parser._errorHandler.setURL( null );
+        ((Map) _idleParsers.get()).put( parser._configurationKey, parser );
+    }
+
+
+    /**
+     * Returns a key identifying the parser factory settings which determine how a parser is configured.
+     */
+    private static String getConfigurationKey() {
+        StringBuffer sb = new StringBuffer( 5 );
+        sb.append( isReportingErrors() ? 'E' : '-' );
+        sb.append( HTMLParserFactory.isPreserveTagCase() ? 'P' : '-' );
+        sb.append( HTMLParserFactory.getForceUpperCase() ? 'U' : '-' );
+        sb.append( HTMLParserFactory.getForceLowerCase() ? 'L' : '-' );
+        sb.append( HTMLParserFactory.isReturnHTMLDocument() ? 'H' : '-' );
+        return sb.toString();
+    }
+
+
+    private static boolean isReportingErrors() {
+        return !HTMLParserFactory.getHTMLParserListeners().isEmpty() || HTMLParserFactory.isParserWarningsEnabled();
+    }
+
 
     /**
      * construct a new NekoDomParser with the given adapter and url
@@ -74,8 +142,9 @@ class NekoDOMParser extends org.apache.xerces.parsers.DOMParser implements Scrip
      */
     static NekoDOMParser newParser( DocumentAdapter adapter, URL url ) {
         final HTMLConfiguration configuration = new HTMLConfiguration();
-        if (!HTMLParserFactory.getHTMLParserListeners().isEmpty() || HTMLParserFactory.isParserWarningsEnabled()) {
-            configuration.setErrorHandler( new ErrorHandler( url ) );
+        final ErrorHandler errorHandler = isReportingErrors() ? new ErrorHandler( url ) : null;
+        if (errorHandler != null) {
+            configuration.setErrorHandler( errorHandler );
             configuration.setFeature( REPORT_ERRORS, true);
         }
         configuration.setFeature( AUGMENTATIONS, true );
@@ -101,6 +170,7 @@ class NekoDOMParser extends org.apache.xerces.parsers.DOMParser implements Scrip
 
         try {
             final NekoDOMParser domParser = new NekoDOMParser( configuration, adapter );
+            domParser._errorHandler = errorHandler;
             domParser.setFeature( DEFER_NODE_EXPANSION, false );
             if (HTMLParserFactory.isReturnHTMLDocument()) domParser.setProperty( DOCUMENT_CLASS_NAME, HTMLDocumentImpl.class.getName() );
             javaScriptFilter.setScriptHandler( domParser );
@@ -180,6 +250,11 @@ class ErrorHandler implements XMLErrorHandler {
         _url = url;
     }
 
+
+    void setURL( URL url ) {
+        _url = url;
+    }
+
     public void warning( String domain, String key, XMLParseException warningException ) throws XNIException {
         if (HTMLParserFactory.isParserWarningsEnabled()) {
             System.out.println( "At line " + warningException.getLineNumber() + ", column " + warningException.getColumnNumber() + ": " + warningException.getMessage() );
@@ -26,6 +26,8 @@ import org.w3c.dom.html.HTMLDocument;
 
 import java.net.URL;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.StringReader;
 
 /**
@@ -34,7 +36,7 @@ import java.io.StringReader;
  * @author <a href="mailto:bw@xmlizer.biz">Bernhard Wagner</a>
  * @author <a href="mailto:Artashes.Aghajanyan@lycos-europe.com">Artashes Aghajanyan</a>
  **/
-class NekoHTMLParser implements HTMLParser {
+class NekoHTMLParser implements StreamingHTMLParser {
 
 	/**
 	 * parse the given URL with the given pageText using the given document adapter
@@ -43,10 +45,24 @@ class NekoHTMLParser implements HTMLParser {
 	 * @param adapter
 	 */
   public void parse( URL pageURL, String pageText, DocumentAdapter adapter ) throws IOException, SAXException {
+      parse( pageURL, new InputSource( new StringReader( pageText ) ), adapter );
+  }
+
+
+    /**
+     * parse the page read from the given stream, decoding it with the given character set as it is read
+     */
+    public void parse( URL pageURL, InputStream pageStream, String characterSet, DocumentAdapter adapter ) throws IOException, SAXException {
+        parse( pageURL, new InputSource( new InputStreamReader( pageStream, characterSet ) ), adapter );
+    }
+
+
+    private void parse( URL pageURL, InputSource source, DocumentAdapter adapter ) throws IOException, SAXException {
       try {
-          NekoDOMParser parser = NekoDOMParser.newParser( adapter, pageURL );
-          parser.parse( new InputSource( new StringReader( pageText ) ) );
+          NekoDOMParser parser = NekoDOMParser.getParser( adapter, pageURL );
+          parser.parse( source );
           Document doc=parser.getDocument();
+          NekoDOMParser.releaseParser( parser );
          	adapter.setDocument( (HTMLDocument)doc );
       } catch (NekoDOMParser.ScriptException e) {
            throw e.getException();
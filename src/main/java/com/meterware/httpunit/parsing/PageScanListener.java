@@ -0,0 +1,72 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+/**
+ * A listener for the contents found by a {@link PageScanner}. Each method is invoked as soon as the corresponding
+ * part of the page has been read. Attribute values are reported as written in the page, with character references
+ * replaced; relative URLs are not resolved.
+ *
+ * @since 1.7.4
+ **/
+public interface PageScanListener {
+
+    /**
+     * Invoked when the title of the page has been read.
+     */
+    public void titleFound( String title );
+
+
+    /**
+     * Invoked for a base element, which specifies the URL against which relative links are to be resolved
+     * and the default target for links and forms. Either value may be null.
+     */
+    public void baseFound( String href, String target );
+
+
+    /**
+     * Invoked for each link or image map area with an href attribute, once its text has been read.
+     * @param href the URL of the link
+     * @param target the target of the link, or null if none is specified
+     * @param text the text of the link, with whitespace collapsed; empty for an image map area
+     */
+    public void linkFound( String href, String target, String text );
+
+
+    /**
+     * Invoked at the start of each form. Any of the values may be null.
+     */
+    public void formStarted( String name, String action, String method );
+
+
+    /**
+     * Invoked for each named control within the current form.
+     * @param name the name of the control
+     * @param type the type of an input or button element, in lower case, or the element name for select and textarea
+     * @param value the value attribute of an input or button element, or null if there is none
+     */
+    public void formControlFound( String name, String type, String value );
+
+
+    /**
+     * Invoked at the end of each form.
+     */
+    public void formEnded();
+}
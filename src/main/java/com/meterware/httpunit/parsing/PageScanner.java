@@ -0,0 +1,187 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.IOException;
+import java.io.Reader;
+
+
+/**
+ * Reads the title, links and forms of a page as it is read, without building a document. Only the contents of the
+ * current tag and a bounded amount of text are held at any time, so the memory needed does not depend on the size of
+ * the page. Scripts are not run, so any links or forms they would write are not found.
+ *
+ * @since 1.7.4
+ **/
+public class PageScanner {
+
+    /** The maximum length of the title or the text of a link which is reported. **/
+    public final static int TEXT_LIMIT = 1024;
+
+    private final static char NBSP = (char) 160;   // non-breaking space, produced by the &nbsp; entity
+
+    private final HTMLTokenizer _tokenizer;
+
+    private PageScanListener _listener;
+
+    /** The text of the title being read, or null if the title is not being read. **/
+    private StringBuffer _title;
+    private boolean _titleFound;
+
+    /** The text of the link being read, or null if not within a link. **/
+    private StringBuffer _linkText;
+    private String _linkHref;
+    private String _linkTarget;
+
+    private boolean _inForm;
+
+
+    /**
+     * Creates a scanner which will read the page from the specified reader.
+     */
+    public PageScanner( Reader reader ) {
+        _tokenizer = new HTMLTokenizer( reader );
+        _tokenizer.setTextLimit( TEXT_LIMIT );
+    }
+
+
+    /**
+     * Reads the page, reporting its contents to the specified listener.
+     */
+    public void scan( PageScanListener listener ) throws IOException {
+        _listener = listener;
+        for (int token = _tokenizer.nextToken(); token != HTMLTokenizer.EOF; token = _tokenizer.nextToken()) {
+            if (token == HTMLTokenizer.TEXT) {
+                if (_title != null || _linkText != null) appendText( _tokenizer.getText() );
+            } else if (token == HTMLTokenizer.START_TAG) {
+                startTag( _tokenizer.getName() );
+            } else if (token == HTMLTokenizer.END_TAG) {
+                endTag( _tokenizer.getName() );
+            }
+        }
+        endTitle();
+        endLink();
+        endForm();
+    }
+
+
+    private void appendText( String text ) {
+        if (_title != null) append( _title, text );
+        if (_linkText != null) append( _linkText, text );
+    }
+
+
+    private void startTag( String name ) {
+        endTitle();
+        if (name.equals( "title" )) {
+            if (!_titleFound) _title = new StringBuffer();
+        } else if (name.equals( "base" )) {
+            _listener.baseFound( _tokenizer.getAttribute( "href" ), _tokenizer.getAttribute( "target" ) );
+        } else if (name.equals( "a" )) {
+            endLink();
+            if (_tokenizer.getAttribute( "href" ) != null) startLink();
+        } else if (name.equals( "area" )) {
+            String href = _tokenizer.getAttribute( "href" );
+            if (href != null) _listener.linkFound( href, _tokenizer.getAttribute( "target" ), "" );
+        } else if (name.equals( "form" )) {
+            endForm();
+            _inForm = true;
+            _listener.formStarted( _tokenizer.getAttribute( "name" ), _tokenizer.getAttribute( "action" ),
+                                   _tokenizer.getAttribute( "method" ) );
+        } else if (_inForm) {
+            formControl( name );
+        }
+    }
+
+
+    private void endTag( String name ) {
+        if (name.equals( "title" )) {
+            endTitle();
+        } else if (name.equals( "a" )) {
+            endLink();
+        } else if (name.equals( "form" )) {
+            endForm();
+        }
+    }
+
+
+    private void formControl( String name ) {
+        String controlName = _tokenizer.getAttribute( "name" );
+        if (controlName == null) return;
+
+        if (name.equals( "input" )) {
+            _listener.formControlFound( controlName, getType( "text" ), _tokenizer.getAttribute( "value" ) );
+        } else if (name.equals( "button" )) {
+            _listener.formControlFound( controlName, getType( "submit" ), _tokenizer.getAttribute( "value" ) );
+        } else if (name.equals( "select" ) || name.equals( "textarea" )) {
+            _listener.formControlFound( controlName, name, null );
+        }
+    }
+
+
+    private String getType( String defaultType ) {
+        String type = _tokenizer.getAttribute( "type" );
+        return type == null ? defaultType : type.toLowerCase();
+    }
+
+
+    private void startLink() {
+        _linkHref = _tokenizer.getAttribute( "href" );
+        _linkTarget = _tokenizer.getAttribute( "target" );
+        _linkText = new StringBuffer();
+    }
+
+
+    private void endLink() {
+        if (_linkText == null) return;
+        _listener.linkFound( _linkHref, _linkTarget, _linkText.toString().trim() );
+        _linkText = null;
+    }
+
+
+    private void endTitle() {
+        if (_title == null) return;
+        _listener.titleFound( _title.toString().trim() );
+        _title = null;
+        _titleFound = true;
+    }
+
+
+    private void endForm() {
+        if (!_inForm) return;
+        _listener.formEnded();
+        _inForm = false;
+    }
+
+
+    /**
+     * Appends text to the specified buffer, collapsing each run of whitespace to a single space, up to the limit.
+     */
+    private static void append( StringBuffer sb, String text ) {
+        for (int i = 0; i < text.length() && sb.length() < TEXT_LIMIT; i++) {
+            char c = text.charAt( i );
+            if (!Character.isWhitespace( c ) && c != NBSP) {
+                sb.append( c );
+            } else if (sb.length() > 0 && sb.charAt( sb.length() - 1 ) != ' ') {
+                sb.append( ' ' );
+            }
+        }
+    }
+}
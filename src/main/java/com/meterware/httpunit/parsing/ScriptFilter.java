@@ -20,7 +20,6 @@ package com.meterware.httpunit.parsing;
  *
  *******************************************************************************************************************/
 
-import com.meterware.httpunit.HttpUnitOptions;
 import org.apache.xerces.xni.*;
 import org.apache.xerces.xni.parser.XMLInputSource;
 import org.cyberneko.html.HTMLConfiguration;
@@ -93,7 +92,7 @@ class ScriptFilter extends DefaultFilter {
     private boolean isSupportedScript( QName element, XMLAttributes attrs ) {
         if (!element.rawname.equalsIgnoreCase( "script" ) || attrs == null) return false;
         String value = getScriptLanguage( attrs );
-        return HttpUnitOptions.isScriptingEnabled() && _scriptHandler.supportsScriptLanguage( value );
+        return _scriptHandler.supportsScriptLanguage( value );
     }
 
 
@@ -0,0 +1,46 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+
+/**
+ * An HTML parser which can read a page directly from its bytes, decoding them as it goes, rather than requiring
+ * the entire page as a string.
+ *
+ * @since 1.7.4
+ **/
+public interface StreamingHTMLParser extends HTMLParser {
+
+    /**
+     * Parses the bytes read from the specified stream as a Document, registering it in the HTMLPage.
+     * Any error reporting will be annotated with the specified URL.
+     * @param baseURL the URL of the page
+     * @param pageStream the bytes of the page. The stream is not closed by this method.
+     * @param characterSet the character set in which the bytes are encoded
+     * @param adapter the adapter which receives the document
+     */
+    public void parse( URL baseURL, InputStream pageStream, String characterSet, DocumentAdapter adapter ) throws IOException, SAXException;
+}
@@ -68,4 +68,41 @@ public class MessageBody {
      **/
     abstract
     public void writeTo( OutputStream outputStream, ParameterCollection parameters ) throws IOException;
+
+
+    /**
+     * Returns the number of bytes which {@link #writeTo} will write, or -1 if this cannot be determined in advance.
+     * @since 1.7.4
+     **/
+    public long getContentLength( ParameterCollection parameters ) throws IOException {
+        return -1;
+    }
+
+
+//================================ class ByteCounter ==============================================
+
+
+    /**
+     * An output stream which discards its contents, counting the bytes written to it.
+     **/
+    static class ByteCounter extends OutputStream {
+
+        private long _count;
+
+        public void write( int b ) {
+            _count++;
+        }
+
+        public void write( byte[] bytes, int offset, int length ) {
+            _count += length;
+        }
+
+        void skip( long count ) {
+            _count += count;
+        }
+
+        long getCount() {
+            return _count;
+        }
+    }
 }
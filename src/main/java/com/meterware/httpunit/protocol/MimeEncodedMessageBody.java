@@ -23,12 +23,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+
 /**
  * A POST-method message body which is MIME-encoded. This is used when uploading files, and is selected when the enctype
  * parameter of a form is set to "multi-part/form-data".
  **/
 class MimeEncodedMessageBody extends MessageBody {
 
+    private final static String BOUNDARY = "--HttpUnit-part0-aSgQ2M";
+    private final static String CRLF     = "\r\n";
+
+    /** The fixed portions of each part, encoded in the character set of this body when first needed. **/
+    private Templates _templates;
+
 
     MimeEncodedMessageBody( String characterSet ) {
         super( characterSet );
@@ -53,8 +60,23 @@ class MimeEncodedMessageBody extends MessageBody {
     }
 
 
-    private final static String BOUNDARY = "--HttpUnit-part0-aSgQ2M";
-    private final static byte[] CRLF     = { 0x0d, 0x0A };
+    /**
+     * Returns the number of bytes in the encoded body, or -1 if it includes a file whose length is not known.
+     * The uploaded files are not read.
+     **/
+    public long getContentLength( ParameterCollection parameters ) throws IOException {
+        ByteCounter counter = new ByteCounter();
+        MimeEncoding encoding = new MimeEncoding( counter );
+        parameters.recordParameters( encoding );
+        encoding.sendClose();
+        return encoding.isLengthKnown() ? counter.getCount() : -1;
+    }
+
+
+    private synchronized Templates getTemplates() throws IOException {
+        if (_templates == null) _templates = new Templates( getCharacterSet() );
+        return _templates;
+    }
 
 
     private String encode( String string ) {
@@ -71,26 +93,63 @@ class MimeEncodedMessageBody extends MessageBody {
     }
 
 
-    private void writeLn( OutputStream os, String value, String encoding ) throws IOException {
-        os.write( value.getBytes( encoding ) );
-        os.write( CRLF );
+    /**
+     * The byte sequences which surround the names and values in each part.
+     */
+    private static class Templates {
+
+        final byte[] _partStart;
+        final byte[] _close;
+        final byte[] _nameStart;
+        final byte[] _fileNameStart;
+        final byte[] _textHeadersEnd;
+        final byte[] _contentTypeStart;
+        final byte[] _headersEnd;
+        final byte[] _crlf;
+
+        Templates( String characterSet ) throws IOException {
+            _partStart        = ("--" + BOUNDARY + CRLF).getBytes( characterSet );
+            _close            = ("--" + BOUNDARY + "--" + CRLF).getBytes( characterSet );
+            _nameStart        = "Content-Disposition: form-data; name=\"".getBytes( characterSet );
+            _fileNameStart    = "\"; filename=\"".getBytes( characterSet );
+            _textHeadersEnd   = ("\"" + CRLF + "Content-Type: text/plain; charset=" + characterSet + CRLF + CRLF).getBytes( characterSet );
+            _contentTypeStart = ("\"" + CRLF + "Content-Type: ").getBytes( characterSet );
+            _headersEnd       = (CRLF + CRLF).getBytes( characterSet );
+            _crlf             = CRLF.getBytes( characterSet );
+        }
     }
 
 
-    private void writeLn( OutputStream os, String value ) throws IOException {
-        writeLn( os, value, getCharacterSet() );
-    }
+    /**
+     * Writes the parts of the body through a single buffer, which is also used to copy the contents of uploaded files.
+     */
+    class MimeEncoding implements ParameterProcessor {
 
+        private final OutputStream _outputStream;
 
-    class MimeEncoding implements ParameterProcessor {
+        private final Templates _templates;
+
+        private final byte[] _buffer = new byte[ 8 * 1024 ];
+
+        private int _count;
+
+        private boolean _lengthKnown = true;
 
-        public MimeEncoding( OutputStream outputStream ) {
+
+        public MimeEncoding( OutputStream outputStream ) throws IOException {
             _outputStream = outputStream;
+            _templates = getTemplates();
         }
 
 
         public void sendClose() throws IOException {
-            writeLn( _outputStream, "--" + BOUNDARY + "--" );
+            write( _templates._close );
+            flushBuffer();
+        }
+
+
+        boolean isLengthKnown() {
+            return _lengthKnown;
         }
 
 
@@ -103,11 +162,12 @@ class MimeEncodedMessageBody extends MessageBody {
         public void addParameter( String name, String value, String characterSet ) throws IOException {
             if (name == null || name.length() == 0) return;
             if (value == null) return;
-            writeLn( _outputStream, "--" + BOUNDARY );
-            writeLn( _outputStream, "Content-Disposition: form-data; name=\"" + name + '"' );  // XXX need to handle non-ascii names here
-            writeLn( _outputStream, "Content-Type: text/plain; charset=" + getCharacterSet() );
-            writeLn( _outputStream, "" );
-            writeLn( _outputStream, fixLineEndings( value ), getCharacterSet() );
+            write( _templates._partStart );
+            write( _templates._nameStart );
+            write( name.getBytes( getCharacterSet() ) );  // XXX need to handle non-ascii names here
+            write( _templates._textHeadersEnd );
+            write( fixLineEndings( value ).getBytes( getCharacterSet() ) );
+            write( _templates._crlf );
         }
 
 
@@ -115,6 +175,7 @@ class MimeEncodedMessageBody extends MessageBody {
         private final static char LF = 0x0A;
 
         private String fixLineEndings( String value ) {
+            if (value.indexOf( LF ) < 0 && value.indexOf( CR ) < 0) return value;
             StringBuffer sb = new StringBuffer();
             char[] chars = value.toCharArray();
             for (int i = 0; i < chars.length; i++) {
@@ -129,26 +190,61 @@ class MimeEncodedMessageBody extends MessageBody {
 
 
         public void addFile( String name, UploadFileSpec spec ) throws IOException {
-            byte[] buffer = new byte[ 8 * 1024 ];
-
-            writeLn( _outputStream, "--" + BOUNDARY );
-            writeLn( _outputStream, "Content-Disposition: form-data; name=\"" + encode( name ) + "\"; filename=\"" + encode( spec.getFileName() ) + '"' );   // XXX need to handle non-ascii names here
-            writeLn( _outputStream, "Content-Type: " + spec.getContentType() );
-            writeLn( _outputStream, "" );
-
-            InputStream in = spec.getInputStream();
-            int count = 0;
-            do {
-                _outputStream.write( buffer, 0, count );
-                count = in.read( buffer, 0, buffer.length );
-            } while (count != -1);
-
-            in.close();
-            writeLn( _outputStream, "" );
+            write( _templates._partStart );
+            write( _templates._nameStart );
+            write( encode( name ).getBytes( getCharacterSet() ) );  // XXX need to handle non-ascii names here
+            write( _templates._fileNameStart );
+            write( encode( spec.getFileName() ).getBytes( getCharacterSet() ) );
+            write( _templates._contentTypeStart );
+            write( spec.getContentType().getBytes( getCharacterSet() ) );
+            write( _templates._headersEnd );
+
+            if (_outputStream instanceof ByteCounter) {
+                long length = spec.getLength();
+                if (length < 0) _lengthKnown = false;
+                flushBuffer();
+                ((ByteCounter) _outputStream).skip( Math.max( 0, length ) );
+            } else {
+                InputStream in = spec.getInputStream();
+                try {
+                    copyContents( in );
+                } finally {
+                    in.close();
+                }
+            }
+            write( _templates._crlf );
         }
 
-        private OutputStream _outputStream;
+
+        /**
+         * Copies the contents of an uploaded file, reading them directly into the buffer.
+         */
+        private void copyContents( InputStream in ) throws IOException {
+            flushBuffer();
+            for (int count = in.read( _buffer ); count != -1; count = in.read( _buffer )) {
+                _outputStream.write( _buffer, 0, count );
+            }
+        }
+
+
+        private void write( byte[] bytes ) throws IOException {
+            if (bytes.length > _buffer.length - _count) {
+                flushBuffer();
+                if (bytes.length > _buffer.length) {
+                    _outputStream.write( bytes );
+                    return;
+                }
+            }
+            System.arraycopy( bytes, 0, _buffer, _count, bytes.length );
+            _count += bytes.length;
+        }
+
+
+        private void flushBuffer() throws IOException {
+            if (_count == 0) return;
+            _outputStream.write( _buffer, 0, _count );
+            _count = 0;
+        }
     }
 
 }
-
@@ -53,6 +53,14 @@ class URLEncodedMessageBody extends MessageBody {
     }
 
 
+    /**
+     * Returns the number of bytes in the encoded parameters.
+     **/
+    public long getContentLength( ParameterCollection parameters ) throws IOException {
+        return getParameterString( parameters ).getBytes().length;
+    }
+
+
     private String getParameterString( ParameterCollection parameters ) {
         try {
             URLEncodedString encoder = new URLEncodedString();
@@ -78,6 +78,15 @@ public class UploadFileSpec {
     }
 
 
+    /**
+     * Returns the number of bytes to be uploaded, or -1 if the contents are to be read from an input stream.
+     * @since 1.7.4
+     */
+    public long getLength() {
+        return _file == null ? -1 : _file.length();
+    }
+
+
     public String getFileName() {
         if (_fileName == null) {
             _fileName = _file.getAbsolutePath();
@@ -0,0 +1,142 @@
+package com.meterware.pseudoserver;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2000-2003, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+
+import java.net.HttpURLConnection;
+
+import java.util.Enumeration;
+import java.util.Vector;
+
+
+class HttpResponseStream {
+
+    final private static String CRLF = "\r\n";
+
+    void restart() {
+        _headersWritten = false;
+        _headers.clear();
+        _responseCode = HttpURLConnection.HTTP_OK;
+        _responseText = "OK";
+    }
+
+
+    void close() throws IOException {
+        flushHeaders();
+        _pw.close();
+    }
+
+
+    HttpResponseStream( OutputStream stream ) {
+        _stream = stream;
+        try {
+            setCharacterSet( "us-ascii" );
+        } catch (UnsupportedEncodingException e) {
+            _pw = new PrintWriter( new OutputStreamWriter( _stream ) );
+        }
+    }
+
+
+    void setProtocol( String protocol ) {
+        _protocol = protocol;
+    }
+
+
+    /**
+     * set the response to the given response Code
+     * @param responseCode
+     * @param responseText
+     */
+    void setResponse( int responseCode, String responseText ) {
+        _responseCode = responseCode;
+        _responseText = responseText;
+    }
+
+
+    void addHeader( String header ) {
+        _headers.addElement( header );
+    }
+
+
+    void write( String contents, String charset ) throws IOException {
+        flushHeaders();
+        setCharacterSet( charset );
+        sendText( contents );
+    }
+
+
+    void write( WebResource resource ) throws IOException {
+        flushHeaders();
+        if (resource != null) resource.writeTo( _stream );
+        _stream.flush();
+    }
+
+
+    private void setCharacterSet( String characterSet ) throws UnsupportedEncodingException {
+        if (_pw != null) _pw.flush();
+        _pw = new PrintWriter( new OutputStreamWriter( _stream, characterSet ) );
+    }
+
+
+    private void flushHeaders() {
+        if (!_headersWritten) {
+            sendResponse( _responseCode, _responseText );
+            for (Enumeration e = _headers.elements(); e.hasMoreElements();) {
+                sendLine( (String) e.nextElement() );
+            }
+            sendText( CRLF );
+            _headersWritten = true;
+            _pw.flush();
+        }
+    }
+
+
+    private void sendResponse( int responseCode, String responseText ) {
+        sendLine( _protocol + ' ' + responseCode + ' ' + responseText );
+    }
+
+
+    private void sendLine( String text ) {
+        sendText( text );
+        sendText( CRLF );
+    }
+
+
+    private void sendText( String text ) {
+        _pw.write( text );
+    }
+
+
+    private OutputStream _stream;
+    private PrintWriter _pw;
+
+    private Vector    _headers = new Vector();
+    private String    _protocol = "HTTP/1.0";
+    private int       _responseCode = HttpURLConnection.HTTP_OK;
+    private String    _responseText = "OK";
+
+    private boolean   _headersWritten;
+
+}
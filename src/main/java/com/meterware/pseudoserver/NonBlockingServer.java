@@ -0,0 +1,444 @@
+package com.meterware.pseudoserver;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import java.io.*;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.meterware.httpunit.HttpUnitUtils;
+
+/**
+ * The connection handling for a pseudo server which uses a single selector thread for all of its connections.
+ * The selector thread accepts connections and reads until it holds a complete request, which it then passes to
+ * a fixed pool of worker threads. The response is written back by the selector thread, so no thread waits on an
+ * idle keep-alive connection.
+ **/
+class NonBlockingServer {
+
+    /** Time in msec between checks for shutdown and for connections which have stopped sending. **/
+    private static final int SELECT_INTERVAL = 100;
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private PseudoServer _server;
+
+    private int _socketTimeout;
+
+    private ServerSocketChannel _serverChannel;
+
+    private Selector _selector;
+
+    private ExecutorService _workers;
+
+    /** Connections whose responses have been prepared by a worker, but not yet handed back to the selector. **/
+    private List _completed = new ArrayList(); // List<Connection>
+
+
+    NonBlockingServer( PseudoServer server, int socketTimeout, int numWorkerThreads, final String name ) throws IOException {
+        _server = server;
+        _socketTimeout = socketTimeout;
+        _serverChannel = ServerSocketChannel.open();
+        _serverChannel.socket().bind( new InetSocketAddress( 0 ) );
+        _serverChannel.configureBlocking( false );
+        _selector = Selector.open();
+        _serverChannel.register( _selector, SelectionKey.OP_ACCEPT );
+        _workers = Executors.newFixedThreadPool( numWorkerThreads, new ThreadFactory() {
+            private int _numThreads;
+            public synchronized Thread newThread( Runnable runnable ) {
+                Thread thread = new Thread( runnable, name + " worker " + (++_numThreads) );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        Thread t = new Thread( name ) {
+            public void run() {
+                serveConnections();
+            }
+        };
+        t.start();
+    }
+
+
+    ServerSocket getServerSocket() {
+        return _serverChannel.socket();
+    }
+
+
+    /**
+     * Wakes the selector thread so that it notices a shutdown request at once.
+     */
+    void wakeUp() {
+        _selector.wakeup();
+    }
+
+
+    private void serveConnections() {
+        try {
+            while (_server.isActive()) {
+                _selector.select( SELECT_INTERVAL );
+                for (Iterator i = _selector.selectedKeys().iterator(); i.hasNext();) {
+                    SelectionKey key = (SelectionKey) i.next();
+                    i.remove();
+                    if (key.isValid()) handleSelectedKey( key );
+                }
+                startCompletedResponses();
+                expireStalledRequests();
+            }
+        } catch (IOException e) {
+            System.out.println( "Error in pseudo server: " + e );
+            HttpUnitUtils.handleException( e );
+        } finally {
+            closeAll();
+        }
+    }
+
+
+    private void handleSelectedKey( SelectionKey key ) {
+        if (key.isAcceptable()) {
+            try {
+                acceptConnection();
+            } catch (IOException e) {
+                System.out.println( "Error in pseudo server: " + e );
+                HttpUnitUtils.handleException( e );
+            }
+            return;
+        }
+
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) connection.readInput();
+            if (key.isValid() && key.isWritable()) connection.writeOutput();
+        } catch (IOException e) {
+            connection.close();
+        }
+    }
+
+
+    private void acceptConnection() throws IOException {
+        SocketChannel channel = _serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking( false );
+        channel.socket().setTcpNoDelay( true );
+        Connection connection = new Connection( channel );
+        connection._key = channel.register( _selector, SelectionKey.OP_READ, connection );
+    }
+
+
+    private void startCompletedResponses() {
+        Connection[] connections;
+        synchronized (_completed) {
+            connections = (Connection[]) _completed.toArray( new Connection[ _completed.size() ] );
+            _completed.clear();
+        }
+        for (int i = 0; i < connections.length; i++) connections[i].startOutput();
+    }
+
+
+    /**
+     * Answers with a bad request any connection which sent part of a request and then nothing more for the socket
+     * timeout, as the thread-per-connection server does when its read times out.
+     */
+    private void expireStalledRequests() {
+        long now = System.currentTimeMillis();
+        for (Iterator i = _selector.keys().iterator(); i.hasNext();) {
+            Object attachment = ((SelectionKey) i.next()).attachment();
+            if (attachment instanceof Connection) ((Connection) attachment).expireIfStalled( now );
+        }
+    }
+
+
+    private void closeAll() {
+        for (Iterator i = _selector.keys().iterator(); i.hasNext();) {
+            SelectionKey key = (SelectionKey) i.next();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                System.out.println( "Error while closing socket: " + e );
+            }
+        }
+        try {
+            _selector.close();
+        } catch (IOException e) {
+            System.out.println( "Error while closing selector: " + e );
+        }
+        _workers.shutdown();
+    }
+
+
+    /**
+     * Returns the length of the first complete request in the specified buffer, or -1 if the buffer does not yet
+     * hold a complete request.
+     */
+    static int getRequestLength( byte[] buffer, int length ) {
+        int headerEnd = indexOfLineEnd( buffer, 0, length, true );
+        if (headerEnd < 0) return -1;
+
+        int bodyStart = headerEnd + 4;
+        String headers = toString( buffer, 0, headerEnd ).toLowerCase();
+        if ("chunked".equalsIgnoreCase( getHeader( headers, "transfer-encoding" ) )) {
+            return getChunkedRequestLength( buffer, bodyStart, length );
+        }
+
+        int contentLength = 0;
+        try {
+            String header = getHeader( headers, "content-length" );
+            if (header != null) contentLength = Integer.parseInt( header );
+        } catch (NumberFormatException e) {
+            // treated as having no body, just as the request parser does
+        }
+        return bodyStart + contentLength <= length ? bodyStart + contentLength : -1;
+    }
+
+
+    private static int getChunkedRequestLength( byte[] buffer, int position, int length ) {
+        while (true) {
+            int lineEnd = indexOfLineEnd( buffer, position, length, false );
+            if (lineEnd < 0) return -1;
+            int chunkLength;
+            try {
+                String line = toString( buffer, position, lineEnd );
+                if (line.indexOf( ';' ) >= 0) line = line.substring( 0, line.indexOf( ';' ) );
+                chunkLength = Integer.parseInt( line.trim(), 16 );
+            } catch (NumberFormatException e) {
+                return lineEnd + 2;   // let the request parser report the error
+            }
+            position = lineEnd + 2;
+            if (chunkLength == 0) break;
+            position += chunkLength + 2;
+            if (position > length) return -1;
+        }
+
+        while (true) {
+            int lineEnd = indexOfLineEnd( buffer, position, length, false );
+            if (lineEnd < 0) return -1;
+            if (lineEnd == position) return position + 2;
+            position = lineEnd + 2;
+        }
+    }
+
+
+    /**
+     * Returns the index of the first CR LF (or, if <code>blankLine</code> is true, CR LF CR LF) at or after the
+     * specified start, or -1 if there is none.
+     */
+    private static int indexOfLineEnd( byte[] buffer, int start, int length, boolean blankLine ) {
+        int terminatorLength = blankLine ? 4 : 2;
+        for (int i = start; i + terminatorLength <= length; i++) {
+            if (buffer[i] == '\r' && buffer[i+1] == '\n' && (!blankLine || (buffer[i+2] == '\r' && buffer[i+3] == '\n'))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private static String getHeader( String headers, String name ) {
+        int start = headers.indexOf( "\r\n" + name + ":" );
+        if (start < 0) return null;
+        start += name.length() + 3;
+        int end = headers.indexOf( "\r\n", start );
+        return (end < 0 ? headers.substring( start ) : headers.substring( start, end )).trim();
+    }
+
+
+    private static String toString( byte[] buffer, int start, int end ) {
+        try {
+            return new String( buffer, start, end - start, "ISO-8859-1" );
+        } catch (UnsupportedEncodingException e) {
+            return new String( buffer, start, end - start );
+        }
+    }
+
+
+    /**
+     * A single client connection. Except where noted, its fields are touched only by the selector thread.
+     */
+    private class Connection {
+
+        private SocketChannel _channel;
+
+        private SelectionKey _key;
+
+        private byte[] _input = new byte[ INITIAL_BUFFER_SIZE ];
+
+        private int _inputLength;
+
+        private long _lastInputTime;
+
+        private boolean _inputClosed;
+
+        /** True while a worker is handling a request from this connection. **/
+        private boolean _busy;
+
+        /** The response prepared by a worker; guarded by the list of completed connections. **/
+        private byte[] _response;
+
+        private boolean _keepAlive = true;
+
+        private ByteBuffer _output;
+
+
+        Connection( SocketChannel channel ) {
+            _channel = channel;
+        }
+
+
+        void readInput() throws IOException {
+            if (_inputLength == _input.length) {
+                byte[] larger = new byte[ 2 * _input.length ];
+                System.arraycopy( _input, 0, larger, 0, _inputLength );
+                _input = larger;
+            }
+            int count = _channel.read( ByteBuffer.wrap( _input, _inputLength, _input.length - _inputLength ) );
+            if (count < 0) {
+                _inputClosed = true;
+                if (!_busy && _output == null) close();
+                else updateInterest();
+            } else if (count > 0) {
+                _inputLength += count;
+                _lastInputTime = System.currentTimeMillis();
+                dispatchRequest();
+            }
+        }
+
+
+        void writeOutput() throws IOException {
+            _channel.write( _output );
+            if (_output.hasRemaining()) return;
+
+            _output = null;
+            if (!_keepAlive || _inputClosed) {
+                close();
+            } else {
+                updateInterest();
+                dispatchRequest();
+            }
+        }
+
+
+        private void dispatchRequest() {
+            if (_busy || _output != null || !_keepAlive) return;
+            int requestLength = getRequestLength( _input, _inputLength );
+            if (requestLength < 0) return;
+
+            final byte[] request = new byte[ requestLength ];
+            System.arraycopy( _input, 0, request, 0, requestLength );
+            System.arraycopy( _input, requestLength, _input, 0, _inputLength - requestLength );
+            _inputLength -= requestLength;
+            _busy = true;
+            updateInterest();
+            _workers.execute( new Runnable() {
+                public void run() {
+                    respond( request );
+                }
+            } );
+        }
+
+
+        /**
+         * Runs on a worker thread to prepare the response to a single request.
+         */
+        private void respond( byte[] requestBytes ) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            HttpResponseStream response = new HttpResponseStream( baos );
+            boolean keepAlive = false;
+            try {
+                keepAlive = _server.respondToRequest( new HttpRequest( new ByteArrayInputStream( requestBytes ) ), response );
+            } catch (IOException e) {
+                PseudoServer.setBadRequest( response, e );
+            } catch (RuntimeException e) {
+                PseudoServer.setBadRequest( response, e );
+            }
+            try {
+                response.close();
+            } catch (IOException e) {
+                // cannot happen when writing to memory
+            }
+            synchronized (_completed) {
+                _response = baos.toByteArray();
+                _keepAlive = keepAlive;
+                _completed.add( this );
+            }
+            _selector.wakeup();
+        }
+
+
+        void startOutput() {
+            _busy = false;
+            _output = ByteBuffer.wrap( _response );
+            _response = null;
+            updateInterest();
+        }
+
+
+        void expireIfStalled( long now ) {
+            if (_busy || _output != null || _inputLength == 0 || now - _lastInputTime < _socketTimeout) return;
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            HttpResponseStream response = new HttpResponseStream( baos );
+            PseudoServer.setBadRequest( response, new SocketTimeoutException( "Read timed out" ) );
+            try {
+                response.close();
+            } catch (IOException e) {
+                // cannot happen when writing to memory
+            }
+            _inputLength = 0;
+            _keepAlive = false;
+            _output = ByteBuffer.wrap( baos.toByteArray() );
+            updateInterest();
+        }
+
+
+        private void updateInterest() {
+            if (!_key.isValid()) return;
+            int ops = 0;
+            if (!_inputClosed) ops |= SelectionKey.OP_READ;
+            if (_output != null) ops |= SelectionKey.OP_WRITE;
+            _key.interestOps( ops );
+        }
+
+
+        void close() {
+            _key.cancel();
+            try {
+                _channel.close();
+            } catch (IOException e) {
+                System.out.println( "Error while closing socket: " + e );
+            }
+        }
+    }
+}
@@ -112,8 +112,35 @@ public class PseudoServer {
      */
     public PseudoServer( int socketTimeout ) {
         _socketTimeout = socketTimeout;
-        _serverNum = ++_numServers;
+        _serverNum = nextServerNumber();
+        startThreadPerConnectionServer();
+    }
+
+
+    /**
+     * create a PseudoServer which serves all of its connections from a single selector thread, handing complete
+     * requests to a fixed pool of worker threads. No thread is tied up by an idle keep-alive connection, so
+     * the server can handle many more concurrent connections than it has threads.
+     * @param socketTimeout - the time to wait for the rest of a partially received request
+     * @param numWorkerThreads - the number of threads which handle requests
+     */
+    public PseudoServer( int socketTimeout, int numWorkerThreads ) {
+        if (numWorkerThreads <= 0) throw new IllegalArgumentException( "At least one worker thread is required" );
+        _socketTimeout = socketTimeout;
+        _serverNum = nextServerNumber();
+
+        try {
+            _nonBlockingServer = new NonBlockingServer( this, socketTimeout, numWorkerThreads, "PseudoServer " + _serverNum );
+            _serverSocket = _nonBlockingServer.getServerSocket();
+        } catch( IOException e ) {
+            System.out.println("Error while creating socket: " + e);
+            throw new RuntimeException(e);
+        }
+        debug( "Starting non-blocking pseudoserver" );
+    }
 
+
+    private void startThreadPerConnectionServer() {
         try {
             _serverSocket = new ServerSocket(0);
             _serverSocket.setSoTimeout(1000);
@@ -152,6 +179,12 @@ public class PseudoServer {
     public void shutDown() {
         debug( "Requested shutdown of pseudoserver" );
         _active = false;
+        if (_nonBlockingServer != null) _nonBlockingServer.wakeUp();
+    }
+
+
+    boolean isActive() {
+        return _active;
     }
 
 
@@ -163,6 +196,11 @@ public class PseudoServer {
     }
 
 
+    private static synchronized int nextServerNumber() {
+        return ++_numServers;
+    }
+
+
     private static String replaceDebugToken( String message, String token, String replacement ) {
         return !message.contains(token) ? message : message.replaceFirst( token, replacement );
     }
@@ -345,9 +383,7 @@ public class PseudoServer {
                 }
             }
         } catch (IOException e) {
-            outputStream.restart();
-            outputStream.setProtocol( "HTTP/1.0" );
-            outputStream.setResponse( HttpURLConnection.HTTP_BAD_REQUEST, e.toString() );
+            setBadRequest( outputStream, e );
         }
         debug( "Closing server thread" );
         outputStream.close();
@@ -356,13 +392,25 @@ public class PseudoServer {
     }
 
 
+    /**
+     * replace any response in progress with a report that the request could not be read
+     * @param response - the response stream
+     * @param e - the problem with the request
+     */
+    static void setBadRequest( HttpResponseStream response, Exception e ) {
+        response.restart();
+        response.setProtocol( "HTTP/1.0" );
+        response.setResponse( HttpURLConnection.HTTP_BAD_REQUEST, e.toString() );
+    }
+
+
     /**
      * respond to the given request
      * @param request - the request
      * @param response - the response stream
      * @return
      */
-    private boolean respondToRequest( HttpRequest request, HttpResponseStream response ) {
+    boolean respondToRequest( HttpRequest request, HttpResponseStream response ) {
         debug( "Server thread handling request: " + request );
         boolean keepAlive = isKeepAlive( request );
         WebResource resource = null;
@@ -481,120 +529,12 @@ public class PseudoServer {
 
     private ServerSocket _serverSocket;
 
-}
-
-
-
-
-class HttpResponseStream {
-
-    final private static String CRLF = "\r\n";
-
-    void restart() {
-        _headersWritten = false;
-        _headers.clear();
-        _responseCode = HttpURLConnection.HTTP_OK;
-        _responseText = "OK";
-    }
-
-
-    void close() throws IOException {
-        flushHeaders();
-        _pw.close();
-    }
-
-
-    HttpResponseStream( OutputStream stream ) {
-        _stream = stream;
-        try {
-            setCharacterSet( "us-ascii" );
-        } catch (UnsupportedEncodingException e) {
-            _pw = new PrintWriter( new OutputStreamWriter( _stream ) );
-        }
-    }
-
-
-    void setProtocol( String protocol ) {
-        _protocol = protocol;
-    }
-
-
-    /**
-     * set the response to the given response Code
-     * @param responseCode
-     * @param responseText
-     */
-    void setResponse( int responseCode, String responseText ) {
-        _responseCode = responseCode;
-        _responseText = responseText;
-    }
-
-
-    void addHeader( String header ) {
-        _headers.addElement( header );
-    }
-
-
-    void write( String contents, String charset ) throws IOException {
-        flushHeaders();
-        setCharacterSet( charset );
-        sendText( contents );
-    }
-
-
-    void write( WebResource resource ) throws IOException {
-        flushHeaders();
-        if (resource != null) resource.writeTo( _stream );
-        _stream.flush();
-    }
-
+    /** The connection handling for a server created with a worker pool; null for a thread-per-connection server. **/
+    private NonBlockingServer _nonBlockingServer;
 
-    private void setCharacterSet( String characterSet ) throws UnsupportedEncodingException {
-        if (_pw != null) _pw.flush();
-        _pw = new PrintWriter( new OutputStreamWriter( _stream, characterSet ) );
-    }
-
-
-    private void flushHeaders() {
-        if (!_headersWritten) {
-            sendResponse( _responseCode, _responseText );
-            for (Enumeration e = _headers.elements(); e.hasMoreElements();) {
-                sendLine( (String) e.nextElement() );
-            }
-            sendText( CRLF );
-            _headersWritten = true;
-            _pw.flush();
-        }
-    }
-
-
-    private void sendResponse( int responseCode, String responseText ) {
-        sendLine( _protocol + ' ' + responseCode + ' ' + responseText );
-    }
-
-
-    private void sendLine( String text ) {
-        sendText( text );
-        sendText( CRLF );
-    }
-
-
-    private void sendText( String text ) {
-        _pw.write( text );
-    }
-
-
-    private OutputStream _stream;
-    private PrintWriter _pw;
-
-    private Vector    _headers = new Vector();
-    private String    _protocol = "HTTP/1.0";
-    private int       _responseCode = HttpURLConnection.HTTP_OK;
-    private String    _responseText = "OK";
+}
 
-    private boolean   _headersWritten;
 
-}
 
 
 class RecordingOutputStream extends OutputStream {
@@ -30,6 +30,20 @@ import org.junit.rules.ExternalResource;
 public class PseudoServerTestSupport extends ExternalResource {
     private String _hostPath;
     private PseudoServer _server;
+    private int _numWorkerThreads;
+
+
+    public PseudoServerTestSupport() {
+    }
+
+
+    /**
+     * create support for tests against a non-blocking server with the given number of worker threads
+     * @param numWorkerThreads - the number of threads which handle requests
+     */
+    public PseudoServerTestSupport( int numWorkerThreads ) {
+        _numWorkerThreads = numWorkerThreads;
+    }
 
     @Override                                    
     public void before() throws Throwable {      
@@ -42,7 +56,7 @@ public class PseudoServerTestSupport extends ExternalResource {
     }                                            
 
     public void setUpServer() throws IOException {
-        _server = new PseudoServer();
+        _server = _numWorkerThreads == 0 ? new PseudoServer() : new PseudoServer( PseudoServer.DEFAULT_SOCKET_TIMEOUT, _numWorkerThreads );
         _hostPath = "http://localhost:" + _server.getConnectedPort();
     }
 
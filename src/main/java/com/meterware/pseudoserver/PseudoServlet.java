@@ -83,7 +83,7 @@ public class PseudoServlet {
 
 
     void init( HttpRequest requestStream ) {
-        _request = requestStream;
+        _request.set( requestStream );
     }
 
 
@@ -91,7 +91,7 @@ public class PseudoServlet {
      * Returns the header with the specified name. If no such header exists, will return null.
      **/
     protected String getHeader( String name ) {
-        return _request.getHeader( name );
+        return getRequest().getHeader( name );
     }
 
 
@@ -100,7 +100,7 @@ public class PseudoServlet {
      * will return null.
      **/
     protected String[] getParameter( String name ) {
-        return _request.getParameter( name );
+        return getRequest().getParameter( name );
     }
 
 
@@ -108,21 +108,22 @@ public class PseudoServlet {
      * Returns a reader for the body of the request.
      **/
     protected Reader getReader() {
-        return _request.getReader();
+        return getRequest().getReader();
     }
 
 
     protected byte[] getBody() {
-        return _request.getBody();
+        return getRequest().getBody();
     }
 
 
     protected HttpRequest getRequest() {
-        return _request;
+        return (HttpRequest) _request.get();
     }
 
 
-    private HttpRequest _request;
+    /** The request being handled; a servlet may be handling several at once, each on its own thread. **/
+    private ThreadLocal _request = new ThreadLocal();
 
 }
 
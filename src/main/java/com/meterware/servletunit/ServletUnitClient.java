@@ -97,8 +97,14 @@ public class ServletUnitClient extends WebClient {
     }
 
 
+    /**
+     * Writes the message body of the request into a buffer. If the length of the body is known in advance,
+     * the buffer is allocated at that size and its contents are returned without copying.
+     */
     ByteArrayOutputStream getMessageBody( WebRequest request ) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        long length = getMessageBodyLength( request );
+        ByteArrayOutputStream baos = (length < 0 || length > Integer.MAX_VALUE) ? new ByteArrayOutputStream()
+                                                                                : new MessageBodyBuffer( (int) length );
         writeMessageBody( request, baos );
         return baos;
     }
@@ -159,7 +165,23 @@ public class ServletUnitClient extends WebClient {
     		throw new RuntimeException("constructor for ServletUnitClient called with null factory parameter");
         _invocationContextFactory = factory;
     }
-}
 
 
+//=============================== class MessageBodyBuffer ===============================
+
+
+    /**
+     * A buffer allocated at the exact size of the message body, which returns its contents without copying them.
+     */
+    private static class MessageBodyBuffer extends ByteArrayOutputStream {
 
+        MessageBodyBuffer( int size ) {
+            super( size );
+        }
+
+        public synchronized byte[] toByteArray() {
+            return count == buf.length ? buf : super.toByteArray();
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import com.meterware.pseudoserver.PseudoServlet;
+import com.meterware.pseudoserver.WebResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.net.UnknownHostException;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the caching DNS resolver.
+ **/
+public class CachingDNSResolverTest extends HttpUnitTest {
+
+    private CachingDNSResolver _resolver;
+
+
+    @Before
+    public void setUpResolver() throws Exception {
+        _resolver = new CachingDNSResolver();
+    }
+
+
+    /**
+     * verify that a host is looked up only once while its address is cached
+     */
+    @Test
+    public void testCachedLookup() throws Exception {
+        assertEquals( "address", "127.0.0.1", _resolver.getIpAddress( "127.0.0.1" ) );
+        assertEquals( "address", "127.0.0.1", _resolver.getIpAddress( "127.0.0.1" ) );
+        assertEquals( "misses", 1, _resolver.getMissCount() );
+        assertEquals( "hits", 1, _resolver.getHitCount() );
+
+        _resolver.clear();
+        _resolver.getIpAddress( "127.0.0.1" );
+        assertEquals( "misses after clear", 2, _resolver.getMissCount() );
+    }
+
+
+    /**
+     * verify that a zero time to live disables caching
+     */
+    @Test
+    public void testUncachedLookup() throws Exception {
+        _resolver.setTimeToLive( 0 );
+        _resolver.getIpAddress( "127.0.0.1" );
+        _resolver.getIpAddress( "127.0.0.1" );
+        assertEquals( "misses", 2, _resolver.getMissCount() );
+        assertEquals( "hits", 0, _resolver.getHitCount() );
+    }
+
+
+    /**
+     * verify that a failed lookup is remembered
+     */
+    @Test
+    public void testNegativeCaching() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            try {
+                _resolver.resolve( "nosuchhost.invalid" );
+                fail( "Should have rejected unknown host" );
+            } catch (UnknownHostException e) {
+            }
+        }
+        assertEquals( "misses", 1, _resolver.getMissCount() );
+        assertEquals( "hits", 1, _resolver.getHitCount() );
+        assertNull( "unresolved address", _resolver.getIpAddress( "nosuchhost.invalid" ) );
+    }
+
+
+    /**
+     * verify that fixed addresses may be read in hosts file format
+     */
+    @Test
+    public void testHostsFile() throws Exception {
+        _resolver.addHosts( new StringReader( "# test hosts\n127.0.0.1  www.example.invalid  Example.invalid\n\n10.0.0.1 remote.invalid # comment\n" ) );
+        assertEquals( "www address", "127.0.0.1", _resolver.getIpAddress( "www.example.invalid" ) );
+        assertEquals( "alias address", "127.0.0.1", _resolver.getIpAddress( "example.INVALID" ) );
+        assertEquals( "remote address", "10.0.0.1", _resolver.getIpAddress( "remote.invalid" ) );
+        assertEquals( "misses", 0, _resolver.getMissCount() );
+        assertEquals( "hits", 3, _resolver.getHitCount() );
+    }
+
+
+    /**
+     * verify that a client uses the resolver to direct its requests
+     */
+    @Test
+    public void testResolvedRequest() throws Exception {
+        defineResource( "simple.html", "<html><head><title>A Simple Page</title></head><body>Hello</body></html>" );
+        _resolver.addHost( "www.example.invalid", "127.0.0.1" );
+        WebConversation wc = new WebConversation();
+        wc.getClientProperties().setDnsListener( _resolver );
+
+        WebResponse response = wc.getResponse( "http://www.example.invalid:" + getHostPort() + "/simple.html" );
+        assertEquals( "title", "A Simple Page", response.getTitle() );
+        assertEquals( "hits", 1, _resolver.getHitCount() );
+    }
+
+
+    /**
+     * verify that a rerouted request carries the original host name without changing the client's own headers.
+     * The JDK connection does not allow the Host header to be set, so the pooled transport is used.
+     */
+    @Test
+    public void testHostHeader() throws Exception {
+        defineResource( "whereAmI", new PseudoServlet() {
+            public WebResource getGetResponse() {
+                return new WebResource( "found host header: " + getHeader( "Host" ) );
+            }
+        } );
+        _resolver.addHost( "www.example.invalid", "127.0.0.1" );
+        WebConversation wc = new WebConversation();
+        wc.getClientProperties().setDnsListener( _resolver );
+        wc.setTransport( new PooledWebTransport() );
+
+        WebResponse response = wc.getResponse( "http://www.example.invalid:" + getHostPort() + "/whereAmI" );
+        assertEquals( "Submitted host header", "found host header: www.example.invalid:" + getHostPort(), response.getText() );
+        assertNull( "client host header", wc.getHeaderField( "Host" ) );
+    }
+
+
+    /**
+     * verify that a request to a host which could not be found fails without a further lookup
+     */
+    @Test
+    public void testUnresolvedRequest() throws Exception {
+        WebConversation wc = new WebConversation();
+        wc.getClientProperties().setDnsListener( _resolver );
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                wc.getResponse( "http://nosuchhost.invalid/simple.html" );
+                fail( "Should have rejected unknown host" );
+            } catch (UnknownHostException e) {
+            }
+        }
+        assertEquals( "misses", 1, _resolver.getMissCount() );
+    }
+}
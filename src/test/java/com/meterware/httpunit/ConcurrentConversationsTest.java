@@ -0,0 +1,120 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+ * $Id$
+ * $URL$*
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+import com.meterware.pseudoserver.PseudoServlet;
+import com.meterware.pseudoserver.WebResource;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Verifies that independent conversations may be run concurrently without interfering with one another.
+ **/
+public class ConcurrentConversationsTest extends HttpUnitTest {
+
+    private static final int NUM_THREADS       = 8;
+    private static final int NUM_CONVERSATIONS = 64;
+    private static final int NUM_VISITS        = 3;
+
+
+    /**
+     * run many scripted conversations from a thread pool, each with its own cookies, user agent and script state,
+     * and verify that each sees only its own.
+     */
+    @Test
+    public void testConcurrentConversations() throws Exception {
+        defineResource( "login", new PseudoServlet() {
+            public WebResource getGetResponse() {
+                String user = getParameter( "user" )[0];
+                WebResource resource = new WebResource( "<html><head><script language='JavaScript'>" +
+                        "var user = '" + user + "';" +
+                        "alert( 'user ' + user );" +
+                        "</script></head><body>" +
+                        "<form name='choice' action='echo'><input name='color' value='none'></form>" +
+                        "<a href='nowhere.html' onClick=\"document.choice.color.value = 'c' + user; document.choice.submit(); return false;\">go</a>" +
+                        "</body></html>" );
+                resource.addHeader( "Set-Cookie: user=" + user );
+                return resource;
+            }
+        } );
+        defineResource( "echo", new PseudoServlet() {
+            public WebResource getGetResponse() {
+                return new WebResource( getHeader( "Cookie" ) + ";color=" + getParameter( "color" )[0] + ";agent=" + getHeader( "User-Agent" ), "text/plain" );
+            }
+        } );
+
+        HttpUnitOptions.clearScriptErrorMessages();
+        ExecutorService executor = Executors.newFixedThreadPool( NUM_THREADS );
+        try {
+            List results = new ArrayList();
+            for (int i = 0; i < NUM_CONVERSATIONS; i++) {
+                results.add( executor.submit( new Conversation( i ) ) );
+            }
+            for (Iterator each = results.iterator(); each.hasNext();) {
+                try {
+                    ((Future) each.next()).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                    throw (Error) e.getCause();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals( "script errors", 0, HttpUnitOptions.getScriptErrorMessages().length );
+    }
+
+
+    private class Conversation implements Callable {
+
+        private int _user;
+
+        Conversation( int user ) {
+            _user = user;
+        }
+
+        public Object call() throws Exception {
+            WebConversation wc = new WebConversation();
+            wc.getClientProperties().setUserAgent( "agent" + _user );
+            for (int i = 0; i < NUM_VISITS; i++) {
+                WebResponse page = wc.getResponse( getHostPath() + "/login?user=" + _user );
+                assertEquals( "alert", "user " + _user, wc.popNextAlert() );
+                assertNull( "unexpected alert", wc.getNextAlert() );
+
+                page.getLinkWith( "go" ).click();
+                assertEquals( "echoed request", "user=" + _user + ";color=c" + _user + ";agent=agent" + _user,
+                              wc.getCurrentPage().getText() );
+            }
+            return null;
+        }
+    }
+}
@@ -27,6 +27,8 @@ import org.junit.Test;
 import java.io.UnsupportedEncodingException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -158,6 +160,31 @@ public class EncodingTest extends HttpUnitTest {
     }
 
 
+    /**
+     * verify that a page is parsed from its bytes without first being decoded into text
+     */
+    @Test
+    public void testParseWithoutText() throws Exception {
+        String hebrewTitle = "\u05d0\u05d1\u05d2\u05d3";
+        String page = "<html><head><title>" + hebrewTitle + "</title></head>\n" +
+                "<body>This has no data\n" +
+                "</body></html>\n";
+        defineResource("SimplePage.html", page);
+        setResourceCharSet("SimplePage.html", "iso-8859-8", true);
+
+        WebConversation wc = new WebConversation();
+        WebResponse simplePage = wc.getResponse(getHostPath() + "/SimplePage.html");
+        assertEquals("Title", hebrewTitle, simplePage.getTitle());
+        assertFalse("Text was decoded to parse the page", simplePage.isTextDecoded());
+        assertTrue("Text not decoded on request", simplePage.getText().indexOf(hebrewTitle) > 0);
+
+        wc.getClientProperties().setStreamingResponses(true);
+        WebResponse streamedPage = wc.getResponse(getHostPath() + "/SimplePage.html");
+        assertEquals("Streamed title", hebrewTitle, streamedPage.getTitle());
+        assertFalse("Text was decoded to parse the streamed page", streamedPage.isTextDecoded());
+    }
+
+
     @Test
     public void testHebrewForm() throws Exception {
         String hebrewName = "\u05d0\u05d1\u05d2\u05d3";
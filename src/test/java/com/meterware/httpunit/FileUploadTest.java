@@ -147,6 +147,32 @@ public class FileUploadTest extends HttpUnitTest {
         file.delete();
     }
 
+    /**
+     * verify that a file upload may be streamed with a precomputed content length
+     */
+    @Test
+    public void testStreamedFileUpload() throws Exception {
+        File file = createFile( "temp.txt", "Not much text\nBut two lines\n".getBytes() );
+
+        defineResource( "ListParams", new MimeEcho() );
+        defineWebPage( "Default", "<form method=POST action = \"ListParams\" enctype=\"multipart/form-data\"> " +
+                "<Input type=file name=message>" +
+                "<Input type=submit name=update value=age>" +
+                "</form>" );
+        WebConversation wc = new WebConversation();
+        wc.getClientProperties().setStreamingUploadThreshold( 0 );
+        for (int i = 0; i < 2; i++) {
+            if (i == 1) wc.setTransport( new PooledWebTransport() );
+            WebRequest formSubmit = wc.getResponse( getHostPath() + "/Default.html" ).getForms()[0].getRequest();
+            formSubmit.selectFile( "message", file );
+            WebResponse encoding = wc.getResponse( formSubmit );
+            assertEquals( "text/plain:message.name=temp.txt&message.lines=2&update=age", encoding.getText().trim() );
+        }
+
+        file.delete();
+    }
+
+
     /**
      * new test for BR 2822957
      * https://sourceforge.net/tracker/?func=detail&aid=2822957&group_id=6550&atid=106550
@@ -0,0 +1,253 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+ * $Id$
+ * $URL$*
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+import com.meterware.pseudoserver.PseudoServlet;
+import com.meterware.pseudoserver.WebResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the HTTP response cache.
+ */
+public class HttpCacheTest extends HttpUnitTest {
+
+    private HttpCache _cache;
+
+
+    @Before
+    public void setUp() throws Exception {
+        _cache = new HttpCache();
+    }
+
+
+    @Test
+    public void testFreshResponseSharedBetweenConversations() throws Exception {
+        CountingServlet servlet = new CountingServlet( "Cache-Control: max-age=60" );
+        defineResource( "style.css", servlet );
+
+        assertEquals( "First response", "contents 1", newConversation().getResponse( getHostPath() + "/style.css" ).getText() );
+        WebResponse cached = newConversation().getResponse( getHostPath() + "/style.css" );
+        assertEquals( "Cached response", "contents 1", cached.getText() );
+        assertEquals( "Cached content type", "text/plain", cached.getContentType() );
+        assertEquals( "Requests sent", 1, servlet._numRequests );
+        assertEquals( "Hits", 1, _cache.getHitCount() );
+        assertEquals( "Misses", 1, _cache.getMissCount() );
+    }
+
+
+    @Test
+    public void testRevalidationWithETag() throws Exception {
+        CountingServlet servlet = new CountingServlet( "Cache-Control: no-cache", "ETag: \"v1\"" ) {
+            WebResource getConditionalResponse() {
+                return "\"v1\"".equals( getHeader( "If-None-Match" ) ) ? new WebResource( "", HttpURLConnection.HTTP_NOT_MODIFIED ) : null;
+            }
+        };
+        defineResource( "script.js", servlet );
+
+        WebConversation wc = newConversation();
+        assertEquals( "First response", "contents 1", wc.getResponse( getHostPath() + "/script.js" ).getText() );
+        WebResponse revalidated = wc.getResponse( getHostPath() + "/script.js" );
+        assertEquals( "Revalidated response", "contents 1", revalidated.getText() );
+        assertEquals( "Revalidated status", HttpURLConnection.HTTP_OK, revalidated.getResponseCode() );
+        assertEquals( "Requests sent", 2, servlet._numRequests );
+        assertEquals( "Revalidations", 1, _cache.getRevalidationCount() );
+    }
+
+
+    @Test
+    public void testRevalidationWithLastModified() throws Exception {
+        final String lastModified = "Tue, 15 Nov 1994 12:45:26 GMT";
+        CountingServlet servlet = new CountingServlet( "Cache-Control: max-age=0", "Last-Modified: " + lastModified ) {
+            WebResource getConditionalResponse() {
+                return lastModified.equals( getHeader( "If-Modified-Since" ) ) ? new WebResource( "", HttpURLConnection.HTTP_NOT_MODIFIED ) : null;
+            }
+        };
+        defineResource( "image.txt", servlet );
+
+        WebConversation wc = newConversation();
+        wc.getResponse( getHostPath() + "/image.txt" );
+        assertEquals( "Revalidated response", "contents 1", wc.getResponse( getHostPath() + "/image.txt" ).getText() );
+        assertEquals( "Revalidations", 1, _cache.getRevalidationCount() );
+    }
+
+
+    @Test
+    public void testHeuristicFreshnessFromLastModified() throws Exception {
+        CountingServlet servlet = new CountingServlet( "Last-Modified: Tue, 15 Nov 1994 12:45:26 GMT" );
+        defineResource( "old.txt", servlet );
+
+        newConversation().getResponse( getHostPath() + "/old.txt" );
+        newConversation().getResponse( getHostPath() + "/old.txt" );
+        assertEquals( "Requests sent", 1, servlet._numRequests );
+    }
+
+
+    @Test
+    public void testUncacheableResponses() throws Exception {
+        CountingServlet noStore = new CountingServlet( "Cache-Control: no-store, max-age=60" );
+        CountingServlet setsCookie = new CountingServlet( "Cache-Control: max-age=60", "Set-Cookie: session=1" );
+        CountingServlet noValidators = new CountingServlet();
+        defineResource( "noStore", noStore );
+        defineResource( "cookie", setsCookie );
+        defineResource( "plain", noValidators );
+
+        String[] names = { "noStore", "cookie", "plain" };
+        for (int i = 0; i < names.length; i++) {
+            newConversation().getResponse( getHostPath() + "/" + names[i] );
+            assertEquals( "Second response for " + names[i], "contents 2", newConversation().getResponse( getHostPath() + "/" + names[i] ).getText() );
+        }
+        assertEquals( "Entries", 0, _cache.getEntryCount() );
+    }
+
+
+    @Test
+    public void testRequestNoCacheForcesRequest() throws Exception {
+        CountingServlet servlet = new CountingServlet( "Cache-Control: max-age=60" );
+        defineResource( "page", servlet );
+
+        WebConversation wc = newConversation();
+        wc.getResponse( getHostPath() + "/page" );
+        WebRequest request = new GetMethodWebRequest( getHostPath() + "/page" );
+        request.setHeaderField( "Cache-Control", "no-cache" );
+        assertEquals( "Reloaded response", "contents 2", wc.getResponse( request ).getText() );
+        assertEquals( "Cached response", "contents 2", wc.getResponse( getHostPath() + "/page" ).getText() );
+    }
+
+
+    @Test
+    public void testPostInvalidatesEntry() throws Exception {
+        CountingServlet servlet = new CountingServlet( "Cache-Control: max-age=60" );
+        defineResource( "item", servlet );
+
+        WebConversation wc = newConversation();
+        wc.getResponse( getHostPath() + "/item" );
+        wc.getResponse( new PostMethodWebRequest( getHostPath() + "/item" ) );
+        assertEquals( "Response after post", "contents 3", wc.getResponse( getHostPath() + "/item" ).getText() );
+    }
+
+
+    @Test
+    public void testVaryingResponse() throws Exception {
+        CountingServlet servlet = new CountingServlet( "Cache-Control: max-age=60", "Vary: Accept-Language" );
+        defineResource( "greeting", servlet );
+
+        WebConversation wc = newConversation();
+        wc.setHeaderField( "Accept-Language", "en" );
+        wc.getResponse( getHostPath() + "/greeting" );
+        assertEquals( "Same language", "contents 1", wc.getResponse( getHostPath() + "/greeting" ).getText() );
+        wc.setHeaderField( "Accept-Language", "fr" );
+        assertEquals( "Other language", "contents 2", wc.getResponse( getHostPath() + "/greeting" ).getText() );
+    }
+
+
+    @Test
+    public void testRevalidationWithPreemptiveAuthorization() throws Exception {
+        final int[] unauthorized = new int[1];
+        CountingServlet servlet = new CountingServlet( "Cache-Control: max-age=0, must-revalidate", "ETag: \"v1\"" ) {
+            WebResource getConditionalResponse() {
+                if (getHeader( "Authorization" ) == null) {
+                    unauthorized[0]++;
+                    WebResource resource = new WebResource( "unauthorized", HttpURLConnection.HTTP_UNAUTHORIZED );
+                    resource.addHeader( "WWW-Authenticate: Basic realm=\"testrealm\"" );
+                    return resource;
+                }
+                return "\"v1\"".equals( getHeader( "If-None-Match" ) ) ? new WebResource( "", HttpURLConnection.HTTP_NOT_MODIFIED ) : null;
+            }
+        };
+        defineResource( "admin/report", servlet );
+
+        WebConversation wc = newConversation();
+        wc.setAuthentication( "testrealm", "user", "password" );
+        wc.getResponse( getHostPath() + "/admin/report" );
+        wc.getResponse( getHostPath() + "/admin/report" );
+        WebResponse revalidated = wc.getResponse( getHostPath() + "/admin/report" );
+        assertEquals( "Revalidated status", HttpURLConnection.HTTP_OK, revalidated.getResponseCode() );
+        assertEquals( "Unauthorized requests", 1, unauthorized[0] );
+        assertEquals( "Requests sent", 4, servlet._numRequests );
+        assertEquals( "Revalidations", 1, _cache.getRevalidationCount() );
+        assertEquals( "Entries", 1, _cache.getEntryCount() );
+    }
+
+
+    @Test
+    public void testDiskTier() throws Exception {
+        File directory = File.createTempFile( "httpcache", "" );
+        directory.delete();
+        _cache = new HttpCache( 100, directory, 10000 );
+        CountingServlet first = new CountingServlet( "Cache-Control: max-age=60" );
+        CountingServlet second = new CountingServlet( "Cache-Control: max-age=60" );
+        defineResource( "first", first );
+        defineResource( "second", second );
+
+        WebConversation wc = newConversation();
+        wc.getResponse( getHostPath() + "/first" );
+        wc.getResponse( getHostPath() + "/second" );
+        assertTrue( "Nothing written to disk", _cache.getDiskSize() > 0 );
+        assertEquals( "Response from disk", "contents 1", wc.getResponse( getHostPath() + "/first" ).getText() );
+        assertEquals( "Requests for first", 1, first._numRequests );
+        assertEquals( "Entries", 2, _cache.getEntryCount() );
+
+        _cache.clear();
+        assertEquals( "Files left", 0, directory.list().length );
+        directory.delete();
+    }
+
+
+    private WebConversation newConversation() {
+        WebConversation wc = new WebConversation();
+        wc.setCache( _cache );
+        return wc;
+    }
+
+
+    private static class CountingServlet extends PseudoServlet {
+
+        private int _numRequests;
+        private String[] _headers;
+
+
+        CountingServlet( String... headers ) {
+            _headers = headers;
+        }
+
+
+        WebResource getConditionalResponse() {
+            return null;
+        }
+
+
+        public WebResource getResponse( String methodType ) throws IOException {
+            _numRequests++;
+            WebResource resource = methodType.equals( "GET" ) ? getConditionalResponse() : null;
+            if (resource == null) resource = new WebResource( "contents " + _numRequests, "text/plain" );
+            for (int i = 0; i < _headers.length; i++) resource.addHeader( _headers[i] );
+            return resource;
+        }
+    }
+}
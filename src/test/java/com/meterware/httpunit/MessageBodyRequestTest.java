@@ -29,9 +29,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLConnection;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * A unit test to verify miscellaneous requests with message bodies.
@@ -97,6 +101,64 @@ public class MessageBodyRequestTest extends HttpUnitTest {
 				.getText());
 	}
 
+    /**
+     * verify that a body of unknown length is streamed using chunked transfer-encoding, over both the standard
+     * and pooled transports
+     */
+    @Test
+    public void testStreamedPutRequest() throws Exception {
+        defineResource( "ReportData", new StreamingEcho() );
+        String sourceData = "This is an interesting test\nWith two lines";
+
+        WebConversation wc = new WebConversation();
+        wc.getClientProperties().setStreamingUploadThreshold( 0 );
+        for (int i = 0; i < 2; i++) {
+            if (i == 1) wc.setTransport( new PooledWebTransport() );
+            WebRequest wr = new PutMethodWebRequest( getHostPath() + "/ReportData", new ByteArrayInputStream( sourceData.getBytes( "iso-8859-1" ) ), "text/plain" );
+            assertEquals( "Body response", "chunked:" + sourceData, wc.getResponse( wr ).getText() );
+        }
+    }
+
+
+    /**
+     * verify that a body of known length is streamed with a content length once it reaches the threshold,
+     * and that the pooled transport sends it on a new connection
+     */
+    @Test
+    public void testStreamedPostRequest() throws Exception {
+        defineResource( "ReportData", new StreamingEcho() );
+        WebConversation wc = new WebConversation();
+        WebRequest wr = new PostMethodWebRequest( getHostPath() + "/ReportData" );
+        wr.setParameter( "color", "red" );
+
+        wc.getClientProperties().setStreamingUploadThreshold( 9 );
+        assertEquals( "Streamed response", "9:color=red", wc.getResponse( wr ).getText() );
+
+        final PooledWebTransport transport = new PooledWebTransport();
+        final boolean[] streamed = new boolean[1];
+        wc.setTransport( new WebTransport() {
+            public URLConnection openConnection( URL url ) {
+                return new PooledHttpConnection( transport, url ) {
+                    public void setFixedLengthStreamingMode( int contentLength ) {
+                        streamed[0] = true;
+                        super.setFixedLengthStreamingMode( contentLength );
+                    }
+                };
+            }
+        } );
+
+        wc.getClientProperties().setStreamingUploadThreshold( 100 );
+        assertEquals( "Buffered response", "9:color=red", wc.getResponse( wr ).getText() );
+        assertFalse( "Buffered request was streamed", streamed[0] );
+        assertEquals( "idle connections", 1, transport.getIdleConnectionCount() );
+
+        wc.getClientProperties().setStreamingUploadThreshold( 9 );
+        assertEquals( "Streamed response", "9:color=red", wc.getResponse( wr ).getText() );
+        assertTrue( "Request was not streamed", streamed[0] );
+        assertEquals( "connections opened", 2, transport.getOpenedConnectionCount() );
+    }
+
+
 	/**
 	 * test for download problem described by Oliver Wahlen	 
 	 */
@@ -175,6 +237,16 @@ public class MessageBodyRequestTest extends HttpUnitTest {
 
 }
 
+class StreamingEcho extends PseudoServlet {
+    /**
+     * Returns the transfer encoding or content length of the request, followed by its body.
+     **/
+    public WebResource getResponse( String method ) {
+        String encoding = getHeader( "Transfer-Encoding" );
+        return new WebResource( (encoding != null ? encoding : getHeader( "Content-Length" )) + ":" + new String( getBody() ), "text/plain" );
+    }
+}
+
 class BodyEcho extends PseudoServlet {
 	/**
 	 * Returns a resource object as a result of a get request.
@@ -0,0 +1,158 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import com.meterware.httpunit.parsing.HTMLParserFactory;
+import com.meterware.httpunit.parsing.HTMLParserListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the cache of parsed pages.
+ */
+public class ParsedPageCacheTest extends HttpUnitTest {
+
+    private ParsedPageCache _cache;
+
+
+    @Before
+    public void setUp() throws Exception {
+        _cache = new ParsedPageCache();
+    }
+
+
+    /**
+     * verify that an identical page is copied from the cache, and that each response has its own copy
+     */
+    @Test
+    public void testIdenticalPagesCopied() throws Exception {
+        defineWebPage( "login", "<form name=login><input name=user value=guest></form><a href=help.html>Help</a>" );
+
+        WebResponse first = newConversation().getResponse( getHostPath() + "/login.html" );
+        first.getFormWithName( "login" ).setParameter( "user", "changed" );
+        WebResponse second = newConversation().getResponse( getHostPath() + "/login.html" );
+
+        assertEquals( "Misses", 1, _cache.getMissCount() );
+        assertEquals( "Hits", 1, _cache.getHitCount() );
+        assertEquals( "Title", "login", second.getTitle() );
+        assertEquals( "Link", "help.html", second.getLinkWith( "Help" ).getURLString() );
+        assertEquals( "Parameter in copy", "guest", second.getFormWithName( "login" ).getParameterValue( "user" ) );
+        assertNotSame( "Shared document", first.getReceivedPage().getRootNode(), second.getReceivedPage().getRootNode() );
+    }
+
+
+    /**
+     * verify that pages which differ in their contents are parsed separately
+     */
+    @Test
+    public void testDifferentPagesParsed() throws Exception {
+        defineWebPage( "first", "<p>One</p>" );
+        defineWebPage( "second", "<p>Two</p>" );
+
+        WebConversation wc = newConversation();
+        assertEquals( "First title", "first", wc.getResponse( getHostPath() + "/first.html" ).getTitle() );
+        assertEquals( "Second title", "second", wc.getResponse( getHostPath() + "/second.html" ).getTitle() );
+        assertEquals( "Misses", 2, _cache.getMissCount() );
+        assertEquals( "Pages cached", 2, _cache.getSize() );
+    }
+
+
+    /**
+     * verify that pages with scripts are not cached, since their documents depend on what the scripts do
+     */
+    @Test
+    public void testScriptedPagesNotCached() throws Exception {
+        defineWebPage( "scripted", "<script>document.write( '<p>written</p>' );</script>" );
+
+        WebConversation wc = newConversation();
+        wc.getResponse( getHostPath() + "/scripted.html" );
+        WebResponse second = wc.getResponse( getHostPath() + "/scripted.html" );
+        assertEquals( "Pages cached", 0, _cache.getSize() );
+        assertEquals( "Hits", 0, _cache.getHitCount() );
+        assertEquals( "Written text", "written", second.getElementsByTagName( "p" )[0].getText() );
+    }
+
+
+    /**
+     * verify that pages are not cached while a parser listener is registered, so that each load reports its problems
+     */
+    @Test
+    public void testPagesNotCachedWithParserListener() throws Exception {
+        defineWebPage( "bad", "<p><b>Wrong embedded tags</p></b><unknownTag>bla</unknownTag>" );
+        final int[] problemCount = new int[1];
+        HTMLParserListener listener = new HTMLParserListener() {
+            public void warning( URL url, String msg, int line, int column ) {
+                problemCount[0]++;
+            }
+
+            public void error( URL url, String msg, int line, int column ) {
+                problemCount[0]++;
+            }
+        };
+
+        HTMLParserFactory.addHTMLParserListener( listener );
+        try {
+            WebConversation wc = newConversation();
+            wc.getResponse( getHostPath() + "/bad.html" ).getTitle();
+            int firstCount = problemCount[0];
+            wc.getResponse( getHostPath() + "/bad.html" ).getTitle();
+            assertTrue( "No problems reported", firstCount > 0 );
+            assertEquals( "Problems reported on second load", 2 * firstCount, problemCount[0] );
+            assertEquals( "Pages cached", 0, _cache.getSize() );
+        } finally {
+            HTMLParserFactory.removeHTMLParserListener( listener );
+        }
+    }
+
+
+    /**
+     * verify that the least recently used page is discarded once the cache is full
+     */
+    @Test
+    public void testEviction() throws Exception {
+        _cache.setMaxEntries( 1 );
+        defineWebPage( "first", "<p>One</p>" );
+        defineWebPage( "second", "<p>Two</p>" );
+
+        WebConversation wc = newConversation();
+        wc.getResponse( getHostPath() + "/first.html" ).getTitle();
+        wc.getResponse( getHostPath() + "/second.html" ).getTitle();
+        wc.getResponse( getHostPath() + "/first.html" ).getTitle();
+        assertEquals( "Pages cached", 1, _cache.getSize() );
+        assertEquals( "Evictions", 2, _cache.getEvictionCount() );
+        assertEquals( "Hits", 0, _cache.getHitCount() );
+
+        _cache.clear();
+        assertEquals( "Pages cached after clear", 0, _cache.getSize() );
+    }
+
+
+    private WebConversation newConversation() {
+        WebConversation wc = new WebConversation();
+        wc.setPageCache( _cache );
+        return wc;
+    }
+}
@@ -0,0 +1,306 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+ * $Id$
+ * $URL$*
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+import com.meterware.pseudoserver.PseudoServlet;
+import com.meterware.pseudoserver.WebResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the pooled connection transport.
+ **/
+public class PooledWebTransportTest extends HttpUnitTest {
+
+    private PooledWebTransport _transport;
+
+
+    @Before
+    public void setUpTransport() throws Exception {
+        _transport = new PooledWebTransport();
+    }
+
+
+    /**
+     * verify that consecutive requests to the same host share a single connection
+     */
+    @Test
+    public void testConnectionReuse() throws Exception {
+        defineResource( "simple.html", "<html><head><title>A Simple Page</title></head><body>Hello</body></html>" );
+        WebConversation wc = newConversation();
+
+        for (int i = 0; i < 3; i++) {
+            WebResponse response = wc.getResponse( getHostPath() + "/simple.html" );
+            assertEquals( "title", "A Simple Page", response.getTitle() );
+        }
+        assertEquals( "requests sent", 3, _transport.getRequestCount() );
+        assertEquals( "connections opened", 1, _transport.getOpenedConnectionCount() );
+        assertEquals( "connections reused", 2, _transport.getReusedConnectionCount() );
+        assertEquals( "idle connections", 1, _transport.getIdleConnectionCount() );
+        assertEquals( "active connections", 0, _transport.getActiveConnectionCount() );
+    }
+
+
+    /**
+     * verify that a transport may be shared by several conversations
+     */
+    @Test
+    public void testSharedTransport() throws Exception {
+        defineResource( "simple.html", "<html><head><title>A Simple Page</title></head><body>Hello</body></html>" );
+
+        newConversation().getResponse( getHostPath() + "/simple.html" );
+        newConversation().getResponse( getHostPath() + "/simple.html" );
+        assertEquals( "connections opened", 1, _transport.getOpenedConnectionCount() );
+    }
+
+
+    /**
+     * verify that a chunked response is decoded and its connection reused
+     */
+    @Test
+    public void testChunkedResponse() throws Exception {
+        WebResource resource = new WebResource( "5\r\nHello\r\n6\r\n World\r\n0\r\n\r\n", "text/plain" );
+        resource.addHeader( "Transfer-Encoding: chunked" );
+        defineResource( "chunked.txt", new FixedResource( resource ) );
+        WebConversation wc = newConversation();
+
+        assertEquals( "first response", "Hello World", wc.getResponse( getHostPath() + "/chunked.txt" ).getText() );
+        assertEquals( "second response", "Hello World", wc.getResponse( getHostPath() + "/chunked.txt" ).getText() );
+        assertEquals( "connections opened", 1, _transport.getOpenedConnectionCount() );
+    }
+
+
+    /**
+     * verify that a message body is sent with a post request
+     */
+    @Test
+    public void testPostRequest() throws Exception {
+        defineResource( "echo", new PseudoServlet() {
+            public WebResource getPostResponse() {
+                return new WebResource( new String( getBody() ), "text/plain" );
+            }
+        } );
+        WebConversation wc = newConversation();
+        WebRequest request = new PostMethodWebRequest( getHostPath() + "/echo" );
+        request.setParameter( "color", "red" );
+
+        assertEquals( "posted body", "color=red", wc.getResponse( request ).getText() );
+        assertEquals( "posted body", "color=red", wc.getResponse( request ).getText() );
+        assertEquals( "connections opened", 1, _transport.getOpenedConnectionCount() );
+    }
+
+
+    /**
+     * verify that an error response is reported and its connection kept
+     */
+    @Test
+    public void testErrorResponse() throws Exception {
+        WebConversation wc = newConversation();
+        wc.setExceptionsThrownOnErrorStatus( false );
+
+        WebResponse response = wc.getResponse( getHostPath() + "/nothing.htm" );
+        assertEquals( "response code", HttpURLConnection.HTTP_NOT_FOUND, response.getResponseCode() );
+        assertEquals( "response text", "unable to find /nothing.htm", response.getText() );
+        assertEquals( "idle connections", 1, _transport.getIdleConnectionCount() );
+    }
+
+
+    /**
+     * verify that a connection the server says it will close is not reused
+     */
+    @Test
+    public void testConnectionClosedByServer() throws Exception {
+        WebResource resource = new WebResource( "closing", "text/plain" );
+        resource.addHeader( "Connection: close" );
+        defineResource( "closing.txt", new FixedResource( resource ) );
+        WebConversation wc = newConversation();
+
+        assertEquals( "response", "closing", wc.getResponse( getHostPath() + "/closing.txt" ).getText() );
+        assertEquals( "response", "closing", wc.getResponse( getHostPath() + "/closing.txt" ).getText() );
+        assertEquals( "connections opened", 2, _transport.getOpenedConnectionCount() );
+        assertEquals( "idle connections", 0, _transport.getIdleConnectionCount() );
+    }
+
+
+    /**
+     * verify that a pooled connection is not reused once it turns out to be unusable.
+     * The pseudo server sends a body in reply to a HEAD request, which leaves unexpected data on the connection.
+     */
+    @Test
+    public void testUnusableConnectionDiscarded() throws Exception {
+        defineResource( "simple.html", "<html><head><title>A Simple Page</title></head><body>Hello</body></html>" );
+        WebConversation wc = newConversation();
+
+        wc.getResponse( new HeadMethodWebRequest( getHostPath() + "/simple.html" ) );
+        Thread.sleep( 100 );  // let the unexpected body arrive
+        assertEquals( "title", "A Simple Page", wc.getResponse( getHostPath() + "/simple.html" ).getTitle() );
+    }
+
+
+    /**
+     * verify that a request waits for a connection once the maximum number are in use
+     */
+    @Test
+    public void testMaxConnectionsPerHost() throws Exception {
+        defineResource( "large.bin", new byte[100000], "application/octet-stream" );
+        _transport.setMaxConnectionsPerHost( 1 );
+        _transport.setMaxWaitTime( 100 );
+
+        HttpURLConnection first = (HttpURLConnection) _transport.openConnection( new URL( getHostPath() + "/large.bin" ) );
+        InputStream inputStream = first.getInputStream();
+        assertEquals( "active connections", 1, _transport.getActiveConnectionCount() );
+
+        HttpURLConnection second = (HttpURLConnection) _transport.openConnection( new URL( getHostPath() + "/large.bin" ) );
+        try {
+            second.getResponseCode();
+            fail( "Should have timed out waiting for a connection" );
+        } catch (IOException e) {
+        }
+
+        byte[] buffer = new byte[8192];
+        int total = 0;
+        for (int count = inputStream.read( buffer ); count >= 0; count = inputStream.read( buffer )) total += count;
+        assertEquals( "bytes read", 100000, total );
+        assertEquals( "idle connections", 1, _transport.getIdleConnectionCount() );
+
+        HttpURLConnection third = (HttpURLConnection) _transport.openConnection( new URL( getHostPath() + "/large.bin" ) );
+        assertEquals( "response code", HttpURLConnection.HTTP_OK, third.getResponseCode() );
+        assertEquals( "connections opened", 1, _transport.getOpenedConnectionCount() );
+    }
+
+
+    /**
+     * verify that once the connection limit is reached, a GET request is sent over a connection still in use
+     * and its response read after the earlier one
+     */
+    @Test
+    public void testPipelinedRequests() throws Exception {
+        defineResource( "large.bin", new byte[100000], "application/octet-stream" );
+        defineResource( "simple.html", "<html><head><title>A Simple Page</title></head><body>Hello</body></html>" );
+        _transport.setMaxConnectionsPerHost( 1 );
+        _transport.setMaxPipelinedRequests( 4 );
+
+        HttpURLConnection first = (HttpURLConnection) _transport.openConnection( new URL( getHostPath() + "/large.bin" ) );
+        InputStream inputStream = first.getInputStream();
+
+        final HttpURLConnection second = (HttpURLConnection) _transport.openConnection( new URL( getHostPath() + "/simple.html" ) );
+        final int[] responseCode = new int[1];
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    responseCode[0] = second.getResponseCode();
+                } catch (IOException e) {
+                    responseCode[0] = -1;
+                }
+            }
+        };
+        thread.start();
+        for (int i = 0; i < 100 && _transport.getPipelinedRequestCount() == 0; i++) Thread.sleep( 10 );
+        assertEquals( "pipelined requests", 1, _transport.getPipelinedRequestCount() );
+
+        byte[] buffer = new byte[8192];
+        int total = 0;
+        for (int count = inputStream.read( buffer ); count >= 0; count = inputStream.read( buffer )) total += count;
+        assertEquals( "bytes read", 100000, total );
+        thread.join( 5000 );
+
+        assertEquals( "second response code", HttpURLConnection.HTTP_OK, responseCode[0] );
+        assertEquals( "connections opened", 1, _transport.getOpenedConnectionCount() );
+        assertEquals( "idle connections", 1, _transport.getIdleConnectionCount() );
+    }
+
+
+    /**
+     * verify that a pipelined request which times out waiting for the earlier response fails rather than being resent
+     */
+    @Test
+    public void testPipelinedRequestTimeout() throws Exception {
+        defineResource( "large.bin", new byte[100000], "application/octet-stream" );
+        defineResource( "simple.html", "<html><head><title>A Simple Page</title></head><body>Hello</body></html>" );
+        _transport.setMaxConnectionsPerHost( 1 );
+        _transport.setMaxPipelinedRequests( 4 );
+
+        HttpURLConnection first = (HttpURLConnection) _transport.openConnection( new URL( getHostPath() + "/large.bin" ) );
+        first.getInputStream();
+
+        HttpURLConnection second = (HttpURLConnection) _transport.openConnection( new URL( getHostPath() + "/simple.html" ) );
+        second.setReadTimeout( 100 );
+        try {
+            second.getResponseCode();
+            fail( "Should have timed out waiting for the earlier response" );
+        } catch (SocketTimeoutException e) {
+        }
+        assertEquals( "pipelined requests", 1, _transport.getPipelinedRequestCount() );
+        assertEquals( "connections opened", 1, _transport.getOpenedConnectionCount() );
+    }
+
+
+    /**
+     * verify that connections idle for longer than the timeout are closed
+     */
+    @Test
+    public void testIdleEviction() throws Exception {
+        defineResource( "simple.html", "<html><head><title>A Simple Page</title></head><body>Hello</body></html>" );
+        _transport.setIdleTimeout( 10 );
+        WebConversation wc = newConversation();
+
+        wc.getResponse( getHostPath() + "/simple.html" );
+        assertEquals( "idle connections", 1, _transport.getIdleConnectionCount() );
+        Thread.sleep( 50 );
+        _transport.evictIdleConnections();
+        assertEquals( "idle connections", 0, _transport.getIdleConnectionCount() );
+        assertEquals( "evicted connections", 1, _transport.getEvictedConnectionCount() );
+
+        wc.getResponse( getHostPath() + "/simple.html" );
+        assertEquals( "connections opened", 2, _transport.getOpenedConnectionCount() );
+    }
+
+
+    private WebConversation newConversation() {
+        WebConversation wc = new WebConversation();
+        wc.setTransport( _transport );
+        return wc;
+    }
+
+
+    static class FixedResource extends PseudoServlet {
+
+        private WebResource _resource;
+
+        FixedResource( WebResource resource ) {
+            _resource = resource;
+        }
+
+        public WebResource getGetResponse() {
+            return _resource;
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+package com.meterware.httpunit;
+/********************************************************************************************************************
+ * $Id$
+ * $URL$*
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+import com.meterware.pseudoserver.PseudoServlet;
+import com.meterware.pseudoserver.WebResource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for concurrent retrieval of frame contents, included scripts and asynchronous requests.
+ **/
+public class SubresourceLoaderTest extends HttpUnitTest {
+
+    private WebConversation _wc;
+
+    private SubresourceLoader _loader;
+
+    private CountDownLatch _latch;
+
+    /** The number of requests currently waiting at the rendezvous. **/
+    private int _waiting;
+
+    /** The largest number of requests which were in progress at the same time. **/
+    private int _maxWaiting;
+
+
+    @Before
+    public void setUpLoader() throws Exception {
+        _loader = new SubresourceLoader( 4 );
+        _wc = new WebConversation();
+        _wc.setSubresourceLoader( _loader );
+    }
+
+
+    @After
+    public void tearDownLoader() throws Exception {
+        _loader.shutDown();
+    }
+
+
+    /**
+     * verify that frame contents are requested concurrently but processed in document order
+     */
+    @Test
+    public void testConcurrentFrames() throws Exception {
+        _latch = new CountDownLatch( 3 );
+        defineResource( "red.html", new RendezvousResource( "<html><head><title>Red</title></head></html>", "color=red" ) );
+        defineResource( "green.html", new RendezvousResource( "<html><head><title>Green</title></head></html>", "color=green" ) );
+        defineResource( "blue.html", new RendezvousResource( "<html><head><title>Blue</title></head></html>", "color=blue" ) );
+        defineResource( "Frames.html", "<html><frameset cols='30%,30%,40%'>" +
+                                        "<frame src='red.html' name='red'><frame src='green.html' name='green'>" +
+                                        "<frame src='blue.html' name='blue'></frameset></html>" );
+
+        _wc.getResponse( getHostPath() + "/Frames.html" );
+        assertEquals( "concurrent requests", 3, _maxWaiting );
+        assertMatchingSet( "frames", new String[] { "_top", "red", "green", "blue" }, _wc.getFrameNames() );
+        assertEquals( "red frame", "Red", _wc.getFrameContents( "red" ).getTitle() );
+        assertEquals( "blue frame", "Blue", _wc.getFrameContents( "blue" ).getTitle() );
+        assertEquals( "cookie from last frame", "blue", _wc.getCookieValue( "color" ) );
+    }
+
+
+    /**
+     * verify that included scripts are requested concurrently but run in document order
+     */
+    @Test
+    public void testConcurrentScripts() throws Exception {
+        _latch = new CountDownLatch( 3 );
+        defineResource( "one.js", new RendezvousResource( "var order = 'one';", null ) );
+        defineResource( "two.js", new RendezvousResource( "order += ',two';", null ) );
+        defineResource( "three.js", new RendezvousResource( "order += ',three';", null ) );
+        defineResource( "Scripts.html", "<html><head>" +
+                                         "<script language='JavaScript' src='one.js'></script>" +
+                                         "<script language='JavaScript' src='two.js'></script>" +
+                                         "<script language='JavaScript' src='three.js'></script>" +
+                                         "</head><body onload='alert( order )'></body></html>" );
+
+        _wc.getResponse( getHostPath() + "/Scripts.html" );
+        assertEquals( "concurrent requests", 3, _maxWaiting );
+        assertEquals( "script order", "one,two,three", _wc.popNextAlert() );
+    }
+
+
+    /**
+     * verify that without a loader, subresources are requested one at a time
+     */
+    @Test
+    public void testSequentialByDefault() throws Exception {
+        _latch = new CountDownLatch( 2 );
+        defineResource( "red.html", new RendezvousResource( "<html><head><title>Red</title></head></html>", null, 200 ) );
+        defineResource( "blue.html", new RendezvousResource( "<html><head><title>Blue</title></head></html>", null, 200 ) );
+        defineResource( "Frames.html", "<html><frameset cols='50%,50%'>" +
+                                        "<frame src='red.html' name='red'><frame src='blue.html' name='blue'></frameset></html>" );
+
+        WebConversation wc = new WebConversation();
+        assertNull( "default loader", wc.getSubresourceLoader() );
+        wc.getResponse( getHostPath() + "/Frames.html" );
+        assertEquals( "concurrent requests", 1, _maxWaiting );
+        assertMatchingSet( "frames", new String[] { "_top", "red", "blue" }, wc.getFrameNames() );
+    }
+
+
+    /**
+     * verify that asynchronous requests are sent concurrently but applied to the client in the order they were made
+     */
+    @Test
+    public void testAsyncRequests() throws Exception {
+        _latch = new CountDownLatch( 3 );
+        defineResource( "red.html", new RendezvousResource( "<html><head><title>Red</title></head></html>", "color=red" ) );
+        defineResource( "green.html", new RendezvousResource( "<html><head><title>Green</title></head></html>", "color=green" ) );
+        defineResource( "blue.html", new RendezvousResource( "<html><head><title>Blue</title></head></html>", "color=blue" ) );
+        final StringBuffer received = new StringBuffer();
+        _wc.addClientListener( new WebClientListener() {
+            public void requestSent( WebClient src, WebRequest req ) {}
+            public void responseReceived( WebClient src, WebResponse resp ) {
+                received.append( resp.getURL().getFile() ).append( ' ' );
+            }
+        } );
+
+        Future red = _wc.getResponseAsync( new GetMethodWebRequest( getHostPath() + "/red.html" ) );
+        Future green = _wc.getResponseAsync( new GetMethodWebRequest( getHostPath() + "/green.html" ) );
+        Future blue = _wc.getResponseAsync( new GetMethodWebRequest( getHostPath() + "/blue.html" ) );
+        assertNull( "Cookie set before response applied", _wc.getCookieValue( "color" ) );
+
+        assertEquals( "last response", "Blue", ((WebResponse) blue.get()).getTitle() );
+        assertEquals( "concurrent requests", 3, _maxWaiting );
+        assertEquals( "responses applied", "/red.html /green.html /blue.html ", received.toString() );
+        assertTrue( "earlier response not applied", red.isDone() );
+        assertEquals( "first response", "Red", ((WebResponse) red.get()).getTitle() );
+        assertEquals( "second response", "Green", ((WebResponse) green.get()).getTitle() );
+        assertEquals( "current page", "Blue", _wc.getCurrentPage().getTitle() );
+        assertEquals( "cookie from last response", "blue", _wc.getCookieValue( "color" ) );
+    }
+
+
+    /**
+     * verify that a failed asynchronous request is reported by its future
+     */
+    @Test
+    public void testAsyncRequestFailure() throws Exception {
+        Future missing = _wc.getResponseAsync( new GetMethodWebRequest( getHostPath() + "/missing.html" ) );
+        try {
+            missing.get();
+            fail( "Should have reported the missing page" );
+        } catch (ExecutionException e) {
+            assertTrue( "Unexpected failure: " + e.getCause(), e.getCause() instanceof HttpNotFoundException );
+        }
+    }
+
+
+    /**
+     * verify that a cancelled asynchronous request is never applied
+     */
+    @Test
+    public void testAsyncRequestCancelled() throws Exception {
+        _latch = new CountDownLatch( 2 );
+        defineResource( "slow.html", new RendezvousResource( "<html><head><title>Slow</title></head></html>", "speed=slow", 200 ) );
+        defineResource( "fast.html", "<html><head><title>Fast</title></head></html>" );
+
+        Future slow = _wc.getResponseAsync( new GetMethodWebRequest( getHostPath() + "/slow.html" ) );
+        Future fast = _wc.getResponseAsync( new GetMethodWebRequest( getHostPath() + "/fast.html" ) );
+        assertTrue( "Could not cancel", slow.cancel( true ) );
+        assertTrue( "Not reported as cancelled", slow.isCancelled() );
+        try {
+            slow.get();
+            fail( "Should not have returned a cancelled response" );
+        } catch (CancellationException e) {
+        }
+
+        assertEquals( "remaining response", "Fast", ((WebResponse) fast.get( 5, TimeUnit.SECONDS )).getTitle() );
+        assertNull( "Cancelled response applied", _wc.getCookieValue( "speed" ) );
+    }
+
+
+    /**
+     * verify that a client without a loader sends an asynchronous request on the calling thread
+     */
+    @Test
+    public void testAsyncRequestWithoutLoader() throws Exception {
+        final int[] requestCount = new int[1];
+        defineResource( "counted.html", new PseudoServlet() {
+            public WebResource getGetResponse() {
+                requestCount[0]++;
+                return new WebResource( "<html><head><title>Counted</title></head></html>" );
+            }
+        } );
+        WebConversation wc = new WebConversation();
+
+        Future counted = wc.getResponseAsync( new GetMethodWebRequest( getHostPath() + "/counted.html" ) );
+        assertEquals( "requests received", 1, requestCount[0] );
+        assertTrue( "response not ready", counted.isDone() );
+        assertEquals( "response", "Counted", ((WebResponse) counted.get()).getTitle() );
+        assertEquals( "current page", "Counted", wc.getCurrentPage().getTitle() );
+    }
+
+
+    private synchronized void enterRendezvous() {
+        _waiting++;
+        _maxWaiting = Math.max( _waiting, _maxWaiting );
+    }
+
+
+    private synchronized void leaveRendezvous() {
+        _waiting--;
+    }
+
+
+    /**
+     * A resource which does not respond until all of the expected requests have arrived.
+     */
+    private class RendezvousResource extends PseudoServlet {
+
+        private String _contents;
+        private String _cookie;
+        private long   _timeout;
+
+
+        RendezvousResource( String contents, String cookie ) {
+            this( contents, cookie, 5000 );
+        }
+
+
+        RendezvousResource( String contents, String cookie, long timeout ) {
+            _contents = contents;
+            _cookie = cookie;
+            _timeout = timeout;
+        }
+
+
+        public WebResource getGetResponse() throws java.io.IOException {
+            enterRendezvous();
+            _latch.countDown();
+            try {
+                _latch.await( _timeout, TimeUnit.MILLISECONDS );
+            } catch (InterruptedException e) {
+                // respond at once
+            }
+            leaveRendezvous();
+            WebResource resource = new WebResource( _contents );
+            if (_cookie != null) resource.addHeader( "Set-Cookie: " + _cookie );
+            return resource;
+        }
+    }
+
+}
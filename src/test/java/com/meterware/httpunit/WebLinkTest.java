@@ -20,10 +20,13 @@ package com.meterware.httpunit;
  *
  *******************************************************************************************************************/
 
+import com.meterware.httpunit.parsing.PageScanListener;
 import org.junit.Before;
 import org.junit.Test;
 import org.xml.sax.SAXException;
 
+import java.util.ArrayList;
+
 import static org.junit.Assert.*;
 
 
@@ -63,6 +66,27 @@ public class WebLinkTest extends HttpUnitTest {
     }
 
 
+    /**
+     * verify that scanning the page finds the same links as parsing it
+     */
+    @Test
+    public void testScanLinks() throws Exception {
+        final ArrayList hrefs = new ArrayList();
+        _simplePage.scanPage( new PageScanListener() {
+            public void titleFound( String title ) {}
+            public void baseFound( String href, String target ) {}
+            public void linkFound( String href, String target, String text ) { hrefs.add( href ); }
+            public void formStarted( String name, String action, String method ) {}
+            public void formControlFound( String name, String type, String value ) {}
+            public void formEnded() {}
+        } );
+
+        WebLink[] links = _simplePage.getLinks();
+        assertEquals( "number of links", links.length, hrefs.size() );
+        for (int i = 0; i < links.length; i++) assertEquals( "link " + i, links[i].getAttribute( "href" ), hrefs.get( i ) );
+    }
+
+
     /**
      * test for Bug report 1908117 by firebird74
      * http://www.w3.org/Addressing/URL/url-spec.html
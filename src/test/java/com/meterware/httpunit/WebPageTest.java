@@ -20,6 +20,9 @@ package com.meterware.httpunit;
  *
  *******************************************************************************************************************/
 
+import com.meterware.pseudoserver.PseudoServlet;
+import com.meterware.pseudoserver.WebResource;
+
 import java.io.PrintWriter;
 import java.io.FileWriter;
 import java.io.File;
@@ -70,6 +73,23 @@ public class WebPageTest extends HttpUnitTest {
         }
     }
 
+    /**
+     * verify that a conversation's proxy does not change the proxy system properties seen by the rest of the JVM
+     */
+    @Test
+    public void testProxyServerLeavesSystemPropertiesAlone() throws Exception {
+        defineResource("http://someserver.com/sample", new PseudoServlet() {
+            public WebResource getGetResponse() {
+                return new WebResource("proxyHost=" + System.getProperty("proxyHost"), "text/plain");
+            }
+        });
+        WebConversation wc = new WebConversation();
+        wc.setProxyServer("localhost", getHostPort());
+        WebResponse wr = wc.getResponse("http://someserver.com/sample");
+        assertEquals("System property during request", "proxyHost=null", wr.getText().trim());
+        assertEquals("conversation proxy host", "localhost", wc.getProxyHost());
+    }
+
     /**
      * check the valid contentTypes
      * modified for bug report
@@ -521,6 +541,54 @@ public class WebPageTest extends HttpUnitTest {
         assertNull("More tags than expected: " + nextTag + "...?", nextTag);
     }
 
+    /**
+     * Test the {@link ByteTagScanner} handling of attribute values.
+     */
+    @Test
+    public void testByteTagScannerAttributes() throws Exception {
+        final String document = "<HTML><!-- <meta http-equiv=refresh content=1> -->"
+                + "<META Http-Equiv = 'Refresh' CONTENT=\"2; URL=Next.html\" checked>"
+                + "<base href=/Main/Base target=\"\"></html>";
+        ByteTagScanner scanner = new ByteTagScanner(document.getBytes());
+
+        assertTrue("Should find html tag", scanner.nextTag());
+        assertTrue("Tag should be html", scanner.isTag("html"));
+        assertNull("html tag should have no attributes", scanner.getAttribute("content"));
+
+        assertTrue("Should find meta tag", scanner.nextTag());
+        assertTrue("Comment should have been skipped", scanner.isTag("meta"));
+        assertEquals("http-equiv", "Refresh", scanner.getAttribute("http-equiv"));
+        assertEquals("content", "2; URL=Next.html", scanner.getAttribute("content"));
+        assertNull("Should not match part of a name", scanner.getAttribute("check"));
+
+        assertTrue("Should find base tag", scanner.nextTag());
+        assertEquals("Tag name", "base", scanner.getName());
+        assertEquals("href", "/Main/Base", scanner.getAttribute("href"));
+        assertEquals("target", "", scanner.getAttribute("target"));
+
+        assertTrue("Should find end tag", scanner.nextTag());
+        assertTrue("Tag should be /html", scanner.isTag("/html"));
+        assertFalse("Should be no more tags", scanner.nextTag());
+    }
+
+
+    /**
+     * Verify that a refresh meta tag within a comment is ignored.
+     */
+    @Test
+    public void testCommentedMetaRefresh() throws Exception {
+        String page = "<html><head><title>Sample</title>" +
+                "<!-- <meta Http-equiv=refresh content='2;URL=\"NextPage.html\"'> --></head>\n" +
+                "<body>This has no data\n" +
+                "</body></html>\n";
+        defineResource("SimplePage.html", page);
+
+        WebConversation wc = new WebConversation();
+        WebResponse simplePage = wc.getResponse(getHostPath() + "/SimplePage.html");
+        assertNull("No refresh request should have been found", simplePage.getRefreshRequest());
+    }
+
+
     /**
      * Test whether a base tag embedded within JavaScript in the header of a page confuses the parser.
      */
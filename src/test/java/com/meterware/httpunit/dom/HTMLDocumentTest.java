@@ -32,6 +32,7 @@ import java.net.URL;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 /**
@@ -148,6 +149,40 @@ public class HTMLDocumentTest extends AbstractHTMLElementTest {
     }
 
 
+    /**
+     * Verifies that retrieving elements by their ID attribute reflects changes to the document.
+     */
+    @Test
+    public void testGetElementsByIdAfterChanges() throws Exception {
+        HTMLElement body = (HTMLElement) createElement("body");
+        _htmlDocument.setBody(body);
+
+        HTMLAnchorElement anchor1 = (HTMLAnchorElement) createElement("a");
+        anchor1.setId("sea");
+        assertNull("Should not find detached element", _htmlDocument.getElementById("sea"));
+        body.appendChild(anchor1);
+        assertSame("Anchor element", anchor1, _htmlDocument.getElementById("sea"));
+
+        anchor1.setId("ocean");
+        assertNull("Should not find old ID", _htmlDocument.getElementById("sea"));
+        assertSame("Anchor element after ID change", anchor1, _htmlDocument.getElementById("ocean"));
+
+        HTMLImageElement image1 = (HTMLImageElement) createElement("img");
+        image1.setId("ocean");
+        body.insertBefore(image1, anchor1);
+        assertSame("First element with duplicate ID", image1, _htmlDocument.getElementById("ocean"));
+
+        body.removeChild(image1);
+        assertSame("Element after duplicate removed", anchor1, _htmlDocument.getElementById("ocean"));
+
+        anchor1.getAttributeNode("id").setValue("lake");
+        assertSame("Element after attribute value change", anchor1, _htmlDocument.getElementById("lake"));
+
+        anchor1.removeAttribute("id");
+        assertNull("Should not find element after ID removed", _htmlDocument.getElementById("lake"));
+    }
+
+
     /**
      * Verifies retrieving elements by their name attribute.
      */
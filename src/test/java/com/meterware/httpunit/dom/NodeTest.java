@@ -177,6 +177,32 @@ public class NodeTest {
     }
 
 
+    /**
+     * Verifies that elements found by tag name reflect changes to the document, and are in document order.
+     */
+    @Test
+    public void testElementsByTagNameAfterChanges() throws Exception {
+        Element foo3 = _document.createElement("foo");
+        _element.insertBefore(foo3, _foo1);
+        verifyNodeList("foo after insert", _document.getElementsByTagName("foo"), new Element[]{foo3, _foo1, _foo2});
+
+        _foo1.removeChild(_foo2);
+        verifyNodeList("foo after remove", _document.getElementsByTagName("foo"), new Element[]{foo3, _foo1});
+
+        _bar2.appendChild(_foo2);
+        verifyNodeList("foo after reattach", _document.getElementsByTagName("foo"), new Element[]{foo3, _foo1, _foo2});
+
+        _bar2.appendChild(_foo1);
+        verifyNodeList("foo after move", _document.getElementsByTagName("foo"), new Element[]{foo3, _foo2, _foo1});
+        verifyNodeList("bar after move", _document.getElementsByTagName("BAR"), new Element[]{_bar2, _bar1});
+        verifyNodeList("bar children", _bar2.getChildNodes(), new Node[]{_foo2, _foo1});
+
+        Element detached = _document.createElement("foo");
+        detached.appendChild(_document.createElement("bar"));
+        verifyNodeList("foo with detached element", _document.getElementsByTagName("foo"), new Element[]{foo3, _foo2, _foo1});
+    }
+
+
     /**
      * Verifies that only children of a particular document may be added to its children.
      */
@@ -0,0 +1,126 @@
+package com.meterware.httpunit.javascript;
+/********************************************************************************************************************
+ * $Id$
+ * $URL$*
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the compiled script cache.
+ */
+public class ScriptCacheTest {
+
+    private Context _context;
+
+
+    @Before
+    public void setUp() throws Exception {
+        _context = Context.enter();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        Context.exit();
+    }
+
+
+    @Test
+    public void testScriptCompiledOnce() throws Exception {
+        ScriptCache cache = new ScriptCache( 10 );
+        Script first = cache.getScript( _context, "x = 1 + 2;" );
+        Script second = cache.getScript( _context, "x = " + "1 + 2;" );
+        assertSame( "Cached script", first, second );
+        assertEquals( "Misses", 1, cache.getMissCount() );
+        assertEquals( "Hits", 1, cache.getHitCount() );
+        assertEquals( "Size", 1, cache.getSize() );
+    }
+
+
+    @Test
+    public void testScriptRunsInEachScope() throws Exception {
+        ScriptCache cache = new ScriptCache( 10 );
+        Scriptable scope1 = _context.initStandardObjects();
+        Scriptable scope2 = _context.initStandardObjects();
+        scope1.put( "y", scope1, new Integer( 3 ) );
+        scope2.put( "y", scope2, new Integer( 4 ) );
+
+        assertEquals( "First result", "6", Context.toString( cache.getScript( _context, "y * 2" ).exec( _context, scope1 ) ) );
+        assertEquals( "Second result", "8", Context.toString( cache.getScript( _context, "y * 2" ).exec( _context, scope2 ) ) );
+        assertEquals( "Hits", 1, cache.getHitCount() );
+    }
+
+
+    @Test
+    public void testFunctionBoundToScope() throws Exception {
+        ScriptCache cache = new ScriptCache( 10 );
+        Scriptable scope1 = _context.initStandardObjects();
+        Scriptable scope2 = _context.initStandardObjects();
+        scope1.put( "name", scope1, "one" );
+        scope2.put( "name", scope2, "two" );
+
+        Function f1 = cache.getFunction( _context, scope1, "return name; // trailing comment" );
+        Function f2 = cache.getFunction( _context, scope2, "return name; // trailing comment" );
+        assertEquals( "First result", "one", f1.call( _context, scope1, scope1, new Object[0] ) );
+        assertEquals( "Second result", "two", f2.call( _context, scope2, scope2, new Object[0] ) );
+        assertEquals( "Misses", 1, cache.getMissCount() );
+    }
+
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        ScriptCache cache = new ScriptCache( 2 );
+        Script a = cache.getScript( _context, "'a'" );
+        cache.getScript( _context, "'b'" );
+        cache.getScript( _context, "'a'" );
+        cache.getScript( _context, "'c'" );
+        assertEquals( "Size", 2, cache.getSize() );
+        assertEquals( "Evictions", 1, cache.getEvictionCount() );
+        assertSame( "Recently used script", a, cache.getScript( _context, "'a'" ) );
+        cache.getScript( _context, "'b'" );
+        assertEquals( "Misses", 4, cache.getMissCount() );
+
+        cache.setMaxEntries( 0 );
+        assertEquals( "Size after disabling", 0, cache.getSize() );
+        cache.getScript( _context, "'a'" );
+        assertEquals( "Size with caching disabled", 0, cache.getSize() );
+    }
+
+
+    @Test
+    public void testOptimizationLevelPartOfKey() throws Exception {
+        ScriptCache cache = new ScriptCache( 10 );
+        _context.setOptimizationLevel( -1 );
+        cache.getScript( _context, "1" );
+        _context.setOptimizationLevel( 0 );
+        cache.getScript( _context, "1" );
+        assertEquals( "Misses", 2, cache.getMissCount() );
+    }
+}
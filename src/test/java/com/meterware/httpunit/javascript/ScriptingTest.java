@@ -120,6 +120,157 @@ public class ScriptingTest extends AbstractJavaScriptTest {
         assertEquals("Alert message", "blabla", wc.popNextAlert());
     }
 
+    /**
+     * Verifies that globals defined by one page are not visible to another, even though both share the same
+     * standard objects.
+     */
+    @Test
+    public void testGlobalsNotSharedBetweenPages() throws Exception {
+        defineResource("First.html", "<html><head><script language='JavaScript'>" +
+                "var declared = 'first'; undeclared = 'first';" +
+                "alert( typeof String.fromCharCode );" +
+                "</script></head><body></body></html>");
+        defineResource("Second.html", "<html><head><script language='JavaScript'>" +
+                "alert( typeof declared + ',' + typeof undeclared + ',' + typeof String.fromCharCode );" +
+                "</script></head><body></body></html>");
+        WebConversation wc = new WebConversation();
+        wc.getResponse(getHostPath() + "/First.html");
+        assertEquals("First page alert", "function", wc.popNextAlert());
+        wc.getResponse(getHostPath() + "/Second.html");
+        assertEquals("Second page alert", "undefined,undefined,function", wc.popNextAlert());
+    }
+
+    /**
+     * Verifies that scripting may be disabled for one client without affecting others.
+     */
+    @Test
+    public void testScriptingEnabledPerClient() throws Exception {
+        defineResource("nothing.html", "Should get here");
+        defineResource("Alert.html", "<html><head><script language='JavaScript'>" +
+                "alert( 'ran' );" +
+                "</script></head><body>" +
+                "<form name='realform'><input name='color' value='blue'></form>" +
+                "<a href='nothing.html' onClick=\"document.realform.color.value='green';return false;\">green</a>" +
+                "</body></html>");
+        WebConversation disabled = new WebConversation();
+        disabled.getClientProperties().setScriptingEnabled(false);
+        WebConversation enabled = new WebConversation();
+
+        WebResponse response = disabled.getResponse(getHostPath() + "/Alert.html");
+        assertNull("Alert shown with scripting disabled", disabled.getNextAlert());
+        response.getLinkWith("green").click();
+        assertEquals("Result of click", "Should get here", disabled.getCurrentPage().getText());
+
+        enabled.getResponse(getHostPath() + "/Alert.html");
+        assertEquals("Alert with scripting enabled", "ran", enabled.popNextAlert());
+        assertTrue("Static option changed", HttpUnitOptions.isScriptingEnabled());
+    }
+
+
+    /**
+     * Verifies that timers run, in order, as the virtual clock is advanced.
+     */
+    @Test
+    public void testTimers() throws Exception {
+        defineResource("Timers.html", "<html><head><script language='JavaScript'>" +
+                "var count = 0;" +
+                "setTimeout( function() { alert( 'timeout' ); }, 100 );" +
+                "var id = setInterval( function() { count++; alert( 'tick ' + count ); if (count == 3) clearInterval( id ); }, 50 );" +
+                "setTimeout( \"alert( 'deferred script' )\", 500 );" +
+                "clearTimeout( setTimeout( \"alert( 'cancelled' )\", 10 ) );" +
+                "</script></head><body></body></html>");
+        WebConversation wc = new WebConversation();
+        wc.getResponse(getHostPath() + "/Timers.html");
+        WebWindow window = wc.getMainWindow();
+        assertNull("Alert before clock advanced", wc.getNextAlert());
+        assertEquals("Pending timers", 3, window.getPendingTimerCount());
+
+        assertEquals("Timers run by 99ms", 1, window.advanceClock(99));
+        assertEquals("First alert", "tick 1", wc.popNextAlert());
+        assertEquals("Timers run by 100ms", 2, window.advanceClock(1));
+        assertEquals("Second alert", "timeout", wc.popNextAlert());
+        assertEquals("Third alert", "tick 2", wc.popNextAlert());
+        window.advanceClock(50);
+        assertEquals("Fourth alert", "tick 3", wc.popNextAlert());
+        assertEquals("Clock time", 150, window.getClockTime());
+
+        assertEquals("Pending timers run", 1, window.runPendingTimers());
+        assertEquals("Last alert", "deferred script", wc.popNextAlert());
+        assertEquals("Clock time after pending timers", 500, window.getClockTime());
+        assertEquals("Timers left", 0, window.getPendingTimerCount());
+        assertNull("Unexpected alert", wc.getNextAlert());
+    }
+
+    /**
+     * Verifies that timers set by a page do not run once the page has been replaced.
+     */
+    @Test
+    public void testTimersDiscardedWithPage() throws Exception {
+        defineResource("Timer.html", "<html><head><script language='JavaScript'>" +
+                "setTimeout( function() { alert( 'too late' ); }, 100 );" +
+                "</script></head><body></body></html>");
+        defineResource("Next.html", "<html><body>next</body></html>");
+        WebConversation wc = new WebConversation();
+        wc.getResponse(getHostPath() + "/Timer.html");
+        wc.getResponse(getHostPath() + "/Next.html");
+        assertEquals("Timers run", 0, wc.getMainWindow().advanceClock(200));
+        assertNull("Unexpected alert", wc.getNextAlert());
+    }
+
+    /**
+     * Verifies that a page may extend the standard objects without affecting other pages.
+     */
+    @Test
+    public void testStandardObjectsExtendedByPage() throws Exception {
+        defineResource("First.html", "<html><head><script language='JavaScript'>" +
+                "String.prototype.shout = function() { return this.toUpperCase() + '!'; };" +
+                "alert( 'hello'.shout() );" +
+                "</script></head><body></body></html>");
+        defineResource("Second.html", "<html><head><script language='JavaScript'>" +
+                "alert( typeof 'hello'.shout );" +
+                "</script></head><body></body></html>");
+        WebConversation wc = new WebConversation();
+        wc.getResponse(getHostPath() + "/First.html");
+        assertEquals("First page alert", "HELLO!", wc.popNextAlert());
+        wc.getResponse(getHostPath() + "/Second.html");
+        assertEquals("Second page alert", "undefined", wc.popNextAlert());
+    }
+
+    /**
+     * Verifies that the HTML host objects inherit from the page's own Object prototype.
+     */
+    @Test
+    public void testHostObjectsInheritFromPageObject() throws Exception {
+        defineResource("OnLoad.html", "<html><head><script language='JavaScript'>" +
+                "Object.prototype.x = 1;" +
+                "alert( document.x + ',' + window.x );" +
+                "alert( document instanceof Object );" +
+                "</script></head><body></body></html>");
+        WebConversation wc = new WebConversation();
+        wc.getResponse(getHostPath() + "/OnLoad.html");
+        assertEquals("Inherited property", "1,1", wc.popNextAlert());
+        assertEquals("Document is an object", "true", wc.popNextAlert());
+    }
+
+    /**
+     * Verifies that a page may extend the prototypes of the HTML host classes without affecting other pages.
+     */
+    @Test
+    public void testHostClassesExtendedByPage() throws Exception {
+        defineResource("First.html", "<html><head><script language='JavaScript'>" +
+                "Document.prototype.foo = function() { return 'foo'; };" +
+                "alert( document.foo() );" +
+                "</script></head><body></body></html>");
+        defineResource("Second.html", "<html><head><script language='JavaScript'>" +
+                "alert( typeof Document.prototype.foo );" +
+                "</script></head><body></body></html>");
+        WebConversation wc = new WebConversation();
+        wc.getResponse(getHostPath() + "/First.html");
+        assertEquals("First page alert", "foo", wc.popNextAlert());
+        wc.getResponse(getHostPath() + "/Second.html");
+        assertEquals("Second page alert", "undefined", wc.popNextAlert());
+    }
+
     /**
      * test for bug report [ 1153066 ] Eternal loop while processing javascript
      * by Serguei Khramtchenko 2005-02-27
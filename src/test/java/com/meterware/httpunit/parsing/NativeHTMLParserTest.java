@@ -0,0 +1,238 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import com.meterware.httpunit.scripting.ScriptingHandler;
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.html.HTMLDocument;
+
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the built-in HTML parser.
+ **/
+public class NativeHTMLParserTest {
+
+    private URL _url;
+
+
+    public NativeHTMLParserTest() throws Exception {
+        _url = new URL( "http://localhost/page.html" );
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        HTMLParserFactory.reset();
+    }
+
+
+    /**
+     * verify that the built-in parser may be selected
+     */
+    @Test
+    public void testSelection() throws Exception {
+        HTMLParserFactory.useNativeHTMLParser();
+        assertTrue( "Native parser not selected", HTMLParserFactory.getHTMLParser() instanceof NativeHTMLParser );
+    }
+
+
+    /**
+     * verify that missing elements are supplied and unclosed ones closed as the NekoHTML parser does
+     */
+    @Test
+    public void testTagBalancing() throws Exception {
+        assertSameDocument( "<title>Missing</title>text" );
+        assertSameDocument( "<p>one<p>two<ul><li>a<li>b</ul>" );
+        assertSameDocument( "<b>bold <i>both</b> italic</i> plain" );
+        assertSameDocument( "<b>x<p>y</b>z" );
+        assertSameDocument( "<table><tr><td>a<td>b<tr><td>c</table>after" );
+        assertSameDocument( "<table><form><tr><td><input name=a></td></tr></form></table>" );
+        assertSameDocument( "<select><optgroup label=a><option>1<optgroup label=b><option>2</select>" );
+        assertSameDocument( "<frameset><frame src=a><noframes><body>no</body></noframes></frameset>" );
+        assertSameDocument( "<html><body><p>a</body></html><p>b</p></p>" );
+        assertSameDocument( "<body><p>x</p></body><head><title>late</title></head>" );
+    }
+
+
+    /**
+     * verify that text, attributes, comments and character references are read as the NekoHTML parser does
+     */
+    @Test
+    public void testContent() throws Exception {
+        assertSameDocument( "<!-- before --><html>\n<head>\r\n<title>a &amp; b</title></head>\n<body>\nx\n</body></html>" );
+        assertSameDocument( "<div a=1 a=2 B=3 c title='a\"b' href=foo/bar>x</div>" );
+        assertSameDocument( "&amp;&lt;&gt;&nbsp;&#65;&#x42;&foo; &amp a < b" );
+        assertSameDocument( "<a href=\"a?b=1&amp;c=2&d\" title=\"&lt;&quot;\">x</a><br/><p/>y" );
+        assertSameDocument( "<textarea>a &amp; <b>b</b></textarea><xmp>a &amp; <b></xmp><style>p {}</style>" );
+        assertSameDocument( "<?xml version=\"1.0\"?><!DOCTYPE html><![CDATA[x]]><p>a</ x>b" );
+        assertSameDocument( "<p>x<a href=\"unterminated" );
+        assertReferenceValue( "&#x10FFFF;", "\udbff\udfff" );
+        assertReferenceValue( "&#x110000;", "\ufffd" );
+        assertReferenceValue( "&#99999999;", "\ufffd" );
+        assertReferenceValue( "&#1234567;", "\ufffd" );
+        assertReferenceValue( "&#xFFFFFFFF;", "\ufffd" );
+        assertReferenceValue( "&#123456789;", "&#123456789;" );
+    }
+
+
+    /**
+     * verify that supported scripts are run as they are read and their output parsed in their place
+     */
+    @Test
+    public void testScripts() throws Exception {
+        assertSameDocument( "<script>W:<p>written</p></script><p>after" );
+        assertSameDocument( "<head><script>W:text</script></head>" );
+        assertSameDocument( "<script src=\"a.js\"/><script src=\"b.js\">W:more</script>" );
+        assertSameDocument( "<script>W:<script>W:<b>nested</b></script></script>" );
+        assertSameDocument( "<script language=\"vbscript\">W:not run</script>" );
+    }
+
+
+    /**
+     * verify that a page may be parsed from its bytes
+     */
+    @Test
+    public void testStreamParsing() throws Exception {
+        String page = "<html><head><title>Caf\u00e9</title></head><body>\u00e9t\u00e9</body></html>";
+        TestAdapter adapter = new TestAdapter();
+        new NativeHTMLParser().parse( _url, new ByteArrayInputStream( page.getBytes( "UTF-8" ) ), "UTF-8", adapter );
+        assertEquals( "title", "Caf\u00e9", adapter._document.getTitle() );
+        assertEquals( "document", toString( parseWithNeko( page ) ), toString( adapter ) );
+    }
+
+
+    private void assertSameDocument( String page ) throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        new NativeHTMLParser().parse( _url, page, adapter );
+        assertEquals( page, toString( parseWithNeko( page ) ), toString( adapter ) );
+    }
+
+
+    /**
+     * Verifies that a character reference is read as the specified value both in text and in an attribute.
+     */
+    private void assertReferenceValue( String reference, String value ) throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        new NativeHTMLParser().parse( _url, "<p title=\"" + reference + "\">" + reference + "</p>", adapter );
+        Element paragraph = (Element) adapter._document.getElementsByTagName( "p" ).item( 0 );
+        assertEquals( "text of " + reference, value, paragraph.getFirstChild().getNodeValue() );
+        assertEquals( "attribute value of " + reference, value, paragraph.getAttribute( "title" ) );
+    }
+
+
+    private String toString( TestAdapter adapter ) {
+        return adapter._script + toString( adapter._document );
+    }
+
+
+    private TestAdapter parseWithNeko( String page ) throws Exception {
+        TestAdapter adapter = new TestAdapter();
+        new NekoHTMLParser().parse( _url, page, adapter );
+        return adapter;
+    }
+
+
+    private static String toString( Node node ) {
+        StringBuffer sb = new StringBuffer();
+        appendNode( sb, node, "" );
+        return sb.toString();
+    }
+
+
+    private static void appendNode( StringBuffer sb, Node node, String indent ) {
+        sb.append( indent ).append( node.getNodeName() );
+        if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.COMMENT_NODE) {
+            sb.append( " [" ).append( node.getNodeValue() ).append( ']' );
+        }
+        NamedNodeMap attributes = node.getAttributes();
+        for (int i = 0; attributes != null && i < attributes.getLength(); i++) {
+            sb.append( ' ' ).append( attributes.item( i ).getNodeName() ).append( "=\"" ).append( attributes.item( i ).getNodeValue() ).append( '"' );
+        }
+        sb.append( '\n' );
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            appendNode( sb, child, indent + "  " );
+        }
+    }
+
+
+    /**
+     * An adapter whose scripts write whatever follows "W:" in their text, and whose included scripts
+     * write the name of the script.
+     */
+    static class TestAdapter implements DocumentAdapter, ScriptingHandler {
+
+        private HTMLDocument _document;
+        private StringBuffer _script = new StringBuffer();
+
+        public void setDocument( HTMLDocument document ) {
+            _document = document;
+        }
+
+        HTMLDocument getDocument() {
+            return _document;
+        }
+
+        public String getIncludedScript( String srcAttribute ) {
+            return "W:<i>" + srcAttribute + "</i>";
+        }
+
+        public ScriptingHandler getScriptingHandler() {
+            return this;
+        }
+
+        public boolean supportsScriptLanguage( String language ) {
+            return language == null || language.equalsIgnoreCase( "javascript" );
+        }
+
+        public String runScript( String language, String script ) {
+            _script.append( "RUN[" ).append( script ).append( "]\n" );
+            int start = script.indexOf( "W:" );
+            return start < 0 ? "" : script.substring( start + 2 );
+        }
+
+        public boolean doEventScript( String eventScript ) {
+            return true;
+        }
+
+        public boolean doEvent( String eventScript ) {
+            return true;
+        }
+
+        public boolean handleEvent( String eventName ) {
+            return true;
+        }
+
+        public Object evaluateExpression( String urlString ) {
+            return null;
+        }
+
+        public void clearCaches() {
+        }
+    }
+}
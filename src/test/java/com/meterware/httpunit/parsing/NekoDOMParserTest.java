@@ -0,0 +1,117 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import com.meterware.httpunit.scripting.ScriptingHandler;
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.html.HTMLDocument;
+
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for the reuse of NekoHTML parsers.
+ **/
+public class NekoDOMParserTest {
+
+    @After
+    public void tearDown() throws Exception {
+        HTMLParserFactory.reset();
+    }
+
+
+    /**
+     * verify that a released parser is reused for the next document, without retaining the previous one
+     */
+    @Test
+    public void testParserReuse() throws Exception {
+        URL url = new URL( "http://localhost/simple.html" );
+        NekoDOMParser parser = NekoDOMParser.getParser( new SimpleAdapter(), url );
+        NekoDOMParser.releaseParser( parser );
+        assertNull( "Released parser retained its document", parser.getDocument() );
+        assertSame( "Parser not reused", parser, NekoDOMParser.getParser( new SimpleAdapter(), url ) );
+    }
+
+
+    /**
+     * verify that a parser in use is not handed out again
+     */
+    @Test
+    public void testNestedParsers() throws Exception {
+        URL url = new URL( "http://localhost/simple.html" );
+        NekoDOMParser parser = NekoDOMParser.getParser( new SimpleAdapter(), url );
+        NekoDOMParser nested = NekoDOMParser.getParser( new SimpleAdapter(), url );
+        assertNotSame( "Parser in use was reused", parser, nested );
+    }
+
+
+    /**
+     * verify that parsers are only reused for the settings with which they were built
+     */
+    @Test
+    public void testParserSettings() throws Exception {
+        URL url = new URL( "http://localhost/simple.html" );
+        NekoDOMParser parser = NekoDOMParser.getParser( new SimpleAdapter(), url );
+        NekoDOMParser.releaseParser( parser );
+        HTMLParserFactory.setParserWarningsEnabled( true );
+        assertNotSame( "Parser reused with different settings", parser, NekoDOMParser.getParser( new SimpleAdapter(), url ) );
+    }
+
+
+    /**
+     * verify that successive documents are parsed independently with a reused parser
+     */
+    @Test
+    public void testSuccessiveDocuments() throws Exception {
+        NekoHTMLParser htmlParser = new NekoHTMLParser();
+        URL url = new URL( "http://localhost/simple.html" );
+
+        SimpleAdapter first = new SimpleAdapter();
+        htmlParser.parse( url, "<html><head><title>First</title></head><body><b>one</b></body></html>", first );
+        SimpleAdapter second = new SimpleAdapter();
+        htmlParser.parse( url, "<html><head><title>Second</title></head><body><i>two</i></body></html>", second );
+
+        assertNotSame( "documents", first._document, second._document );
+        assertEquals( "first title", "First", first._document.getTitle() );
+        assertEquals( "second title", "Second", second._document.getTitle() );
+        assertEquals( "bold elements", 0, second._document.getElementsByTagName( "b" ).getLength() );
+    }
+
+
+    static class SimpleAdapter implements DocumentAdapter {
+
+        private HTMLDocument _document;
+
+        public void setDocument( HTMLDocument document ) {
+            _document = document;
+        }
+
+        public String getIncludedScript( String srcAttribute ) {
+            return "";
+        }
+
+        public ScriptingHandler getScriptingHandler() {
+            return null;
+        }
+    }
+}
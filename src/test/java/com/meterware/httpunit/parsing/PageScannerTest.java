@@ -0,0 +1,138 @@
+package com.meterware.httpunit.parsing;
+/********************************************************************************************************************
+* $Id$
+*
+* Copyright (c) 2026, Russell Gold
+*
+* Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+* documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+* the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+* to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+*
+* The above copyright notice and this permission notice shall be included in all copies or substantial portions
+* of the Software.
+*
+* THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+* THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+* AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+* CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+* DEALINGS IN THE SOFTWARE.
+*
+*******************************************************************************************************************/
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests for reading links and forms without building a document.
+ **/
+public class PageScannerTest {
+
+    /**
+     * verify that the title, base and links are reported as they are found
+     */
+    @Test
+    public void testLinks() throws Exception {
+        assertEquals( "events",
+                      "title(A Page) base(http://x/, main) link(one.html, null, First link) link(two.html, side, )" +
+                      " link(map.html, null, ) link(last?a=1&b=2, null, Last)",
+                      scan( "<html><head><title>A&nbsp; Page</title><base href='http://x/' target=main></head><body>" +
+                            "<a href=one.html>First\n <b>link</b></a> <a name=anchor>not a link</a>" +
+                            "<a href=two.html target=side><img src=a.gif></a><map><area href=map.html></map>" +
+                            "<a href='last?a=1&amp;b=2'>Last" ) );
+    }
+
+
+    /**
+     * verify that forms and their named controls are reported
+     */
+    @Test
+    public void testForms() throws Exception {
+        assertEquals( "events",
+                      "form(login, /login, post) control(user, text, guest) control(password, password, null)" +
+                      " control(go, submit, Go) control(choice, select, null) control(notes, textarea, null) end" +
+                      " form(null, search, null) control(q, text, null) end",
+                      scan( "<form name=login action=/login method=post><input name=user value=guest>" +
+                            "<input type=PASSWORD name=password><input type=submit value=unnamed><button name=go value=Go>Go</button>" +
+                            "<select name=choice><option>a</select><textarea name=notes>text</textarea></form>" +
+                            "<input name=outside><form action=search><input name=q>" ) );
+    }
+
+
+    /**
+     * verify that the contents of scripts and comments are not mistaken for links
+     */
+    @Test
+    public void testScriptsNotRead() throws Exception {
+        assertEquals( "events", "link(real.html, null, Real)",
+                      scan( "<script>document.write( '<a href=written.html>Written</a>' );</script>" +
+                            "<!-- <a href=comment.html>Comment</a> --><a href=real.html>Real</a>" ) );
+    }
+
+
+    /**
+     * verify that only a bounded amount of a long title or link text is kept
+     */
+    @Test
+    public void testLongText() throws Exception {
+        StringBuffer sb = new StringBuffer( "<a href=long.html>" );
+        for (int i = 0; i < 10 * PageScanner.TEXT_LIMIT; i++) sb.append( 'x' );
+        sb.append( "</a><!--" );
+        for (int i = 0; i < 10 * PageScanner.TEXT_LIMIT; i++) sb.append( 'y' );
+        sb.append( "--><a href=after.html>After</a>" );
+
+        RecordingListener listener = new RecordingListener();
+        new PageScanner( new StringReader( sb.toString() ) ).scan( listener );
+        assertTrue( "Link text not limited", listener.toString().length() < 2 * PageScanner.TEXT_LIMIT );
+        assertTrue( "Following link not found", listener.toString().endsWith( "link(after.html, null, After)" ) );
+    }
+
+
+    private String scan( String page ) throws Exception {
+        RecordingListener listener = new RecordingListener();
+        new PageScanner( new StringReader( page ) ).scan( listener );
+        return listener.toString();
+    }
+
+
+    static class RecordingListener implements PageScanListener {
+
+        private StringBuffer _events = new StringBuffer();
+
+        public void titleFound( String title ) {
+            record( "title(" + title + ")" );
+        }
+
+        public void baseFound( String href, String target ) {
+            record( "base(" + href + ", " + target + ")" );
+        }
+
+        public void linkFound( String href, String target, String text ) {
+            record( "link(" + href + ", " + target + ", " + text + ")" );
+        }
+
+        public void formStarted( String name, String action, String method ) {
+            record( "form(" + name + ", " + action + ", " + method + ")" );
+        }
+
+        public void formControlFound( String name, String type, String value ) {
+            record( "control(" + name + ", " + type + ", " + value + ")" );
+        }
+
+        public void formEnded() {
+            record( "end" );
+        }
+
+        private void record( String event ) {
+            if (_events.length() > 0) _events.append( ' ' );
+            _events.append( event );
+        }
+
+        public String toString() {
+            return _events.toString();
+        }
+    }
+}
@@ -23,13 +23,18 @@ package com.meterware.httpunit.ssl;
 import java.security.Provider;
 import java.security.Security;
 
+import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 
+import com.meterware.httpunit.HttpsConfiguration;
 import com.meterware.httpunit.HttpsProtocolSupport;
+import com.meterware.httpunit.WebConversation;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 
 /**
@@ -78,4 +83,24 @@ public class HttpsProtocolSupportTest {
         SSLSocketFactory factory = HttpsProtocolSupport.getSocketFactory();
         assertNotNull(factory);
     }
+
+    /**
+     * test that an https configuration applies its session cache settings to its context and
+     * creates all sockets with a single factory
+     */
+    @Test
+    public void testHttpsConfiguration() throws Exception {
+        HttpsConfiguration configuration = new HttpsConfiguration();
+        configuration.setSessionCacheSize(50);
+        configuration.setSessionTimeout(600);
+        assertEquals("session cache size", 50, configuration.getContext().getClientSessionContext().getSessionCacheSize());
+        assertEquals("session timeout", 600, configuration.getContext().getClientSessionContext().getSessionTimeout());
+        assertSame("socket factory", configuration.getSocketFactory(), configuration.getSocketFactory());
+        assertTrue("socket type", configuration.getSocketFactory().createSocket() instanceof SSLSocket);
+        assertEquals("handshakes", 0, configuration.getHandshakeCount());
+
+        WebConversation wc = new WebConversation();
+        wc.getClientProperties().setHttpsConfiguration(configuration);
+        assertSame("client configuration", configuration, wc.getClientProperties().getHttpsConfiguration());
+    }
 }
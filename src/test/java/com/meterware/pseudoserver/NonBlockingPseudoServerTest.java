@@ -0,0 +1,80 @@
+package com.meterware.pseudoserver;
+/********************************************************************************************************************
+ * $Id$
+ * $URL$*
+ *
+ * Copyright (c) 2026, Russell Gold
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation
+ * the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and
+ * to permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions
+ * of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO
+ * THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ *
+ *******************************************************************************************************************/
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Runs the pseudo server tests against a server which uses a selector and a pool of worker threads.
+ */
+public class NonBlockingPseudoServerTest extends PseudoServerTest {
+
+    private static final int NUM_WORKER_THREADS = 2;
+
+    private static final int NUM_CONNECTIONS = 50;
+
+
+    protected PseudoServerTestSupport createTestSupport() {
+        return new PseudoServerTestSupport( NUM_WORKER_THREADS );
+    }
+
+
+    @Test
+    public void testManyKeepAliveConnections() throws Exception {
+        support.defineResource("sample", "Get this", "text/plain");
+        int initialThreadCount = Thread.activeCount();
+
+        SocketConnection[] connections = new SocketConnection[NUM_CONNECTIONS];
+        for (int i = 0; i < connections.length; i++) {
+            connections[i] = new SocketConnection("localhost", support.getHostPort());
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < connections.length; i++) {
+                SocketConnection.SocketResponse response = connections[i].getResponse("GET", "/sample");
+                assertEquals("Response " + round + " on connection " + i, "Get this", new String(response.getBody()));
+            }
+        }
+        assertTrue("Server created a thread per connection", Thread.activeCount() - initialThreadCount <= NUM_WORKER_THREADS);
+    }
+
+
+    @Test
+    public void testRequestLength() throws Exception {
+        assertEquals("Incomplete header", -1, requestLength("GET / HTTP/1.1\r\nHost: x\r\n"));
+        assertEquals("No body", 27, requestLength("GET / HTTP/1.1\r\nHost: x\r\n\r\nGET"));
+        assertEquals("Incomplete body", -1, requestLength("POST / HTTP/1.1\r\nContent-Length: 5\r\n\r\nabc"));
+        assertEquals("Complete body", 43, requestLength("POST / HTTP/1.1\r\ncontent-length: 5\r\n\r\nabcdeGET"));
+
+        String chunkedHeader = "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n";
+        assertEquals("Incomplete chunks", -1, requestLength(chunkedHeader + "3\r\nab\r\n\r\n"));
+        assertEquals("No trailer end", -1, requestLength(chunkedHeader + "3\r\nabc\r\n0\r\n"));
+        assertEquals("Complete chunks", chunkedHeader.length() + 13, requestLength(chunkedHeader + "3\r\nabc\r\n0\r\n\r\nGET"));
+    }
+
+
+    private int requestLength(String bytes) {
+        return NonBlockingServer.getRequestLength(bytes.getBytes(), bytes.length());
+    }
+}
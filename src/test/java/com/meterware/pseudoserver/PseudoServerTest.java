@@ -34,7 +34,12 @@ import static org.junit.Assert.*;
 
 public class PseudoServerTest {
 
-    private PseudoServerTestSupport support = new PseudoServerTestSupport();
+    protected PseudoServerTestSupport support = createTestSupport();
+
+
+    protected PseudoServerTestSupport createTestSupport() {
+        return new PseudoServerTestSupport();
+    }
 
 
     @Before